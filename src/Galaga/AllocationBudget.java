@@ -0,0 +1,196 @@
+package Galaga;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Holds a loop to a budget of bytes allocated per frame, measured with the
+ * JVM's per-thread allocation counter. A steady game should allocate
+ * nothing at all, so that the collector never has a reason to pause it; a
+ * budget of zero checks exactly that. Frames the caller does not count as
+ * steady, such as the one a new game starts on, and the first frames while
+ * the JIT and the missile pools warm up, are measured but never held to the
+ * budget.
+ * <p>
+ * The JIT now and then allocates a few hundred bytes on the thread whose
+ * code it is recompiling. A budget of zero holds exactly under -Xint; with
+ * the JIT on, a budget of a kilobyte or so still catches anything the game
+ * itself allocates every frame.
+ * <p>
+ * Each budget is meant to be used by a single thread, the one whose loop it
+ * measures
+ *
+ * @author Christopher Glasz
+ */
+public class AllocationBudget {
+
+	/**
+	 * Name shown in the summary and in errors
+	 */
+	private final String name;
+
+	/**
+	 * Most bytes a steady frame may allocate
+	 */
+	private final long budget;
+
+	/**
+	 * Number of frames to let pass before holding them to the budget
+	 */
+	private final long warmup;
+
+	/**
+	 * True to throw as soon as a frame goes over the budget, rather than
+	 * only counting it
+	 */
+	private final boolean strict;
+
+	/**
+	 * Source of the per-thread allocation counter, or null if this JVM does
+	 * not have one
+	 */
+	private final com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * Id of the thread being measured
+	 */
+	private long thread;
+
+	/**
+	 * Allocation counter at the start of the current frame
+	 */
+	private long start;
+
+	/**
+	 * Number of frames measured
+	 */
+	private long frames;
+
+	/**
+	 * Number of frames held to the budget
+	 */
+	private long checked;
+
+	/**
+	 * Number of checked frames that went over the budget
+	 */
+	private long over;
+
+	/**
+	 * Bytes allocated by all checked frames
+	 */
+	private long total;
+
+	/**
+	 * Most bytes allocated by a checked frame
+	 */
+	private long worst;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param name
+	 *            name shown in the summary and in errors
+	 * @param budget
+	 *            most bytes a steady frame may allocate
+	 * @param warmup
+	 *            number of frames to let pass before holding them to the
+	 *            budget
+	 * @param strict
+	 *            true to throw as soon as a frame goes over the budget
+	 */
+	public AllocationBudget(String name, long budget, long warmup,
+			boolean strict) {
+		this.name = name;
+		this.budget = budget;
+		this.warmup = warmup;
+		this.strict = strict;
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean)
+						.isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			System.out.println("Error measuring " + name
+					+ ": this JVM cannot count allocated bytes per thread");
+			threads = null;
+		}
+	}
+
+	/**
+	 * Returns true if this JVM can count the bytes allocated by a thread
+	 *
+	 * @return true if the budget can be checked
+	 */
+	public boolean isSupported() {
+		return threads != null;
+	}
+
+	/**
+	 * Marks the start of a frame on the calling thread
+	 */
+	public void begin() {
+		if (threads == null)
+			return;
+		thread = Thread.currentThread().getId();
+		start = threads.getThreadAllocatedBytes(thread);
+	}
+
+	/**
+	 * Marks the end of a frame begun on the same thread, and holds it to the
+	 * budget if it was steady
+	 *
+	 * @param steady
+	 *            false if the frame did one-off work, such as starting a new
+	 *            game, and should not be held to the budget
+	 * @return bytes allocated during the frame
+	 * @throws IllegalStateException
+	 *             if the budget is strict and the frame went over it
+	 */
+	public long end(boolean steady) {
+		if (threads == null)
+			return 0;
+		long bytes = threads.getThreadAllocatedBytes(thread) - start;
+		frames++;
+		if (!steady || frames <= warmup)
+			return bytes;
+
+		checked++;
+		total += bytes;
+		worst = Math.max(worst, bytes);
+		if (bytes > budget) {
+			over++;
+			if (strict)
+				throw new IllegalStateException(name + " frame " + frames
+						+ " allocated " + bytes + " bytes, over its budget of "
+						+ budget);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of steady frames that went over the budget
+	 *
+	 * @return the number of frames over the budget
+	 */
+	public long overruns() {
+		return over;
+	}
+
+	/**
+	 * Returns a one line summary of the frames measured
+	 *
+	 * @return the summary
+	 */
+	public String summary() {
+		if (threads == null)
+			return name + " allocation: not measured";
+		return String.format(
+				"%s allocation: frames=%d checked=%d budget=%dB over=%d "
+						+ "mean=%.1fB worst=%dB", name, frames, checked,
+				budget, over, checked == 0 ? 0 : total / (double) checked,
+				worst);
+	}
+}
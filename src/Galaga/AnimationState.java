@@ -69,22 +69,30 @@ public enum AnimationState {
 		}
 	};
 
+	/**
+	 * Every animation state, in order, so that stepping through them does not
+	 * copy the array values() returns
+	 */
+	private static final AnimationState[] VALUES = values();
+
 	/**
 	 * Returns the next animation state in the cycle
 	 * 
 	 * @return the next animation state in the cycle
 	 */
 	public AnimationState getNext() {
-		return values()[(ordinal() + 1) % values().length];
+		return VALUES[(ordinal() + 1) % VALUES.length];
 	}
 
 	/**
 	 * Returns either UP or DOWN
 	 * 
+	 * @param random
+	 *            source of random numbers
 	 * @return either UP or DOWN
 	 */
-	public static AnimationState random() {
-		return values()[(int) (Math.random() * 2)];
+	public static AnimationState random(GameRandom random) {
+		return VALUES[random.nextInt(2)];
 	}
 
 	/**
@@ -117,11 +117,71 @@ public interface ApplicationConstants {
 	 */
 	float WAVE_TIME = 2;
 
+	/**
+	 * Length of one simulation tick in seconds
+	 */
+	float TICK_TIME = 1 / 60f;
+
+	/**
+	 * Ticks to let pass, while the JIT compiles the game and its pools fill,
+	 * before holding the simulation to its allocation budget
+	 */
+	long ALLOCATION_WARMUP = 600;
+
+	/**
+	 * Frame rate asked of Processing, so high that it never sleeps between
+	 * frames, leaving the frame pacer to start each one on time
+	 */
+	float UNPACED_FRAME_RATE = 100000;
+
 	/**
 	 * Score at which enemies gain a life
 	 */
 	int NEW_LIFE_SCORE = 20000;
 
+	/**
+	 * Number of highscores the highscore file has room for when it is
+	 * created. Every score is kept: the file doubles in size whenever it fills
+	 */
+	int HIGHSCORE_CAPACITY = 1000;
+
+	/**
+	 * Size in bytes the highscore journal may grow to before it is compacted
+	 * into the highscore file
+	 */
+	int HIGHSCORE_JOURNAL_LIMIT = 32 * 1024;
+
+	/**
+	 * Longest to wait for a background thread to finish its work when the
+	 * game shuts down, in milliseconds
+	 */
+	long SHUTDOWN_TIMEOUT = 2000;
+
+	/**
+	 * Port the game server listens on unless told otherwise
+	 */
+	int SERVER_PORT = 7700;
+
+	/**
+	 * Port spectators connect to unless told otherwise
+	 */
+	int BROADCAST_PORT = 7800;
+
+	/**
+	 * Port cabinets playing head-to-head talk on unless told otherwise
+	 */
+	int NETPLAY_PORT = 7900;
+
+	/**
+	 * Labels of the main menu options, top to bottom
+	 */
+	String[] MAIN_MENU_OPTIONS = { "Play", "High Scores", "Quit" };
+
+	/**
+	 * Labels of the postgame menu options, top to bottom
+	 */
+	String[] POSTGAME_MENU_OPTIONS = { "Return to Menu", "Quit" };
+
 	/**
 	 * Y coordinates of each row of enemies
 	 */
@@ -0,0 +1,243 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import processing.core.PApplet;
+
+/**
+ * Loads every asset the game needs, listed by the {@link Sprite} and
+ * {@link Typeface} enumerations, in the background, so that the sketch can
+ * draw a boot screen while they load. Assets come from the
+ * {@link AssetPack} if there is one, and are otherwise decoded from their
+ * own files on a small pool of threads. Sprites that turn are pre-rotated
+ * as part of their load, so they are ready before the game draws its first
+ * frame. Each asset's load is recorded on a {@link BootTimeline}
+ *
+ * @author Christopher Glasz
+ */
+public class AssetLoader {
+
+	/**
+	 * PApplet to load the assets with
+	 */
+	private final PApplet app;
+
+	/**
+	 * Where to record each asset's load
+	 */
+	private final BootTimeline timeline;
+
+	/**
+	 * Threads loading the assets
+	 */
+	private final ExecutorService pool;
+
+	/**
+	 * Counts down as each asset finishes loading
+	 */
+	private final CountDownLatch remaining;
+
+	/**
+	 * Number of assets to load
+	 */
+	private final int total;
+
+	/**
+	 * Asset pack to load from, or null to load each asset from its own file
+	 */
+	private final File pack;
+
+	/**
+	 * Constructor creates the thread pool
+	 *
+	 * @param app
+	 *            PApplet to load the assets with
+	 * @param timeline
+	 *            where to record each asset's load
+	 * @param threads
+	 *            number of threads to load on
+	 */
+	public AssetLoader(PApplet app, BootTimeline timeline, int threads) {
+		this(app, timeline, threads, null);
+	}
+
+	/**
+	 * Constructor creates the thread pool
+	 *
+	 * @param app
+	 *            PApplet to load the assets with
+	 * @param timeline
+	 *            where to record each asset's load
+	 * @param threads
+	 *            number of threads to load each asset from its own file on
+	 * @param pack
+	 *            asset pack to load from if it exists, or null
+	 */
+	public AssetLoader(PApplet app, BootTimeline timeline, int threads,
+			File pack) {
+		this.app = app;
+		this.timeline = timeline;
+		this.pack = pack;
+		total = Sprite.values().length + Typeface.values().length;
+		remaining = new CountDownLatch(total);
+		pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Asset loader " + count++);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Start loading every asset, from the asset pack if there is one
+	 */
+	public void start() {
+		if (pack != null && pack.exists()) {
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					unpack();
+				}
+			});
+		} else
+			loadEach(0);
+	}
+
+	/**
+	 * Load every asset from the asset pack. If the pack is damaged, the
+	 * assets not yet loaded are loaded from their own files instead
+	 */
+	private void unpack() {
+		long start = System.nanoTime();
+		AssetPack assets;
+		try {
+			assets = new AssetPack(pack);
+			if (!assets.verify())
+				throw new IOException(pack + " does not match its checksum");
+		} catch (IOException e) {
+			System.out.println("Error opening the asset pack");
+			e.printStackTrace();
+			loadEach(0);
+			return;
+		}
+		timeline.asset(pack.getName(), start, System.nanoTime());
+
+		int done = 0;
+		try {
+			for (Typeface t : Typeface.values()) {
+				start = System.nanoTime();
+				t.load(assets);
+				loaded(t.getPath(), start);
+				done++;
+			}
+			for (Sprite s : Sprite.values()) {
+				start = System.nanoTime();
+				s.load(assets);
+				s.prerotate();
+				loaded(s.getPath(), start);
+				done++;
+			}
+		} catch (IOException e) {
+			System.out.println("Error unpacking the asset pack");
+			e.printStackTrace();
+			loadEach(done);
+			return;
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Load each asset from its own file, in parallel. Fonts go first, being
+	 * the largest
+	 *
+	 * @param from
+	 *            number of assets already loaded, fonts first, to skip
+	 */
+	private void loadEach(int from) {
+		int i = 0;
+		for (final Typeface t : Typeface.values()) {
+			if (i++ < from)
+				continue;
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					long start = System.nanoTime();
+					try {
+						t.load(app);
+					} finally {
+						loaded(t.getPath(), start);
+					}
+				}
+			});
+		}
+		for (final Sprite s : Sprite.values()) {
+			if (i++ < from)
+				continue;
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					long start = System.nanoTime();
+					try {
+						s.load(app);
+						s.prerotate();
+					} finally {
+						loaded(s.getPath(), start);
+					}
+				}
+			});
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Record an asset as loaded, or as given up on. Either way, boot carries
+	 * on without waiting for it
+	 *
+	 * @param asset
+	 *            name of the asset
+	 * @param start
+	 *            time loading started, from System.nanoTime()
+	 */
+	private void loaded(String asset, long start) {
+		timeline.asset(asset, start, System.nanoTime());
+		remaining.countDown();
+	}
+
+	/**
+	 * Returns true once every asset is loaded. Once this has returned true,
+	 * the assets can be used from the calling thread
+	 *
+	 * @return true once every asset is loaded
+	 */
+	public boolean isDone() {
+		return remaining.getCount() == 0;
+	}
+
+	/**
+	 * Returns the fraction of the assets loaded so far
+	 *
+	 * @return fraction between 0 and 1
+	 */
+	public float progress() {
+		return 1 - remaining.getCount() / (float) total;
+	}
+
+	/**
+	 * Wait for every asset to load
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public void await() throws InterruptedException {
+		remaining.await();
+	}
+}
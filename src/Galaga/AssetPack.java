@@ -0,0 +1,264 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+import processing.core.PConstants;
+import processing.core.PFont;
+import processing.core.PImage;
+
+/**
+ * Defines a single file holding every sprite and font, built ahead of time
+ * by {@link AssetPackCompiler}. The pack is memory mapped and read through
+ * once from start to end, and sprites are copied straight from it into their
+ * pixel arrays, so booting from a pack decodes no images at all.
+ * <p>
+ * File layout: magic, version, CRC32 of everything after the header, number
+ * of assets, then an index entry per asset: its kind, its path, and the
+ * offset and length of its data. A sprite's data is its width, height and
+ * format followed by its ARGB pixels; a font's data is its VLW file, which
+ * already holds its glyph metrics and bitmaps. Every asset starts on a four
+ * byte boundary
+ *
+ * @author Christopher Glasz
+ */
+public class AssetPack {
+
+	/**
+	 * Identifies an asset pack
+	 */
+	static final int MAGIC = 0x4741504b;
+
+	/**
+	 * Version of the file layout
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Size of the header in bytes, not counting the index
+	 */
+	static final int HEADER_SIZE = 16;
+
+	/**
+	 * Kinds of asset
+	 */
+	static final int SPRITE = 0, FONT = 1;
+
+	/**
+	 * The mapped file
+	 */
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * Kind, offset and length of each asset, by path
+	 */
+	private final HashMap<String, int[]> index;
+
+	/**
+	 * Checksum recorded in the header
+	 */
+	private final int checksum;
+
+	/**
+	 * Maps an asset pack and reads its index
+	 *
+	 * @param pack
+	 *            location of the asset pack
+	 * @throws IOException
+	 *             if the pack cannot be mapped or is not an asset pack
+	 */
+	public AssetPack(File pack) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(pack, "r");
+		try {
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					file.length());
+		} finally {
+			file.close();
+		}
+
+		// Read the whole pack in one sequential pass
+		buffer.load();
+
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+				|| buffer.getInt(4) != VERSION)
+			throw new IOException(pack + " is not an asset pack");
+		checksum = buffer.getInt(8);
+		int count = buffer.getInt(12);
+
+		ByteBuffer in = buffer.duplicate();
+		in.position(HEADER_SIZE);
+		index = new HashMap<String, int[]>();
+		for (int i = 0; i < count; i++) {
+			int kind = in.get();
+			byte[] path = new byte[in.getShort()];
+			in.get(path);
+			int offset = in.getInt();
+			int length = in.getInt();
+			if (offset < 0 || length < 0
+					|| (long) offset + length > buffer.capacity())
+				throw new IOException(pack + " is corrupt");
+			index.put(new String(path, "UTF-8"), new int[] { kind, offset,
+					length });
+		}
+	}
+
+	/**
+	 * Returns true if the contents of the pack match the checksum in its
+	 * header
+	 *
+	 * @return true if the pack is intact
+	 */
+	public boolean verify() {
+		return checksum(buffer, HEADER_SIZE) == checksum;
+	}
+
+	/**
+	 * Returns the CRC32 of a buffer from an offset to its end
+	 *
+	 * @param buffer
+	 *            the buffer to check
+	 * @param from
+	 *            offset to start at
+	 * @return the CRC32
+	 */
+	static int checksum(ByteBuffer buffer, int from) {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[1 << 16];
+		ByteBuffer in = buffer.duplicate();
+		in.position(from);
+		while (in.hasRemaining()) {
+			int n = Math.min(chunk.length, in.remaining());
+			in.get(chunk, 0, n);
+			crc.update(chunk, 0, n);
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Returns true if the pack holds an asset
+	 *
+	 * @param path
+	 *            path of the asset, as listed in its enumeration
+	 * @return true if the pack holds the asset
+	 */
+	public boolean contains(String path) {
+		return index.containsKey(path);
+	}
+
+	/**
+	 * Returns a sprite from the pack, copied into a new image
+	 *
+	 * @param path
+	 *            path of the sprite
+	 * @return the sprite's image
+	 * @throws IOException
+	 *             if the pack does not hold the sprite
+	 */
+	public PImage image(String path) throws IOException {
+		ByteBuffer in = find(path, SPRITE);
+		int width = in.getInt();
+		int height = in.getInt();
+		int format = in.getInt();
+		if (width <= 0 || height <= 0
+				|| in.remaining() != 4 * width * height)
+			throw new IOException(path + " is corrupt");
+		PImage image = new PImage(width, height, format);
+		in.asIntBuffer().get(image.pixels);
+		return image;
+	}
+
+	/**
+	 * Returns a font from the pack
+	 *
+	 * @param path
+	 *            path of the font
+	 * @return the font
+	 * @throws IOException
+	 *             if the pack does not hold the font
+	 */
+	public PFont font(String path) throws IOException {
+		return new PFont(new BufferInput(find(path, FONT)));
+	}
+
+	/**
+	 * Returns the data of an asset
+	 *
+	 * @param path
+	 *            path of the asset
+	 * @param kind
+	 *            kind of asset expected
+	 * @return a buffer holding just the asset's data
+	 * @throws IOException
+	 *             if the pack does not hold the asset
+	 */
+	private ByteBuffer find(String path, int kind) throws IOException {
+		int[] entry = index.get(path);
+		if (entry == null || entry[0] != kind)
+			throw new IOException("Asset pack has no " + path);
+		ByteBuffer in = buffer.duplicate();
+		in.position(entry[1]);
+		in.limit(entry[1] + entry[2]);
+		return in.slice();
+	}
+
+	/**
+	 * Returns the format of an image with the passed in pixels: ARGB if any
+	 * pixel is not fully opaque, RGB otherwise, as Processing decides when
+	 * loading a PNG
+	 *
+	 * @param pixels
+	 *            the image's pixels
+	 * @return PConstants.ARGB or PConstants.RGB
+	 */
+	static int formatOf(int[] pixels) {
+		for (int p : pixels)
+			if ((p >>> 24) != 0xFF)
+				return PConstants.ARGB;
+		return PConstants.RGB;
+	}
+
+	/**
+	 * Defines a stream reading from a buffer, to hand a font in the pack to
+	 * PFont without copying it
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class BufferInput extends InputStream {
+
+		/**
+		 * The buffer being read
+		 */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Constructor initializes variables
+		 *
+		 * @param buffer
+		 *            the buffer to read
+		 */
+		private BufferInput(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buffer.hasRemaining())
+				return -1;
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+	}
+}
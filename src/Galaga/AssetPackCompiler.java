@@ -0,0 +1,189 @@
+package Galaga;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Builds the {@link AssetPack} the game boots from, out of every sprite and
+ * font listed by the {@link Sprite} and {@link Typeface} enumerations. Run it
+ * as part of the build with the sketch folder and pack location as
+ * arguments. Sprites are decoded here, once, so the cabinets never have to
+ *
+ * @author Christopher Glasz
+ */
+public class AssetPackCompiler {
+
+	/**
+	 * Packs the assets in the sketch folder named by the first argument into
+	 * the pack named by the second
+	 *
+	 * @param args
+	 *            sketch folder and pack locations
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.out.println("Usage: AssetPackCompiler <sketch folder> <assets.pack>");
+			System.exit(2);
+		}
+
+		try {
+			compile(new File(args[0]), new File(args[1]));
+		} catch (IOException e) {
+			System.out.println("Error packing assets");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Packs every asset. The pack is written to a temporary file and then
+	 * moved into place, so a failed build never leaves a broken pack behind
+	 *
+	 * @param sketch
+	 *            folder the asset paths are relative to
+	 * @param pack
+	 *            location of the asset pack
+	 * @throws IOException
+	 *             if an asset cannot be read or the pack cannot be written
+	 */
+	public static void compile(File sketch, File pack) throws IOException {
+		int count = Sprite.values().length + Typeface.values().length;
+		String[] paths = new String[count];
+		int[] kinds = new int[count];
+		byte[][] data = new byte[count][];
+
+		int n = 0;
+		for (Sprite s : Sprite.values()) {
+			paths[n] = s.getPath();
+			kinds[n] = AssetPack.SPRITE;
+			data[n++] = sprite(new File(sketch, s.getPath()));
+		}
+		for (Typeface t : Typeface.values()) {
+			paths[n] = t.getPath();
+			kinds[n] = AssetPack.FONT;
+			data[n++] = read(new File(sketch, t.getPath()));
+		}
+
+		// Work out where everything goes: header, index, then the assets,
+		// each on a four byte boundary
+		int indexSize = 0;
+		for (int i = 0; i < count; i++)
+			indexSize += 1 + 2 + paths[i].getBytes("UTF-8").length + 4 + 4;
+		int[] offsets = new int[count];
+		int at = align(AssetPack.HEADER_SIZE + indexSize);
+		for (int i = 0; i < count; i++) {
+			offsets[i] = at;
+			at = align(at + data[i].length);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(at);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(AssetPack.MAGIC);
+		out.writeInt(AssetPack.VERSION);
+		out.writeInt(0);
+		out.writeInt(count);
+		for (int i = 0; i < count; i++) {
+			byte[] path = paths[i].getBytes("UTF-8");
+			out.writeByte(kinds[i]);
+			out.writeShort(path.length);
+			out.write(path);
+			out.writeInt(offsets[i]);
+			out.writeInt(data[i].length);
+		}
+		for (int i = 0; i < count; i++) {
+			while (out.size() < offsets[i])
+				out.writeByte(0);
+			out.write(data[i]);
+		}
+		while (out.size() < at)
+			out.writeByte(0);
+		out.flush();
+
+		// Fill in the checksum of everything after the header
+		ByteBuffer file = ByteBuffer.wrap(bytes.toByteArray());
+		file.putInt(8, AssetPack.checksum(file, AssetPack.HEADER_SIZE));
+
+		if (pack.getParentFile() != null)
+			pack.getParentFile().mkdirs();
+		File temp = new File(pack.getPath() + ".tmp");
+		FileOutputStream stream = new FileOutputStream(temp);
+		try {
+			stream.write(file.array());
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+		if (!temp.renameTo(pack)) {
+			pack.delete();
+			if (!temp.renameTo(pack))
+				throw new IOException("Could not replace " + pack);
+		}
+	}
+
+	/**
+	 * Decodes a sprite into its width, height, format and ARGB pixels
+	 *
+	 * @param file
+	 *            the image file
+	 * @return the packed sprite
+	 * @throws IOException
+	 *             if the image cannot be read
+	 */
+	private static byte[] sprite(File file) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if (image == null)
+			throw new IOException("Could not read " + file);
+		int width = image.getWidth(), height = image.getHeight();
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+		ByteBuffer out = ByteBuffer.allocate(12 + 4 * pixels.length);
+		out.putInt(width);
+		out.putInt(height);
+		out.putInt(AssetPack.formatOf(pixels));
+		out.asIntBuffer().put(pixels);
+		return out.array();
+	}
+
+	/**
+	 * Reads a whole file
+	 *
+	 * @param file
+	 *            the file to read
+	 * @return its contents
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static byte[] read(File file) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		InputStream in = new FileInputStream(file);
+		try {
+			int n;
+			while ((n = in.read(buf)) > 0)
+				out.write(buf, 0, n);
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Rounds an offset up to a four byte boundary
+	 *
+	 * @param offset
+	 *            the offset
+	 * @return the next multiple of four
+	 */
+	private static int align(int offset) {
+		return (offset + 3) & ~3;
+	}
+}
@@ -0,0 +1,148 @@
+package Galaga;
+
+import java.io.File;
+
+/**
+ * Presses the buttons for a {@link PlayerController}. While the game is being
+ * played, the controller's decisions are turned into buttons held down, which
+ * reach the fighter through the same key handling as a player's. Between
+ * games, the autopilot taps start to get through the menus and straight into
+ * the next game, so a bot can play unattended for as long as it is left
+ * running
+ *
+ * @author Christopher Glasz
+ */
+public class Autopilot {
+
+	/**
+	 * What decides how to play
+	 */
+	private final PlayerController controller;
+
+	/**
+	 * Buttons held down on the last tick
+	 */
+	private int held;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param controller
+	 *            what decides how to play
+	 */
+	public Autopilot(PlayerController controller) {
+		this.controller = controller;
+		held = 0;
+	}
+
+	/**
+	 * Decide which buttons to hold down for the next tick
+	 *
+	 * @param world
+	 *            the world at the end of the last tick
+	 * @return buttons to hold down, one bit per {@link Button}
+	 */
+	public int buttons(FrameSnapshot world) {
+		int next = 0;
+		GameState state = world.getGameState();
+		if (state.playing()) {
+			switch (controller.steer(world)) {
+			case LEFT:
+				next |= Button.LEFT.mask();
+				break;
+			case RIGHT:
+				next |= Button.RIGHT.mask();
+				break;
+			case UP:
+				next |= Button.UP.mask();
+				break;
+			case DOWN:
+				next |= Button.DOWN.mask();
+				break;
+			default:
+				break;
+			}
+
+			// A missile is fired as the button goes down, so let go of it
+			// between shots
+			if ((held & Button.FIRE.mask()) == 0 && controller.fire(world))
+				next |= Button.FIRE.mask();
+		} else if (held == 0) {
+
+			// Move up to the first option of a menu, then press start
+			boolean menu = state == GameState.MAIN_MENU
+					|| state == GameState.POSTGAME_MENU;
+			if (menu && world.getMenuSelection() > 0)
+				next = Button.UP.mask();
+			else
+				next = Button.START.mask();
+		}
+		held = next;
+		return next;
+	}
+
+	/**
+	 * Soak test a build by letting a bot play as fast as the simulation can
+	 * run, and report how it went. Arguments are the name of the bot, the
+	 * number of ticks to play, the seed, the data folder, and optionally the
+	 * bytes a steady tick may allocate. Exits with an error, and the tick and
+	 * seed to reproduce it, if the game throws or goes over the budget
+	 *
+	 * @param args
+	 *            bot, ticks, seed, data folder and allocation budget
+	 */
+	public static void main(String[] args) {
+		Bot bot = Bot.valueOf(args.length > 0 ? args[0].toUpperCase()
+				: "DODGER");
+		long ticks = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System
+				.nanoTime();
+		File data = new File(args.length > 3 ? args[3] : "data");
+		AllocationBudget budget = args.length > 4 ? new AllocationBudget(
+				"tick", Long.parseLong(args[4]),
+				ApplicationConstants.ALLOCATION_WARMUP, true) : null;
+
+		GameSession session = new GameSession(data, seed);
+		Autopilot pilot = new Autopilot(bot);
+		FrameSnapshot world = new FrameSnapshot();
+		session.capture(world);
+
+		long games = 0, total = 0;
+		int best = 0, level = 0;
+		GameState last = world.getGameState();
+		long start = System.nanoTime();
+		long t = 0;
+		try {
+			for (; t < ticks; t++) {
+				if (budget != null)
+					budget.begin();
+				session.step(pilot.buttons(world));
+				session.capture(world);
+				GameState state = world.getGameState();
+				if (budget != null)
+					budget.end(state == last);
+				level = Math.max(level, world.getLevel());
+				if (state == GameState.GAMEOVER && last != GameState.GAMEOVER) {
+					games++;
+					total += world.getScore();
+					best = Math.max(best, world.getScore());
+				}
+				last = state;
+			}
+		} catch (RuntimeException e) {
+			System.out.println("Error on tick " + t + " playing " + bot
+					+ " with seed " + seed);
+			e.printStackTrace();
+			System.exit(1);
+		}
+
+		double seconds = (System.nanoTime() - start) * 1e-9;
+		System.out.println(String.format(
+				"%s: seed=%d ticks=%d in %.1fs (%.0fx real time) games=%d "
+						+ "mean score=%d best=%d best level=%d", bot, seed, t,
+				seconds, t * ApplicationConstants.TICK_TIME / seconds, games,
+				games == 0 ? 0 : total / games, best, level));
+		if (budget != null)
+			System.out.println(budget.summary());
+	}
+}
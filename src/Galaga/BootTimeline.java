@@ -0,0 +1,145 @@
+package Galaga;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * Records how long the game takes to boot, from the moment the JVM started
+ * to the moment the menu takes input, phase by phase and asset by asset. The
+ * cabinets are power cycled every night, so every second here is a second
+ * of a dark screen
+ *
+ * @author Christopher Glasz
+ */
+public class BootTimeline {
+
+	/**
+	 * Time the JVM started, on the System.nanoTime() clock
+	 */
+	private final long origin;
+
+	/**
+	 * Names of the phases reached, in order
+	 */
+	private final ArrayList<String> phases;
+
+	/**
+	 * Time each phase was reached, from System.nanoTime()
+	 */
+	private final ArrayList<Long> phaseTimes;
+
+	/**
+	 * Names of the assets loaded, in the order they finished
+	 */
+	private final ArrayList<String> assets;
+
+	/**
+	 * Threads each asset was loaded on
+	 */
+	private final ArrayList<String> assetThreads;
+
+	/**
+	 * Times each asset started and finished loading, from System.nanoTime()
+	 */
+	private final ArrayList<long[]> assetTimes;
+
+	/**
+	 * Constructor works out when the JVM started
+	 */
+	public BootTimeline() {
+		long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+		origin = System.nanoTime() - uptime * 1000000L;
+		phases = new ArrayList<String>();
+		phaseTimes = new ArrayList<Long>();
+		assets = new ArrayList<String>();
+		assetThreads = new ArrayList<String>();
+		assetTimes = new ArrayList<long[]>();
+		mark("jvm start", origin);
+	}
+
+	/**
+	 * Record reaching a phase now
+	 *
+	 * @param phase
+	 *            name of the phase
+	 */
+	public void mark(String phase) {
+		mark(phase, System.nanoTime());
+	}
+
+	/**
+	 * Record reaching a phase
+	 *
+	 * @param phase
+	 *            name of the phase
+	 * @param time
+	 *            time the phase was reached, from System.nanoTime()
+	 */
+	public synchronized void mark(String phase, long time) {
+		phases.add(phase);
+		phaseTimes.add(time);
+	}
+
+	/**
+	 * Record an asset being loaded on the current thread. May be called from
+	 * any thread
+	 *
+	 * @param asset
+	 *            name of the asset
+	 * @param start
+	 *            time loading started, from System.nanoTime()
+	 * @param end
+	 *            time loading finished, from System.nanoTime()
+	 */
+	public synchronized void asset(String asset, long start, long end) {
+		assets.add(asset);
+		assetThreads.add(Thread.currentThread().getName());
+		assetTimes.add(new long[] { start, end });
+	}
+
+	/**
+	 * Returns the time since the JVM started, in milliseconds
+	 *
+	 * @param time
+	 *            a time from System.nanoTime()
+	 * @return milliseconds since the JVM started
+	 */
+	private float since(long time) {
+		return (time - origin) / 1000000f;
+	}
+
+	/**
+	 * Returns a report of every phase and asset, with the time each was
+	 * reached or loaded and how long it took
+	 *
+	 * @return the report
+	 */
+	public synchronized String report() {
+		StringBuilder report = new StringBuilder("boot timeline:\n");
+		for (int i = 0; i < phases.size(); i++) {
+			long time = phaseTimes.get(i);
+			long previous = i == 0 ? time : phaseTimes.get(i - 1);
+			report.append(String.format("  %9.1fms %-22s +%.1fms%n",
+					since(time), phases.get(i),
+					(time - previous) / 1000000f));
+		}
+
+		// Compare the time spent loading with how long it took
+		long first = Long.MAX_VALUE, last = Long.MIN_VALUE, busy = 0;
+		for (int i = 0; i < assets.size(); i++) {
+			long[] t = assetTimes.get(i);
+			first = Math.min(first, t[0]);
+			last = Math.max(last, t[1]);
+			busy += t[1] - t[0];
+			report.append(String.format("  %9.1fms   %-32s %6.1fms  %s%n",
+					since(t[0]), assets.get(i), (t[1] - t[0]) / 1000000f,
+					assetThreads.get(i)));
+		}
+		if (!assets.isEmpty())
+			report.append(String.format(
+					"  assets=%d loading=%.1fms wall=%.1fms parallelism=%.1f%n",
+					assets.size(), busy / 1000000f,
+					(last - first) / 1000000f, busy / (double) (last - first)));
+		return report.toString();
+	}
+}
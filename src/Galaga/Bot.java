@@ -0,0 +1,158 @@
+package Galaga;
+
+/**
+ * Defines the reference bots
+ *
+ * @author Christopher Glasz
+ */
+public enum Bot implements PlayerController, ApplicationConstants {
+
+	/**
+	 * Stays alive: moves away from enemy missiles and diving enemies about to
+	 * reach the fighter, and fires whenever something is overhead
+	 */
+	DODGER {
+		@Override
+		public Joystick steer(FrameSnapshot world) {
+			float x = world.getFighterX();
+			float threat = nearestThreat(world);
+			if (Float.isNaN(threat))
+				return Joystick.CENTER;
+
+			// Move away from the threat, unless that means running into a
+			// wall
+			boolean left = threat > x;
+			if (left && x < -WORLD_WIDTH / 2 + WALL)
+				left = false;
+			else if (!left && x > WORLD_WIDTH / 2 - WALL)
+				left = true;
+			return left ? Joystick.LEFT : Joystick.RIGHT;
+		}
+
+		@Override
+		public boolean fire(FrameSnapshot world) {
+			return nearestEnemy(world) >= 0;
+		}
+	},
+
+	/**
+	 * Scores as fast as it can: chases the lowest enemy, preferring divers,
+	 * and fires once lined up under it, paying no attention to danger
+	 */
+	GREEDY {
+		@Override
+		public Joystick steer(FrameSnapshot world) {
+			int target = nearestEnemy(world);
+			if (target < 0)
+				return Joystick.CENTER;
+			float dx = world.getEnemyX(target) - world.getFighterX();
+			if (Math.abs(dx) < AIM)
+				return Joystick.CENTER;
+			return dx < 0 ? Joystick.LEFT : Joystick.RIGHT;
+		}
+
+		@Override
+		public boolean fire(FrameSnapshot world) {
+			int target = nearestEnemy(world);
+			return target >= 0
+					&& Math.abs(world.getEnemyX(target)
+							- world.getFighterX()) < AIM;
+		}
+	};
+
+	/**
+	 * Closest the dodger lets itself get to a wall
+	 */
+	private static final float WALL = PIXEL_WIDTH * 24;
+
+	/**
+	 * How far across a threat can be and still be dodged
+	 */
+	private static final float DANGER_WIDTH = PIXEL_WIDTH * 20;
+
+	/**
+	 * How high above the fighter a threat can be and still be dodged
+	 */
+	private static final float DANGER_HEIGHT = PIXEL_WIDTH * 60;
+
+	/**
+	 * How far across an enemy can be and still be fired at
+	 */
+	private static final float AIM = PIXEL_WIDTH * 4;
+
+	/**
+	 * Returns the x coordinate of the closest enemy missile or diving enemy
+	 * bearing down on the fighter
+	 *
+	 * @param world
+	 *            the world at the end of the last tick
+	 * @return x coordinate of the threat, or NaN if there is none
+	 */
+	private static float nearestThreat(FrameSnapshot world) {
+		float x = world.getFighterX();
+		float best = Float.MAX_VALUE;
+		float threat = Float.NaN;
+		for (int i = 0; i < world.getMissileCount(); i++) {
+			if (!world.isEnemyMissile(i))
+				continue;
+			float d = danger(x, world.getMissileX(i), world.getMissileY(i));
+			if (d < best) {
+				best = d;
+				threat = world.getMissileX(i);
+			}
+		}
+		for (int i = 0; i < world.getEnemyCount(); i++) {
+			if (world.getEnemyState(i) != EnemyState.DIVE)
+				continue;
+			float d = danger(x, world.getEnemyX(i), world.getEnemyY(i));
+			if (d < best) {
+				best = d;
+				threat = world.getEnemyX(i);
+			}
+		}
+		return threat;
+	}
+
+	/**
+	 * Returns how close a threat is to the fighter, or Float.MAX_VALUE if it
+	 * is too far away to matter
+	 *
+	 * @param x
+	 *            x coordinate of the fighter
+	 * @param tx
+	 *            x coordinate of the threat
+	 * @param ty
+	 *            y coordinate of the threat
+	 * @return height of the threat above the fighter, or Float.MAX_VALUE
+	 */
+	private static float danger(float x, float tx, float ty) {
+		float dy = ty - FIGHTER_Y;
+		if (Math.abs(tx - x) > DANGER_WIDTH || dy < -PIXEL_WIDTH * 8
+				|| dy > DANGER_HEIGHT)
+			return Float.MAX_VALUE;
+		return dy;
+	}
+
+	/**
+	 * Returns the enemy to go after: the lowest diving enemy if any is
+	 * diving, otherwise the lowest enemy
+	 *
+	 * @param world
+	 *            the world at the end of the last tick
+	 * @return index of the enemy, or -1 if there are none
+	 */
+	private static int nearestEnemy(FrameSnapshot world) {
+		int best = -1;
+		boolean bestDiving = false;
+		for (int i = 0; i < world.getEnemyCount(); i++) {
+			boolean diving = world.getEnemyState(i) == EnemyState.DIVE;
+			if (best < 0 || (diving && !bestDiving)
+					|| (diving == bestDiving && world.getEnemyY(i) < world
+							.getEnemyY(best))) {
+				best = i;
+				bestDiving = diving;
+			}
+		}
+		return best;
+	}
+}
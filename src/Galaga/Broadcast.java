@@ -0,0 +1,294 @@
+package Galaga;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Mirrors a live game to any number of spectators: overhead displays
+ * connecting over the network, and recordings being written to disk. Each
+ * tick is encoded once by a {@link BroadcastCodec}, and the same bytes are
+ * written to every subscriber, so another viewer costs one write rather than
+ * another encode. Nothing is encoded while nobody is watching.
+ * <p>
+ * Sockets are written without blocking. A viewer that cannot take a whole
+ * frame keeps the rest to finish on a later tick and misses the frames in
+ * between, which is harmless since every delta is against the last keyframe;
+ * a viewer that misses a keyframe waits for the next one
+ *
+ * @author Christopher Glasz
+ */
+public class Broadcast {
+
+	/**
+	 * Encoder holding the last keyframe
+	 */
+	private final BroadcastCodec codec;
+
+	/**
+	 * The frame being sent this tick
+	 */
+	private ByteBuffer frame;
+
+	/**
+	 * Socket accepting viewers, or null if only recording
+	 */
+	private ServerSocketChannel server;
+
+	/**
+	 * Subscribers waiting to be picked up on the next tick
+	 */
+	private final ConcurrentLinkedQueue<WritableByteChannel> joining;
+
+	/**
+	 * Subscribers being sent frames. Only touched by the publishing thread
+	 */
+	private final ArrayList<Subscriber> subscribers;
+
+	/**
+	 * Number of frames and keyframes encoded
+	 */
+	private long frames, keyframes;
+
+	/**
+	 * Total size of the encoded frames in bytes
+	 */
+	private long bytes;
+
+	/**
+	 * Time spent encoding
+	 */
+	private final LatencyHistogram encodeTime;
+
+	/**
+	 * Constructor starts with no subscribers
+	 */
+	public Broadcast() {
+		codec = new BroadcastCodec();
+		frame = ByteBuffer.allocate(4096);
+		joining = new ConcurrentLinkedQueue<WritableByteChannel>();
+		subscribers = new ArrayList<Subscriber>();
+		encodeTime = new LatencyHistogram("broadcast encode", 1000L, 10000);
+	}
+
+	/**
+	 * Accept viewers connecting to the passed in address
+	 *
+	 * @param address
+	 *            address to listen on
+	 * @throws IOException
+	 *             if the socket cannot be opened
+	 */
+	public void listen(InetSocketAddress address) throws IOException {
+		server = ServerSocketChannel.open();
+		server.bind(address);
+		server.configureBlocking(false);
+	}
+
+	/**
+	 * Add a subscriber, such as a file to record to. It is sent frames from
+	 * the next keyframe on. May be called from any thread
+	 *
+	 * @param channel
+	 *            where to send frames
+	 */
+	public void subscribe(WritableByteChannel channel) {
+		joining.add(channel);
+	}
+
+	/**
+	 * Encode a snapshot and send it to every subscriber. Only to be called
+	 * from the thread producing the snapshots
+	 *
+	 * @param s
+	 *            snapshot to send
+	 */
+	public void publish(FrameSnapshot s) {
+		accept();
+
+		// Pick up new subscribers, and give them a keyframe to start from
+		WritableByteChannel channel;
+		while ((channel = joining.poll()) != null) {
+			subscribers.add(new Subscriber(channel));
+			codec.requestKeyframe();
+		}
+		if (subscribers.isEmpty())
+			return;
+
+		// Encode once
+		long start = System.nanoTime();
+		int size = BroadcastCodec.maxEncodedSize(s);
+		if (size > frame.capacity())
+			frame = ByteBuffer.allocate(Math.max(size, frame.capacity() * 2));
+		frame.clear();
+		boolean key = codec.encode(s, frame);
+		frame.flip();
+		encodeTime.record(System.nanoTime() - start);
+		frames++;
+		if (key)
+			keyframes++;
+		bytes += frame.limit();
+
+		// Send to everyone
+		for (int i = subscribers.size() - 1; i >= 0; i--) {
+			Subscriber sub = subscribers.get(i);
+			try {
+				sub.send(frame, key);
+			} catch (IOException e) {
+				sub.close();
+				subscribers.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Accept any viewers that have connected since the last tick
+	 */
+	private void accept() {
+		if (server == null)
+			return;
+		try {
+			SocketChannel viewer;
+			while ((viewer = server.accept()) != null) {
+				viewer.configureBlocking(false);
+				viewer.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				joining.add(viewer);
+			}
+		} catch (IOException e) {
+			System.out.println("Error accepting a spectator");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Accessor method for the number of subscribers
+	 *
+	 * @return number of subscribers being sent frames
+	 */
+	public int subscribers() {
+		return subscribers.size();
+	}
+
+	/**
+	 * Returns a one-line summary of what has been sent
+	 *
+	 * @return a one-line summary of what has been sent
+	 */
+	public String summary() {
+		return String.format(
+				"broadcast: viewers=%d frames=%d keyframes=%d mean frame=%dB "
+						+ "encode mean=%.1fus p99=%.1fus",
+				subscribers.size(), frames, keyframes,
+				frames == 0 ? 0 : bytes / frames, encodeTime.mean() * 1e-3,
+				encodeTime.percentile(0.99) * 1e-3);
+	}
+
+	/**
+	 * Stop accepting viewers and close every subscriber
+	 */
+	public void close() {
+		for (Subscriber sub : subscribers)
+			sub.close();
+		subscribers.clear();
+		if (server != null) {
+			try {
+				server.close();
+			} catch (IOException e) {
+				System.out.println("Error closing the broadcast socket");
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Defines one destination for the broadcast and how far behind it is
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Subscriber {
+
+		/**
+		 * Where to send frames
+		 */
+		private final WritableByteChannel channel;
+
+		/**
+		 * Rest of a frame the channel could not take, ready for reading
+		 */
+		private ByteBuffer pending;
+
+		/**
+		 * True until the subscriber has been sent a whole keyframe
+		 */
+		private boolean needsKey;
+
+		/**
+		 * Constructor initializes variables
+		 *
+		 * @param channel
+		 *            where to send frames
+		 */
+		private Subscriber(WritableByteChannel channel) {
+			this.channel = channel;
+			pending = ByteBuffer.allocate(4096);
+			pending.flip();
+			needsKey = true;
+		}
+
+		/**
+		 * Send a frame, unless the subscriber is still behind or waiting for
+		 * a keyframe
+		 *
+		 * @param frame
+		 *            the encoded frame, ready for reading
+		 * @param key
+		 *            true if the frame is a keyframe
+		 * @throws IOException
+		 *             if the subscriber has gone away
+		 */
+		private void send(ByteBuffer frame, boolean key) throws IOException {
+			if (pending.hasRemaining()) {
+				channel.write(pending);
+				if (pending.hasRemaining()) {
+					if (key)
+						needsKey = true;
+					return;
+				}
+			}
+			if (needsKey && !key)
+				return;
+
+			frame.position(0);
+			channel.write(frame);
+			needsKey = false;
+
+			// Keep the rest for later. A subscriber that never catches up on a
+			// keyframe starts over from the next one
+			if (frame.hasRemaining()) {
+				if (frame.remaining() > pending.capacity())
+					pending = ByteBuffer.allocate(frame.remaining());
+				pending.clear();
+				pending.put(frame);
+				pending.flip();
+			}
+		}
+
+		/**
+		 * Close the channel
+		 */
+		private void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				System.out.println("Error closing a spectator");
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,629 @@
+package Galaga;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact encoding of frame snapshots for spectators. Every so often a
+ * keyframe carries the whole visible state; every other frame only carries
+ * what has changed since that keyframe, so a viewer that misses a frame
+ * loses nothing but that frame. Coordinates are quantized to 16 bits and
+ * angles to 8, counts and scores are written as variable-length integers,
+ * and each entity's delta is announced by two bits packed into a flag block,
+ * so an enemy sitting still in formation costs a quarter of a byte.
+ * <p>
+ * Each codec keeps the last keyframe it has seen, so an encoder and a decoder
+ * each need their own instance
+ *
+ * @author Christopher Glasz
+ */
+public class BroadcastCodec implements ApplicationConstants {
+
+	/**
+	 * Number of ticks between keyframes
+	 */
+	public static final int KEYFRAME_INTERVAL = 60;
+
+	/**
+	 * Frame kind of a keyframe
+	 */
+	private static final byte KEYFRAME = 0;
+
+	/**
+	 * Frame kind of a delta against the last keyframe
+	 */
+	private static final byte DELTA = 1;
+
+	/**
+	 * Flag set on an entity that has moved or turned since the keyframe
+	 */
+	private static final int MOVED = 1;
+
+	/**
+	 * Flag set on an entity whose sprite has changed since the keyframe
+	 */
+	private static final int CHANGED = 2;
+
+	/**
+	 * Range of x coordinates that can be represented. Anything outside is
+	 * clamped
+	 */
+	private static final float MIN_X = -WORLD_WIDTH, MAX_X = WORLD_WIDTH;
+
+	/**
+	 * Range of y coordinates that can be represented. Anything outside is
+	 * clamped
+	 */
+	private static final float MIN_Y = -WORLD_HEIGHT / 2,
+			MAX_Y = 3 * WORLD_HEIGHT / 2;
+
+	/**
+	 * Largest quantized coordinate
+	 */
+	private static final int STEPS = 0xFFFF;
+
+	/**
+	 * Every game state, by ordinal
+	 */
+	private static final GameState[] STATES = GameState.values();
+
+	/**
+	 * Every sprite, by ordinal
+	 */
+	private static final Sprite[] SPRITES = Sprite.values();
+
+	/**
+	 * Tick of the last keyframe
+	 */
+	private long keyTick;
+
+	/**
+	 * True once a keyframe has been encoded or decoded
+	 */
+	private boolean haveKey;
+
+	/**
+	 * True if the next frame encoded must be a keyframe
+	 */
+	private boolean keyRequested;
+
+	/**
+	 * Quantized fighter position in the last keyframe
+	 */
+	private int keyFighterX, keyFighterY;
+
+	/**
+	 * Enemies in the last keyframe and the frame being coded
+	 */
+	private final Track enemies;
+
+	/**
+	 * Missiles in the last keyframe and the frame being coded
+	 */
+	private final Track missiles;
+
+	/**
+	 * Constructor starts without a keyframe
+	 */
+	public BroadcastCodec() {
+		enemies = new Track();
+		missiles = new Track();
+		haveKey = false;
+		keyRequested = true;
+	}
+
+	/**
+	 * Makes the next frame encoded a keyframe, as when a viewer joins
+	 */
+	public void requestKeyframe() {
+		keyRequested = true;
+	}
+
+	/**
+	 * Returns an upper bound on the size of a snapshot once encoded,
+	 * including the length prefix
+	 *
+	 * @param s
+	 *            snapshot to measure
+	 * @return the most bytes the snapshot can take
+	 */
+	public static int maxEncodedSize(FrameSnapshot s) {
+		int size = 128 + (s.getEnemyCount() + s.getMissileCount()) * 14;
+		for (int i = 0; i < s.getHighscoreCount(); i++)
+			size += 10 + Math.min(s.getHighscoreName(i).length(), 255);
+		return size;
+	}
+
+	/**
+	 * Writes a snapshot as one frame. The buffer must have at least
+	 * {@link #maxEncodedSize(FrameSnapshot)} bytes remaining
+	 *
+	 * @param s
+	 *            snapshot to encode
+	 * @param out
+	 *            buffer to write to
+	 * @return true if a keyframe was written
+	 */
+	public boolean encode(FrameSnapshot s, ByteBuffer out) {
+		boolean key = keyRequested || !haveKey
+				|| s.getTick() - keyTick >= KEYFRAME_INTERVAL;
+		int start = out.position();
+		out.putInt(0);
+
+		// Frame kind and tick, relative to the keyframe for a delta
+		if (key) {
+			out.put(KEYFRAME);
+			putVarLong(out, s.getTick());
+			keyTick = s.getTick();
+			haveKey = true;
+			keyRequested = false;
+		} else {
+			out.put(DELTA);
+			putVarLong(out, s.getTick() - keyTick);
+		}
+
+		// The score board and menus are small enough to send every frame
+		out.put((byte) s.getGameState().ordinal());
+		putVarLong(out, s.getLevel());
+		putVarLong(out, s.getScore());
+		putVarLong(out, s.getScoreDisplay());
+		putVarLong(out, s.getTopScore());
+		putVarLong(out, s.getHits());
+		out.put((byte) s.getLives());
+		putVarLong(out, s.getFired());
+		out.put((byte) s.getMenuSelection());
+		for (int i = 0; i < FrameSnapshot.NAME_LENGTH; i++)
+			out.put((byte) s.getEntryLetter(i));
+		out.put((byte) s.getEntrySelection());
+
+		// Fighter
+		int fx = quantize(s.getFighterX(), MIN_X, MAX_X);
+		int fy = quantize(s.getFighterY(), MIN_Y, MAX_Y);
+		if (key) {
+			out.putShort((short) fx);
+			out.putShort((short) fy);
+			keyFighterX = fx;
+			keyFighterY = fy;
+		} else {
+			putVarLong(out, zigzag(fx - keyFighterX));
+			putVarLong(out, zigzag(fy - keyFighterY));
+		}
+		out.put((byte) s.getFighterSprite().ordinal());
+
+		// Enemies and missiles
+		enemies.count = s.getEnemyCount();
+		enemies.ensure(enemies.count);
+		for (int i = 0; i < enemies.count; i++)
+			enemies.set(i, s.getEnemyX(i), s.getEnemyY(i),
+					s.getEnemyTheta(i), s.getEnemySprite(i));
+		enemies.encode(out, key);
+
+		missiles.count = s.getMissileCount();
+		missiles.ensure(missiles.count);
+		for (int i = 0; i < missiles.count; i++)
+			missiles.set(i, s.getMissileX(i), s.getMissileY(i),
+					s.getMissileTheta(i), s.getMissileSprite(i));
+		missiles.encode(out, key);
+
+		// Highscores, only ever present on the highscore screen
+		out.put((byte) s.getHighscoreCount());
+		for (int i = 0; i < s.getHighscoreCount(); i++) {
+			String name = s.getHighscoreName(i);
+			int length = Math.min(name.length(), 255);
+			out.put((byte) length);
+			for (int c = 0; c < length; c++)
+				out.put((byte) name.charAt(c));
+			putVarLong(out, s.getHighscoreScore(i));
+		}
+
+		out.putInt(start, out.position() - start - SnapshotCodec.PREFIX);
+		return key;
+	}
+
+	/**
+	 * Reads frames until one has been applied to the snapshot. Deltas that
+	 * arrive before the first keyframe cannot be applied and are skipped. The
+	 * buffer must be ready for reading; a partial frame is left in place
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @param s
+	 *            snapshot to fill
+	 * @return true if a frame was applied, false if more bytes are needed
+	 */
+	public boolean decode(ByteBuffer in, FrameSnapshot s) {
+		while (in.remaining() >= SnapshotCodec.PREFIX) {
+			int length = in.getInt(in.position());
+			if (in.remaining() < SnapshotCodec.PREFIX + length)
+				return false;
+			int end = in.position() + SnapshotCodec.PREFIX + length;
+			in.getInt();
+
+			boolean key = in.get() == KEYFRAME;
+			if (!key && !haveKey) {
+				in.position(end);
+				continue;
+			}
+
+			long tick = getVarLong(in);
+			if (key) {
+				keyTick = tick;
+				haveKey = true;
+			} else
+				tick += keyTick;
+
+			s.begin(tick, STATES[in.get()]);
+			int level = (int) getVarLong(in);
+			int score = (int) getVarLong(in);
+			int scoreDisplay = (int) getVarLong(in);
+			int topScore = (int) getVarLong(in);
+			int hits = (int) getVarLong(in);
+			s.setScore(level, score, scoreDisplay, topScore, hits);
+			int lives = in.get();
+			int fired = (int) getVarLong(in);
+			s.setMenuSelection(in.get());
+			for (int i = 0; i < FrameSnapshot.NAME_LENGTH; i++)
+				s.setEntryLetter(i, (char) in.get());
+			s.setEntrySelection(in.get());
+			s.setInputTime(0);
+
+			int fx, fy;
+			if (key) {
+				fx = in.getShort() & 0xFFFF;
+				fy = in.getShort() & 0xFFFF;
+				keyFighterX = fx;
+				keyFighterY = fy;
+			} else {
+				fx = keyFighterX + unzigzag(getVarLong(in));
+				fy = keyFighterY + unzigzag(getVarLong(in));
+			}
+			s.setFighter(dequantize(fx, MIN_X, MAX_X),
+					dequantize(fy, MIN_Y, MAX_Y), SPRITES[in.get()], lives,
+					fired);
+
+			enemies.decode(in, key);
+			for (int i = 0; i < enemies.count; i++)
+				s.addEnemy(dequantize(enemies.x[i], MIN_X, MAX_X),
+						dequantize(enemies.y[i], MIN_Y, MAX_Y),
+						enemies.angle(i), SPRITES[enemies.sprite[i]]);
+
+			missiles.decode(in, key);
+			for (int i = 0; i < missiles.count; i++)
+				s.addMissile(dequantize(missiles.x[i], MIN_X, MAX_X),
+						dequantize(missiles.y[i], MIN_Y, MAX_Y),
+						missiles.angle(i), SPRITES[missiles.sprite[i]]);
+
+			int highscores = in.get();
+			for (int i = 0; i < highscores; i++) {
+				char[] name = new char[in.get() & 0xFF];
+				for (int c = 0; c < name.length; c++)
+					name[c] = (char) (in.get() & 0xFF);
+				s.addHighscore(new String(name), (int) getVarLong(in));
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Maps a coordinate onto 16 bits, clamping it to the range
+	 *
+	 * @param v
+	 *            coordinate
+	 * @param min
+	 *            smallest coordinate that can be represented
+	 * @param max
+	 *            largest coordinate that can be represented
+	 * @return the quantized coordinate
+	 */
+	private static int quantize(float v, float min, float max) {
+		int q = Math.round((v - min) / (max - min) * STEPS);
+		return q < 0 ? 0 : q > STEPS ? STEPS : q;
+	}
+
+	/**
+	 * Maps a quantized coordinate back into the world
+	 *
+	 * @param q
+	 *            quantized coordinate
+	 * @param min
+	 *            smallest coordinate that can be represented
+	 * @param max
+	 *            largest coordinate that can be represented
+	 * @return the coordinate
+	 */
+	private static float dequantize(int q, float min, float max) {
+		return min + q * (max - min) / STEPS;
+	}
+
+	/**
+	 * Folds a signed value so that small magnitudes of either sign become
+	 * small unsigned values
+	 *
+	 * @param v
+	 *            signed value
+	 * @return the folded value
+	 */
+	private static long zigzag(int v) {
+		return ((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Undoes {@link #zigzag(int)}
+	 *
+	 * @param v
+	 *            folded value
+	 * @return the signed value
+	 */
+	private static int unzigzag(long v) {
+		int i = (int) v;
+		return (i >>> 1) ^ -(i & 1);
+	}
+
+	/**
+	 * Writes a non-negative value seven bits at a time, low bits first
+	 *
+	 * @param out
+	 *            buffer to write to
+	 * @param v
+	 *            value to write
+	 */
+	private static void putVarLong(ByteBuffer out, long v) {
+		while ((v & ~0x7FL) != 0) {
+			out.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.put((byte) v);
+	}
+
+	/**
+	 * Reads a value written by {@link #putVarLong(ByteBuffer, long)}
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @return the value
+	 */
+	private static long getVarLong(ByteBuffer in) {
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return v;
+	}
+
+	/**
+	 * Defines a list of quantized entities: the ones in the last keyframe and
+	 * the ones in the frame being coded. Entities are matched by position in
+	 * the list; ones past the end of the keyframe are coded against zero
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Track {
+
+		/**
+		 * Number of entities in the keyframe and in the current frame
+		 */
+		private int keyCount, count;
+
+		/**
+		 * Quantized entities in the keyframe
+		 */
+		private int[] keyX, keyY, keyAngle, keySprite;
+
+		/**
+		 * Quantized entities in the current frame
+		 */
+		private int[] x, y, angle, sprite;
+
+		/**
+		 * Constructor preallocates storage for a full wave
+		 */
+		private Track() {
+			keyX = new int[64];
+			keyY = new int[64];
+			keyAngle = new int[64];
+			keySprite = new int[64];
+			x = new int[64];
+			y = new int[64];
+			angle = new int[64];
+			sprite = new int[64];
+		}
+
+		/**
+		 * Grows the arrays so they hold at least the passed in number of
+		 * entities
+		 *
+		 * @param n
+		 *            number of entities
+		 */
+		private void ensure(int n) {
+			if (n <= x.length)
+				return;
+			int capacity = Math.max(n, x.length * 2);
+			keyX = grow(keyX, capacity);
+			keyY = grow(keyY, capacity);
+			keyAngle = grow(keyAngle, capacity);
+			keySprite = grow(keySprite, capacity);
+			x = grow(x, capacity);
+			y = grow(y, capacity);
+			angle = grow(angle, capacity);
+			sprite = grow(sprite, capacity);
+		}
+
+		/**
+		 * Quantizes an entity into the current frame
+		 *
+		 * @param i
+		 *            index of the entity
+		 * @param ex
+		 *            x coordinate
+		 * @param ey
+		 *            y coordinate
+		 * @param theta
+		 *            angle
+		 * @param s
+		 *            sprite
+		 */
+		private void set(int i, float ex, float ey, float theta, Sprite s) {
+			x[i] = quantize(ex, MIN_X, MAX_X);
+			y[i] = quantize(ey, MIN_Y, MAX_Y);
+			float turns = theta / (2 * (float) Math.PI);
+			angle[i] = Math.round((turns - (float) Math.floor(turns)) * 256) & 0xFF;
+			sprite[i] = s.ordinal();
+		}
+
+		/**
+		 * Returns the angle of an entity in the current frame
+		 *
+		 * @param i
+		 *            index of the entity
+		 * @return angle in radians
+		 */
+		private float angle(int i) {
+			return angle[i] * 2 * (float) Math.PI / 256;
+		}
+
+		/**
+		 * Writes the current frame, in full or as a delta against the
+		 * keyframe. A keyframe becomes the new base for later deltas
+		 *
+		 * @param out
+		 *            buffer to write to
+		 * @param key
+		 *            true if writing a keyframe
+		 */
+		private void encode(ByteBuffer out, boolean key) {
+			putVarLong(out, count);
+			if (key) {
+				for (int i = 0; i < count; i++) {
+					out.putShort((short) x[i]);
+					out.putShort((short) y[i]);
+					out.put((byte) angle[i]);
+					out.put((byte) sprite[i]);
+				}
+				System.arraycopy(x, 0, keyX, 0, count);
+				System.arraycopy(y, 0, keyY, 0, count);
+				System.arraycopy(angle, 0, keyAngle, 0, count);
+				System.arraycopy(sprite, 0, keySprite, 0, count);
+				keyCount = count;
+				return;
+			}
+
+			// Two flag bits per entity, four entities to a byte
+			int bits = 0;
+			for (int i = 0; i < count; i++) {
+				bits |= flags(i) << ((i & 3) << 1);
+				if ((i & 3) == 3 || i == count - 1) {
+					out.put((byte) bits);
+					bits = 0;
+				}
+			}
+
+			// Then only what changed
+			for (int i = 0; i < count; i++) {
+				boolean base = i < keyCount;
+				int f = flags(i);
+				if ((f & MOVED) != 0) {
+					putVarLong(out, zigzag(x[i] - (base ? keyX[i] : 0)));
+					putVarLong(out, zigzag(y[i] - (base ? keyY[i] : 0)));
+					out.put((byte) angle[i]);
+				}
+				if ((f & CHANGED) != 0)
+					out.put((byte) sprite[i]);
+			}
+		}
+
+		/**
+		 * Reads a frame written by {@link #encode(ByteBuffer, boolean)} into
+		 * the current frame
+		 *
+		 * @param in
+		 *            buffer to read from
+		 * @param key
+		 *            true if reading a keyframe
+		 */
+		private void decode(ByteBuffer in, boolean key) {
+			count = (int) getVarLong(in);
+			ensure(count);
+			if (key) {
+				for (int i = 0; i < count; i++) {
+					x[i] = in.getShort() & 0xFFFF;
+					y[i] = in.getShort() & 0xFFFF;
+					angle[i] = in.get() & 0xFF;
+					sprite[i] = in.get() & 0xFF;
+				}
+				System.arraycopy(x, 0, keyX, 0, count);
+				System.arraycopy(y, 0, keyY, 0, count);
+				System.arraycopy(angle, 0, keyAngle, 0, count);
+				System.arraycopy(sprite, 0, keySprite, 0, count);
+				keyCount = count;
+				return;
+			}
+
+			// Start every entity from the keyframe, stashing the flags in the
+			// sprite slot until the flag block has been read
+			int bits = 0;
+			for (int i = 0; i < count; i++) {
+				if ((i & 3) == 0)
+					bits = in.get() & 0xFF;
+				int f = (bits >>> ((i & 3) << 1)) & 3;
+				boolean base = i < keyCount;
+				x[i] = base ? keyX[i] : 0;
+				y[i] = base ? keyY[i] : 0;
+				angle[i] = base ? keyAngle[i] : 0;
+				sprite[i] = f;
+			}
+
+			for (int i = 0; i < count; i++) {
+				int f = sprite[i];
+				boolean base = i < keyCount;
+				if ((f & MOVED) != 0) {
+					x[i] += unzigzag(getVarLong(in));
+					y[i] += unzigzag(getVarLong(in));
+					angle[i] = in.get() & 0xFF;
+				}
+				if ((f & CHANGED) != 0)
+					sprite[i] = in.get() & 0xFF;
+				else
+					sprite[i] = base ? keySprite[i] : 0;
+			}
+		}
+
+		/**
+		 * Returns the flags of an entity in the current frame against the
+		 * keyframe
+		 *
+		 * @param i
+		 *            index of the entity
+		 * @return {@link #MOVED} and {@link #CHANGED} as appropriate
+		 */
+		private int flags(int i) {
+			if (i >= keyCount)
+				return MOVED | CHANGED;
+			int f = 0;
+			if (x[i] != keyX[i] || y[i] != keyY[i] || angle[i] != keyAngle[i])
+				f |= MOVED;
+			if (sprite[i] != keySprite[i])
+				f |= CHANGED;
+			return f;
+		}
+
+		/**
+		 * Returns a copy of the passed in array with the given capacity
+		 *
+		 * @param array
+		 *            array to copy
+		 * @param capacity
+		 *            capacity of the copy
+		 * @return a copy of the passed in array with the given capacity
+		 */
+		private static int[] grow(int[] array, int capacity) {
+			int[] grown = new int[capacity];
+			System.arraycopy(array, 0, grown, 0, array.length);
+			return grown;
+		}
+	}
+}
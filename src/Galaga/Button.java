@@ -0,0 +1,114 @@
+package Galaga;
+
+import processing.core.PConstants;
+
+/**
+ * Enumeration of the buttons on a cabinet, and the keys they stand for. The
+ * buttons held down can be sent as one small bit mask, one bit per button,
+ * which is what netplay exchanges each tick
+ *
+ * @author Christopher Glasz
+ */
+public enum Button {
+
+	/**
+	 * Joystick left
+	 */
+	LEFT(PConstants.CODED, PConstants.LEFT),
+
+	/**
+	 * Joystick right
+	 */
+	RIGHT(PConstants.CODED, PConstants.RIGHT),
+
+	/**
+	 * Joystick up
+	 */
+	UP(PConstants.CODED, PConstants.UP),
+
+	/**
+	 * Joystick down
+	 */
+	DOWN(PConstants.CODED, PConstants.DOWN),
+
+	/**
+	 * Fire button
+	 */
+	FIRE(' ', ' '),
+
+	/**
+	 * Start button
+	 */
+	START(PConstants.ENTER, PConstants.ENTER);
+
+	/**
+	 * Every button, by ordinal
+	 */
+	private static final Button[] BUTTONS = values();
+
+	/**
+	 * Key the button stands for
+	 */
+	private final char key;
+
+	/**
+	 * Key code the button stands for
+	 */
+	private final int keyCode;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param key
+	 *            key the button stands for
+	 * @param keyCode
+	 *            key code the button stands for
+	 */
+	private Button(int key, int keyCode) {
+		this.key = (char) key;
+		this.keyCode = keyCode;
+	}
+
+	/**
+	 * Accessor method for the key
+	 *
+	 * @return key the button stands for
+	 */
+	public char key() {
+		return key;
+	}
+
+	/**
+	 * Accessor method for the key code
+	 *
+	 * @return key code the button stands for
+	 */
+	public int keyCode() {
+		return keyCode;
+	}
+
+	/**
+	 * Returns the bit standing for this button in a mask of buttons
+	 *
+	 * @return the bit for this button
+	 */
+	public int mask() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * Returns the bit for the button a key stands for
+	 *
+	 * @param key
+	 *            key of a key event
+	 * @param keyCode
+	 *            key code of a key event
+	 * @return the bit for the button, or 0 if the key is not on the cabinet
+	 */
+	public static int maskOf(char key, int keyCode) {
+		for (Button b : BUTTONS)
+			if (b.key == key && (key != PConstants.CODED || b.keyCode == keyCode))
+				return b.mask();
+		return 0;
+	}
+}
@@ -0,0 +1,279 @@
+package Galaga;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+
+/**
+ * Defines the dive every enemy makes, sampled once for the whole game. Each
+ * dive starts and ends at a different place and aims at a different point,
+ * but solving a cubic path is linear in its waypoints, so every dive is a
+ * weighted sum of three tables: one solved with the start and goal at the
+ * origin, one moved to start at (1, 1) and one moved to aim at (1, 1).
+ * Starting a dive then solves nothing and allocates nothing; the enemy only
+ * keeps its start and goal.
+ * <p>
+ * The direction each sample faces, away from the sample before it, is also
+ * linear in the start and goal, so it is kept in the same three kinds of
+ * table. Following a dive lerps that direction and takes a single arctangent
+ * of it for the heading, since the angle itself cannot be tabled ahead of
+ * knowing the start and goal
+ *
+ * @author Christopher Glasz
+ */
+public class DiveTable {
+
+	/**
+	 * The dive with its start and goal at the origin
+	 */
+	private static final PathTable BASE = PathTable.solve(FlightPath.DIVE
+			.getPoints(0, 0, 0, 0));
+
+	/**
+	 * The dive starting at (1, 1), aiming at the origin
+	 */
+	private static final PathTable START = PathTable.solve(FlightPath.DIVE
+			.getPoints(1, 1, 0, 0));
+
+	/**
+	 * The dive starting at the origin, aiming at (1, 1)
+	 */
+	private static final PathTable GOAL = PathTable.solve(FlightPath.DIVE
+			.getPoints(0, 0, 1, 1));
+
+	/**
+	 * Coordinates of each sample of the dive with its start and goal at the
+	 * origin
+	 */
+	private static final float[] BASE_XS, BASE_YS;
+
+	/**
+	 * How far each sample moves per unit the start moves
+	 */
+	private static final float[] START_XS, START_YS;
+
+	/**
+	 * How far each sample moves per unit the goal moves
+	 */
+	private static final float[] GOAL_XS, GOAL_YS;
+
+	/**
+	 * Direction each sample faces, away from the sample before it, in the
+	 * dive with its start and goal at the origin. The first sample faces the
+	 * same way as the second
+	 */
+	private static final float[] BASE_DXS, BASE_DYS;
+
+	/**
+	 * How far each sample's direction moves per unit the start moves
+	 */
+	private static final float[] START_DXS, START_DYS;
+
+	/**
+	 * How far each sample's direction moves per unit the goal moves
+	 */
+	private static final float[] GOAL_DXS, GOAL_DYS;
+
+	static {
+		int n = BASE.size();
+		BASE_XS = new float[n];
+		BASE_YS = new float[n];
+		START_XS = new float[n];
+		START_YS = new float[n];
+		GOAL_XS = new float[n];
+		GOAL_YS = new float[n];
+		for (int k = 0; k < n; k++) {
+			BASE_XS[k] = BASE.getX(k, 0);
+			BASE_YS[k] = BASE.getY(k, 0);
+			START_XS[k] = START.getX(k, 0) - BASE_XS[k];
+			START_YS[k] = START.getY(k, 0) - BASE_YS[k];
+			GOAL_XS[k] = GOAL.getX(k, 0) - BASE_XS[k];
+			GOAL_YS[k] = GOAL.getY(k, 0) - BASE_YS[k];
+		}
+
+		BASE_DXS = direction(BASE_XS);
+		BASE_DYS = direction(BASE_YS);
+		START_DXS = direction(START_XS);
+		START_DYS = direction(START_YS);
+		GOAL_DXS = direction(GOAL_XS);
+		GOAL_DYS = direction(GOAL_YS);
+	}
+
+	/**
+	 * Constructor is private, as the class only holds the shared dive
+	 */
+	private DiveTable() {
+	}
+
+	/**
+	 * Accessor method for the duration
+	 *
+	 * @return time taken to follow the whole dive, in seconds
+	 */
+	public static float duration() {
+		return BASE.duration();
+	}
+
+	/**
+	 * Moves a cursor forward to the sample at or just before the given time
+	 *
+	 * @param cursor
+	 *            current cursor, starting at 0
+	 * @param t
+	 *            time since the start of the dive, in seconds
+	 * @return the new cursor
+	 */
+	public static int seek(int cursor, float t) {
+		return BASE.seek(cursor, t);
+	}
+
+	/**
+	 * Returns how far the given time is between the sample at the cursor and
+	 * the next one
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param t
+	 *            time since the start of the dive, in seconds
+	 * @return fraction between 0 and 1
+	 */
+	public static float fraction(int cursor, float t) {
+		return BASE.fraction(cursor, t);
+	}
+
+	/**
+	 * Returns the interpolated x coordinate
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param f
+	 *            fraction returned by {@link #fraction(int, float)}
+	 * @param startX
+	 *            x coordinate the dive started at
+	 * @param goalX
+	 *            x coordinate the dive aims at
+	 * @return the x coordinate
+	 */
+	public static float getX(int cursor, float f, float startX, float goalX) {
+		float x = sample(BASE_XS, START_XS, GOAL_XS, cursor, startX, goalX);
+		if (cursor + 1 >= BASE_XS.length)
+			return x;
+		return x + f
+				* (sample(BASE_XS, START_XS, GOAL_XS, cursor + 1, startX,
+						goalX) - x);
+	}
+
+	/**
+	 * Returns the interpolated y coordinate
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param f
+	 *            fraction returned by {@link #fraction(int, float)}
+	 * @param startY
+	 *            y coordinate the dive started at
+	 * @param goalY
+	 *            y coordinate the dive aims at
+	 * @return the y coordinate
+	 */
+	public static float getY(int cursor, float f, float startY, float goalY) {
+		float y = sample(BASE_YS, START_YS, GOAL_YS, cursor, startY, goalY);
+		if (cursor + 1 >= BASE_YS.length)
+			return y;
+		return y + f
+				* (sample(BASE_YS, START_YS, GOAL_YS, cursor + 1, startY,
+						goalY) - y);
+	}
+
+	/**
+	 * Returns the interpolated heading, turned by whole turns to be as close
+	 * as possible to the enemy's last heading so that it never spins. The
+	 * direction is lerped between samples, and only its angle is worked out
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param f
+	 *            fraction returned by {@link #fraction(int, float)}
+	 * @param startX
+	 *            x coordinate the dive started at
+	 * @param startY
+	 *            y coordinate the dive started at
+	 * @param goalX
+	 *            x coordinate the dive aims at
+	 * @param goalY
+	 *            y coordinate the dive aims at
+	 * @param last
+	 *            the enemy's last heading
+	 * @return the heading
+	 */
+	public static float getHeading(int cursor, float f, float startX,
+			float startY, float goalX, float goalY, float last) {
+		float dx = sample(BASE_DXS, START_DXS, GOAL_DXS, cursor, startX, goalX);
+		float dy = sample(BASE_DYS, START_DYS, GOAL_DYS, cursor, startY, goalY);
+		if (cursor + 1 < BASE_DXS.length) {
+			dx += f
+					* (sample(BASE_DXS, START_DXS, GOAL_DXS, cursor + 1,
+							startX, goalX) - dx);
+			dy += f
+					* (sample(BASE_DYS, START_DYS, GOAL_DYS, cursor + 1,
+							startY, goalY) - dy);
+		}
+		float heading = PApplet.atan2(dy, dx) + PConstants.PI / 2;
+		return last - wrap(last - heading);
+	}
+
+	/**
+	 * Works out the direction of each sample from one coordinate: the
+	 * difference from the sample before it, or for the first sample, the
+	 * same as the second
+	 *
+	 * @param coordinates
+	 *            one coordinate of every sample
+	 * @return that coordinate of each sample's direction
+	 */
+	private static float[] direction(float[] coordinates) {
+		float[] d = new float[coordinates.length];
+		for (int k = 1; k < d.length; k++)
+			d[k] = coordinates[k - 1] - coordinates[k];
+		if (d.length > 1)
+			d[0] = d[1];
+		return d;
+	}
+
+	/**
+	 * Returns one coordinate of a sample of a dive
+	 *
+	 * @param base
+	 *            the coordinate in the dive with its start and goal at the
+	 *            origin
+	 * @param start
+	 *            how far it moves per unit the start moves
+	 * @param goal
+	 *            how far it moves per unit the goal moves
+	 * @param k
+	 *            index of the sample
+	 * @param from
+	 *            the start's coordinate
+	 * @param to
+	 *            the goal's coordinate
+	 * @return the coordinate
+	 */
+	private static float sample(float[] base, float[] start, float[] goal,
+			int k, float from, float to) {
+		return base[k] + from * start[k] + to * goal[k];
+	}
+
+	/**
+	 * Wraps an angle to between -PI and PI
+	 *
+	 * @param angle
+	 *            the angle
+	 * @return the same angle, between -PI and PI
+	 */
+	private static float wrap(float angle) {
+		while (angle > PConstants.PI)
+			angle -= PConstants.TWO_PI;
+		while (angle < -PConstants.PI)
+			angle += PConstants.TWO_PI;
+		return angle;
+	}
+}
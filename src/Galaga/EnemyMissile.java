@@ -10,6 +10,11 @@ import processing.core.PConstants;
  */
 public class EnemyMissile extends Missile {
 
+	/**
+	 * Kind of enemy that fired the missile, or null if it has not been fired
+	 */
+	private EnemyType shooter;
+
 	/**
 	 * Constructor initializes variables
 	 * 
@@ -19,19 +24,60 @@ public class EnemyMissile extends Missile {
 	 *            initial y coordinate of the missile
 	 * @param theta
 	 *            initial angle of the missile
+	 * @param shooter
+	 *            kind of enemy that fired the missile, or null
 	 */
-	public EnemyMissile(float x, float y, float theta) {
+	public EnemyMissile(float x, float y, float theta, EnemyType shooter) {
 		super(x, y);
+		launch(x, y, theta, shooter);
+	}
+
+	/**
+	 * Fires the missile from the passed in coordinates
+	 * 
+	 * @param x
+	 *            initial x coordinate of the missile
+	 * @param y
+	 *            initial y coordinate of the missile
+	 * @param theta
+	 *            initial angle of the missile
+	 * @param shooter
+	 *            kind of enemy that fired the missile
+	 */
+	public void launch(float x, float y, float theta, EnemyType shooter) {
+		reset(x, y);
+		this.shooter = shooter;
 		this.theta = theta + PConstants.PI / 2;
 		this.vx = BULLET_SPEED * PApplet.cos(theta);
 		this.vy = BULLET_SPEED * PApplet.sin(theta);
 	}
 
 	/**
-	 * Loads the sprite
+	 * Accessor method for the shooter
+	 * 
+	 * @return kind of enemy that fired the missile, or null
+	 */
+	public EnemyType getShooter() {
+		return shooter;
+	}
+
+	/**
+	 * Copy this missile into another, including who fired it
+	 * 
+	 * @param other
+	 *            missile to copy into
+	 */
+	@Override
+	public void copyTo(Missile other) {
+		super.copyTo(other);
+		((EnemyMissile) other).shooter = shooter;
+	}
+
+	/**
+	 * Selects the sprite
 	 */
 	protected void createSprite() {
-		sprite = (new PApplet()).loadImage("Sprites/enemy_missile.png");
+		sprite = Sprite.ENEMY_MISSILE;
 	}
 
 }
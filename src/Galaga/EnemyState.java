@@ -0,0 +1,48 @@
+package Galaga;
+
+/**
+ * Enumeration to describe the possible movement states
+ * 
+ * @author Christopher Glasz
+ */
+public enum EnemyState {
+	
+	/**
+	 * Assuming position in formation
+	 */
+	ASSUME_POSITION, 
+	
+	/**
+	 * In formation and moving outward
+	 */
+	FORMATION_IN {
+		@Override
+		public boolean inFormation() {
+			return true;
+		}
+	},
+	
+	/**
+	 * In formation and moving inward
+	 */
+	FORMATION_OUT {
+		@Override
+		public boolean inFormation() {
+			return true;
+		}
+	},
+	
+	/**
+	 * Dive bombing
+	 */
+	DIVE;
+
+	/**
+	 * Returns true if the state is an explosion state
+	 * 
+	 * @return true if the state is an explosion state
+	 */
+	public boolean inFormation() {
+		return false;
+	}
+}
@@ -0,0 +1,116 @@
+package Galaga;
+
+/**
+ * Keeps count of how many enemies in play are in each state. Enemies report
+ * every change of state as it happens, so the game can tell whether the
+ * formation is complete or anyone is diving without looking at every enemy
+ *
+ * @author Christopher Glasz
+ */
+public class EnemyStateCounts {
+
+	/**
+	 * Number of enemies in each state
+	 */
+	private final int[] counts;
+
+	/**
+	 * Number of enemies counted, whatever their state
+	 */
+	private int total;
+
+	/**
+	 * Number of enemies in a formation state
+	 */
+	private int inFormation;
+
+	/**
+	 * Constructor starts with no enemies
+	 */
+	public EnemyStateCounts() {
+		counts = new int[EnemyState.values().length];
+		total = 0;
+		inFormation = 0;
+	}
+
+	/**
+	 * Counts an enemy that has come into play
+	 *
+	 * @param state
+	 *            state of the enemy
+	 */
+	public void enter(EnemyState state) {
+		counts[state.ordinal()]++;
+		total++;
+		if (state.inFormation())
+			inFormation++;
+	}
+
+	/**
+	 * Stops counting an enemy that has left play
+	 *
+	 * @param state
+	 *            state of the enemy
+	 */
+	public void leave(EnemyState state) {
+		counts[state.ordinal()]--;
+		total--;
+		if (state.inFormation())
+			inFormation--;
+	}
+
+	/**
+	 * Moves an enemy from one state to another
+	 *
+	 * @param from
+	 *            state the enemy was in
+	 * @param to
+	 *            state the enemy is now in
+	 */
+	public void change(EnemyState from, EnemyState to) {
+		leave(from);
+		enter(to);
+	}
+
+	/**
+	 * Copy these counts into another set of counts
+	 *
+	 * @param other
+	 *            counts to copy into
+	 */
+	public void copyTo(EnemyStateCounts other) {
+		System.arraycopy(counts, 0, other.counts, 0, counts.length);
+		other.total = total;
+		other.inFormation = inFormation;
+	}
+
+	/**
+	 * Returns the number of enemies in a state
+	 *
+	 * @param state
+	 *            state to count
+	 * @return the number of enemies in that state
+	 */
+	public int count(EnemyState state) {
+		return counts[state.ordinal()];
+	}
+
+	/**
+	 * Returns true if every enemy is in formation, including when there are
+	 * none
+	 *
+	 * @return true if every enemy is in formation
+	 */
+	public boolean allInFormation() {
+		return inFormation == total;
+	}
+
+	/**
+	 * Accessor method for the total
+	 *
+	 * @return number of enemies counted
+	 */
+	public int total() {
+		return total;
+	}
+}
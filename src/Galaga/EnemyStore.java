@@ -0,0 +1,927 @@
+package Galaga;
+
+import processing.core.PConstants;
+
+/**
+ * Defines every enemy in play, stored as parallel arrays of primitives
+ * rather than one object per enemy. Enemies are packed at the front of the
+ * arrays, so updating, colliding and capturing them are dense loops over a
+ * few small arrays. Anything that depends on the kind of enemy is looked up
+ * in tables indexed by type, so there is no virtual dispatch per enemy.
+ * <p>
+ * An enemy is referred to by its index, which stays valid until the next
+ * {@link #purge()}. Purging moves the last enemy into the place of each
+ * destroyed one, so the order of enemies is not kept
+ *
+ * @author Christopher Glasz
+ */
+public class EnemyStore implements ApplicationConstants {
+
+	/**
+	 * Radius of the disk collider of every enemy
+	 */
+	private static final float RADIUS = 7 * PIXEL_WIDTH;
+
+	/**
+	 * Every kind of enemy, by ordinal
+	 */
+	private static final EnemyType[] TYPES = EnemyType.values();
+
+	/**
+	 * Every movement state, by ordinal
+	 */
+	private static final EnemyState[] STATES = EnemyState.values();
+
+	/**
+	 * Every animation state, by ordinal
+	 */
+	private static final AnimationState[] ANIMATIONS = AnimationState.values();
+
+	/**
+	 * Points for destroying each type in formation
+	 */
+	private static final int[] FORMATION_SCORE = new int[TYPES.length];
+
+	/**
+	 * Points for destroying each type while diving
+	 */
+	private static final int[] ATTACKING_SCORE = new int[TYPES.length];
+
+	/**
+	 * Number of hits each type takes
+	 */
+	private static final int[] HIT_POINTS = new int[TYPES.length];
+
+	/**
+	 * Sprite for each type, undamaged or damaged, and animation state
+	 */
+	private static final Sprite[][][] SPRITES = new Sprite[TYPES.length][2][ANIMATIONS.length];
+
+	/**
+	 * Animation state that follows each animation state
+	 */
+	private static final byte[] NEXT_ANIMATION = new byte[ANIMATIONS.length];
+
+	/**
+	 * True for each movement state that counts as being in formation
+	 */
+	private static final boolean[] IN_FORMATION = new boolean[STATES.length];
+
+	/**
+	 * Diving state, as stored
+	 */
+	private static final byte DIVE_STATE = (byte) EnemyState.DIVE.ordinal();
+
+	/**
+	 * Time taken to follow a whole dive. Reading it here samples the dive
+	 * along with the store, rather than on the first dive of the game
+	 */
+	private static final float DIVE_DURATION = DiveTable.duration();
+
+	static {
+		for (EnemyType type : TYPES) {
+			int t = type.ordinal();
+			FORMATION_SCORE[t] = type.formationScore();
+			ATTACKING_SCORE[t] = type.attackingScore();
+			HIT_POINTS[t] = type.hitPoints();
+			for (AnimationState a : ANIMATIONS) {
+				SPRITES[t][0][a.ordinal()] = type.sprite(a, false);
+				SPRITES[t][1][a.ordinal()] = type.sprite(a, true);
+			}
+		}
+		for (AnimationState a : ANIMATIONS)
+			NEXT_ANIMATION[a.ordinal()] = (byte) a.getNext().ordinal();
+		for (EnemyState s : STATES)
+			IN_FORMATION[s.ordinal()] = s.inFormation();
+	}
+
+	/**
+	 * Number of enemies in play
+	 */
+	private int size;
+
+	/**
+	 * Kind of each enemy
+	 */
+	private byte[] types;
+
+	/**
+	 * Movement state of each enemy
+	 */
+	private byte[] states;
+
+	/**
+	 * Animation state of each enemy
+	 */
+	private byte[] animations;
+
+	/**
+	 * Hits each enemy can still take
+	 */
+	private byte[] hitPoints;
+
+	/**
+	 * True for each enemy that has been hit for the last time, and is
+	 * exploding
+	 */
+	private boolean[] hit;
+
+	/**
+	 * True for each enemy that has finished exploding, and is waiting to be
+	 * purged
+	 */
+	private boolean[] destroyed;
+
+	/**
+	 * True for each enemy that has reached the end of its path
+	 */
+	private boolean[] goalReached;
+
+	/**
+	 * Coordinates of each enemy
+	 */
+	private float[] xs, ys;
+
+	/**
+	 * Angle of each enemy
+	 */
+	private float[] thetas;
+
+	/**
+	 * Home coordinates of each enemy
+	 */
+	private float[] homeXs, homeYs;
+
+	/**
+	 * Time since each enemy started its path
+	 */
+	private float[] uts;
+
+	/**
+	 * Time since the animation state of each enemy last changed
+	 */
+	private float[] animationTimers;
+
+	/**
+	 * Cubic path each enemy is following, or null if it is following a
+	 * straight line in formation or diving
+	 */
+	private PathTable[] paths;
+
+	/**
+	 * Index of the current sample in each enemy's path table
+	 */
+	private int[] cursors;
+
+	/**
+	 * Start and end of each enemy's straight line in formation, or the start
+	 * and goal of its dive
+	 */
+	private float[] fromXs, fromYs, toXs, toYs;
+
+	/**
+	 * Time each enemy takes to follow its straight line
+	 */
+	private float[] durations;
+
+	/**
+	 * Number of enemies in play in each state
+	 */
+	private final EnemyStateCounts counts;
+
+	/**
+	 * Constructor creates an empty store with room for the given number of
+	 * enemies
+	 *
+	 * @param capacity
+	 *            number of enemies to make room for
+	 */
+	public EnemyStore(int capacity) {
+		size = 0;
+		counts = new EnemyStateCounts();
+		allocate(Math.max(capacity, 1));
+	}
+
+	/**
+	 * Makes sure there is room for the given number of enemies, so that
+	 * spawning them does not allocate
+	 *
+	 * @param capacity
+	 *            number of enemies in play at once
+	 */
+	public void reserve(int capacity) {
+		if (capacity > xs.length)
+			allocate(capacity);
+	}
+
+	/**
+	 * Grows every array, keeping the enemies in play
+	 *
+	 * @param capacity
+	 *            new capacity
+	 */
+	private void allocate(int capacity) {
+		types = grow(types, capacity);
+		states = grow(states, capacity);
+		animations = grow(animations, capacity);
+		hitPoints = grow(hitPoints, capacity);
+		hit = grow(hit, capacity);
+		destroyed = grow(destroyed, capacity);
+		goalReached = grow(goalReached, capacity);
+		xs = grow(xs, capacity);
+		ys = grow(ys, capacity);
+		thetas = grow(thetas, capacity);
+		homeXs = grow(homeXs, capacity);
+		homeYs = grow(homeYs, capacity);
+		uts = grow(uts, capacity);
+		animationTimers = grow(animationTimers, capacity);
+		cursors = grow(cursors, capacity);
+		fromXs = grow(fromXs, capacity);
+		fromYs = grow(fromYs, capacity);
+		toXs = grow(toXs, capacity);
+		toYs = grow(toYs, capacity);
+		durations = grow(durations, capacity);
+
+		PathTable[] p = new PathTable[capacity];
+		if (paths != null)
+			System.arraycopy(paths, 0, p, 0, size);
+		paths = p;
+	}
+
+	/**
+	 * Accessor method for the size
+	 *
+	 * @return number of enemies in play
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Accessor method for the state counts
+	 *
+	 * @return number of enemies in play in each state
+	 */
+	public EnemyStateCounts counts() {
+		return counts;
+	}
+
+	/**
+	 * Brings an enemy into play at its spawn state
+	 *
+	 * @param spawn
+	 *            baked spawn state of the enemy
+	 * @return index of the new enemy
+	 */
+	public int spawn(SpawnState spawn) {
+		if (size == xs.length)
+			allocate(size * 2);
+
+		int i = size++;
+		types[i] = spawn.type;
+		states[i] = (byte) EnemyState.ASSUME_POSITION.ordinal();
+		animations[i] = spawn.animation;
+		hitPoints[i] = (byte) HIT_POINTS[spawn.type];
+		hit[i] = false;
+		destroyed[i] = false;
+		goalReached[i] = false;
+		xs[i] = spawn.x;
+		ys[i] = spawn.y;
+		thetas[i] = spawn.theta;
+		homeXs[i] = spawn.homeX;
+		homeYs[i] = spawn.homeY;
+		uts[i] = 0;
+		animationTimers[i] = spawn.animationTimer;
+		paths[i] = spawn.path;
+		cursors[i] = 0;
+
+		counts.enter(EnemyState.ASSUME_POSITION);
+		return i;
+	}
+
+	/**
+	 * Updates every enemy based on time since last update
+	 *
+	 * @param elapsed
+	 *            time since last update
+	 */
+	public void update(float elapsed) {
+		float dt = elapsed * 0.001f;
+
+		for (int i = 0; i < size; i++) {
+			animationTimers[i] += dt;
+			if (!hit[i]) {
+				if (animationTimers[i] > ANIMATION_FRAME) {
+					animationTimers[i] = 0;
+					animations[i] = NEXT_ANIMATION[animations[i]];
+				}
+			} else {
+				if (animations[i] == AnimationState.EXP_5.ordinal())
+					destroy(i);
+
+				if (animationTimers[i] > EXPLOSION_FRAME) {
+					animationTimers[i] = 0;
+					animations[i] = NEXT_ANIMATION[animations[i]];
+				}
+			}
+
+			uts[i] += dt;
+
+			if (hit[i])
+				continue;
+
+			switch (STATES[states[i]]) {
+			case ASSUME_POSITION:
+			case DIVE:
+				if (goalReached[i]) {
+					setState(i, EnemyState.FORMATION_OUT);
+					syncFormation(i);
+				}
+				break;
+			case FORMATION_OUT:
+				if (goalReached[i]) {
+					setState(i, EnemyState.FORMATION_IN);
+					formationPath(i, FORMATION_CYCLE_TIME);
+				}
+				break;
+			case FORMATION_IN:
+				if (goalReached[i]) {
+					setState(i, EnemyState.FORMATION_OUT);
+					formationPath(i, FORMATION_CYCLE_TIME);
+				}
+				break;
+			default:
+				break;
+			}
+
+			followPath(i);
+		}
+	}
+
+	/**
+	 * Moves an enemy along its path. Cubic paths are followed through their
+	 * baked table, and dives through the shared {@link DiveTable}; formation
+	 * paths are straight lines, and enemies in formation always face forward
+	 *
+	 * @param i
+	 *            index of the enemy
+	 */
+	private void followPath(int i) {
+		float ut = uts[i];
+		PathTable path = paths[i];
+
+		if (states[i] == DIVE_STATE) {
+			goalReached[i] = DIVE_DURATION <= ut;
+			int cursor = DiveTable.seek(cursors[i], ut);
+			float f = DiveTable.fraction(cursor, ut);
+			cursors[i] = cursor;
+			xs[i] = DiveTable.getX(cursor, f, fromXs[i], toXs[i]);
+			ys[i] = DiveTable.getY(cursor, f, fromYs[i], toYs[i]);
+			thetas[i] = DiveTable.getHeading(cursor, f, fromXs[i], fromYs[i],
+					toXs[i], toYs[i], thetas[i]);
+		} else if (path != null) {
+			goalReached[i] = path.duration() <= ut;
+			int cursor = path.seek(cursors[i], ut);
+			float f = path.fraction(cursor, ut);
+			cursors[i] = cursor;
+			xs[i] = path.getX(cursor, f);
+			ys[i] = path.getY(cursor, f);
+			thetas[i] = path.getHeading(cursor, f);
+		} else {
+			goalReached[i] = durations[i] <= ut;
+			float tau = ut < durations[i] ? ut / durations[i] : 1;
+			xs[i] = fromXs[i] + tau * (toXs[i] - fromXs[i]);
+			ys[i] = fromYs[i] + tau * (toYs[i] - fromYs[i]);
+			thetas[i] = 0;
+		}
+	}
+
+	/**
+	 * Starts a straight line from the enemy's position to the inward or
+	 * outward point of its place in the formation, depending on its state
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @param timeToGoal
+	 *            time it should take to reach the goal
+	 */
+	private void formationPath(int i, float timeToGoal) {
+		float scale = states[i] == EnemyState.FORMATION_IN.ordinal() ? 0.8f
+				: 1.25f;
+		fromXs[i] = xs[i];
+		fromYs[i] = ys[i];
+		toXs[i] = homeXs[i] * scale;
+		toYs[i] = (homeYs[i] - BOSS_Y) * scale + BOSS_Y;
+		durations[i] = timeToGoal;
+		paths[i] = null;
+		uts[i] = 0;
+		goalReached[i] = false;
+	}
+
+	/**
+	 * Sync an enemy that has just reached the formation to the rest of the
+	 * enemies in formation, or leave it where it is if there are none
+	 *
+	 * @param i
+	 *            index of the enemy
+	 */
+	private void syncFormation(int i) {
+		for (int j = 0; j < size; j++)
+			if (j != i && IN_FORMATION[states[j]]) {
+				setState(i, STATES[states[j]]);
+				formationPath(i, Math.min(FORMATION_CYCLE_TIME - uts[j],
+						FORMATION_CYCLE_TIME));
+				return;
+			}
+
+		// Nobody to follow, so wait here and turn around next update
+		formationPath(i, 0);
+		toXs[i] = xs[i];
+		toYs[i] = ys[i];
+	}
+
+	/**
+	 * Start an enemy's attack cycle
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @param targetX
+	 *            x coordinate to dive at
+	 * @param targetY
+	 *            y coordinate to dive at
+	 */
+	public void dive(int i, float targetX, float targetY) {
+		setState(i, EnemyState.DIVE);
+		fromXs[i] = xs[i];
+		fromYs[i] = ys[i];
+		toXs[i] = targetX;
+		toYs[i] = targetY;
+		paths[i] = null;
+		cursors[i] = 0;
+		uts[i] = 0;
+		goalReached[i] = false;
+	}
+
+	/**
+	 * Return a missile shot from an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return missile shot from the enemy
+	 */
+	public Missile shoot(int i) {
+		return shoot(i, null);
+	}
+
+	/**
+	 * Return a missile shot from an enemy, firing a spent missile again if
+	 * there is one
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @param spent
+	 *            destroyed missile to fire again, or null to make a new one
+	 * @return missile shot from the enemy
+	 */
+	public Missile shoot(int i, EnemyMissile spent) {
+		float phi = thetas[i];
+		if (IN_FORMATION[states[i]])
+			phi -= PConstants.PI / 2;
+		else
+			phi += PConstants.PI / 2;
+
+		if (spent == null)
+			return new EnemyMissile(xs[i], ys[i], phi, TYPES[types[i]]);
+		spent.launch(xs[i], ys[i], phi, TYPES[types[i]]);
+		return spent;
+	}
+
+	/**
+	 * Detects if the passed in missile is colliding with an enemy. If it is,
+	 * the enemy is hit, the missile is destroyed, and the method returns true.
+	 * Otherwise, it returns false
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @param missile
+	 *            the missile to check collision with
+	 * @return true if the missile and enemy are colliding
+	 */
+	public boolean detectCollision(int i, Missile missile) {
+		float dx = missile.getX() - xs[i];
+		float dy = missile.getY() - ys[i];
+		if (dx * dx + dy * dy < RADIUS * RADIUS) {
+			hit(i);
+			missile.destroy();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Hits an enemy, which starts exploding once it has taken as many hits as
+	 * its type allows
+	 *
+	 * @param i
+	 *            index of the enemy
+	 */
+	public void hit(int i) {
+		if (--hitPoints[i] <= 0) {
+			animations[i] = (byte) AnimationState.EXP_1.ordinal();
+			hit[i] = true;
+		}
+	}
+
+	/**
+	 * Destroys an enemy, taking it out of the counts. It stays in the store
+	 * until the next purge
+	 *
+	 * @param i
+	 *            index of the enemy
+	 */
+	public void destroy(int i) {
+		if (!destroyed[i]) {
+			destroyed[i] = true;
+			counts.leave(STATES[states[i]]);
+		}
+	}
+
+	/**
+	 * Removes destroyed enemies, moving the last enemy into the place of each
+	 * one
+	 */
+	public void purge() {
+		int i = 0;
+		while (i < size) {
+			if (destroyed[i]) {
+				move(--size, i);
+				paths[size] = null;
+			} else
+				i++;
+		}
+	}
+
+	/**
+	 * Takes every enemy out of play
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			destroy(i);
+			paths[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Copy every enemy into another store, as when saving the game to roll
+	 * back to. Paths are shared, since they are never changed once baked
+	 *
+	 * @param other
+	 *            store to copy into
+	 */
+	public void copyTo(EnemyStore other) {
+		other.reserve(size);
+		System.arraycopy(types, 0, other.types, 0, size);
+		System.arraycopy(states, 0, other.states, 0, size);
+		System.arraycopy(animations, 0, other.animations, 0, size);
+		System.arraycopy(hitPoints, 0, other.hitPoints, 0, size);
+		System.arraycopy(hit, 0, other.hit, 0, size);
+		System.arraycopy(destroyed, 0, other.destroyed, 0, size);
+		System.arraycopy(goalReached, 0, other.goalReached, 0, size);
+		System.arraycopy(xs, 0, other.xs, 0, size);
+		System.arraycopy(ys, 0, other.ys, 0, size);
+		System.arraycopy(thetas, 0, other.thetas, 0, size);
+		System.arraycopy(homeXs, 0, other.homeXs, 0, size);
+		System.arraycopy(homeYs, 0, other.homeYs, 0, size);
+		System.arraycopy(uts, 0, other.uts, 0, size);
+		System.arraycopy(animationTimers, 0, other.animationTimers, 0, size);
+		System.arraycopy(paths, 0, other.paths, 0, size);
+		System.arraycopy(cursors, 0, other.cursors, 0, size);
+		System.arraycopy(fromXs, 0, other.fromXs, 0, size);
+		System.arraycopy(fromYs, 0, other.fromYs, 0, size);
+		System.arraycopy(toXs, 0, other.toXs, 0, size);
+		System.arraycopy(toYs, 0, other.toYs, 0, size);
+		System.arraycopy(durations, 0, other.durations, 0, size);
+
+		// Let go of paths the other store no longer uses
+		for (int i = size; i < other.size; i++)
+			other.paths[i] = null;
+		other.size = size;
+		counts.copyTo(other.counts);
+	}
+
+	/**
+	 * Returns a hash of the position, state and health of every enemy
+	 *
+	 * @return a hash of the enemies
+	 */
+	public long checksum() {
+		long h = size;
+		for (int i = 0; i < size; i++) {
+			h = h * 31 + Float.floatToIntBits(xs[i]);
+			h = h * 31 + Float.floatToIntBits(ys[i]);
+			h = h * 31 + states[i];
+			h = h * 31 + hitPoints[i];
+		}
+		return h;
+	}
+
+	/**
+	 * Copies an enemy from one index to another
+	 *
+	 * @param from
+	 *            index to copy from
+	 * @param to
+	 *            index to copy to
+	 */
+	private void move(int from, int to) {
+		types[to] = types[from];
+		states[to] = states[from];
+		animations[to] = animations[from];
+		hitPoints[to] = hitPoints[from];
+		hit[to] = hit[from];
+		destroyed[to] = destroyed[from];
+		goalReached[to] = goalReached[from];
+		xs[to] = xs[from];
+		ys[to] = ys[from];
+		thetas[to] = thetas[from];
+		homeXs[to] = homeXs[from];
+		homeYs[to] = homeYs[from];
+		uts[to] = uts[from];
+		animationTimers[to] = animationTimers[from];
+		paths[to] = paths[from];
+		cursors[to] = cursors[from];
+		fromXs[to] = fromXs[from];
+		fromYs[to] = fromYs[from];
+		toXs[to] = toXs[from];
+		toYs[to] = toYs[from];
+		durations[to] = durations[from];
+	}
+
+	/**
+	 * Changes an enemy's state, keeping the counts up to date
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @param next
+	 *            new state
+	 */
+	private void setState(int i, EnemyState next) {
+		if (!destroyed[i])
+			counts.change(STATES[states[i]], next);
+		states[i] = (byte) next.ordinal();
+	}
+
+	/**
+	 * Appends every enemy to a snapshot
+	 *
+	 * @param snapshot
+	 *            snapshot to fill
+	 */
+	public void capture(FrameSnapshot snapshot) {
+		for (int i = 0; i < size; i++) {
+			int damaged = hitPoints[i] < HIT_POINTS[types[i]] ? 1 : 0;
+			snapshot.addEnemy(xs[i], ys[i], thetas[i],
+					SPRITES[types[i]][damaged][animations[i]],
+					STATES[states[i]]);
+		}
+	}
+
+	/**
+	 * Returns the number of points that an enemy is worth in its current
+	 * state
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return the number of points that the enemy is worth
+	 */
+	public int getScore(int i) {
+		switch (STATES[states[i]]) {
+		case ASSUME_POSITION:
+		case FORMATION_IN:
+		case FORMATION_OUT:
+			return FORMATION_SCORE[types[i]];
+		case DIVE:
+			return ATTACKING_SCORE[types[i]];
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns the kind of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return the kind of enemy
+	 */
+	public EnemyType getType(int i) {
+		return TYPES[types[i]];
+	}
+
+	/**
+	 * Returns the movement state of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return the movement state of the enemy
+	 */
+	public EnemyState getState(int i) {
+		return STATES[states[i]];
+	}
+
+	/**
+	 * Returns true if an enemy has been hit for the last time
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return true if the enemy is exploding
+	 */
+	public boolean isHit(int i) {
+		return hit[i];
+	}
+
+	/**
+	 * Returns the x coordinate of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return x coordinate
+	 */
+	public float getX(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * Returns the y coordinate of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return y coordinate
+	 */
+	public float getY(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * Returns the angle of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return angle of the enemy
+	 */
+	public float getTheta(int i) {
+		return thetas[i];
+	}
+
+	/**
+	 * Returns a copy of an array with a new length
+	 *
+	 * @param a
+	 *            array to copy, or null
+	 * @param capacity
+	 *            new length
+	 * @return the new array
+	 */
+	private byte[] grow(byte[] a, int capacity) {
+		byte[] b = new byte[capacity];
+		if (a != null)
+			System.arraycopy(a, 0, b, 0, size);
+		return b;
+	}
+
+	/**
+	 * Returns a copy of an array with a new length
+	 *
+	 * @param a
+	 *            array to copy, or null
+	 * @param capacity
+	 *            new length
+	 * @return the new array
+	 */
+	private boolean[] grow(boolean[] a, int capacity) {
+		boolean[] b = new boolean[capacity];
+		if (a != null)
+			System.arraycopy(a, 0, b, 0, size);
+		return b;
+	}
+
+	/**
+	 * Returns a copy of an array with a new length
+	 *
+	 * @param a
+	 *            array to copy, or null
+	 * @param capacity
+	 *            new length
+	 * @return the new array
+	 */
+	private int[] grow(int[] a, int capacity) {
+		int[] b = new int[capacity];
+		if (a != null)
+			System.arraycopy(a, 0, b, 0, size);
+		return b;
+	}
+
+	/**
+	 * Returns a copy of an array with a new length
+	 *
+	 * @param a
+	 *            array to copy, or null
+	 * @param capacity
+	 *            new length
+	 * @return the new array
+	 */
+	private float[] grow(float[] a, int capacity) {
+		float[] b = new float[capacity];
+		if (a != null)
+			System.arraycopy(a, 0, b, 0, size);
+		return b;
+	}
+
+	/**
+	 * Defines the state of an enemy at its spawn point, with its path into
+	 * the formation already solved and sampled. The path table is shared
+	 * with every enemy spawned from it, which is safe because tables are
+	 * never modified
+	 *
+	 * @author Christopher Glasz
+	 */
+	public static class SpawnState {
+
+		/**
+		 * Kind of enemy
+		 */
+		private final byte type;
+
+		/**
+		 * Spawn coordinates
+		 */
+		private final float x, y;
+
+		/**
+		 * Angle at the spawn point
+		 */
+		private final float theta;
+
+		/**
+		 * Home coordinates
+		 */
+		private final float homeX, homeY;
+
+		/**
+		 * The entry path sampled into a table
+		 */
+		private final PathTable path;
+
+		/**
+		 * Starting point in the animation cycle
+		 */
+		private final float animationTimer;
+
+		/**
+		 * Starting animation state
+		 */
+		private final byte animation;
+
+		/**
+		 * Solves the entry path for a spawn point and captures the state of an
+		 * enemy at its start
+		 *
+		 * @param type
+		 *            kind of enemy
+		 * @param x
+		 *            spawn x coordinate
+		 * @param y
+		 *            spawn y coordinate
+		 * @param homeX
+		 *            x coordinate of its place in the formation
+		 * @param homeY
+		 *            y coordinate of its place in the formation
+		 * @param entryPath
+		 *            path to take on entry
+		 * @param random
+		 *            source of random numbers for the animation
+		 */
+		public SpawnState(EnemyType type, float x, float y, float homeX,
+				float homeY, FlightPath entryPath, GameRandom random) {
+			this.type = (byte) type.ordinal();
+			this.homeX = homeX;
+			this.homeY = homeY;
+			path = PathTable.solve(entryPath.getPoints(x, y, homeX, homeY));
+			this.x = path.getX(0, 0);
+			this.y = path.getY(0, 0);
+			this.theta = path.getHeading(0, 0);
+			animationTimer = random.nextFloat() * ANIMATION_FRAME;
+			animation = (byte) AnimationState.random(random).ordinal();
+		}
+
+		/**
+		 * Accessor method for the kind of enemy
+		 *
+		 * @return the kind of enemy
+		 */
+		public EnemyType getType() {
+			return TYPES[type];
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package Galaga;
+
+/**
+ * Enumeration of the kinds of enemy that can be placed in a wave, with
+ * everything that differs between them. The ordinal of each type is stored
+ * in the level pack, so new types must only ever be added at the end
+ *
+ * @author Christopher Glasz
+ */
+public enum EnemyType {
+
+	/**
+	 * A Bee, the front line of the Galaga force
+	 */
+	BEE(50, 100, 1, Sprite.BEE, Sprite.BEE_2),
+
+	/**
+	 * A Butterfly, the second line
+	 */
+	BUTTERFLY(80, 160, 1, Sprite.BUTTERFLY, Sprite.BUTTERFLY_2),
+
+	/**
+	 * A Boss Galaga, which takes two hits
+	 */
+	BOSS(130, 400, 2, Sprite.BOSS, Sprite.BOSS_2, Sprite.BOSS_HIT,
+			Sprite.BOSS_2_HIT);
+
+	/**
+	 * How much the enemy is worth when destroyed
+	 */
+	private final int formationScore, attackingScore;
+
+	/**
+	 * Number of hits it takes to destroy the enemy
+	 */
+	private final int hitPoints;
+
+	/**
+	 * Sprites to be rendered with wings up and down
+	 */
+	private final Sprite sprite1, sprite2;
+
+	/**
+	 * Sprites to be rendered with wings up and down once hit but not
+	 * destroyed
+	 */
+	private final Sprite hitSprite1, hitSprite2;
+
+	/**
+	 * Constructor for a type that is destroyed by its first hit
+	 *
+	 * @param formationScore
+	 *            points for destroying it in formation
+	 * @param attackingScore
+	 *            points for destroying it while diving
+	 * @param hitPoints
+	 *            number of hits it takes
+	 * @param sprite1
+	 *            sprite with wings up
+	 * @param sprite2
+	 *            sprite with wings down
+	 */
+	private EnemyType(int formationScore, int attackingScore, int hitPoints,
+			Sprite sprite1, Sprite sprite2) {
+		this(formationScore, attackingScore, hitPoints, sprite1, sprite2,
+				sprite1, sprite2);
+	}
+
+	/**
+	 * Constructor for a type that looks different once it has been hit
+	 *
+	 * @param formationScore
+	 *            points for destroying it in formation
+	 * @param attackingScore
+	 *            points for destroying it while diving
+	 * @param hitPoints
+	 *            number of hits it takes
+	 * @param sprite1
+	 *            sprite with wings up
+	 * @param sprite2
+	 *            sprite with wings down
+	 * @param hitSprite1
+	 *            sprite with wings up once hit
+	 * @param hitSprite2
+	 *            sprite with wings down once hit
+	 */
+	private EnemyType(int formationScore, int attackingScore, int hitPoints,
+			Sprite sprite1, Sprite sprite2, Sprite hitSprite1,
+			Sprite hitSprite2) {
+		this.formationScore = formationScore;
+		this.attackingScore = attackingScore;
+		this.hitPoints = hitPoints;
+		this.sprite1 = sprite1;
+		this.sprite2 = sprite2;
+		this.hitSprite1 = hitSprite1;
+		this.hitSprite2 = hitSprite2;
+	}
+
+	/**
+	 * Accessor method for the formation score
+	 *
+	 * @return points for destroying the enemy in formation
+	 */
+	public int formationScore() {
+		return formationScore;
+	}
+
+	/**
+	 * Accessor method for the attacking score
+	 *
+	 * @return points for destroying the enemy while diving
+	 */
+	public int attackingScore() {
+		return attackingScore;
+	}
+
+	/**
+	 * Accessor method for the hit points
+	 *
+	 * @return number of hits it takes to destroy the enemy
+	 */
+	public int hitPoints() {
+		return hitPoints;
+	}
+
+	/**
+	 * Returns the sprite to be drawn for an animation state
+	 *
+	 * @param state
+	 *            current animation state
+	 * @param damaged
+	 *            true if the enemy has been hit but not destroyed
+	 * @return the sprite to be drawn
+	 */
+	public Sprite sprite(AnimationState state, boolean damaged) {
+		switch (state) {
+		case UP:
+			return damaged ? hitSprite1 : sprite1;
+		case DOWN:
+			return damaged ? hitSprite2 : sprite2;
+		case EXP_1:
+			return Sprite.ENEMY_EXPLOSION_1;
+		case EXP_2:
+			return Sprite.ENEMY_EXPLOSION_2;
+		case EXP_3:
+			return Sprite.ENEMY_EXPLOSION_3;
+		case EXP_4:
+			return Sprite.ENEMY_EXPLOSION_4;
+		default:
+			return Sprite.ENEMY_EXPLOSION_5;
+		}
+	}
+}
@@ -5,17 +5,12 @@ import java.util.Stack;
 import processing.core.*;
 
 /**
- * Defines a fighter. Only one instance of this class can exist at a time.
+ * Defines a fighter. Each game session has its own
  * 
  * @author Christopher Glasz
  */
 public class Fighter implements ApplicationConstants {
 
-	/**
-	 * Instance of the fighter
-	 */
-	private static Fighter instance;
-
 	/**
 	 * Coordinates of the fighter
 	 */
@@ -36,16 +31,6 @@ public class Fighter implements ApplicationConstants {
 	 */
 	private float cycleCount;
 
-	/**
-	 * Sprite to draw
-	 */
-	private PImage sprite;
-
-	/**
-	 * Explosion sprites to draw
-	 */
-	private PImage[] eSprites;
-
 	/**
 	 * Stack of joystick commands to define which direction the fighter should
 	 * move
@@ -73,28 +58,31 @@ public class Fighter implements ApplicationConstants {
 	private int lives;
 
 	/**
-	 * Fetch the one instance of the fighter. If the instance does not exist,
-	 * create it.
-	 * 
-	 * @return instance of the fighter
+	 * Time of the oldest joystick command not yet acted on by an update, from
+	 * System.nanoTime(), or 0 if there is none
 	 */
-	public static Fighter instance() {
-		if (instance == null)
-			instance = new Fighter();
-		return instance;
-	}
+	private long pendingInput;
 
 	/**
-	 * Replaces the current instance of the fighter
+	 * Time of the oldest input acted on since it was last taken, from
+	 * System.nanoTime(), or 0 if there is none
 	 */
-	public static void resetInstance() {
-		instance = new Fighter();
-	}
+	private long appliedInput;
+
+	/**
+	 * Source of random numbers for the animation
+	 */
+	private final GameRandom random;
 
 	/**
-	 * Private constructor ensures that only once instance of the fighter exists
+	 * Constructor puts the fighter in its starting position with a full set
+	 * of lives
+	 * 
+	 * @param random
+	 *            source of random numbers for the animation
 	 */
-	private Fighter() {
+	public Fighter(GameRandom random) {
+		this.random = random;
 		x = 0;
 		y = WORLD_HEIGHT * 0.1f;
 		r = 7 * PIXEL_WIDTH;
@@ -104,8 +92,7 @@ public class Fighter implements ApplicationConstants {
 		cycleCount = 0;
 		commands = new Stack<Joystick>();
 		commands.push(Joystick.CENTER);
-		animationState = AnimationState.random();
-		createSprite();
+		animationState = AnimationState.random(random);
 	}
 
 	/**
@@ -117,6 +104,12 @@ public class Fighter implements ApplicationConstants {
 	public void update(float elapsed) {
 
 		if (!hit) {
+			// Any command pushed since the last update is acted on now
+			if (pendingInput != 0) {
+				markApplied(pendingInput);
+				pendingInput = 0;
+			}
+
 			// Move fighter according joystick position
 			switch (commands.peek()) {
 			case LEFT:
@@ -214,20 +207,43 @@ public class Fighter implements ApplicationConstants {
 	public void resetPosition() {
 		x = 0;
 		y = WORLD_HEIGHT * 0.1f;
-		commands = new Stack<Joystick>();
+		commands.clear();
 		commands.push(Joystick.CENTER);
+		pendingInput = 0;
 	}
 
 	/**
 	 * Revives the fighter using one of its lives without altering its position
 	 */
 	public void revive() {
-		animationState = AnimationState.random();
+		animationState = AnimationState.random(random);
 		hit = false;
 		destroyed = false;
 		lives--;
 	}
 
+	/**
+	 * Copy the state of this fighter into another, as when saving the game to
+	 * roll back to. Input timing is not copied
+	 * 
+	 * @param other
+	 *            fighter to copy into
+	 */
+	public void copyTo(Fighter other) {
+		other.x = x;
+		other.y = y;
+		other.r = r;
+		other.animationState = animationState;
+		other.cycleCount = cycleCount;
+		other.commands.clear();
+		for (int i = 0; i < commands.size(); i++)
+			other.commands.add(commands.get(i));
+		other.destroyed = destroyed;
+		other.hit = hit;
+		other.fired = fired;
+		other.lives = lives;
+	}
+
 	/**
 	 * Accessor method for lives
 	 * 
@@ -287,28 +303,60 @@ public class Fighter implements ApplicationConstants {
 	 *            command to be pushed onto the stack
 	 */
 	public void push(Joystick command) {
-		if (commands.peek() != command)
+		push(command, 0);
+	}
+
+	/**
+	 * Pushes a command onto the stack, remembering when the input behind it
+	 * happened so the delay until the next update can be measured
+	 * 
+	 * @param command
+	 *            command to be pushed onto the stack
+	 * @param time
+	 *            time of the input, from System.nanoTime(), or 0 if unknown
+	 */
+	public void push(Joystick command, long time) {
+		if (commands.peek() != command) {
 			commands.push(command);
+			if (pendingInput == 0)
+				pendingInput = time;
+		}
 	}
 
 	/**
 	 * Pops a command from the stack. If the passed in command is not the one on
-	 * top of the stack, removes the first instance of that command found
+	 * top of the stack, removes the topmost instance of that command found
 	 * 
 	 * @param command
 	 *            command to be popped from the stack
 	 * @return popped command
 	 */
 	public Joystick pop(Joystick command) {
-		Joystick popped;
-		if (commands.peek() == command)
-			popped = commands.pop();
-		else {
-			Joystick temp = commands.pop();
-			popped = commands.pop();
-			commands.push(temp);
-		}
-		return popped;
+		return pop(command, 0);
+	}
+
+	/**
+	 * Pops a command from the stack, remembering when the input behind it
+	 * happened so the delay until the next update can be measured. A command
+	 * that is not on the stack, as when its key went down before play began,
+	 * leaves the stack alone
+	 * 
+	 * @param command
+	 *            command to be popped from the stack
+	 * @param time
+	 *            time of the input, from System.nanoTime(), or 0 if unknown
+	 * @return popped command, or null if it was not on the stack
+	 */
+	public Joystick pop(Joystick command, long time) {
+		if (pendingInput == 0)
+			pendingInput = time;
+
+		// The bottom of the stack is always centered
+		int i = commands.lastIndexOf(command);
+		if (i <= 0)
+			return null;
+		commands.remove(i);
+		return command;
 	}
 
 	/**
@@ -317,63 +365,83 @@ public class Fighter implements ApplicationConstants {
 	 * @return missile shot from the fighter
 	 */
 	public Missile shoot() {
+		return shoot(0);
+	}
+
+	/**
+	 * Return a missile shot from the fighter in response to an input
+	 * 
+	 * @param time
+	 *            time of the input, from System.nanoTime(), or 0 if unknown
+	 * @return missile shot from the fighter
+	 */
+	public Missile shoot(long time) {
+		return shoot(time, null);
+	}
+
+	/**
+	 * Return a missile shot from the fighter in response to an input, firing
+	 * a spent missile again if there is one
+	 * 
+	 * @param time
+	 *            time of the input, from System.nanoTime(), or 0 if unknown
+	 * @param spent
+	 *            destroyed missile to fire again, or null to make a new one
+	 * @return missile shot from the fighter
+	 */
+	public Missile shoot(long time, FighterMissile spent) {
 		fired++;
-		return new FighterMissile(x, y);
+		markApplied(time);
+		if (spent == null)
+			return new FighterMissile(x, y);
+		spent.launch(x, y);
+		return spent;
 	}
 
 	/**
-	 * Loads the sprite
-	 */
-	private void createSprite() {
-		sprite = (new PApplet()).loadImage("Sprites/fighter.png");
-		eSprites = new PImage[5];
-		eSprites[0] = (new PApplet())
-				.loadImage("Sprites/fighter_explosion_1.png");
-		eSprites[1] = (new PApplet())
-				.loadImage("Sprites/fighter_explosion_2.png");
-		eSprites[2] = (new PApplet())
-				.loadImage("Sprites/fighter_explosion_3.png");
-		eSprites[3] = (new PApplet())
-				.loadImage("Sprites/fighter_explosion_4.png");
-		eSprites[4] = (new PApplet())
-				.loadImage("Sprites/fighter_explosion_5.png");
+	 * Returns the time of the oldest input acted on since the last call, and
+	 * forgets it
+	 * 
+	 * @return time of the input, from System.nanoTime(), or 0 if no input was
+	 *         acted on
+	 */
+	public long takeAppliedInput() {
+		long taken = appliedInput;
+		appliedInput = 0;
+		return taken;
 	}
 
 	/**
-	 * Draws the fighter to the passed PApplet
+	 * Remembers that an input has been acted on, keeping the oldest one
 	 * 
-	 * @param g
-	 *            PApplet to draw to
+	 * @param time
+	 *            time of the input, from System.nanoTime(), or 0 if unknown
 	 */
-	public void render(PApplet g) {
-		g.pushMatrix();
-		g.translate(x, y);
-		g.scale(PIXEL_WIDTH, -PIXEL_WIDTH);
-		g.noSmooth();
-		g.imageMode(PConstants.CENTER);
+	private void markApplied(long time) {
+		if (time != 0 && (appliedInput == 0 || time - appliedInput < 0))
+			appliedInput = time;
+	}
 
+	/**
+	 * Returns the sprite to be drawn for the current animation state
+	 * 
+	 * @return the sprite to be drawn for the current animation state
+	 */
+	public Sprite getSprite() {
 		switch (animationState) {
 		case EXP_1:
-			g.image(eSprites[0], 0, 0);
-			break;
+			return Sprite.FIGHTER_EXPLOSION_1;
 		case EXP_2:
-			g.image(eSprites[1], 0, 0);
-			break;
+			return Sprite.FIGHTER_EXPLOSION_2;
 		case EXP_3:
-			g.image(eSprites[2], 0, 0);
-			break;
+			return Sprite.FIGHTER_EXPLOSION_3;
 		case EXP_4:
-			g.image(eSprites[3], 0, 0);
-			break;
+			return Sprite.FIGHTER_EXPLOSION_4;
 		case EXP_5:
-			g.image(eSprites[4], 0, 0);
-			break;
+			return Sprite.FIGHTER_EXPLOSION_5;
 		default:
-			g.image(sprite, 0, 0);
-			break;
+			return Sprite.FIGHTER;
 		}
-
-		g.popMatrix();
 	}
 
 	/**
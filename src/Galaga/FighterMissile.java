@@ -1,6 +1,5 @@
 package Galaga;
 
-import processing.core.PApplet;
 import processing.core.PConstants;
 
 /**
@@ -20,16 +19,29 @@ public class FighterMissile extends Missile {
 	 */
 	public FighterMissile(float x, float y) {
 		super(x, y);
+		launch(x, y);
+	}
+
+	/**
+	 * Fires the missile from the passed in coordinates
+	 * 
+	 * @param x
+	 *            initial x coordinate of the missile
+	 * @param y
+	 *            initial y coordinate of the missile
+	 */
+	public void launch(float x, float y) {
+		reset(x, y);
 		vx = 0;
 		vy = BULLET_SPEED;
 		theta = PConstants.PI;
 	}
 
 	/**
-	 * Loads the sprite
+	 * Selects the sprite
 	 */
 	protected void createSprite() {
-		sprite = (new PApplet()).loadImage("Sprites/fighter_missile.png");
+		sprite = Sprite.FIGHTER_MISSILE;
 	}
 
 }
@@ -0,0 +1,75 @@
+package Galaga;
+
+/**
+ * Enumeration to define different flight paths for enemies
+ * 
+ * @author Christopher Glasz
+ */
+public enum FlightPath implements ApplicationConstants {
+
+	/**
+	 * Flight path 1 has enemies crossing twice and assuming position
+	 */
+	DOUBLE_CROSS {
+		public float[][] getPoints(float x, float y, float goalX,
+				float goalY) {
+			return new float[][] { { x, y, 0 }, { 0, WORLD_HEIGHT / 2, 1 },
+					{ -x, WORLD_HEIGHT / 3, 1.5f },
+					{ -x, WORLD_HEIGHT / 2, 2 }, { goalX, goalY, 3 } };
+		}
+	},
+
+	/**
+	 * Flight path 2 has enemies looping up from the bottom
+	 */
+	BOTTOM_LOOP {
+		public float[][] getPoints(float x, float y, float goalX,
+				float goalY) {
+			return new float[][] { { x, y, 0 },
+					{ x / 10, WORLD_HEIGHT / 3, 1 },
+					{ x / 6, 2 * WORLD_HEIGHT / 3, 1.5f },
+					{ x / 7, WORLD_HEIGHT / 3, 2 }, { goalX, goalY, 3 } };
+		}
+	},
+
+	/**
+	 * Flight path 3 has enemies looping down from the top
+	 */
+	TOP_LOOP {
+		public float[][] getPoints(float x, float y, float goalX,
+				float goalY) {
+			return new float[][] { { x, y, 0 },
+					{ x / 2, WORLD_HEIGHT / 3, 1 },
+					{ 0, WORLD_HEIGHT / 3, 1.5f }, { goalX, goalY, 2 } };
+		}
+	},
+
+	/**
+	 * Flight path 4 defines the path enemies take when dive bombing
+	 */
+	DIVE {
+		public float[][] getPoints(float x, float y, float goalX,
+				float goalY) {
+			return new float[][] { { x, y, 0 },
+					{ x + 0.05f, y + 0.05f, 0.5f }, { goalX, goalY, 2 },
+					{ goalX, 0, 3 }, { x, y, 4 } };
+		}
+	};
+
+	/**
+	 * Return waypoints specific to the flight path
+	 * 
+	 * @param x
+	 *            initial x coordinate
+	 * @param y
+	 *            initial y coordinate
+	 * @param goalX
+	 *            final x coordinate
+	 * @param goalY
+	 *            final y coordinate
+	 * @return the waypoints for the flight path
+	 */
+	public float[][] getPoints(float x, float y, float goalX, float goalY) {
+		return new float[][] { { 0, 1 }, { 1, 0 } };
+	}
+}
@@ -0,0 +1,466 @@
+package Galaga;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import processing.core.PGraphics;
+
+/**
+ * Records frames of the game to disk, for the cabinet's attract loop. The
+ * renderer copies each frame's pixels into a buffer from a fixed pool and
+ * hands it to a pool of worker threads, which encode the frames in parallel,
+ * one file per frame. The renderer never waits: if every buffer is still
+ * being encoded, the frame is not captured, and is counted as dropped
+ *
+ * @author Christopher Glasz
+ */
+public class FrameCapture {
+
+	/**
+	 * Marks the start of a frame in the {@link Format#RLE} format
+	 */
+	private static final int RLE_MAGIC = 0x47524C45;
+
+	/**
+	 * Buffers not holding a frame
+	 */
+	private final ArrayBlockingQueue<Frame> free;
+
+	/**
+	 * Frames waiting to be encoded. Never holds more than the pool, so adding
+	 * to it never fails
+	 */
+	private final ArrayBlockingQueue<Frame> queue;
+
+	/**
+	 * Threads encoding frames
+	 */
+	private final Worker[] workers;
+
+	/**
+	 * Folder the frames are written to
+	 */
+	private final File folder;
+
+	/**
+	 * Size of each frame in pixels
+	 */
+	private final int width, height;
+
+	/**
+	 * How the frames are written
+	 */
+	private final Format format;
+
+	/**
+	 * Number of the next frame captured
+	 */
+	private long next;
+
+	/**
+	 * Number of frames not captured because every buffer was busy
+	 */
+	private long dropped;
+
+	/**
+	 * Number of frames written, and the bytes written for them
+	 */
+	private final AtomicLong written, bytes;
+
+	/**
+	 * Time the renderer spent copying each frame
+	 */
+	private final LatencyHistogram copyTime;
+
+	/**
+	 * True until the capture is closed
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Constructor starts the workers
+	 *
+	 * @param folder
+	 *            folder to write the frames to, created if missing
+	 * @param width
+	 *            width of each frame in pixels
+	 * @param height
+	 *            height of each frame in pixels
+	 * @param format
+	 *            how to write the frames
+	 * @param threads
+	 *            number of worker threads
+	 * @param buffers
+	 *            number of frames that can be waiting to be encoded at once
+	 */
+	public FrameCapture(File folder, int width, int height, Format format,
+			int threads, int buffers) {
+		this.folder = folder;
+		this.width = width;
+		this.height = height;
+		this.format = format;
+		folder.mkdirs();
+
+		free = new ArrayBlockingQueue<Frame>(buffers);
+		queue = new ArrayBlockingQueue<Frame>(buffers);
+		for (int i = 0; i < buffers; i++)
+			free.add(new Frame(width * height));
+
+		written = new AtomicLong();
+		bytes = new AtomicLong();
+		copyTime = new LatencyHistogram("capture copy", 1000L, 10000);
+		running = true;
+
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(i);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Constructor using one worker per spare core, and two buffers for each
+	 *
+	 * @param folder
+	 *            folder to write the frames to, created if missing
+	 * @param width
+	 *            width of each frame in pixels
+	 * @param height
+	 *            height of each frame in pixels
+	 * @param format
+	 *            how to write the frames
+	 */
+	public FrameCapture(File folder, int width, int height, Format format) {
+		this(folder, width, height, format, Math.max(1, Runtime.getRuntime()
+				.availableProcessors() - 1), 2 * Math.max(1, Runtime
+				.getRuntime().availableProcessors() - 1) + 2);
+	}
+
+	/**
+	 * Capture a frame drawn offscreen. Must be called after endDraw()
+	 *
+	 * @param graphics
+	 *            the frame, the same size as the capture
+	 * @return true if the frame was captured, false if it was dropped
+	 */
+	public boolean capture(PGraphics graphics) {
+		graphics.loadPixels();
+		return capture(graphics.pixels);
+	}
+
+	/**
+	 * Capture a frame. The pixels are copied, so the array can be reused as
+	 * soon as this returns
+	 *
+	 * @param pixels
+	 *            the frame's pixels, row by row
+	 * @return true if the frame was captured, false if it was dropped
+	 */
+	public boolean capture(int[] pixels) {
+		long start = System.nanoTime();
+		Frame frame = free.poll();
+		if (frame == null) {
+			dropped++;
+			next++;
+			return false;
+		}
+		System.arraycopy(pixels, 0, frame.pixels, 0, frame.pixels.length);
+		frame.index = next++;
+		queue.add(frame);
+		copyTime.record(System.nanoTime() - start);
+		return true;
+	}
+
+	/**
+	 * Returns the file a frame is written to
+	 *
+	 * @param index
+	 *            number of the frame
+	 * @return the file holding the frame
+	 */
+	public File file(long index) {
+		return new File(folder, String.format("frame-%06d.%s", index,
+				format.extension()));
+	}
+
+	/**
+	 * Accessor method for the number of frames written so far
+	 *
+	 * @return number of frames written
+	 */
+	public long written() {
+		return written.get();
+	}
+
+	/**
+	 * Accessor method for the number of frames dropped so far
+	 *
+	 * @return number of frames dropped
+	 */
+	public long dropped() {
+		return dropped;
+	}
+
+	/**
+	 * Returns a one-line summary of the capture
+	 *
+	 * @return a one-line summary of the capture
+	 */
+	public String summary() {
+		LatencyHistogram encode = new LatencyHistogram("capture encode",
+				100000L, 10000);
+		for (Worker w : workers)
+			encode.add(w.encodeTime);
+		long n = written.get();
+		return String.format(
+				"capture: format=%s workers=%d frames=%d dropped=%d "
+						+ "mean frame=%dKB copy p99=%.3fms "
+						+ "encode mean=%.1fms p99=%.1fms", format,
+				workers.length, n, dropped, n == 0 ? 0 : bytes.get() / n
+						/ 1024, copyTime.percentile(0.99) * 1e-6,
+				encode.mean() * 1e-6, encode.percentile(0.99) * 1e-6);
+	}
+
+	/**
+	 * Finish encoding every captured frame and stop the workers
+	 */
+	public void close() {
+		running = false;
+		for (Worker w : workers) {
+			try {
+				w.join();
+			} catch (InterruptedException e) {
+				System.out.println("Error waiting for the capture to finish");
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Read a frame written in the {@link Format#RLE} format
+	 *
+	 * @param file
+	 *            the file to read
+	 * @return the frame's pixels, row by row, after its width and height
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static int[] readRLE(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != RLE_MAGIC)
+				throw new IOException(file + " is not a captured frame");
+			int width = in.readInt();
+			int height = in.readInt();
+			int[] frame = new int[width * height + 2];
+			frame[0] = width;
+			frame[1] = height;
+			int i = 2;
+			while (i < frame.length) {
+				int run = in.readUnsignedShort() + 1;
+				int color = in.readInt();
+				for (int end = i + run; i < end; i++)
+					frame[i] = color;
+			}
+			return frame;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Defines the ways frames can be written
+	 *
+	 * @author Christopher Glasz
+	 */
+	public enum Format {
+
+		/**
+		 * Compressed PNG image, readable by anything but slow to write
+		 */
+		PNG {
+			@Override
+			public String extension() {
+				return "png";
+			}
+
+			@Override
+			public void write(int[] pixels, int width, int height,
+					Worker worker, File file) throws IOException {
+				if (worker.image == null)
+					worker.image = new BufferedImage(width, height,
+							BufferedImage.TYPE_INT_RGB);
+				worker.image.getRaster().setDataElements(0, 0, width, height,
+						pixels);
+				ImageIO.write(worker.image, "png", file);
+			}
+		},
+
+		/**
+		 * Raw pixels, run-length encoded. Quick to write, and small for a
+		 * mostly black screen. Read back with {@link FrameCapture#readRLE}
+		 */
+		RLE {
+			@Override
+			public String extension() {
+				return "rle";
+			}
+
+			@Override
+			public void write(int[] pixels, int width, int height,
+					Worker worker, File file) throws IOException {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(file),
+								1 << 16));
+				try {
+					out.writeInt(RLE_MAGIC);
+					out.writeInt(width);
+					out.writeInt(height);
+
+					// Runs of one color, up to 65536 pixels long
+					int i = 0;
+					while (i < pixels.length) {
+						int color = pixels[i];
+						int end = Math.min(pixels.length, i + 65536);
+						int j = i + 1;
+						while (j < end && pixels[j] == color)
+							j++;
+						out.writeShort(j - i - 1);
+						out.writeInt(color);
+						i = j;
+					}
+				} finally {
+					out.close();
+				}
+			}
+		};
+
+		/**
+		 * Returns the extension of the files written
+		 *
+		 * @return the file extension
+		 */
+		public abstract String extension();
+
+		/**
+		 * Write a frame to a file
+		 *
+		 * @param pixels
+		 *            the frame's pixels, row by row
+		 * @param width
+		 *            width of the frame
+		 * @param height
+		 *            height of the frame
+		 * @param worker
+		 *            the worker writing the frame, for its scratch space
+		 * @param file
+		 *            file to write to
+		 * @throws IOException
+		 *             if the file cannot be written
+		 */
+		public abstract void write(int[] pixels, int width, int height,
+				Worker worker, File file) throws IOException;
+	}
+
+	/**
+	 * Defines one pooled frame buffer
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Frame {
+
+		/**
+		 * The frame's pixels
+		 */
+		private final int[] pixels;
+
+		/**
+		 * Number of the frame in the capture
+		 */
+		private long index;
+
+		/**
+		 * Constructor allocates the pixels
+		 *
+		 * @param size
+		 *            number of pixels in a frame
+		 */
+		private Frame(int size) {
+			pixels = new int[size];
+		}
+	}
+
+	/**
+	 * Defines a thread encoding captured frames, and its scratch space
+	 *
+	 * @author Christopher Glasz
+	 */
+	public class Worker extends Thread {
+
+		/**
+		 * Image reused for each frame written as a PNG
+		 */
+		private BufferedImage image;
+
+		/**
+		 * Time taken to encode each frame
+		 */
+		private final LatencyHistogram encodeTime;
+
+		/**
+		 * Constructor names the thread
+		 *
+		 * @param index
+		 *            number of the worker
+		 */
+		private Worker(int index) {
+			super("Capture " + index);
+			encodeTime = new LatencyHistogram("capture encode", 100000L,
+					10000);
+			setDaemon(true);
+		}
+
+		/**
+		 * Encode frames until the capture is closed and every frame is written
+		 */
+		@Override
+		public void run() {
+			while (running || !queue.isEmpty()) {
+				Frame frame;
+				try {
+					frame = queue.poll(10, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					break;
+				}
+				if (frame == null)
+					continue;
+
+				long start = System.nanoTime();
+				File file = file(frame.index);
+				try {
+					format.write(frame.pixels, width, height, this, file);
+					written.incrementAndGet();
+					bytes.addAndGet(file.length());
+				} catch (IOException e) {
+					System.out.println("Error writing " + file);
+					e.printStackTrace();
+				}
+				encodeTime.record(System.nanoTime() - start);
+				free.add(frame);
+			}
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package Galaga;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Starts each frame of a loop on time. Thread.sleep alone wakes up anywhere
+ * from a fraction of a millisecond to a few milliseconds late, so the pacer
+ * sleeps until a margin before the deadline and spins the rest of the way.
+ * The margin grows whenever a sleep overshoots by more than it allows for,
+ * and shrinks slowly back while sleeps are punctual, so the pacer spins no
+ * longer than this machine needs.
+ * <p>
+ * With fixed intervals, frames start on a grid of deadlines a period apart,
+ * like a display's vertical sync: a frame that runs past its deadline
+ * misses it, and the next frame waits for the next deadline on the grid.
+ * The time reported as elapsed is then always a whole number of periods,
+ * free of any jitter in waking up. Uncapped, the pacer never waits, for
+ * benchmarking how fast frames can be drawn.
+ * <p>
+ * How late each frame started, and how long each frame took from start to
+ * start, are kept in histograms. A pacer is meant to be used by the single
+ * thread whose loop it paces
+ *
+ * @author Christopher Glasz
+ */
+public class FramePacer {
+
+	/**
+	 * Least time before a deadline to stop sleeping and start spinning, in
+	 * nanoseconds
+	 */
+	private static final long MIN_MARGIN = 1000000L;
+
+	/**
+	 * Time spun beyond the worst overshoot seen, in nanoseconds
+	 */
+	private static final long MARGIN_SLACK = 250000L;
+
+	/**
+	 * Time the margin shrinks by each frame, in nanoseconds
+	 */
+	private static final long MARGIN_DECAY = 10000L;
+
+	/**
+	 * Thread.onSpinWait, which tells the processor the thread is spinning,
+	 * or null on JVMs older than Java 9 that do not have it
+	 */
+	private static final MethodHandle SPIN_WAIT = findSpinWait();
+
+	/**
+	 * Name shown in the summary
+	 */
+	private final String name;
+
+	/**
+	 * How frames are paced
+	 */
+	private final Mode mode;
+
+	/**
+	 * Time between deadlines, in nanoseconds
+	 */
+	private final long period;
+
+	/**
+	 * How late each frame started, with fixed intervals
+	 */
+	private final LatencyHistogram error;
+
+	/**
+	 * Time from the start of each frame to the start of the next
+	 */
+	private final LatencyHistogram intervals;
+
+	/**
+	 * Time before a deadline to stop sleeping, in nanoseconds
+	 */
+	private long margin;
+
+	/**
+	 * Deadline the next frame should start at, from System.nanoTime()
+	 */
+	private long deadline;
+
+	/**
+	 * Time the last frame started, from System.nanoTime(), or 0 before the
+	 * first frame
+	 */
+	private long lastStart;
+
+	/**
+	 * Number of frames started
+	 */
+	private long frames;
+
+	/**
+	 * Number of frames that ran past the deadline of the next
+	 */
+	private long missed;
+
+	/**
+	 * Number of deadlines skipped because a frame ran past them
+	 */
+	private long skipped;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param name
+	 *            name shown in the summary
+	 * @param mode
+	 *            how frames are paced
+	 * @param period
+	 *            time between deadlines in nanoseconds, with fixed intervals
+	 */
+	public FramePacer(String name, Mode mode, long period) {
+		this.name = name;
+		this.mode = mode;
+		this.period = period;
+		error = new LatencyHistogram(name + " pacing error", 1000L, 5000);
+		intervals = new LatencyHistogram(name + " frame interval");
+		margin = Math.min(2 * MIN_MARGIN, period / 2);
+	}
+
+	/**
+	 * Accessor method for the mode
+	 *
+	 * @return how frames are paced
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Accessor method for the period
+	 *
+	 * @return time between deadlines in nanoseconds
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Waits for the start of the next frame. The first frame starts at once.
+	 * If the thread is interrupted while waiting, the frame starts at once
+	 * and the thread is left interrupted
+	 *
+	 * @return time elapsed since the start of the last frame in nanoseconds:
+	 *         a whole number of periods with fixed intervals, or the time
+	 *         measured uncapped
+	 */
+	public long await() {
+		long now = System.nanoTime();
+		frames++;
+		if (lastStart == 0) {
+			lastStart = now;
+			deadline = now + period;
+			return mode == Mode.FIXED ? period : 0;
+		}
+
+		if (mode == Mode.UNCAPPED) {
+			long elapsed = now - lastStart;
+			intervals.record(elapsed);
+			lastStart = now;
+			return elapsed;
+		}
+
+		// Running past the deadline misses it, and waits for the next one
+		long scheduled = deadline;
+		if (now > deadline) {
+			long late = (now - deadline) / period + 1;
+			missed++;
+			skipped += late;
+			deadline += late * period;
+		}
+		long start = waitUntil(deadline);
+		error.record(start - deadline);
+		intervals.record(start - lastStart);
+		lastStart = start;
+
+		long elapsed = deadline - scheduled + period;
+		deadline += period;
+		return elapsed;
+	}
+
+	/**
+	 * Sleeps until the margin before a deadline, then spins until it
+	 *
+	 * @param until
+	 *            the deadline, from System.nanoTime()
+	 * @return time the wait ended, from System.nanoTime()
+	 */
+	private long waitUntil(long until) {
+		margin = Math.max(MIN_MARGIN, margin - MARGIN_DECAY);
+		long now = System.nanoTime();
+		while (until - now > margin) {
+			long nap = until - now - margin;
+			try {
+				Thread.sleep(nap / 1000000, (int) (nap % 1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return System.nanoTime();
+			}
+			long woke = System.nanoTime();
+			long overshoot = woke - now - nap;
+			if (overshoot + MARGIN_SLACK > margin)
+				margin = Math.min(overshoot + MARGIN_SLACK, period / 2);
+			now = woke;
+		}
+		while (now < until) {
+			spinWait();
+			now = System.nanoTime();
+		}
+		return now;
+	}
+
+	/**
+	 * Accessor method for the number of missed deadlines
+	 *
+	 * @return number of frames that ran past the deadline of the next
+	 */
+	public long missed() {
+		return missed;
+	}
+
+	/**
+	 * Returns a summary of the pacing: one line of counts, then one line for
+	 * each histogram kept
+	 *
+	 * @return the summary
+	 */
+	public String summary() {
+		if (mode == Mode.UNCAPPED)
+			return name + " pacing: mode=" + mode + " frames=" + frames
+					+ "\n" + intervals.summary();
+		return String.format(
+				"%s pacing: mode=%s period=%.2fms frames=%d missed=%d "
+						+ "skipped=%d spin margin=%.2fms", name, mode,
+				period * 1e-6, frames, missed, skipped, margin * 1e-6)
+				+ "\n" + error.summary() + "\n" + intervals.summary();
+	}
+
+	/**
+	 * Tells the processor the thread is spinning, if the JVM can
+	 */
+	private static void spinWait() {
+		if (SPIN_WAIT == null)
+			return;
+		try {
+			SPIN_WAIT.invokeExact();
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	/**
+	 * Looks up Thread.onSpinWait
+	 *
+	 * @return a handle to it, or null if this JVM does not have it
+	 */
+	private static MethodHandle findSpinWait() {
+		try {
+			return MethodHandles.lookup().findStatic(Thread.class,
+					"onSpinWait", MethodType.methodType(void.class));
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Defines the ways frames can be paced
+	 *
+	 * @author Christopher Glasz
+	 */
+	public enum Mode {
+
+		/**
+		 * Frames start a whole number of periods apart, on a fixed grid of
+		 * deadlines
+		 */
+		FIXED,
+
+		/**
+		 * Frames start as soon as the last one ends, for benchmarking
+		 */
+		UNCAPPED
+	}
+}
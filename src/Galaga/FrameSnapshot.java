@@ -0,0 +1,752 @@
+package Galaga;
+
+/**
+ * Defines everything the renderer needs to draw one frame. The simulation
+ * fills a snapshot after each tick and publishes it through a
+ * {@link SnapshotBuffer}; once published, a snapshot is only ever read.
+ * Storage is preallocated and reused, so filling a snapshot does not allocate
+ * in the steady state
+ *
+ * @author Christopher Glasz
+ */
+public class FrameSnapshot {
+
+	/**
+	 * Number of highscores shown on the highscore screen
+	 */
+	public static final int HIGHSCORE_COUNT = 3;
+
+	/**
+	 * Number of letters in a name entered for a highscore
+	 */
+	public static final int NAME_LENGTH = 3;
+
+	/**
+	 * Number of the tick that produced this snapshot
+	 */
+	private long tick;
+
+	/**
+	 * Game state at the end of the tick
+	 */
+	private GameState gameState;
+
+	/**
+	 * Current level
+	 */
+	private int level;
+
+	/**
+	 * Player score
+	 */
+	private int score;
+
+	/**
+	 * Score being displayed on the screen
+	 */
+	private int scoreDisplay;
+
+	/**
+	 * The highest stored score
+	 */
+	private int topScore;
+
+	/**
+	 * Number of lives the fighter has left
+	 */
+	private int lives;
+
+	/**
+	 * Number of missiles fired by the fighter
+	 */
+	private int fired;
+
+	/**
+	 * Number of enemies hit
+	 */
+	private int hits;
+
+	/**
+	 * Time of the most recent input the fighter has acted on, from
+	 * System.nanoTime(), or 0 if there has been none
+	 */
+	private long inputTime;
+
+	/**
+	 * Coordinates of the fighter
+	 */
+	private float fighterX, fighterY;
+
+	/**
+	 * Sprite of the fighter
+	 */
+	private Sprite fighterSprite;
+
+	/**
+	 * Number of enemies in the snapshot
+	 */
+	private int enemyCount;
+
+	/**
+	 * Coordinates and angle of each enemy
+	 */
+	private float[] enemyX, enemyY, enemyTheta;
+
+	/**
+	 * Sprite of each enemy
+	 */
+	private Sprite[] enemySprite;
+
+	/**
+	 * State of each enemy, or null where it is not known
+	 */
+	private EnemyState[] enemyState;
+
+	/**
+	 * Number of missiles in the snapshot
+	 */
+	private int missileCount;
+
+	/**
+	 * Coordinates and angle of each missile
+	 */
+	private float[] missileX, missileY, missileTheta;
+
+	/**
+	 * Sprite of each missile
+	 */
+	private Sprite[] missileSprite;
+
+	/**
+	 * Number of highscores in the snapshot
+	 */
+	private int highscoreCount;
+
+	/**
+	 * Names of the top highscores
+	 */
+	private String[] highscoreNames;
+
+	/**
+	 * Values of the top highscores
+	 */
+	private int[] highscoreScores;
+
+	/**
+	 * Index of the selected option of the menu on the screen
+	 */
+	private int menuSelection;
+
+	/**
+	 * Letters of the name being entered
+	 */
+	private char[] entryLetters;
+
+	/**
+	 * Index of the selected letter of the name being entered
+	 */
+	private int entrySelection;
+
+	/**
+	 * Constructor preallocates storage for a full wave
+	 */
+	public FrameSnapshot() {
+		gameState = GameState.MAIN_MENU;
+		fighterSprite = Sprite.FIGHTER;
+		allocateEnemies(64);
+		allocateMissiles(32);
+		highscoreNames = new String[HIGHSCORE_COUNT];
+		highscoreScores = new int[HIGHSCORE_COUNT];
+		entryLetters = new char[NAME_LENGTH];
+	}
+
+	/**
+	 * Starts filling the snapshot for a new tick, clearing all entities
+	 *
+	 * @param tick
+	 *            number of the tick
+	 * @param gameState
+	 *            game state at the end of the tick
+	 */
+	public void begin(long tick, GameState gameState) {
+		this.tick = tick;
+		this.gameState = gameState;
+		enemyCount = 0;
+		missileCount = 0;
+		highscoreCount = 0;
+	}
+
+	/**
+	 * Records the score board
+	 *
+	 * @param level
+	 *            current level
+	 * @param score
+	 *            player score
+	 * @param scoreDisplay
+	 *            score being displayed on the screen
+	 * @param topScore
+	 *            the highest stored score
+	 * @param hits
+	 *            number of enemies hit
+	 */
+	public void setScore(int level, int score, int scoreDisplay, int topScore,
+			int hits) {
+		this.level = level;
+		this.score = score;
+		this.scoreDisplay = scoreDisplay;
+		this.topScore = topScore;
+		this.hits = hits;
+	}
+
+	/**
+	 * Records the fighter
+	 *
+	 * @param fighter
+	 *            the player's ship
+	 */
+	public void setFighter(Fighter fighter) {
+		setFighter(fighter.getX(), fighter.getY(), fighter.getSprite(),
+				fighter.lives(), fighter.fired());
+	}
+
+	/**
+	 * Records the fighter from its parts, as when decoding a snapshot sent
+	 * over the network
+	 *
+	 * @param x
+	 *            x coordinate of the fighter
+	 * @param y
+	 *            y coordinate of the fighter
+	 * @param sprite
+	 *            sprite of the fighter
+	 * @param lives
+	 *            number of lives the fighter has left
+	 * @param fired
+	 *            number of missiles fired by the fighter
+	 */
+	public void setFighter(float x, float y, Sprite sprite, int lives,
+			int fired) {
+		fighterX = x;
+		fighterY = y;
+		fighterSprite = sprite;
+		this.lives = lives;
+		this.fired = fired;
+	}
+
+	/**
+	 * Records the selected option of the menu on the screen
+	 *
+	 * @param menuSelection
+	 *            index of the selected option
+	 */
+	public void setMenuSelection(int menuSelection) {
+		this.menuSelection = menuSelection;
+	}
+
+	/**
+	 * Records the name being entered
+	 *
+	 * @param nameEntry
+	 *            the name entry field
+	 */
+	public void setNameEntry(NameEntry nameEntry) {
+		for (int i = 0; i < NAME_LENGTH; i++)
+			entryLetters[i] = nameEntry.letterAt(i);
+		entrySelection = nameEntry.selectedIndex();
+	}
+
+	/**
+	 * Records one letter of the name being entered
+	 *
+	 * @param i
+	 *            index of the letter
+	 * @param letter
+	 *            the letter
+	 */
+	public void setEntryLetter(int i, char letter) {
+		entryLetters[i] = letter;
+	}
+
+	/**
+	 * Records the selected letter of the name being entered
+	 *
+	 * @param entrySelection
+	 *            index of the selected letter
+	 */
+	public void setEntrySelection(int entrySelection) {
+		this.entrySelection = entrySelection;
+	}
+
+	/**
+	 * Records the most recent input the fighter has acted on
+	 *
+	 * @param inputTime
+	 *            time of the input, from System.nanoTime(), or 0 if there has
+	 *            been none
+	 */
+	public void setInputTime(long inputTime) {
+		this.inputTime = inputTime;
+	}
+
+	/**
+	 * Appends an enemy to the snapshot
+	 *
+	 * @param x
+	 *            x coordinate of the enemy
+	 * @param y
+	 *            y coordinate of the enemy
+	 * @param theta
+	 *            angle of the enemy
+	 * @param sprite
+	 *            sprite to draw for the enemy
+	 */
+	public void addEnemy(float x, float y, float theta, Sprite sprite) {
+		addEnemy(x, y, theta, sprite, null);
+	}
+
+	/**
+	 * Appends an enemy to the snapshot, with what it is doing
+	 *
+	 * @param x
+	 *            x coordinate of the enemy
+	 * @param y
+	 *            y coordinate of the enemy
+	 * @param theta
+	 *            angle of the enemy
+	 * @param sprite
+	 *            sprite to draw for the enemy
+	 * @param state
+	 *            state of the enemy, or null if not known
+	 */
+	public void addEnemy(float x, float y, float theta, Sprite sprite,
+			EnemyState state) {
+		if (enemyCount == enemyX.length)
+			allocateEnemies(enemyCount * 2);
+		enemyX[enemyCount] = x;
+		enemyY[enemyCount] = y;
+		enemyTheta[enemyCount] = theta;
+		enemySprite[enemyCount] = sprite;
+		enemyState[enemyCount] = state;
+		enemyCount++;
+	}
+
+	/**
+	 * Appends a missile to the snapshot
+	 *
+	 * @param m
+	 *            missile to record
+	 */
+	public void addMissile(Missile m) {
+		addMissile(m.getX(), m.getY(), m.getTheta(), m.getSprite());
+	}
+
+	/**
+	 * Appends a missile to the snapshot from its parts
+	 *
+	 * @param x
+	 *            x coordinate of the missile
+	 * @param y
+	 *            y coordinate of the missile
+	 * @param theta
+	 *            angle of the missile
+	 * @param sprite
+	 *            sprite to draw for the missile
+	 */
+	public void addMissile(float x, float y, float theta, Sprite sprite) {
+		if (missileCount == missileX.length)
+			allocateMissiles(missileCount * 2);
+		missileX[missileCount] = x;
+		missileY[missileCount] = y;
+		missileTheta[missileCount] = theta;
+		missileSprite[missileCount] = sprite;
+		missileCount++;
+	}
+
+	/**
+	 * Appends a highscore to the snapshot. Scores past the number shown on the
+	 * highscore screen are ignored
+	 *
+	 * @param entry
+	 *            highscore to record
+	 */
+	public void addHighscore(HighscoreEntry entry) {
+		addHighscore(entry.getName(), entry.getScore());
+	}
+
+	/**
+	 * Appends a highscore to the snapshot from its parts. Scores past the
+	 * number shown on the highscore screen are ignored
+	 *
+	 * @param name
+	 *            name of the player
+	 * @param score
+	 *            score
+	 */
+	public void addHighscore(String name, int score) {
+		if (highscoreCount < HIGHSCORE_COUNT) {
+			highscoreNames[highscoreCount] = name;
+			highscoreScores[highscoreCount] = score;
+			highscoreCount++;
+		}
+	}
+
+	/**
+	 * Grows the enemy arrays, keeping their contents
+	 *
+	 * @param capacity
+	 *            new capacity
+	 */
+	private void allocateEnemies(int capacity) {
+		enemyX = grow(enemyX, capacity);
+		enemyY = grow(enemyY, capacity);
+		enemyTheta = grow(enemyTheta, capacity);
+		Sprite[] sprites = new Sprite[capacity];
+		if (enemySprite != null)
+			System.arraycopy(enemySprite, 0, sprites, 0, enemyCount);
+		enemySprite = sprites;
+		EnemyState[] states = new EnemyState[capacity];
+		if (enemyState != null)
+			System.arraycopy(enemyState, 0, states, 0, enemyCount);
+		enemyState = states;
+	}
+
+	/**
+	 * Grows the missile arrays, keeping their contents
+	 *
+	 * @param capacity
+	 *            new capacity
+	 */
+	private void allocateMissiles(int capacity) {
+		missileX = grow(missileX, capacity);
+		missileY = grow(missileY, capacity);
+		missileTheta = grow(missileTheta, capacity);
+		Sprite[] sprites = new Sprite[capacity];
+		if (missileSprite != null)
+			System.arraycopy(missileSprite, 0, sprites, 0, missileCount);
+		missileSprite = sprites;
+	}
+
+	/**
+	 * Returns a copy of the passed in array with the given capacity
+	 *
+	 * @param array
+	 *            array to copy, may be null
+	 * @param capacity
+	 *            capacity of the copy
+	 * @return a copy of the passed in array with the given capacity
+	 */
+	private static float[] grow(float[] array, int capacity) {
+		float[] grown = new float[capacity];
+		if (array != null)
+			System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * Accessor method for the tick number
+	 *
+	 * @return number of the tick that produced this snapshot
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Accessor method for the game state
+	 *
+	 * @return game state
+	 */
+	public GameState getGameState() {
+		return gameState;
+	}
+
+	/**
+	 * Accessor method for the level
+	 *
+	 * @return current level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Accessor method for the score
+	 *
+	 * @return player score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Accessor method for the displayed score
+	 *
+	 * @return score being displayed on the screen
+	 */
+	public int getScoreDisplay() {
+		return scoreDisplay;
+	}
+
+	/**
+	 * Accessor method for the top score
+	 *
+	 * @return the highest stored score
+	 */
+	public int getTopScore() {
+		return topScore;
+	}
+
+	/**
+	 * Accessor method for lives
+	 *
+	 * @return number of lives the fighter has left
+	 */
+	public int getLives() {
+		return lives;
+	}
+
+	/**
+	 * Accessor method for the number of missiles fired
+	 *
+	 * @return number of missiles fired by the fighter
+	 */
+	public int getFired() {
+		return fired;
+	}
+
+	/**
+	 * Accessor method for hits
+	 *
+	 * @return number of enemies hit
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Accessor method for the input time
+	 *
+	 * @return time of the most recent input the fighter has acted on, or 0 if
+	 *         there has been none
+	 */
+	public long getInputTime() {
+		return inputTime;
+	}
+
+	/**
+	 * Accessor method for the x coordinate of the fighter
+	 *
+	 * @return x coordinate of the fighter
+	 */
+	public float getFighterX() {
+		return fighterX;
+	}
+
+	/**
+	 * Accessor method for the y coordinate of the fighter
+	 *
+	 * @return y coordinate of the fighter
+	 */
+	public float getFighterY() {
+		return fighterY;
+	}
+
+	/**
+	 * Accessor method for the sprite of the fighter
+	 *
+	 * @return sprite of the fighter
+	 */
+	public Sprite getFighterSprite() {
+		return fighterSprite;
+	}
+
+	/**
+	 * Accessor method for the number of enemies
+	 *
+	 * @return number of enemies in the snapshot
+	 */
+	public int getEnemyCount() {
+		return enemyCount;
+	}
+
+	/**
+	 * Returns the x coordinate of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return x coordinate of the enemy
+	 */
+	public float getEnemyX(int i) {
+		return enemyX[i];
+	}
+
+	/**
+	 * Returns the y coordinate of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return y coordinate of the enemy
+	 */
+	public float getEnemyY(int i) {
+		return enemyY[i];
+	}
+
+	/**
+	 * Returns the angle of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return angle of the enemy
+	 */
+	public float getEnemyTheta(int i) {
+		return enemyTheta[i];
+	}
+
+	/**
+	 * Returns the sprite of an enemy
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return sprite of the enemy
+	 */
+	public Sprite getEnemySprite(int i) {
+		return enemySprite[i];
+	}
+
+	/**
+	 * Returns what an enemy is doing. Not known for snapshots sent over the
+	 * network
+	 *
+	 * @param i
+	 *            index of the enemy
+	 * @return state of the enemy, or null if not known
+	 */
+	public EnemyState getEnemyState(int i) {
+		return enemyState[i];
+	}
+
+	/**
+	 * Accessor method for the number of missiles
+	 *
+	 * @return number of missiles in the snapshot
+	 */
+	public int getMissileCount() {
+		return missileCount;
+	}
+
+	/**
+	 * Returns the x coordinate of a missile
+	 *
+	 * @param i
+	 *            index of the missile
+	 * @return x coordinate of the missile
+	 */
+	public float getMissileX(int i) {
+		return missileX[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a missile
+	 *
+	 * @param i
+	 *            index of the missile
+	 * @return y coordinate of the missile
+	 */
+	public float getMissileY(int i) {
+		return missileY[i];
+	}
+
+	/**
+	 * Returns the angle of a missile
+	 *
+	 * @param i
+	 *            index of the missile
+	 * @return angle of the missile
+	 */
+	public float getMissileTheta(int i) {
+		return missileTheta[i];
+	}
+
+	/**
+	 * Returns the sprite of a missile
+	 *
+	 * @param i
+	 *            index of the missile
+	 * @return sprite of the missile
+	 */
+	public Sprite getMissileSprite(int i) {
+		return missileSprite[i];
+	}
+
+	/**
+	 * Returns true if a missile was fired by an enemy rather than the fighter
+	 *
+	 * @param i
+	 *            index of the missile
+	 * @return true if the missile is dangerous to the fighter
+	 */
+	public boolean isEnemyMissile(int i) {
+		return missileSprite[i] == Sprite.ENEMY_MISSILE;
+	}
+
+	/**
+	 * Accessor method for the number of highscores
+	 *
+	 * @return number of highscores in the snapshot
+	 */
+	public int getHighscoreCount() {
+		return highscoreCount;
+	}
+
+	/**
+	 * Returns the name of a highscore
+	 *
+	 * @param i
+	 *            rank of the highscore
+	 * @return name of the player
+	 */
+	public String getHighscoreName(int i) {
+		return highscoreNames[i];
+	}
+
+	/**
+	 * Returns the value of a highscore
+	 *
+	 * @param i
+	 *            rank of the highscore
+	 * @return score
+	 */
+	public int getHighscoreScore(int i) {
+		return highscoreScores[i];
+	}
+
+	/**
+	 * Accessor method for the menu selection
+	 *
+	 * @return index of the selected option of the menu on the screen
+	 */
+	public int getMenuSelection() {
+		return menuSelection;
+	}
+
+	/**
+	 * Returns a letter of the name being entered
+	 *
+	 * @param i
+	 *            index of the letter
+	 * @return the letter
+	 */
+	public char getEntryLetter(int i) {
+		return entryLetters[i];
+	}
+
+	/**
+	 * Accessor method for the name entry selection
+	 *
+	 * @return index of the selected letter of the name being entered
+	 */
+	public int getEntrySelection() {
+		return entrySelection;
+	}
+}
@@ -1,10 +1,9 @@
 package Galaga;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.net.InetSocketAddress;
 
 import processing.core.*;
 
@@ -24,159 +23,188 @@ public class Galaga extends PApplet implements ApplicationConstants {
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * The player's ship
+	 * The game being played, or null when it is hosted by a server
 	 */
-	private static Fighter fighter;
+	private GameSession session;
 
 	/**
-	 * Array list of enemies yet to be added
+	 * Connection to the server hosting the game, or null when it is played
+	 * locally
 	 */
-	private static ArrayList<Enemy> onDeckPrototype;
+	private RemoteSession remote;
 
 	/**
-	 * Array list of enemies yet to be added
+	 * Head-to-head game against another cabinet, or null when playing alone
 	 */
-	private static ArrayList<Enemy> onDeck;
+	private RollbackSession netplay;
 
 	/**
-	 * Array list of enemies
+	 * Snapshots published by the simulation
 	 */
-	private static ArrayList<Enemy> enemies;
+	private SnapshotBuffer snapshots;
 
 	/**
-	 * Array list of missiles shot my enemies
+	 * Thread running the simulation
 	 */
-	private static ArrayList<Missile> enemyMissiles;
+	private SimulationThread simulation;
 
 	/**
-	 * Array list of missiles shot by fighter
+	 * Mirror of the game for spectators, or null if nobody can watch
 	 */
-	private static ArrayList<Missile> fighterMissiles;
+	private Broadcast broadcast;
 
 	/**
-	 * Number of stars to be drawn
+	 * Offscreen frame the game is drawn into while it is being captured, or
+	 * null if it is drawn straight to the window
 	 */
-	private final int numStars = 200;
+	private PGraphics offscreen;
+
 	/**
-	 * X coordinate of each star
+	 * Recording of the frames drawn, for the attract loop, or null if not
+	 * recording
 	 */
-	private float[] starx;
+	private FrameCapture capture;
 
 	/**
-	 * Y coordinate of each star
+	 * Level of quality the next frame is drawn at
 	 */
-	private float[] stary;
+	private Quality quality;
 
 	/**
-	 * Y velocity of each star
+	 * Steps the quality down and up to hold the frame budget, or null if
+	 * the quality is fixed
 	 */
-	private float[] starvy;
+	private QualityGovernor governor;
 
 	/**
-	 * Time of the last draw
+	 * Offscreen frame the game is drawn into at a lower resolution than the
+	 * window, or null until the quality first calls for one
 	 */
-	private float lastDrawTime;
+	private PGraphics scaled;
 
 	/**
-	 * Current game state
+	 * Start of the last frame drawn, from System.nanoTime(), or 0 before the
+	 * first
 	 */
-	private static GameState gameState;
+	private long lastFrameStart;
 
 	/**
-	 * Both menus
+	 * Delay between a key event and the end of the first frame that shows its
+	 * result
 	 */
-	private Menu main, postgame;
+	private LatencyHistogram inputToPresent;
 
 	/**
-	 * Galaga logo
+	 * Time of the last input whose result has been drawn
 	 */
-	private PImage logoSprite;
+	private long lastPresentedInput;
 
 	/**
-	 * Fighter sprite
+	 * Number of stars to be drawn
 	 */
-	PImage lifeSprite;
-
+	private final int numStars = 200;
 	/**
-	 * Player score
+	 * X coordinate of each star
 	 */
-	private static int score;
+	private float[] starx;
 
 	/**
-	 * Score being displyed on the screen
+	 * Y coordinate of each star
 	 */
-	private static int scoreDisplay;
+	private float[] stary;
 
 	/**
-	 * The Highest Score
+	 * Y velocity of each star
 	 */
-	private static int topScore;
+	private float[] starvy;
 
 	/**
-	 * The name entry scanner thing
+	 * Starts each frame on time
 	 */
-	private static NameEntry nameEntry;
+	private FramePacer pacer;
 
 	/**
-	 * Current Highscores
+	 * Characters of the last number or name drawn, so drawing a score or a
+	 * name every frame does not build a String
 	 */
-	private static HighscoreList highscoreList;
+	private final char[] digits = new char[32];
 
 	/**
-	 * keeps track of new lives
+	 * Time taken by each step of booting, reported once the menu takes input
 	 */
-	private static int newLifeScore;
+	private BootTimeline timeline;
 
 	/**
-	 * Current level
+	 * Loads the sprites and fonts while the boot screen is drawn
 	 */
-	private static int level;
+	private AssetLoader assets;
 
 	/**
-	 * Number of enemies hit
+	 * True once the assets are loaded and the game is being drawn
 	 */
-	private static int hits;
+	private boolean booted;
 
 	/**
-	 * Timer for the READY game state
+	 * Galaga logo
 	 */
-	private static Timer readyTimer;
+	private PImage logoSprite;
 
 	/**
-	 * Timer to control the addition of enemies
+	 * Fighter sprite
 	 */
-	private static Timer nextEnemyTimer;
+	PImage lifeSprite;
 
-	/** 
-	 * Counter to keep track of the number of enemies per wave
+	/**
+	 * Menus drawn on the screen. The options are selected from each snapshot,
+	 * and are never executed
 	 */
-	private int waveCounter;
+	private Menu mainMenu, postgameMenu;
 
 	/**
-	 * Options for menus
+	 * Name entry field drawn on the screen, filled in from each snapshot
 	 */
-	private Option play, quit, highscore, returnToMenu;
+	private NameEntry nameEntry;
 
 	/**
-	 * Initializes all fields, including the stars, the array list of enemies,
-	 * and the player ship
+	 * Initializes all fields, including the stars and the game session, and
+	 * starts the simulation. The sprites and fonts are loaded in the
+	 * background while a boot screen is drawn. Frames being captured are
+	 * always drawn at full quality; otherwise the quality is stepped down
+	 * and up to hold the frame rate.
+	 * <p>
+	 * System properties change how the sketch runs:
+	 * <ul>
+	 * <li>galaga.boot.threads: threads to load assets on, when there is no
+	 * data/assets.pack</li>
+	 * <li>galaga.server=host:port: play on that server, only drawing here</li>
+	 * <li>galaga.watch=host:port: watch a game broadcast from there</li>
+	 * <li>galaga.broadcast=port: broadcast a local game to spectators</li>
+	 * <li>galaga.record=file: record a local game</li>
+	 * <li>galaga.netplay=player,localPort,host:port: play head-to-head
+	 * against the cabinet at that address</li>
+	 * <li>galaga.capture=folder, galaga.capture.format=PNG or RLE: capture
+	 * frames for the attract loop</li>
+	 * <li>galaga.quality: fix the quality at one level</li>
+	 * <li>galaga.fps: frames drawn a second</li>
+	 * <li>galaga.pacing=UNCAPPED: draw frames as fast as they can be</li>
+	 * <li>galaga.bot: let a bot play the local game</li>
+	 * <li>galaga.alloc.budget: bytes a steady tick may allocate</li>
+	 * </ul>
 	 */
 	public void setup() {
+		timeline = new BootTimeline();
+		timeline.mark("setup");
 		size(WINDOW_WIDTH, WINDOW_HEIGHT);
+		timeline.mark("window open");
 
-		// Create the player ship
-		fighter = Fighter.instance();
-
-		// Somewhere to put missiles
-		fighterMissiles = new ArrayList<Missile>();
-		enemyMissiles = new ArrayList<Missile>();
-
-		// Populate the prototype to load into the onDeck
-		populatePrototype();
-
-		// Array list to hold enemies
-		onDeck = new ArrayList<Enemy>(onDeckPrototype);
-		enemies = new ArrayList<Enemy>();
+		// Load every sprite and font once, in the background, while the boot
+		// screen is drawn
+		assets = new AssetLoader(this, timeline, Integer.getInteger(
+				"galaga.boot.threads", Math.min(4, Runtime.getRuntime()
+						.availableProcessors())), new File(
+				sketchPath("data/assets.pack")));
+		assets.start();
+		booted = false;
 
 		// Instantiate the stars
 		starx = new float[numStars];
@@ -188,492 +216,379 @@ public class Galaga extends PApplet implements ApplicationConstants {
 			starvy[i] = random(BULLET_SPEED / 16, BULLET_SPEED / 4);
 		}
 
-		// set to default gamestate
-		gameState = GameState.MAIN_MENU;
-
-		// Different options for the menus
-		play = new Option("Play", new Play());
-		quit = new Option("Quit", new Quit());
-		highscore = new Option("High Scores", new HighScore());
-		returnToMenu = new Option("Return to Menu", new Return());
+		// Create the menus to be drawn
+		mainMenu = displayMenu(MAIN_MENU_OPTIONS);
+		postgameMenu = displayMenu(POSTGAME_MENU_OPTIONS);
+		nameEntry = new NameEntry();
 
-		// Initialize main menu
-		Option[] mainOptions = { play, highscore, quit };
-		main = new Menu(mainOptions);
+		// Pace frames with the frame pacer rather than Processing's own sleep,
+		// which is left nothing to wait for
+		pacer = new FramePacer("render", FramePacer.Mode.valueOf(System
+				.getProperty("galaga.pacing", "FIXED").toUpperCase()),
+				1000000000L / Integer.getInteger("galaga.fps", 60));
+		frameRate(UNPACED_FRAME_RATE);
+		inputToPresent = new LatencyHistogram("input to present");
+		lastPresentedInput = 0;
+		snapshots = new SnapshotBuffer();
+
+		String folder = System.getProperty("galaga.capture");
+		if (folder != null) {
+			offscreen = createGraphics(WINDOW_WIDTH, WINDOW_HEIGHT);
+			capture = new FrameCapture(new File(folder), WINDOW_WIDTH,
+					WINDOW_HEIGHT, FrameCapture.Format.valueOf(System
+							.getProperty("galaga.capture.format", "PNG")
+							.toUpperCase()));
+		}
 
-		// Initialize game over menu
-		Option[] gameOverOptions = { returnToMenu, quit };
-		postgame = new Menu(gameOverOptions);
+		String level = System.getProperty("galaga.quality");
+		if (level != null)
+			quality = Quality.valueOf(level.toUpperCase());
+		else if (capture != null)
+			quality = Quality.FULL;
+		else {
+			governor = new QualityGovernor(pacer.getPeriod());
+			quality = governor.getQuality();
+		}
 
-		// Initializes name entry
-		nameEntry = new NameEntry();
+		String server = System.getProperty("galaga.server");
+		String watch = System.getProperty("galaga.watch");
+		String versus = System.getProperty("galaga.netplay");
+		if (server != null)
+			connect(server, false);
+		else if (watch != null)
+			connect(watch, true);
+		else if (versus != null)
+			versus(versus);
+		else
+			play();
+		timeline.mark("session started");
+	}
 
-		logoSprite = loadImage("Sprites/galaga.png");
-		lifeSprite = loadImage("Sprites/fighter.png");
+	/**
+	 * Create a local game, publish its starting state, and run the
+	 * simulation alongside the renderer. If galaga.bot names a {@link Bot},
+	 * the bot plays instead of the player
+	 */
+	private void play() {
+		session = new GameSession(new File(sketchPath("data")));
+		session.capture(snapshots.back());
+		snapshots.publish();
+
+		// Finish saving and report input latency when the game shuts down,
+		// once the simulation has stopped changing the session
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				haltSimulation();
+				session.close();
+				Highscores highscores = session.getHighscores();
+				if (highscores != null) {
+					HighscoreWriter writer = highscores.getWriter();
+					System.out.println("highscore writes: n="
+							+ writer.writes() + " pending=" + writer.pending()
+							+ " compactions=" + writer.compactions()
+							+ " last sync="
+							+ (writer.lastSyncNanos() / 1000000f) + "ms");
+				}
+				StringBuilder kills = new StringBuilder("kills:");
+				for (EnemyType type : EnemyType.values())
+					kills.append(" " + type + "=" + session.getKills(type));
+				System.out.println(kills);
+				System.out.println(session.getInputToSimulation().summary());
+				System.out.println(inputToPresent.summary());
+				if (broadcast != null)
+					System.out.println(broadcast.summary());
+			}
+		});
+
+		broadcast = openBroadcast();
+		String bot = System.getProperty("galaga.bot");
+		String budget = System.getProperty("galaga.alloc.budget");
+		simulation = new SimulationThread(session, snapshots, broadcast,
+				bot == null ? null : new Autopilot(Bot.valueOf(bot
+						.toUpperCase())), budget == null ? null
+						: new AllocationBudget("simulation", Long
+								.parseLong(budget), Long.getLong(
+								"galaga.alloc.warmup", ALLOCATION_WARMUP),
+								true));
+		simulation.start();
+	}
 
-		// Initialize the score
-		score = 0;
-		scoreDisplay = 0;
-		newLifeScore = 0;
-		hits = 0;
+	/**
+	 * Open the spectator broadcast asked for by the galaga.broadcast and
+	 * galaga.record properties
+	 *
+	 * @return the broadcast, or null if neither property is set
+	 */
+	private Broadcast openBroadcast() {
+		String port = System.getProperty("galaga.broadcast");
+		String record = System.getProperty("galaga.record");
+		if (port == null && record == null)
+			return null;
 
-		// Initialize the HighScores
+		Broadcast b = new Broadcast();
 		try {
-			loadScores();
+			if (port != null)
+				b.listen(new InetSocketAddress(System.getProperty(
+						"galaga.bind", "127.0.0.1"), port.isEmpty()
+						? BROADCAST_PORT : Integer.parseInt(port)));
+			if (record != null)
+				b.subscribe(new FileOutputStream(record).getChannel());
 		} catch (IOException e) {
-
-			System.out.println("Error loading highscores from file");
+			System.out.println("Error opening the spectator broadcast");
 			e.printStackTrace();
 		}
-
-		readyTimer = new Timer(this);
-		nextEnemyTimer = new Timer(this);
-		nextEnemyTimer.start(SPAWN_TIME);
-		waveCounter = 8;
-		level = 1;
-
-		// Initialize the draw time
-		lastDrawTime = millis();
+		return b;
 	}
 
 	/**
-	 * Method to be run at each frame
+	 * Connect to a game server or broadcast and draw whatever it sends back
+	 *
+	 * @param server
+	 *            address of the server, as host:port
+	 * @param watch
+	 *            true to watch a broadcast rather than play
 	 */
-	public void draw() {
-
-		// Update all positions
-		update();
-
-		// Only purge during the necessary game states
-		switch (gameState) {
-		case ASSUMING_POSITIONS:
-		case IN_FORMATION:
-		case DIVING:
-		case READY:
-		case NEXT_LEVEL:
-		case GAMEOVER:
-			purge();
-			gameStateTransition();
-			break;
-		default:
-			break;
+	private void connect(String server, boolean watch) {
+		try {
+			remote = new RemoteSession(RemoteSession.parse(server), snapshots,
+					watch);
+			remote.start();
+		} catch (IOException e) {
+			System.out.println("Error connecting to game server " + server);
+			e.printStackTrace();
+			exit();
 		}
-
-		// Draw everything to the window
-		render();
 	}
 
 	/**
-	 * Move all objects
+	 * Play head-to-head against another cabinet. Both cabinets must be given
+	 * the same galaga.seed, and different player numbers
+	 *
+	 * @param spec
+	 *            this cabinet's player number, the port to receive on, and
+	 *            the other cabinet's address, as player,localPort,host:port
 	 */
-	public void update() {
-
-		// Get the elapsed time
-		float drawTime = millis();
-		float elapsed = drawTime - lastDrawTime;
-		lastDrawTime = drawTime;
-
-		// Update star position
-		updateSpace(elapsed);
-
-		switch (gameState) {
-
-		// When playing, we want everything to be updated
-		case ASSUMING_POSITIONS:
-
-			// Move the player ship
-			fighter.update(elapsed);
-
-			// Move the missiles fired by the fighter
-			for (Missile b : fighterMissiles)
-				b.update(elapsed);
-
-			// Move the missiles fired by the enemies
-			for (Missile b : enemyMissiles)
-				b.update(elapsed);
-
-			if (!onDeck.isEmpty() && nextEnemyTimer.isDone()) {
-				enemies.add(onDeck.remove(0));
-				waveCounter--;
-				if (waveCounter > 0)
-					nextEnemyTimer.start(SPAWN_TIME);
-				else {
-					nextEnemyTimer.start(WAVE_TIME);
-					waveCounter = 8;
-				}
-			}
-
-			// Move the enemies
-			for (Enemy e : enemies)
-				e.update(elapsed);
-
-			// Check to see if enemies have been hit
-			for (Enemy e : enemies)
-				if (!e.isHit())
-					for (Missile b : fighterMissiles)
-						if (e.detectCollision(b))
-							hits++;
-
-			// Check to see if the player has been hit
-			for (Missile b : enemyMissiles)
-				if (!fighter.isHit())
-					fighter.detectCollision(b);
-
-			// Get points for enemies hit
-			for (Enemy e : enemies) {
-				if (e.isHit()) {
-					int tempScore = e.getScore();
-					score += tempScore;
-					newLifeScore += tempScore;
-				}
-			}
-
-			break;
-		case IN_FORMATION:
-
-			// Move the player ship
-			fighter.update(elapsed);
-
-			// Move the missiles fired by the fighter
-			for (Missile b : fighterMissiles)
-				b.update(elapsed);
-
-			// Move the missiles fired by the enemies
-			for (Missile b : enemyMissiles)
-				b.update(elapsed);
-
-			if (!onDeck.isEmpty() && nextEnemyTimer.isDone()) {
-				nextEnemyTimer.start(SPAWN_TIME);
-				enemies.add(onDeck.remove(0));
-			}
-
-			// Move the enemies
-			for (Enemy e : enemies)
-				e.update(elapsed);
-
-			// Have enemies fire missiles every once in a while
-			for (Enemy e : enemies)
-				if (random(1) < 0.05f)
-					e.dive();
-
-			// Check to see if enemies have been hit
-			for (Enemy e : enemies)
-				if (!e.isHit())
-					for (Missile b : fighterMissiles)
-						if (e.detectCollision(b))
-							hits++;
-
-			// Check to see if the player has been hit
-			for (Missile b : enemyMissiles)
-				if (!fighter.isHit())
-					fighter.detectCollision(b);
-
-			// Get points for enemies hit
-			for (Enemy e : enemies) {
-				if (e.isHit()) {
-					int tempScore = e.getScore();
-					score += tempScore;
-					newLifeScore += tempScore;
-				}
-			}
-
-			break;
-		case DIVING:
-
-			// Move the player ship
-			fighter.update(elapsed);
-
-			// Move the missiles fired by the fighter
-			for (Missile b : fighterMissiles)
-				b.update(elapsed);
-
-			// Move the missiles fired by the enemies
-			for (Missile b : enemyMissiles)
-				b.update(elapsed);
-
-			if (!onDeck.isEmpty() && nextEnemyTimer.isDone()) {
-				nextEnemyTimer.start(SPAWN_TIME);
-				enemies.add(onDeck.remove(0));
-			}
+	private void versus(String spec) {
+		String[] parts = spec.split(",");
+		try {
+			int player = Integer.parseInt(parts[0]);
+			NetplayLink link = new NetplayLink(new InetSocketAddress(
+					Integer.parseInt(parts[1])),
+					RemoteSession.parse(parts[2]));
+			netplay = new RollbackSession(new File(sketchPath("data")),
+					Long.getLong("galaga.seed", 1), player, link, snapshots);
+		} catch (Exception e) {
+			System.out.println("Error starting netplay with " + spec);
+			e.printStackTrace();
+			exit();
+			return;
+		}
+		session = netplay.getLocal();
 
-			// Move the enemies
-			for (Enemy e : enemies)
-				e.update(elapsed);
-
-			// Have enemies fire missiles every once in a while
-			for (Enemy e : enemies)
-				if (e.getState() == Enemy.EnemyState.DIVE)
-					if (random(1) < 0.05f)
-						enemyMissiles.add(e.shoot());
-
-			// Check to see if enemies have been hit
-			for (Enemy e : enemies)
-				if (!e.isHit())
-					for (Missile b : fighterMissiles)
-						if (e.detectCollision(b))
-							hits++;
-
-			// Check to see if the player has been hit
-			for (Missile b : enemyMissiles)
-				if (!fighter.isHit())
-					fighter.detectCollision(b);
-
-			// Get points for enemies hit
-			for (Enemy e : enemies) {
-				if (e.isHit()) {
-					int tempScore = e.getScore();
-					score += tempScore;
-					newLifeScore += tempScore;
-				}
+		// Report how much rolling back the game took
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				System.out.println(netplay.summary());
 			}
+		});
+		netplay.start();
+	}
 
-			break;
-
-		// When next level or ready, we want everything to be updated, but not
-		// for the fighter to be hit
-		case NEXT_LEVEL:
+	/**
+	 * Creates a menu that is only ever drawn
+	 *
+	 * @param labels
+	 *            labels of the options, top to bottom
+	 * @return the menu
+	 */
+	private static Menu displayMenu(String[] labels) {
+		Option[] options = new Option[labels.length];
+		for (int i = 0; i < labels.length; i++)
+			options[i] = new Option(labels[i], null);
+		return new Menu(options);
+	}
 
-			// Move the player ship
-			fighter.update(elapsed);
+	/**
+	 * Method to be run at each frame
+	 */
+	public void draw() {
 
-		case READY:
+		// The player chose to quit
+		if ((session != null && session.hasQuit())
+				|| (remote != null && remote.isClosed())) {
+			exit();
+			return;
+		}
 
-			// Move the missiles fired by the fighter
-			for (Missile b : fighterMissiles)
-				b.update(elapsed);
-
-			// Move the missiles fired by the enemies
-			for (Missile b : enemyMissiles)
-				b.update(elapsed);
-
-			// Move the enemies
-			for (Enemy e : enemies)
-				e.update(elapsed);
-
-			// Check to see if enemies have been hit
-			for (Enemy e : enemies)
-				if (!e.isHit())
-					for (Missile b : fighterMissiles)
-						if (e.detectCollision(b))
-							hits++;
-
-			// Get points for enemies hit
-			for (Enemy e : enemies) {
-				if (e.isHit()) {
-					int tempScore = e.getScore();
-					score += tempScore;
-					newLifeScore += tempScore;
-				}
+		// Wait for the frame's deadline, and get the time elapsed
+		float elapsed = pacer.await() * 0.000001f;
+		long frameStart = System.nanoTime();
+
+		// Show how far loading has got until every asset is in
+		boolean justBooted = false;
+		if (!booted) {
+			if (frameCount == 1)
+				timeline.mark("first frame");
+			if (!assets.isDone()) {
+				renderBoot(assets.progress());
+				return;
 			}
+			timeline.mark("assets loaded");
+			logoSprite = Sprite.LOGO.image();
+			lifeSprite = Sprite.FIGHTER.image();
+			booted = true;
+			justBooted = true;
+		}
 
-			break;
-
-		// After the player is out of lives, only update enemies and missiles
-		case GAMEOVER:
-			for (Missile b : fighterMissiles)
-				b.update(elapsed);
-
-			for (Missile b : enemyMissiles)
-				b.update(elapsed);
-
-			for (Enemy e : enemies)
-				e.update(elapsed);
-
-			break;
+		// Update star position
+		updateSpace(elapsed);
 
-		default:
-			break;
+		// Draw the newest state of the game to the window
+		FrameSnapshot s = snapshots.latest();
+		if (capture == null && quality.getResolution() < 1)
+			renderScaled(s);
+		else if (capture == null)
+			render(s);
+		else {
+
+			// Point the drawing methods at the offscreen frame, capture it,
+			// and show the same frame in the window
+			PGraphics screen = g;
+			g = offscreen;
+			offscreen.beginDraw();
+			render(s);
+			offscreen.endDraw();
+			g = screen;
+			capture.capture(offscreen);
+			image(offscreen, 0, 0);
 		}
 
-		// Update the score to be displayed
-		if (score != scoreDisplay) {
-			scoreDisplay += map(score - scoreDisplay, 0, 400, 1f, 20);
-			if (scoreDisplay >= score)
-				scoreDisplay = score;
+		// Measure how long the player waited to see the result of an input
+		long input = s.getInputTime();
+		if (input != 0 && input != lastPresentedInput) {
+			inputToPresent.record(System.nanoTime() - input);
+			lastPresentedInput = input;
 		}
 
-		// add a life if score is reached
-		if (newLifeScore != 0 && newLifeScore >= NEW_LIFE_SCORE) {
-			newLifeScore -= NEW_LIFE_SCORE;
-			fighter.addLife();
-		}
+		// Step the quality down or up if frames are missing their budget.
+		// The frame the assets came in on did one-off work, so is not judged
+		if (governor != null && !justBooted && lastFrameStart != 0)
+			quality = governor.record(frameStart - lastFrameStart,
+					System.nanoTime() - frameStart);
+		lastFrameStart = frameStart;
 
-		if (onDeck.size() == 0 && enemies.size() == 0) {
-			newLevel();
+		if (justBooted) {
+			timeline.mark("menu interactive");
+			System.out.print(timeline.report());
 		}
 	}
 
 	/**
-	 * Draws stars and space going by
-	 * 
-	 * @param elapsed
-	 *            time elapsed since last update
+	 * Draws the game at the resolution the quality calls for into an
+	 * offscreen frame, and scales it up to fill the window
+	 *
+	 * @param s
+	 *            snapshot of the game to draw
 	 */
-	public void updateSpace(float elapsed) {
-		for (int i = 0; i < numStars; i++) {
-			stary[i] = (stary[i] + starvy[i] * elapsed * 0.001f) % WORLD_HEIGHT;
-		}
+	private void renderScaled(FrameSnapshot s) {
+		float resolution = quality.getResolution();
+		int width = round(WINDOW_WIDTH * resolution);
+		int height = round(WINDOW_HEIGHT * resolution);
+		if (scaled == null || scaled.width != width
+				|| scaled.height != height)
+			scaled = createGraphics(width, height);
+
+		PGraphics screen = g;
+		g = scaled;
+		scaled.beginDraw();
+		scale(resolution);
+		render(s);
+		scaled.endDraw();
+		g = screen;
+		noSmooth();
+		imageMode(CORNER);
+		image(scaled, 0, 0, WINDOW_WIDTH, WINDOW_HEIGHT);
 	}
 
 	/**
-	 * Sync passed in enemy to the correct formation position
-	 * 
-	 * @param toSync
-	 *            enemy to sync
+	 * Draws the boot screen: a bar filling up as the assets load. Uses no
+	 * assets itself
+	 *
+	 * @param progress
+	 *            fraction of the assets loaded, between 0 and 1
 	 */
-	public static void syncFormation(Enemy toSync) {
-		for (Enemy e : enemies)
-			if (!toSync.equals(e) && e.getState().inFormation()) {
-				toSync.syncFormation(e);
-				break;
-			}
+	public void renderBoot(float progress) {
+		background(0);
+		stroke(255);
+		noFill();
+		rect(WINDOW_WIDTH / 4, WINDOW_HEIGHT / 2 - 8, WINDOW_WIDTH / 2, 16);
+		noStroke();
+		fill(255, 2, 4);
+		rect(WINDOW_WIDTH / 4 + 2, WINDOW_HEIGHT / 2 - 6,
+				(WINDOW_WIDTH / 2 - 4) * progress, 12);
 	}
 
 	/**
-	 * Remove destroyed enemies and missiles
+	 * Stops the local simulation, if there is one, and waits a bounded time
+	 * for its last tick, so the session is left alone before its highscores
+	 * are flushed
 	 */
-	public void purge() {
-
-		// Get rid of missiles once they're outside the window
-		Iterator<Missile> bit = fighterMissiles.iterator();
-		while (bit.hasNext())
-			if (bit.next().isDestroyed())
-				bit.remove();
-
-		// Get rid of missiles once they're outside the window
-		bit = enemyMissiles.iterator();
-		while (bit.hasNext())
-			if (bit.next().isDestroyed())
-				bit.remove();
-
-		// Get rid of enemies if they're destroyed
-		Iterator<Enemy> eit = enemies.iterator();
-		while (eit.hasNext()) {
-			Enemy e = eit.next();
-			if (e.isDestroyed()) {
-				e.reset();
-				eit.remove();
-			}
-		}
+	private void haltSimulation() {
+		if (simulation != null && !simulation.halt(SHUTDOWN_TIMEOUT))
+			System.out.println("Error: simulation still running after "
+					+ SHUTDOWN_TIMEOUT + "ms");
 	}
 
 	/**
-	 * Handle game state transition
+	 * Stops the simulation or hangs up on the server or the other cabinet,
+	 * finishes writing any capture, and reports how well frames were paced,
+	 * when the sketch is shut down
 	 */
-	public void gameStateTransition() {
-
-		// Game state switching is dependent on what state we're in
-		switch (gameState) {
-		case ASSUMING_POSITIONS:
-			// If all enemies are in formation, switch game state
-			if (onDeck.isEmpty()) {
-				gameState = GameState.IN_FORMATION;
-				for (Enemy e : enemies)
-					if (!e.getState().inFormation()) {
-						gameState = GameState.ASSUMING_POSITIONS;
-						break;
-					}
-			}
-
-			// If the fighter is destroyed, take a life and reset it
-			if (fighter.isDestroyed() && fighter.lives() > 0) {
-				gameState = GameState.READY;
-				fighter.resetPosition();
-				fighter.revive();
-				readyTimer.start(READY_TIME);
-			}
-
-			// If the fighter is destroyed with no lives left, game over
-			else if (fighter.isDestroyed())
-				gameState = GameState.GAMEOVER;
-
-			break;
-
-		case IN_FORMATION:
-			// If any enemies are diving, switch game state
-			for (Enemy e : enemies)
-				if (e.getState() == Enemy.EnemyState.DIVE)
-					gameState = GameState.DIVING;
-
-			// If the fighter is destroyed, take a life and reset it
-			if (fighter.isDestroyed() && fighter.lives() > 0) {
-				gameState = GameState.READY;
-				fighter.resetPosition();
-				fighter.revive();
-				readyTimer.start(READY_TIME);
-			}
-
-			// If the fighter is destroyed with no lives left, game over
-			else if (fighter.isDestroyed())
-				gameState = GameState.GAMEOVER;
-
-			break;
-
-		case DIVING:
-			// If all enemies are in formation, switch game state
-			gameState = GameState.IN_FORMATION;
-			for (Enemy e : enemies)
-				if (!e.getState().inFormation()) {
-					gameState = GameState.DIVING;
-					break;
-				}
-
-			// If the fighter is destroyed, take a life and reset it
-			if (fighter.isDestroyed() && fighter.lives() > 0) {
-				gameState = GameState.READY;
-				fighter.resetPosition();
-				fighter.revive();
-				readyTimer.start(READY_TIME);
-			}
-
-			// If the fighter is destroyed with no lives left, game over
-			else if (fighter.isDestroyed())
-				gameState = GameState.GAMEOVER;
-
-			break;
-
-		case READY:
-			// Resume play after a short wait
-			if (readyTimer.isDone())
-				gameState = GameState.IN_FORMATION;
-
-			break;
-
-		case NEXT_LEVEL:
-			// Resume play after a short wait
-			if (readyTimer.isDone()) {
-				gameState = GameState.ASSUMING_POSITIONS;
-				nextEnemyTimer.start(SPAWN_TIME);
-				waveCounter = 8;
-			}
-
-			break;
-
-		default:
-			break;
-		}
-
-		if (onDeck.size() == 0 && enemies.size() == 0) {
-			readyTimer.start(READY_TIME);
-			newLevel();
+	public void dispose() {
+		haltSimulation();
+		if (remote != null)
+			remote.close();
+		if (netplay != null)
+			netplay.halt();
+		if (capture != null) {
+			capture.close();
+			System.out.println(capture.summary());
 		}
+		if (governor != null)
+			System.out.println(governor.summary());
+		System.out.println(pacer.summary());
+		if (simulation != null)
+			System.out.println(simulation.getPacer().summary());
+		super.dispose();
+	}
 
+	/**
+	 * Draws stars and space going by
+	 * 
+	 * @param elapsed
+	 *            time elapsed since last update
+	 */
+	public void updateSpace(float elapsed) {
+		Kernels.scroll(stary, starvy, elapsed * 0.001f, WORLD_HEIGHT, numStars);
 	}
 
 	/**
 	 * Render scene
+	 * 
+	 * @param s
+	 *            snapshot of the game to draw
 	 */
-	public void render() {
+	public void render(FrameSnapshot s) {
 		background(0);
 		scale(W2P);
 		translate(WORLD_WIDTH / 2, WORLD_HEIGHT);
 		scale(1, -1);
-		noSmooth();
+		smoothing();
 
 		// Draw stars
 		renderSpace();
 
-		switch (gameState) {
+		switch (s.getGameState()) {
 
 		// Draw the Galaga logo and the main menu
 		case MAIN_MENU:
@@ -681,14 +596,17 @@ public class Galaga extends PApplet implements ApplicationConstants {
 			translate(0, 3 * WORLD_HEIGHT / 4);
 			pushMatrix();
 			scale(PIXEL_WIDTH, -PIXEL_WIDTH);
+			noSmooth();
 			imageMode(CENTER);
 			image(logoSprite, 0, 0);
 			popMatrix();
 			scale(P2W, -P2W);
+			smoothing();
 
 			translate(0, 200);
 
-			main.render(this);
+			mainMenu.select(s.getMenuSelection());
+			mainMenu.render(this);
 
 			popMatrix();
 			break;
@@ -698,16 +616,12 @@ public class Galaga extends PApplet implements ApplicationConstants {
 		case IN_FORMATION:
 		case DIVING:
 			pushMatrix();
-			fighter.render(this);
-			for (Missile b : fighterMissiles)
-				b.render(this);
-			for (Missile b : enemyMissiles)
-				b.render(this);
-			for (Enemy e : enemies)
-				e.render(this);
+			renderFighter(s);
+			renderMissiles(s);
+			renderEnemies(s);
 
-			renderScore();
-			renderLives();
+			renderScore(s);
+			renderLives(s);
 
 			popMatrix();
 			break;
@@ -715,16 +629,12 @@ public class Galaga extends PApplet implements ApplicationConstants {
 		// Draw all everything including the level text
 		case NEXT_LEVEL:
 			pushMatrix();
-			fighter.render(this);
-			for (Missile b : fighterMissiles)
-				b.render(this);
-			for (Missile b : enemyMissiles)
-				b.render(this);
-			for (Enemy e : enemies)
-				e.render(this);
+			renderFighter(s);
+			renderMissiles(s);
+			renderEnemies(s);
 
-			renderScore();
-			renderLives();
+			renderScore(s);
+			renderLives(s);
 
 			translate(0, WORLD_HEIGHT / 2);
 			scale(P2W, -P2W);
@@ -732,9 +642,9 @@ public class Galaga extends PApplet implements ApplicationConstants {
 			fill(4, 255, 222);
 			textSize(18);
 			textAlign(CENTER);
-			noSmooth();
+			smoothing();
 			translate(0, -textAscent());
-			text("LEVEL " + level, 0, 0);
+			renderNumber("LEVEL ", s.getLevel(), "", 0, 0);
 
 			popMatrix();
 			break;
@@ -742,16 +652,12 @@ public class Galaga extends PApplet implements ApplicationConstants {
 		// Draw all everything including the "READY" text
 		case READY:
 			pushMatrix();
-			fighter.render(this);
-			for (Missile b : fighterMissiles)
-				b.render(this);
-			for (Missile b : enemyMissiles)
-				b.render(this);
-			for (Enemy e : enemies)
-				e.render(this);
+			renderFighter(s);
+			renderMissiles(s);
+			renderEnemies(s);
 
-			renderScore();
-			renderLives();
+			renderScore(s);
+			renderLives(s);
 
 			translate(0, WORLD_HEIGHT / 2);
 			scale(P2W, -P2W);
@@ -759,7 +665,7 @@ public class Galaga extends PApplet implements ApplicationConstants {
 			fill(4, 255, 222);
 			textSize(18);
 			textAlign(CENTER);
-			noSmooth();
+			smoothing();
 			translate(0, -textAscent());
 			text("READY", 0, 0);
 
@@ -769,14 +675,10 @@ public class Galaga extends PApplet implements ApplicationConstants {
 		// Only draw missiles and enemies, as well as 'GAME OVER'
 		case GAMEOVER:
 			pushMatrix();
-			for (Missile b : fighterMissiles)
-				b.render(this);
-			for (Missile b : enemyMissiles)
-				b.render(this);
-			for (Enemy e : enemies)
-				e.render(this);
+			renderMissiles(s);
+			renderEnemies(s);
 
-			renderScore();
+			renderScore(s);
 
 			translate(0, WORLD_HEIGHT / 2);
 			scale(P2W, -P2W);
@@ -784,7 +686,7 @@ public class Galaga extends PApplet implements ApplicationConstants {
 			fill(4, 255, 222);
 			textSize(18);
 			textAlign(CENTER);
-			noSmooth();
+			smoothing();
 			translate(0, -textAscent());
 			text("GAME OVER", 0, 0);
 			popMatrix();
@@ -792,7 +694,7 @@ public class Galaga extends PApplet implements ApplicationConstants {
 
 		// Draw the player's hit-miss ratio
 		case RESULTS:
-			renderScore();
+			renderScore(s);
 
 			pushMatrix();
 			translate(0, WORLD_HEIGHT / 2);
@@ -800,7 +702,7 @@ public class Galaga extends PApplet implements ApplicationConstants {
 
 			textSize(18);
 			textAlign(CENTER);
-			noSmooth();
+			smoothing();
 
 			fill(255, 2, 4);
 			translate(0, -textAscent());
@@ -813,22 +715,23 @@ public class Galaga extends PApplet implements ApplicationConstants {
 			textAlign(RIGHT);
 			text("Shots fired", 0, 0);
 			textAlign(LEFT);
-			text("   " + fighter.fired(), 0, 0);
+			renderNumber("   ", s.getFired(), "", 0, 0);
 
 			translate(0, 2 * textAscent());
 			textAlign(RIGHT);
 			text("Number of Hits", 0, 0);
 			textAlign(LEFT);
-			text("   " + hits, 0, 0);
+			renderNumber("   ", s.getHits(), "", 0, 0);
 
 			fill(218);
 			translate(0, 2 * textAscent());
 			textAlign(RIGHT);
 			text("Hit miss ratio", 0, 0);
 			textAlign(LEFT);
-			if (fighter.fired() > 0) {
-				float ratio = (int) ((hits / (float) fighter.fired()) * 1000) / 10.f;
-				text("   " + ratio + " %", 0, 0);
+			if (s.getFired() > 0) {
+				int tenths = (int) ((s.getHits() / (float) s.getFired())
+						* 1000);
+				renderNumber("   ", tenths, 1, " %", 0, 0);
 			} else
 				text("   0 %", 0, 0);
 
@@ -837,8 +740,8 @@ public class Galaga extends PApplet implements ApplicationConstants {
 
 		// Show the highscore name entry stuff
 		case ENTER_NAME:
-			renderScore();
-			renderNameEntry();
+			renderScore(s);
+			renderNameEntry(s);
 			break;
 
 		// Draw the postgame menu
@@ -846,7 +749,8 @@ public class Galaga extends PApplet implements ApplicationConstants {
 			pushMatrix();
 			translate(0, WORLD_HEIGHT / 2);
 			scale(P2W, -P2W);
-			postgame.render(this);
+			postgameMenu.select(s.getMenuSelection());
+			postgameMenu.render(this);
 			popMatrix();
 			break;
 
@@ -864,21 +768,14 @@ public class Galaga extends PApplet implements ApplicationConstants {
 
 			fill(255, 255, 127);
 
-			// reset to the start of our highscores
-			highscoreList.reset();
-
 			// display the Top 3 highscores
-			int count = 0;
-			while (highscoreList.hasNext() && count < 3) {
-				HighscoreEntry current = highscoreList.next();
+			for (int i = 0; i < s.getHighscoreCount(); i++) {
 				translate(0, 2 * textAscent());
 				textAlign(RIGHT);
-				text(current.getName() + "  ", 0, 0);
+				renderText(s.getHighscoreName(i), "  ", 0, 0);
 
 				textAlign(LEFT);
-				text(current.getScore(), 0, 0);
-
-				count++;
+				renderNumber(s.getHighscoreScore(i), 0, 0);
 			}
 			popMatrix();
 			break;
@@ -888,40 +785,138 @@ public class Galaga extends PApplet implements ApplicationConstants {
 	}
 
 	/**
-	 * Draws stars and space going by
+	 * Draws stars and space going by, as many of the stars as the quality
+	 * calls for
 	 */
 	public void renderSpace() {
 		stroke(255);
 		fill(255);
-		strokeWeight(2 * P2W);
-		noSmooth();
-		for (int i = 0; i < numStars; i++) {
+		// Stars any thinner than a pixel and a half of the frame drawn into
+		// can fall between its pixels and vanish
+		strokeWeight(max(2, 1.5f / quality.getResolution()) * P2W);
+		smoothing();
+		int stars = quality.stars(numStars);
+		for (int i = 0; i < stars; i++) {
 			point(starx[i], WORLD_HEIGHT - stary[i]);
 		}
 	}
 
 	/**
-	 * Draws stars and space going by
+	 * Turns smoothing on or off, as the quality calls for, for the shapes
+	 * and text drawn next. Sprites always turn it off for themselves
+	 */
+	private void smoothing() {
+		if (quality.isSmooth())
+			smooth();
+		else
+			noSmooth();
+	}
+
+	/**
+	 * Draws the fighter
+	 * 
+	 * @param s
+	 *            snapshot of the game to draw
+	 */
+	public void renderFighter(FrameSnapshot s) {
+		pushMatrix();
+		translate(s.getFighterX(), s.getFighterY());
+		scale(PIXEL_WIDTH, -PIXEL_WIDTH);
+		noSmooth();
+		imageMode(CENTER);
+		image(s.getFighterSprite().image(), 0, 0);
+		popMatrix();
+	}
+
+	/**
+	 * Draws the missiles fired by the fighter and by the enemies
+	 * 
+	 * @param s
+	 *            snapshot of the game to draw
 	 */
-	public void renderLives() {
+	public void renderMissiles(FrameSnapshot s) {
+		for (int i = 0; i < s.getMissileCount(); i++) {
+			pushMatrix();
+			translate(s.getMissileX(i), s.getMissileY(i));
+			noSmooth();
+			imageMode(CENTER);
+			Sprite sprite = s.getMissileSprite(i);
+			if (quality.isPreRotated() && sprite.isPreRotated()) {
+				scale(PIXEL_WIDTH / Sprite.OVERSAMPLE);
+				image(sprite.rotated(s.getMissileTheta(i)), 0, 0);
+			} else {
+				scale(PIXEL_WIDTH);
+				rotate(s.getMissileTheta(i));
+				image(sprite.image(), 0, 0);
+			}
+			popMatrix();
+		}
+	}
+
+	/**
+	 * Draws the enemies, leaving out their explosions on the frames the
+	 * quality skips
+	 * 
+	 * @param s
+	 *            snapshot of the game to draw
+	 */
+	public void renderEnemies(FrameSnapshot s) {
+		boolean explosions = quality.drawsExplosions(frameCount);
+		for (int i = 0; i < s.getEnemyCount(); i++) {
+			Sprite sprite = s.getEnemySprite(i);
+			if (!explosions && sprite.isEnemyExplosion())
+				continue;
+			pushMatrix();
+			translate(s.getEnemyX(i), s.getEnemyY(i));
+
+			// The sprite is flipped back upright after rotating, so turns
+			// the other way in its own pixels
+			if (quality.isPreRotated() && sprite.isPreRotated()) {
+				scale(PIXEL_WIDTH / Sprite.OVERSAMPLE, -PIXEL_WIDTH
+						/ Sprite.OVERSAMPLE);
+				noSmooth();
+				imageMode(CENTER);
+				image(sprite.rotated(-s.getEnemyTheta(i)), 0, 0);
+			} else {
+				rotate(s.getEnemyTheta(i));
+				scale(PIXEL_WIDTH, -PIXEL_WIDTH);
+				noSmooth();
+				imageMode(CENTER);
+				image(sprite.image(), 0, 0);
+			}
+			popMatrix();
+		}
+	}
+
+	/**
+	 * Draws the remaining lives
+	 * 
+	 * @param s
+	 *            snapshot of the game to draw
+	 */
+	public void renderLives(FrameSnapshot s) {
 		pushMatrix();
 		translate(-WORLD_WIDTH / 2, 0);
 		scale(PIXEL_WIDTH, -PIXEL_WIDTH);
 		translate(0, -lifeSprite.height);
+		noSmooth();
 		imageMode(CORNER);
-		for (int i = 0; i < fighter.lives(); i++)
+		for (int i = 0; i < s.getLives(); i++)
 			image(lifeSprite, i * lifeSprite.width + 2 * i, 0);
 		popMatrix();
 	}
 
 	/**
 	 * Draws score and high score
+	 * 
+	 * @param s
+	 *            snapshot of the game to draw
 	 */
-	public void renderScore() {
+	public void renderScore(FrameSnapshot s) {
+		smoothing();
 		pushMatrix();
 		translate(0, WORLD_HEIGHT);
-		PFont font = loadFont("Fonts/Emulogic-36.vlw");
-		textFont(font);
+		textFont(Typeface.EMULOGIC.font());
 
 		pushMatrix();
 		translate(-WORLD_WIDTH / 2, 0);
@@ -935,7 +930,7 @@ public class Galaga extends PApplet implements ApplicationConstants {
 
 		fill(218);
 		translate(0, textAscent() * 1.1f);
-		text((int) scoreDisplay, 0, 0);
+		renderNumber(s.getScoreDisplay(), 0, 0);
 		popMatrix();
 
 		scale(P2W, -P2W);
@@ -949,24 +944,123 @@ public class Galaga extends PApplet implements ApplicationConstants {
 		translate(0, textAscent() * 1.1f);
 
 		// Render the current score if it's higher than the stored high score
-		if (score > topScore) {
-			if (scoreDisplay > topScore) {
-				text(scoreDisplay, 0, 0);
+		if (s.getScore() > s.getTopScore()) {
+			if (s.getScoreDisplay() > s.getTopScore()) {
+				renderNumber(s.getScoreDisplay(), 0, 0);
 			} else {
-				text(topScore, 0, 0);
+				renderNumber(s.getTopScore(), 0, 0);
 			}
 
 		} else {
-			text(topScore, 0, 0);
+			renderNumber(s.getTopScore(), 0, 0);
 		}
 
 		popMatrix();
 	}
 
+	/**
+	 * Draws a number with the current font and alignment, without building
+	 * a String for it
+	 * 
+	 * @param number
+	 *            the number to draw
+	 * @param x
+	 *            x coordinate to draw it at
+	 * @param y
+	 *            y coordinate to draw it at
+	 */
+	private void renderNumber(int number, float x, float y) {
+		renderNumber("", number, "", x, y);
+	}
+
+	/**
+	 * Draws a number between two pieces of text with the current font and
+	 * alignment, without building a String for it
+	 * 
+	 * @param prefix
+	 *            text to draw before the number
+	 * @param number
+	 *            the number to draw
+	 * @param suffix
+	 *            text to draw after the number
+	 * @param x
+	 *            x coordinate to draw it at
+	 * @param y
+	 *            y coordinate to draw it at
+	 */
+	private void renderNumber(String prefix, int number, String suffix,
+			float x, float y) {
+		renderNumber(prefix, number, 0, suffix, x, y);
+	}
+
+	/**
+	 * Draws a number with a fixed number of decimal places between two pieces
+	 * of text with the current font and alignment, without building a String
+	 * for it
+	 * 
+	 * @param prefix
+	 *            text to draw before the number
+	 * @param number
+	 *            the number to draw, in units of the last decimal place
+	 * @param decimals
+	 *            number of decimal places
+	 * @param suffix
+	 *            text to draw after the number
+	 * @param x
+	 *            x coordinate to draw it at
+	 * @param y
+	 *            y coordinate to draw it at
+	 */
+	private void renderNumber(String prefix, int number, int decimals,
+			String suffix, float x, float y) {
+		int start = digits.length - suffix.length();
+		suffix.getChars(0, suffix.length(), digits, start);
+		long n = Math.abs((long) number);
+		for (int i = 0; i < decimals; i++) {
+			digits[--start] = (char) ('0' + n % 10);
+			n /= 10;
+		}
+		if (decimals > 0)
+			digits[--start] = '.';
+		do {
+			digits[--start] = (char) ('0' + n % 10);
+			n /= 10;
+		} while (n > 0);
+		if (number < 0)
+			digits[--start] = '-';
+		start -= prefix.length();
+		prefix.getChars(0, prefix.length(), digits, start);
+		text(digits, start, digits.length, x, y);
+	}
+
+	/**
+	 * Draws two pieces of text one after the other with the current font and
+	 * alignment, without building a String for them. Text that does not fit
+	 * is cut short
+	 * 
+	 * @param text
+	 *            text to draw first
+	 * @param suffix
+	 *            text to draw after it
+	 * @param x
+	 *            x coordinate to draw it at
+	 * @param y
+	 *            y coordinate to draw it at
+	 */
+	private void renderText(String text, String suffix, float x, float y) {
+		int length = Math.min(text.length(), digits.length - suffix.length());
+		text.getChars(0, length, digits, 0);
+		suffix.getChars(0, suffix.length(), digits, length);
+		text(digits, 0, length + suffix.length(), x, y);
+	}
+
 	/**
 	 * Renders that the player has received a new high score.
+	 * 
+	 * @param s
+	 *            snapshot of the game to draw
 	 */
-	private void renderNameEntry() {
+	private void renderNameEntry(FrameSnapshot s) {
 		pushMatrix();
 		translate(0, 3 * WORLD_HEIGHT / 4);
 		scale(P2W, -P2W);
@@ -993,10 +1087,13 @@ public class Galaga extends PApplet implements ApplicationConstants {
 
 		translate(0, 1.5f * textAscent());
 		textAlign(RIGHT);
-		text(score + "    ", 0, 0);
+		renderNumber("", s.getScore(), "    ", 0, 0);
 		textAlign(LEFT);
 		pushMatrix();
 		translate(textWidth("    "), 0);
+		for (int l = 0; l < FrameSnapshot.NAME_LENGTH; l++)
+			nameEntry.setLetter(l, s.getEntryLetter(l));
+		nameEntry.select(s.getEntrySelection());
 		nameEntry.render(this);
 		popMatrix();
 
@@ -1009,491 +1106,35 @@ public class Galaga extends PApplet implements ApplicationConstants {
 	}
 
 	/**
-	 * What do be done when the player presses keys
+	 * What do be done when the player presses keys. The key is queued for the
+	 * simulation rather than handled on the event thread
 	 */
 	public void keyPressed() {
-		switch (gameState) {
-
-		// Navigate the menu
-		case MAIN_MENU:
-			if (key == CODED) {
-				switch (keyCode) {
-				case UP:
-					main.cycle(Joystick.UP);
-					break;
-				case DOWN:
-					main.cycle(Joystick.DOWN);
-					break;
-				case LEFT:
-					main.cycle(Joystick.LEFT);
-					break;
-				case RIGHT:
-					main.cycle(Joystick.RIGHT);
-					break;
-				default:
-					break;
-				}
-			} else {
-				switch (key) {
-				case ' ':
-				case ENTER:
-					main.execute();
-					break;
-				}
-			}
-			break;
-
-		// Control the ship
-		case NEXT_LEVEL:
-		case ASSUMING_POSITIONS:
-		case IN_FORMATION:
-		case DIVING:
-			if (key == CODED) {
-				switch (keyCode) {
-				case LEFT:
-					fighter.push(Joystick.LEFT);
-					break;
-
-				case RIGHT:
-					fighter.push(Joystick.RIGHT);
-					break;
-				default:
-					break;
-				}
-			} else {
-				switch (key) {
-				case ' ':
-					if (!fighter.isHit() && fighterMissiles.size() < 2)
-						fighterMissiles.add(fighter.shoot());
-					break;
-				}
-			}
-			break;
-
-		// Go to next game state when any key is pressed
-		case GAMEOVER:
-			gameState = GameState.RESULTS;
-			break;
-
-		// Move to next game state depending on if the player scored highscore
-		case RESULTS:
-			if (checkScore())
-				gameState = GameState.ENTER_NAME;
-			else
-				gameState = GameState.POSTGAME_MENU;
-			break;
-
-		// Control name entry screen
-		case ENTER_NAME:
-			if (key == CODED) {
-				switch (keyCode) {
-				case UP:
-					nameEntry.cycle(Joystick.UP);
-					break;
-				case DOWN:
-					nameEntry.cycle(Joystick.DOWN);
-					break;
-				case LEFT:
-					nameEntry.cycle(Joystick.LEFT);
-					break;
-				case RIGHT:
-					nameEntry.cycle(Joystick.RIGHT);
-					break;
-				default:
-					break;
-				}
-			} else {
-				switch (key) {
-				case ENTER:
-					insertHighscore();
-					gameState = GameState.POSTGAME_MENU;
-					break;
-				default:
-					nameEntry.setLetter(key);
-				}
-			}
-			break;
-
-		// Navigate the menu
-		case POSTGAME_MENU:
-			if (key == CODED) {
-				switch (keyCode) {
-				case UP:
-					postgame.cycle(Joystick.UP);
-					break;
-				case DOWN:
-					postgame.cycle(Joystick.DOWN);
-					break;
-				case LEFT:
-					postgame.cycle(Joystick.LEFT);
-					break;
-				case RIGHT:
-					postgame.cycle(Joystick.RIGHT);
-					break;
-				default:
-					break;
-				}
-			} else {
-				switch (key) {
-				case ' ':
-				case ENTER:
-					postgame.execute();
-					break;
-				}
-			}
-			break;
-
-		// Go back to the menu
-		case HIGHSCORE_LIST:
-			gameState = GameState.MAIN_MENU;
-
-		default:
-			break;
-		}
+		input(InputQueue.Type.KEY_PRESSED);
 	}
 
 	/**
-	 * What to be done when the user releases keys
+	 * What to be done when the user releases keys. The key is queued for the
+	 * simulation rather than handled on the event thread
 	 */
 	public void keyReleased() {
-
-		switch (gameState) {
-
-		// Control the ship
-		case NEXT_LEVEL:
-		case ASSUMING_POSITIONS:
-		case IN_FORMATION:
-		case DIVING:
-		case READY:
-			if (gameState.playing() && fighter.peek() != Joystick.CENTER) {
-				switch (keyCode) {
-				case LEFT:
-					fighter.pop(Joystick.LEFT);
-					break;
-
-				case RIGHT:
-					fighter.pop(Joystick.RIGHT);
-					break;
-
-				default:
-					break;
-				}
-			}
-			break;
-
-		default:
-			break;
-		}
-
-	}
-
-	/**
-	 * Determines if the player has beaten any of the top 3 high scores
-	 * 
-	 * @return true if it the player beats a high score; false otherwise;
-	 */
-	private boolean checkScore() {
-
-		highscoreList.reset();
-
-		// Confirm that the player's score is 1 of the top 3
-		int count = 0;
-		while (highscoreList.hasNext() && count < 3) {
-			HighscoreEntry current = highscoreList.next();
-
-			if (score > current.getScore()) {
-				return true;
-			}
-
-			count++;
-			current = highscoreList.next();
-		}
-		return false;
-	}
-
-	/**
-	 * Load all the highscores from save file And set the HighestScore for
-	 * Display
-	 * 
-	 * @throws IOException
-	 */
-	private void loadScores() throws IOException {
-
-		// Create a reader to read in the file
-		BufferedReader reader = createReader("data/highscores.txt");
-		String temp = null;
-
-		// Create a new list to store the highscores
-		highscoreList = new HighscoreList();
-
-		// Read the first line
-		temp = reader.readLine();
-
-		// Until End of File, add lines to highscoreList
-		while (temp != null) {
-
-			// Split each line using the ',' delimiter
-			String[] line = temp.split(",");
-			highscoreList.add(line[0], Integer.parseInt(line[1]));
-
-			temp = reader.readLine();
-		}
-
-		// Set the HighestScore
-		highscoreList.reset();
-		topScore = highscoreList.next().getScore();
-		reader.close();
-	}
-
-	/**
-	 * Inserts the player's name and score into the highscore list
-	 */
-	private void insertHighscore() {
-
-		// First lets capitalize the playerName
-		String playerName = nameEntry.getName();
-		playerName = playerName.toUpperCase();
-
-		boolean found = false;
-		highscoreList.reset();
-
-		while (highscoreList.hasNext() && !found) {
-			HighscoreEntry current = highscoreList.next();
-
-			if (score > current.getScore()) {
-				found = true;
-				highscoreList.reset(current);
-				highscoreList.insert(playerName, score);
-			}
-		}
-
-		saveScores();
-	}
-
-	/**
-	 * Save the current Highscores to the highscores text file;
-	 */
-	private void saveScores() {
-		PrintWriter writer = createWriter("data/highscores.txt");
-		highscoreList.reset();
-
-		while (highscoreList.hasNext()) {
-
-			// Get the score
-			HighscoreEntry tempItem = highscoreList.next();
-
-			// Write score to file
-			writer.println(tempItem.getName() + "," + tempItem.getScore());
-		}
-
-		// Write the rest of the data
-		writer.flush();
-		writer.close();
+		input(InputQueue.Type.KEY_RELEASED);
 	}
 
 	/**
-	 * Start the next level
+	 * Pass the current key event on to the local simulation, netplay or the
+	 * server
+	 *
+	 * @param type
+	 *            type of the event
 	 */
-	private void newLevel() {
-		onDeck = new ArrayList<Enemy>(onDeckPrototype);
-		enemies = new ArrayList<Enemy>();
-
-		gameState = GameState.NEXT_LEVEL;
-		nextEnemyTimer.start(SPAWN_TIME);
-		level++;
-	}
-
-	/**
-	 * Populate onDeckPrototype with enemies
-	 */
-	private void populatePrototype() {
-
-		onDeckPrototype = new ArrayList<Enemy>();
-
-		// Bees and butterflies dive from top
-		onDeckPrototype.add(new Bee(WORLD_WIDTH / 4, WORLD_HEIGHT * 1.2f,
-				ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.DOUBLE_CROSS));
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH / 4,
-				WORLD_HEIGHT * 1.2f, -ENEMY_BUFFER / 2, ROW_Y[1],
-				Enemy.FlightPath.DOUBLE_CROSS));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH / 4, WORLD_HEIGHT * 1.2f,
-				ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.DOUBLE_CROSS));
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH / 4,
-				WORLD_HEIGHT * 1.2f, -ENEMY_BUFFER / 2, ROW_Y[2],
-				Enemy.FlightPath.DOUBLE_CROSS));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH / 4, WORLD_HEIGHT * 1.2f,
-				-ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.DOUBLE_CROSS));
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH / 4,
-				WORLD_HEIGHT * 1.2f, ENEMY_BUFFER / 2, ROW_Y[1],
-				Enemy.FlightPath.DOUBLE_CROSS));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH / 4, WORLD_HEIGHT * 1.2f,
-				-ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.DOUBLE_CROSS));
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH / 4,
-				WORLD_HEIGHT * 1.2f, ENEMY_BUFFER / 2, ROW_Y[2],
-				Enemy.FlightPath.DOUBLE_CROSS));
-
-		// Bosses and Butterflies loop up from the bottom left
-		onDeckPrototype.add(new Boss(-WORLD_WIDTH * 1.2f, 0, -3 * ENEMY_BUFFER
-				/ 2, ROW_Y[0], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH * 1.2f, 0, -3
-				* ENEMY_BUFFER / 2, ROW_Y[1], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Boss(-WORLD_WIDTH * 1.2f, 0, -ENEMY_BUFFER / 2,
-				ROW_Y[0], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH * 1.2f, 0, -3
-				* ENEMY_BUFFER / 2, ROW_Y[2], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Boss(-WORLD_WIDTH * 1.2f, 0, ENEMY_BUFFER / 2,
-				ROW_Y[0], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH * 1.2f, 0,
-				3 * ENEMY_BUFFER / 2, ROW_Y[1], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Boss(-WORLD_WIDTH * 1.2f, 0,
-				3 * ENEMY_BUFFER / 2, ROW_Y[0], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(-WORLD_WIDTH * 1.2f, 0,
-				3 * ENEMY_BUFFER / 2, ROW_Y[2], Enemy.FlightPath.BOTTOM_LOOP));
-
-		// Butterflies loop up from the bottom right
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0,
-				7 * ENEMY_BUFFER / 2, ROW_Y[1], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0,
-				5 * ENEMY_BUFFER / 2, ROW_Y[1], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0,
-				7 * ENEMY_BUFFER / 2, ROW_Y[2], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0,
-				5 * ENEMY_BUFFER / 2, ROW_Y[2], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0, -7
-				* ENEMY_BUFFER / 2, ROW_Y[1], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0, -5
-				* ENEMY_BUFFER / 2, ROW_Y[1], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0, -7
-				* ENEMY_BUFFER / 2, ROW_Y[2], Enemy.FlightPath.BOTTOM_LOOP));
-
-		onDeckPrototype.add(new Butterfly(WORLD_WIDTH * 1.2f, 0, -5
-				* ENEMY_BUFFER / 2, ROW_Y[2], Enemy.FlightPath.BOTTOM_LOOP));
-
-		// Bees loop down from the top right
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				5 * ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				3 * ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				5 * ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				3 * ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f, -5
-				* ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f, -3
-				* ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f, -5
-				* ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f, -3
-				* ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-
-		// Bees loop down from the top left
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				9 * ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				7 * ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				9 * ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				7 * ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				-9 * ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				-7 * ENEMY_BUFFER / 2, ROW_Y[3], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				-9 * ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-
-		onDeckPrototype.add(new Bee(-WORLD_WIDTH * 0.5f, WORLD_HEIGHT * 1.2f,
-				-7 * ENEMY_BUFFER / 2, ROW_Y[4], Enemy.FlightPath.TOP_LOOP));
-	}
-
-	/**
-	 * Select action associated with Play
-	 * 
-	 * @author Christopher Glasz
-	 */
-	private static class Play implements SelectAction {
-		public void execute() {
-			readyTimer.start(READY_TIME);
-			gameState = GameState.NEXT_LEVEL;
-		}
-	}
-
-	/**
-	 * Select action associated with Quit
-	 * 
-	 * @author Christopher Glasz
-	 */
-	private static class Quit implements SelectAction {
-		public void execute() {
-			System.exit(0);
-		}
-	}
-
-	/**
-	 * Select action associated with High Scores
-	 * 
-	 * @author Christopher Glasz
-	 */
-	private static class HighScore implements SelectAction {
-		public void execute() {
-			gameState = GameState.HIGHSCORE_LIST;
-		}
-	}
-
-	/**
-	 * Select action associated with Return to Main Menu
-	 * 
-	 * @author Christopher Glasz
-	 */
-	private static class Return implements SelectAction {
-		public void execute() {
-			score = 0;
-			hits = 0;
-			Fighter.resetInstance();
-			fighter = Fighter.instance();
-			nameEntry = new NameEntry();
-
-			fighterMissiles = new ArrayList<Missile>();
-			enemyMissiles = new ArrayList<Missile>();
-			enemies = new ArrayList<Enemy>();
-
-			// Array list to hold enemies
-			onDeck = new ArrayList<Enemy>(onDeckPrototype);
-			enemies = new ArrayList<Enemy>();
-
-			gameState = GameState.MAIN_MENU;
-			level = 1;
-		}
+	private void input(InputQueue.Type type) {
+		if (remote != null)
+			remote.send(type, key, keyCode);
+		else if (netplay != null)
+			netplay.getInput().offer(type, key, keyCode);
+		else
+			session.getInput().offer(type, key, keyCode);
 	}
 
 }
@@ -0,0 +1,78 @@
+package Galaga;
+
+/**
+ * Seeded source of random numbers for the simulation. Two sessions started
+ * from the same seed and fed the same input play out identically, and the
+ * whole state is one long, so it can be saved and restored along with the
+ * rest of the game
+ *
+ * @author Christopher Glasz
+ */
+public class GameRandom {
+
+	/**
+	 * Current state of the generator. Never zero
+	 */
+	private long state;
+
+	/**
+	 * Constructor seeds the generator
+	 *
+	 * @param seed
+	 *            seed
+	 */
+	public GameRandom(long seed) {
+		setState(seed);
+	}
+
+	/**
+	 * Returns a float between 0 (inclusive) and 1 (exclusive)
+	 *
+	 * @return a float between 0 and 1
+	 */
+	public float nextFloat() {
+		return (next() >>> 40) * 0x1.0p-24f;
+	}
+
+	/**
+	 * Returns an int between 0 (inclusive) and n (exclusive)
+	 *
+	 * @param n
+	 *            upper bound
+	 * @return an int between 0 and n
+	 */
+	public int nextInt(int n) {
+		return (int) ((next() >>> 33) % n);
+	}
+
+	/**
+	 * Advance the generator (xorshift64*)
+	 *
+	 * @return the next 64 random bits
+	 */
+	private long next() {
+		state ^= state >>> 12;
+		state ^= state << 25;
+		state ^= state >>> 27;
+		return state * 0x2545F4914F6CDD1DL;
+	}
+
+	/**
+	 * Accessor method for the state
+	 *
+	 * @return current state of the generator
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/**
+	 * Mutator method for the state
+	 *
+	 * @param state
+	 *            state to continue from, as returned by {@link #getState()}
+	 */
+	public void setState(long state) {
+		this.state = state == 0 ? 0x9E3779B97F4A7C15L : state;
+	}
+}
@@ -0,0 +1,556 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hosts many game sessions for thin clients on the network. One thread runs a
+ * selector that accepts connections and reads key events from the clients,
+ * and a pool of workers, one per core, each tick their share of the sessions
+ * and stream the resulting snapshots back. Every session shares one set of
+ * highscores. Every few seconds the server reports how many sessions each core
+ * is carrying and how long ticks are taking
+ *
+ * @author Christopher Glasz
+ */
+public class GameServer implements ApplicationConstants {
+
+	/**
+	 * Seconds between reports
+	 */
+	private static final int REPORT_SECONDS = 5;
+
+	/**
+	 * Size in bytes of each client's output buffer to start with
+	 */
+	private static final int OUTPUT_SIZE = 4096;
+
+	/**
+	 * Folder holding the level pack and highscore files
+	 */
+	private final File dataFolder;
+
+	/**
+	 * Highscores shared by every session
+	 */
+	private final Highscores highscores;
+
+	/**
+	 * Selector watching the server socket and every client
+	 */
+	private final Selector selector;
+
+	/**
+	 * Socket accepting new clients
+	 */
+	private final ServerSocketChannel server;
+
+	/**
+	 * Threads ticking the sessions
+	 */
+	private final Worker[] workers;
+
+	/**
+	 * Worker the next client will be given to
+	 */
+	private int nextWorker;
+
+	/**
+	 * True while the server should keep running
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Constructor opens the server socket and loads the highscores
+	 *
+	 * @param dataFolder
+	 *            folder holding the level pack and highscore files
+	 * @param address
+	 *            address to listen on
+	 * @param workerCount
+	 *            number of threads to tick sessions on
+	 * @throws IOException
+	 *             if the socket or highscores cannot be opened
+	 */
+	public GameServer(File dataFolder, InetSocketAddress address,
+			int workerCount) throws IOException {
+		this.dataFolder = dataFolder;
+		highscores = new Highscores(dataFolder);
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(address);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+
+		workers = new Worker[workerCount];
+		for (int i = 0; i < workerCount; i++)
+			workers[i] = new Worker(i);
+		nextWorker = 0;
+		running = true;
+	}
+
+	/**
+	 * Start the workers, then accept clients and read their input until
+	 * halted. Once halted, the workers are stopped and the highscores saved
+	 * before returning
+	 *
+	 * @throws IOException
+	 *             if the selector fails
+	 */
+	public void run() throws IOException {
+		for (Worker w : workers)
+			w.start();
+
+		long nextReport = System.nanoTime() + REPORT_SECONDS * 1000000000L;
+		while (running) {
+			selector.select(REPORT_SECONDS * 1000L);
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				if (!key.isValid())
+					continue;
+				if (key.isAcceptable())
+					accept();
+				else if (key.isReadable())
+					read(key);
+			}
+
+			if (System.nanoTime() >= nextReport) {
+				System.out.println(report());
+				nextReport = System.nanoTime() + REPORT_SECONDS * 1000000000L;
+			}
+		}
+
+		shutdown();
+	}
+
+	/**
+	 * Accept a new client, give it a session, and hand it to the next worker
+	 *
+	 * @throws IOException
+	 *             if the client cannot be set up
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+		Client client = new Client(channel, new GameSession(dataFolder,
+				highscores));
+		channel.register(selector, SelectionKey.OP_READ, client);
+
+		workers[nextWorker].add(client);
+		nextWorker = (nextWorker + 1) % workers.length;
+	}
+
+	/**
+	 * Read whatever a client has sent and queue its key events for its
+	 * session
+	 *
+	 * @param key
+	 *            selection key of the client
+	 */
+	private void read(SelectionKey key) {
+		Client client = (Client) key.attachment();
+		try {
+			if (client.channel.read(client.input) < 0) {
+				key.cancel();
+				client.closed = true;
+				return;
+			}
+		} catch (IOException e) {
+			key.cancel();
+			client.closed = true;
+			return;
+		}
+
+		client.input.flip();
+		while (SnapshotCodec.decodeInput(client.input, client.session
+				.getInput()))
+			;
+		client.input.compact();
+	}
+
+	/**
+	 * Returns a one-line summary of the load on the server
+	 *
+	 * @return a one-line summary of the load on the server
+	 */
+	public String report() {
+		int sessions = 0;
+		float busy = 0;
+		LatencyHistogram ticks = new LatencyHistogram("tick", 1000L, 10000);
+		long skipped = 0;
+		for (Worker w : workers) {
+			sessions += w.sessions;
+			busy += w.takeLoad();
+			ticks.add(w.ticks);
+			skipped += w.skipped;
+		}
+		int cores = Runtime.getRuntime().availableProcessors();
+		return String.format(
+				"sessions=%d cores=%d sessions/core=%.2f load=%.1f%% "
+						+ "tick p50=%.3fms p99=%.3fms max=%.3fms "
+						+ "skipped frames=%d", sessions, cores, sessions
+						/ (float) cores, 100 * busy / workers.length,
+				ticks.percentile(0.5) * 1e-6, ticks.percentile(0.99) * 1e-6,
+				ticks.max() * 1e-6, skipped);
+	}
+
+	/**
+	 * Stop accepting clients and ticking sessions. {@link #run()} returns once
+	 * everything is shut down
+	 */
+	public void halt() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Stop the workers, close the sockets, and finish saving highscores
+	 */
+	private void shutdown() {
+		for (Worker w : workers)
+			w.halt();
+		try {
+			for (Worker w : workers)
+				w.join();
+			server.close();
+			selector.close();
+			highscores.close();
+		} catch (Exception e) {
+			System.out.println("Error shutting down the server");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Run a server. The first argument is the port, defaulting to
+	 * {@link ApplicationConstants#SERVER_PORT}, and the second the data
+	 * folder, defaulting to "data". Pass -Dgalaga.bind to listen on something
+	 * other than the loopback address
+	 *
+	 * @param args
+	 *            port and data folder
+	 */
+	public static void main(String[] args) {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : SERVER_PORT;
+		File data = new File(args.length > 1 ? args[1] : "data");
+		String bind = System.getProperty("galaga.bind", "127.0.0.1");
+		int workerCount = Runtime.getRuntime().availableProcessors();
+
+		try {
+			final GameServer server = new GameServer(data,
+					new InetSocketAddress(bind, port), workerCount);
+			final Thread main = Thread.currentThread();
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					server.halt();
+					try {
+						main.join();
+					} catch (InterruptedException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+			System.out.println("Serving " + data + " on " + bind + ":" + port
+					+ " with " + workerCount + " workers");
+			server.run();
+		} catch (IOException e) {
+			System.out.println("Error running the game server");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Defines a connected client and the session it is playing
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Client {
+
+		/**
+		 * Connection to the client
+		 */
+		private final SocketChannel channel;
+
+		/**
+		 * The game being played
+		 */
+		private final GameSession session;
+
+		/**
+		 * Key events read from the client but not yet queued. Only touched by
+		 * the selector thread
+		 */
+		private final ByteBuffer input;
+
+		/**
+		 * Snapshot the session is captured into. Only touched by the worker
+		 */
+		private final FrameSnapshot snapshot;
+
+		/**
+		 * Encoded frame not yet fully sent, ready for reading. Only touched
+		 * by the worker
+		 */
+		private ByteBuffer output;
+
+		/**
+		 * True once the client has hung up
+		 */
+		private volatile boolean closed;
+
+		/**
+		 * Constructor initializes variables
+		 *
+		 * @param channel
+		 *            connection to the client
+		 * @param session
+		 *            the game being played
+		 */
+		private Client(SocketChannel channel, GameSession session) {
+			this.channel = channel;
+			this.session = session;
+			input = ByteBuffer.allocate(SnapshotCodec.INPUT_SIZE * 64);
+			snapshot = new FrameSnapshot();
+			output = ByteBuffer.allocate(OUTPUT_SIZE);
+			output.flip();
+			closed = false;
+		}
+	}
+
+	/**
+	 * Thread ticking a share of the sessions at a fixed rate. Each tick, every
+	 * session is advanced, captured and encoded, and the frame is written
+	 * straight to its non-blocking socket. A client that has not taken the
+	 * previous frame yet simply misses this one, so one slow cabinet never
+	 * holds up the others
+	 *
+	 * @author Christopher Glasz
+	 */
+	private class Worker extends Thread {
+
+		/**
+		 * Clients waiting to be picked up by this worker
+		 */
+		private final ConcurrentLinkedQueue<Client> added;
+
+		/**
+		 * Clients this worker is ticking. Only touched by the worker
+		 */
+		private final ArrayList<Client> clients;
+
+		/**
+		 * Time taken to tick, capture and encode each session
+		 */
+		private final LatencyHistogram ticks;
+
+		/**
+		 * Number of sessions this worker is ticking
+		 */
+		private volatile int sessions;
+
+		/**
+		 * Number of frames not sent because the client was still behind
+		 */
+		private volatile long skipped;
+
+		/**
+		 * Total time spent working, in nanoseconds. Only written by the
+		 * worker
+		 */
+		private volatile long busy;
+
+		/**
+		 * Time spent working when the load was last taken. Only touched by
+		 * the reporting thread
+		 */
+		private long lastBusy;
+
+		/**
+		 * Time the load was last taken, from System.nanoTime(). Only touched
+		 * by the reporting thread
+		 */
+		private long loadStart;
+
+		/**
+		 * True while the worker should keep running
+		 */
+		private volatile boolean running;
+
+		/**
+		 * Constructor initializes variables
+		 *
+		 * @param index
+		 *            number of the worker, for its name
+		 */
+		private Worker(int index) {
+			super("Session worker " + index);
+			added = new ConcurrentLinkedQueue<Client>();
+			clients = new ArrayList<Client>();
+			ticks = new LatencyHistogram("tick", 1000L, 10000);
+			sessions = 0;
+			skipped = 0;
+			busy = 0;
+			lastBusy = 0;
+			loadStart = System.nanoTime();
+			running = true;
+			setDaemon(true);
+		}
+
+		/**
+		 * Give a client to this worker, to be picked up on its next tick
+		 *
+		 * @param client
+		 *            the new client
+		 */
+		private void add(Client client) {
+			added.add(client);
+		}
+
+		/**
+		 * Returns the fraction of time spent working since the last call
+		 *
+		 * @return the fraction of time spent working
+		 */
+		private float takeLoad() {
+			long now = System.nanoTime();
+			long total = busy;
+			float load = (total - lastBusy) / (float) Math.max(1, now - loadStart);
+			lastBusy = total;
+			loadStart = now;
+			return load;
+		}
+
+		/**
+		 * Tick every session at a fixed rate until halted
+		 */
+		@Override
+		public void run() {
+			final long period = (long) (TICK_TIME * 1000000000L);
+			long last = System.nanoTime();
+			long deadline = last + period;
+
+			while (running) {
+				long now = System.nanoTime();
+				float elapsed = (now - last) * 0.000001f;
+				last = now;
+
+				Client c;
+				while ((c = added.poll()) != null)
+					clients.add(c);
+
+				for (int i = clients.size() - 1; i >= 0; i--) {
+					Client client = clients.get(i);
+					long start = System.nanoTime();
+					if (!step(client, elapsed)) {
+						drop(client);
+						clients.remove(i);
+					}
+					ticks.record(System.nanoTime() - start);
+				}
+				sessions = clients.size();
+				busy += System.nanoTime() - now;
+
+				// Wait for the next tick, without trying to catch up if we
+				// fell behind
+				long remaining = deadline - System.nanoTime();
+				if (remaining > 0) {
+					try {
+						Thread.sleep(remaining / 1000000,
+								(int) (remaining % 1000000));
+					} catch (InterruptedException e) {
+						break;
+					}
+					deadline += period;
+				} else
+					deadline = System.nanoTime() + period;
+			}
+
+			for (Client client : clients)
+				drop(client);
+			clients.clear();
+			sessions = 0;
+		}
+
+		/**
+		 * Tick one session and send its snapshot
+		 *
+		 * @param client
+		 *            the client to serve
+		 * @param elapsed
+		 *            time elapsed since the last tick
+		 * @return false if the client is gone and should be dropped
+		 */
+		private boolean step(Client client, float elapsed) {
+			if (client.closed || client.session.hasQuit())
+				return false;
+
+			client.session.tick(elapsed);
+
+			try {
+
+				// Finish sending the last frame before starting another
+				if (client.output.hasRemaining())
+					client.channel.write(client.output);
+				if (client.output.hasRemaining()) {
+					skipped++;
+					return true;
+				}
+
+				client.session.capture(client.snapshot);
+				int size = SnapshotCodec.encodedSize(client.snapshot);
+				if (size > client.output.capacity())
+					client.output = ByteBuffer.allocate(Math.max(size,
+							client.output.capacity() * 2));
+				client.output.clear();
+				SnapshotCodec.encode(client.snapshot, client.output);
+				client.output.flip();
+				client.channel.write(client.output);
+			} catch (IOException e) {
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Hang up on a client and close its session
+		 *
+		 * @param client
+		 *            the client to drop
+		 */
+		private void drop(Client client) {
+			client.closed = true;
+			client.session.close();
+			try {
+				client.channel.close();
+			} catch (IOException e) {
+				System.out.println("Error closing a client connection");
+				e.printStackTrace();
+			}
+		}
+
+		/**
+		 * Stop ticking after the current tick
+		 */
+		private void halt() {
+			running = false;
+			interrupt();
+		}
+	}
+}
@@ -0,0 +1,1722 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+
+/**
+ * Defines one game of GALAGA: the fighter, the enemies, the missiles, the
+ * score and the game state, along with the menus that drive them. A session
+ * is advanced one tick at a time and copies what needs to be drawn into a
+ * {@link FrameSnapshot}, so it never touches the screen itself
+ *
+ * @author Christopher Glasz
+ */
+public class GameSession implements ApplicationConstants {
+
+	/**
+	 * Reads and bakes upcoming levels off the simulation thread. One thread
+	 * is shared by every session, since a level takes well under a
+	 * millisecond to bake and is not needed until the current one is cleared
+	 */
+	private static final ExecutorService LEVEL_LOADER = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Level loader");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	/**
+	 * Every button, by ordinal
+	 */
+	private static final Button[] BUTTONS = Button.values();
+
+	/**
+	 * Most missiles the fighter can have in play at once
+	 */
+	private static final int FIGHTER_MISSILES = 2;
+
+	/**
+	 * Spent enemy missiles made up front, enough that a normal game never
+	 * has to make more
+	 */
+	private static final int SPARE_ENEMY_MISSILES = 32;
+
+	/**
+	 * Highscores shared with any other sessions on this machine
+	 */
+	private Highscores highscores;
+
+	/**
+	 * True if this session loaded the highscores itself, and must close them
+	 */
+	private boolean ownsHighscores;
+
+	/**
+	 * True once the player has chosen to quit
+	 */
+	private volatile boolean quitting;
+
+	/**
+	 * Random number generator for enemy behaviour
+	 */
+	private GameRandom random;
+
+	/**
+	 * Buttons held down as of the last call to {@link #step(int)}, one bit per
+	 * {@link Button}
+	 */
+	private int held;
+
+	/**
+	 * The player's ship
+	 */
+	private Fighter fighter;
+
+	/**
+	 * Waves of every level, read from disk one level at a time, or null if
+	 * the pack could not be opened
+	 */
+	private LevelPack levelPack;
+
+	/**
+	 * Enemies of the current level, in the order they are added
+	 */
+	private LevelPack.Level onDeck;
+
+	/**
+	 * The level before the current one, kept baked so that rolling back
+	 * across the start of a level is only a swap
+	 */
+	private LevelPack.Level previous;
+
+	/**
+	 * The level after the current one, being read and baked by the level
+	 * loader, or null if it is not needed
+	 */
+	private Future<LevelPack.Level> upcoming;
+
+	/**
+	 * Index in the pack of the upcoming level
+	 */
+	private int upcomingIndex;
+
+	/**
+	 * Index in onDeck of the next enemy to be added
+	 */
+	private int nextSpawn;
+
+	/**
+	 * Enemies in play
+	 */
+	private EnemyStore enemies;
+
+	/**
+	 * Number of enemies in play in each state
+	 */
+	private EnemyStateCounts enemyCounts;
+
+	/**
+	 * Array list of missiles shot my enemies
+	 */
+	private ArrayList<Missile> enemyMissiles;
+
+	/**
+	 * Array list of missiles shot by fighter
+	 */
+	private ArrayList<Missile> fighterMissiles;
+
+	/**
+	 * Destroyed missiles waiting to be fired again, so that firing does not
+	 * allocate
+	 */
+	private ArrayList<Missile> spentEnemyMissiles, spentFighterMissiles;
+
+	/**
+	 * Current game state
+	 */
+	private GameState gameState;
+
+	/**
+	 * Both menus
+	 */
+	private Menu main, postgame;
+
+	/**
+	 * Player score
+	 */
+	private int score;
+
+	/**
+	 * Score being displyed on the screen
+	 */
+	private int scoreDisplay;
+
+	/**
+	 * The Highest Score
+	 */
+	private int topScore;
+
+	/**
+	 * The name entry scanner thing
+	 */
+	private NameEntry nameEntry;
+
+	/**
+	 * keeps track of new lives
+	 */
+	private int newLifeScore;
+
+	/**
+	 * Current level
+	 */
+	private int level;
+
+	/**
+	 * Number of enemies hit
+	 */
+	private int hits;
+
+	/**
+	 * Hits found by collision detection this tick, waiting to be scored
+	 */
+	private HitQueue hitQueue;
+
+	/**
+	 * Number of enemies of each type destroyed this game
+	 */
+	private int[] kills;
+
+	/**
+	 * Kind of enemy whose missile last hit the fighter this game, or null if
+	 * the fighter has not been hit
+	 */
+	private EnemyType lastHitBy;
+
+	/**
+	 * Timer for the READY game state
+	 */
+	private Timer readyTimer;
+
+	/**
+	 * Timer to control the addition of enemies
+	 */
+	private Timer nextEnemyTimer;
+
+	/**
+	 * Number of ticks run so far
+	 */
+	private long tick;
+
+	/**
+	 * Key events waiting to be handled at the start of the next tick
+	 */
+	private InputQueue input;
+
+	/**
+	 * Time of the most recent input the fighter has acted on, from
+	 * System.nanoTime(), or 0 if there has been none
+	 */
+	private long lastInput;
+
+	/**
+	 * Delay between a key event and the end of the tick that acted on it
+	 */
+	private LatencyHistogram inputToSimulation;
+
+	/**
+	 * Constructor initializes all fields, loading the highscores from the
+	 * data folder
+	 *
+	 * @param dataFolder
+	 *            folder holding the level pack and highscore files
+	 */
+	public GameSession(File dataFolder) {
+		this(dataFolder, null);
+	}
+
+	/**
+	 * Constructor initializes all fields, including the array list of enemies
+	 * and the player ship
+	 *
+	 * @param dataFolder
+	 *            folder holding the level pack and highscore files
+	 * @param highscores
+	 *            highscores shared with other sessions, or null to load them
+	 *            from the data folder
+	 */
+	public GameSession(File dataFolder, Highscores highscores) {
+		this(dataFolder, highscores, System.nanoTime(), true);
+	}
+
+	/**
+	 * Constructor for a session that must play out the same way on every
+	 * cabinet, as in netplay. The session is seeded, and does not touch the
+	 * highscores, which differ between cabinets and must not be saved twice
+	 * when a tick is played again
+	 *
+	 * @param dataFolder
+	 *            folder holding the level pack
+	 * @param seed
+	 *            seed for the random number generator
+	 */
+	public GameSession(File dataFolder, long seed) {
+		this(dataFolder, null, seed, false);
+	}
+
+	/**
+	 * Constructor initializes all fields, including the array list of enemies
+	 * and the player ship
+	 *
+	 * @param dataFolder
+	 *            folder holding the level pack and highscore files
+	 * @param highscores
+	 *            highscores shared with other sessions, or null
+	 * @param seed
+	 *            seed for the random number generator
+	 * @param keepScores
+	 *            true to load the highscores from the data folder if none
+	 *            were passed in
+	 */
+	private GameSession(File dataFolder, Highscores highscores, long seed,
+			boolean keepScores) {
+		random = new GameRandom(seed);
+		held = 0;
+		input = new InputQueue();
+		inputToSimulation = new LatencyHistogram("input to simulation");
+
+		// Create the player ship
+		fighter = new Fighter(random);
+
+		// Somewhere to put missiles
+		fighterMissiles = new ArrayList<Missile>();
+		enemyMissiles = new ArrayList<Missile>(SPARE_ENEMY_MISSILES);
+		spentFighterMissiles = new ArrayList<Missile>(FIGHTER_MISSILES);
+		spentEnemyMissiles = new ArrayList<Missile>(SPARE_ENEMY_MISSILES);
+		for (int i = 0; i < FIGHTER_MISSILES; i++)
+			spentFighterMissiles.add(new FighterMissile(0, 0));
+		for (int i = 0; i < SPARE_ENEMY_MISSILES; i++)
+			spentEnemyMissiles.add(new EnemyMissile(0, 0, 0, null));
+
+		// Open the level pack, compiling it from the waves if needed. Only
+		// the first level is read now, the rest as play reaches them
+		enemies = new EnemyStore(0);
+		enemyCounts = enemies.counts();
+		onDeck = new LevelPack.Level();
+		previous = new LevelPack.Level();
+		upcoming = null;
+		try {
+			levelPack = LevelPack.open(new File(dataFolder, "levels.pack"),
+					new File(dataFolder, "waves.txt"));
+		} catch (IOException e) {
+			System.out.println("Error loading levels from file");
+			e.printStackTrace();
+		}
+
+		startLevel(1);
+
+		// set to default gamestate
+		gameState = GameState.MAIN_MENU;
+
+		// Different options for the menus
+		Option play = new Option(MAIN_MENU_OPTIONS[0], new Play());
+		Option highscore = new Option(MAIN_MENU_OPTIONS[1], new HighScore());
+		Option quit = new Option(MAIN_MENU_OPTIONS[2], new Quit());
+		Option returnToMenu = new Option(POSTGAME_MENU_OPTIONS[0],
+				new Return());
+
+		// Initialize main menu
+		Option[] mainOptions = { play, highscore, quit };
+		main = new Menu(mainOptions);
+
+		// Initialize game over menu
+		Option[] gameOverOptions = { returnToMenu, quit };
+		postgame = new Menu(gameOverOptions);
+
+		// Initializes name entry
+		nameEntry = new NameEntry();
+
+		// Initialize the score
+		score = 0;
+		scoreDisplay = 0;
+		newLifeScore = 0;
+		hits = 0;
+		hitQueue = new HitQueue();
+		kills = new int[EnemyType.values().length];
+
+		// Initialize the HighScores
+		this.highscores = highscores;
+		if (highscores == null && keepScores) {
+			try {
+				this.highscores = new Highscores(dataFolder);
+				ownsHighscores = true;
+			} catch (IOException e) {
+				System.out.println("Error loading highscores from file");
+				e.printStackTrace();
+			}
+		}
+		topScore = this.highscores != null ? this.highscores.topScore() : 0;
+		quitting = false;
+
+		readyTimer = new Timer();
+		nextEnemyTimer = new Timer();
+		nextEnemyTimer.start(SPAWN_TIME);
+		level = 1;
+		tick = 0;
+	}
+
+	/**
+	 * Advance the game by one tick
+	 *
+	 * @param elapsed
+	 *            time elapsed since the last tick
+	 */
+	public void tick(float elapsed) {
+
+		// Handle everything the player did since the last tick
+		processInput();
+
+		// Let the timers know how much time has passed
+		readyTimer.advance(elapsed);
+		nextEnemyTimer.advance(elapsed);
+
+		// Update all positions
+		update(elapsed);
+
+		// Only purge during the necessary game states
+		switch (gameState) {
+		case ASSUMING_POSITIONS:
+		case IN_FORMATION:
+		case DIVING:
+		case READY:
+		case NEXT_LEVEL:
+		case GAMEOVER:
+			purge();
+			gameStateTransition();
+			break;
+		default:
+			break;
+		}
+
+		// Measure how long the fighter took to act on the player's input
+		long applied = fighter.takeAppliedInput();
+		if (applied != 0) {
+			inputToSimulation.record(System.nanoTime() - applied);
+			lastInput = applied;
+		}
+
+		tick++;
+	}
+
+	/**
+	 * Advance the game by exactly one tick, with the buttons held down by the
+	 * player rather than key events. Buttons pressed or released since the
+	 * last step act as if their keys had just been pressed or released. Two
+	 * sessions created with the same seed and stepped with the same buttons
+	 * stay identical
+	 *
+	 * @param buttons
+	 *            buttons held down, one bit per {@link Button}
+	 */
+	public void step(int buttons) {
+		int changed = buttons ^ held;
+		if (changed != 0) {
+			for (Button b : BUTTONS) {
+				if ((changed & b.mask()) == 0)
+					continue;
+				if ((buttons & b.mask()) != 0)
+					keyPressed(b.key(), b.keyCode(), 0);
+				else
+					keyReleased(b.keyCode(), 0);
+			}
+			held = buttons;
+		}
+		tick(TICK_TIME * 1000);
+	}
+
+	/**
+	 * Save everything that affects how the game plays out, to be restored
+	 * later. Nothing is allocated once the saved state has seen as many
+	 * enemies and missiles as the game
+	 *
+	 * @param saved
+	 *            where to save the game
+	 */
+	public void save(Saved saved) {
+		saved.tick = tick;
+		saved.gameState = gameState;
+		saved.random = random.getState();
+		saved.held = held;
+		saved.score = score;
+		saved.scoreDisplay = scoreDisplay;
+		saved.topScore = topScore;
+		saved.newLifeScore = newLifeScore;
+		saved.level = level;
+		saved.nextSpawn = nextSpawn;
+		saved.hits = hits;
+		System.arraycopy(kills, 0, saved.kills, 0, kills.length);
+		saved.lastHitBy = lastHitBy;
+		saved.quitting = quitting;
+		saved.mainSelection = main.selectedIndex();
+		saved.postgameSelection = postgame.selectedIndex();
+		for (int i = 0; i < FrameSnapshot.NAME_LENGTH; i++)
+			saved.entryLetters[i] = nameEntry.letterAt(i);
+		saved.entrySelection = nameEntry.selectedIndex();
+		readyTimer.copyTo(saved.readyTimer);
+		nextEnemyTimer.copyTo(saved.nextEnemyTimer);
+		fighter.copyTo(saved.fighter);
+		enemies.copyTo(saved.enemies);
+		copyMissiles(fighterMissiles, saved.fighterMissiles, true);
+		copyMissiles(enemyMissiles, saved.enemyMissiles, false);
+	}
+
+	/**
+	 * Put the game back the way it was when it was saved
+	 *
+	 * @param saved
+	 *            the saved game
+	 */
+	public void restore(Saved saved) {
+		tick = saved.tick;
+		gameState = saved.gameState;
+		random.setState(saved.random);
+		held = saved.held;
+		score = saved.score;
+		scoreDisplay = saved.scoreDisplay;
+		topScore = saved.topScore;
+		newLifeScore = saved.newLifeScore;
+		level = saved.level;
+		startLevel(saved.level);
+		nextSpawn = saved.nextSpawn;
+		hits = saved.hits;
+		System.arraycopy(saved.kills, 0, kills, 0, kills.length);
+		lastHitBy = saved.lastHitBy;
+		hitQueue.clear();
+		quitting = saved.quitting;
+		main.select(saved.mainSelection);
+		postgame.select(saved.postgameSelection);
+		for (int i = 0; i < FrameSnapshot.NAME_LENGTH; i++)
+			nameEntry.setLetter(i, saved.entryLetters[i]);
+		nameEntry.select(saved.entrySelection);
+		saved.readyTimer.copyTo(readyTimer);
+		saved.nextEnemyTimer.copyTo(nextEnemyTimer);
+		saved.fighter.copyTo(fighter);
+		saved.enemies.copyTo(enemies);
+		copyMissiles(saved.fighterMissiles, fighterMissiles, true);
+		copyMissiles(saved.enemyMissiles, enemyMissiles, false);
+	}
+
+	/**
+	 * Make one list of missiles a copy of another, reusing the missiles
+	 * already in it
+	 *
+	 * @param from
+	 *            missiles to copy
+	 * @param to
+	 *            list to copy into
+	 * @param fired
+	 *            true if the missiles were fired by the fighter
+	 */
+	private static void copyMissiles(ArrayList<Missile> from,
+			ArrayList<Missile> to, boolean fired) {
+		while (to.size() > from.size())
+			to.remove(to.size() - 1);
+		while (to.size() < from.size())
+			to.add(fired ? new FighterMissile(0, 0) : new EnemyMissile(0, 0,
+					0, null));
+		for (int i = 0; i < from.size(); i++)
+			from.get(i).copyTo(to.get(i));
+	}
+
+	/**
+	 * Returns a hash of the state that decides how the game plays out, so two
+	 * cabinets can check they are still playing the same game
+	 *
+	 * @return a hash of the game state
+	 */
+	public long checksum() {
+		long h = tick;
+		h = h * 31 + gameState.ordinal();
+		h = h * 31 + random.getState();
+		h = h * 31 + score;
+		h = h * 31 + level;
+		h = h * 31 + fighter.lives();
+		h = h * 31 + Float.floatToIntBits(fighter.getX());
+		h = h * 31 + fighterMissiles.size();
+		h = h * 31 + enemyMissiles.size();
+		h = h * 31 + enemies.checksum();
+		return h;
+	}
+
+	/**
+	 * Accessor method for the input queue. Key events offered to it are handled
+	 * at the start of the next tick
+	 *
+	 * @return the input queue
+	 */
+	public InputQueue getInput() {
+		return input;
+	}
+
+	/**
+	 * Accessor method for the fighter
+	 *
+	 * @return the fighter
+	 */
+	public Fighter getFighter() {
+		return fighter;
+	}
+
+	/**
+	 * Accessor method for the highscores
+	 *
+	 * @return the highscores, or null if they could not be loaded
+	 */
+	public Highscores getHighscores() {
+		return highscores;
+	}
+
+	/**
+	 * Returns true once the player has chosen to quit
+	 *
+	 * @return true once the player has chosen to quit
+	 */
+	public boolean hasQuit() {
+		return quitting;
+	}
+
+	/**
+	 * Close the level pack, and finish saving highscores if this session
+	 * loaded them. To be called when the game shuts down
+	 */
+	public void close() {
+		if (levelPack != null) {
+			// Let a level being read finish before the file goes away
+			if (upcoming != null)
+				waitFor(upcoming, SHUTDOWN_TIMEOUT);
+			try {
+				levelPack.close();
+			} catch (IOException e) {
+				System.out.println("Error closing level pack");
+				e.printStackTrace();
+			}
+		}
+		if (highscores != null && ownsHighscores) {
+			try {
+				highscores.close();
+			} catch (InterruptedException e) {
+				System.out.println("Interrupted while saving highscores");
+			}
+		}
+	}
+
+	/**
+	 * Accessor method for the input to simulation latency
+	 *
+	 * @return delay between a key event and the end of the tick that acted on
+	 *         it
+	 */
+	public LatencyHistogram getInputToSimulation() {
+		return inputToSimulation;
+	}
+
+	/**
+	 * Handle all queued key events in the order they happened
+	 */
+	private void processInput() {
+		while (input.poll()) {
+			switch (input.type()) {
+			case KEY_PRESSED:
+				keyPressed(input.key(), input.keyCode(), input.time());
+				break;
+			case KEY_RELEASED:
+				keyReleased(input.keyCode(), input.time());
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Copies everything that needs to be drawn into the passed in snapshot
+	 *
+	 * @param snapshot
+	 *            snapshot to fill
+	 */
+	public void capture(FrameSnapshot snapshot) {
+		snapshot.begin(tick, gameState);
+		snapshot.setScore(level, score, scoreDisplay, topScore, hits);
+		snapshot.setFighter(fighter);
+		snapshot.setInputTime(lastInput);
+
+		for (int i = 0; i < fighterMissiles.size(); i++)
+			snapshot.addMissile(fighterMissiles.get(i));
+		for (int i = 0; i < enemyMissiles.size(); i++)
+			snapshot.addMissile(enemyMissiles.get(i));
+		enemies.capture(snapshot);
+
+		// The menus are drawn from the snapshot, so record what is selected
+		if (gameState == GameState.MAIN_MENU)
+			snapshot.setMenuSelection(main.selectedIndex());
+		else if (gameState == GameState.POSTGAME_MENU)
+			snapshot.setMenuSelection(postgame.selectedIndex());
+		else if (gameState == GameState.ENTER_NAME)
+			snapshot.setNameEntry(nameEntry);
+
+		// Only walk the highscores when they are on the screen
+		if (gameState == GameState.HIGHSCORE_LIST && highscores != null)
+			highscores.capture(snapshot);
+	}
+
+	/**
+	 * Move all objects
+	 *
+	 * @param elapsed
+	 *            time elapsed since the last tick
+	 */
+	private void update(float elapsed) {
+
+		switch (gameState) {
+
+		// When playing, we want everything to be updated
+		case ASSUMING_POSITIONS:
+
+			// Move the player ship
+			fighter.update(elapsed);
+
+			// Move the missiles fired by the fighter
+			for (int i = 0; i < fighterMissiles.size(); i++)
+				fighterMissiles.get(i).update(elapsed);
+
+			// Move the missiles fired by the enemies
+			for (int i = 0; i < enemyMissiles.size(); i++)
+				enemyMissiles.get(i).update(elapsed);
+
+			// Add the next enemy when its delay is up
+			spawnEnemy();
+
+			// Move the enemies
+			enemies.update(elapsed);
+
+			// Check to see if enemies have been hit
+			detectHits();
+
+			// Check to see if the player has been hit
+			detectFighterHit();
+
+			// Get points for enemies hit
+			scoreHits();
+
+			break;
+		case IN_FORMATION:
+
+			// Move the player ship
+			fighter.update(elapsed);
+
+			// Move the missiles fired by the fighter
+			for (int i = 0; i < fighterMissiles.size(); i++)
+				fighterMissiles.get(i).update(elapsed);
+
+			// Move the missiles fired by the enemies
+			for (int i = 0; i < enemyMissiles.size(); i++)
+				enemyMissiles.get(i).update(elapsed);
+
+			// Add the next enemy when its delay is up
+			spawnEnemy();
+
+			// Move the enemies
+			enemies.update(elapsed);
+
+			// Have enemies fire missiles every once in a while
+			for (int i = 0; i < enemies.size(); i++)
+				if (random.nextFloat() < 0.05f)
+					enemies.dive(i, fighter.getX(), fighter.getY());
+
+			// Check to see if enemies have been hit
+			detectHits();
+
+			// Check to see if the player has been hit
+			detectFighterHit();
+
+			// Get points for enemies hit
+			scoreHits();
+
+			break;
+		case DIVING:
+
+			// Move the player ship
+			fighter.update(elapsed);
+
+			// Move the missiles fired by the fighter
+			for (int i = 0; i < fighterMissiles.size(); i++)
+				fighterMissiles.get(i).update(elapsed);
+
+			// Move the missiles fired by the enemies
+			for (int i = 0; i < enemyMissiles.size(); i++)
+				enemyMissiles.get(i).update(elapsed);
+
+			// Add the next enemy when its delay is up
+			spawnEnemy();
+
+			// Move the enemies
+			enemies.update(elapsed);
+
+			// Have enemies fire missiles every once in a while
+			for (int i = 0; i < enemies.size(); i++)
+				if (enemies.getState(i) == EnemyState.DIVE)
+					if (random.nextFloat() < 0.05f)
+						enemyMissiles.add(enemies.shoot(i,
+								(EnemyMissile) spent(spentEnemyMissiles)));
+
+			// Check to see if enemies have been hit
+			detectHits();
+
+			// Check to see if the player has been hit
+			detectFighterHit();
+
+			// Get points for enemies hit
+			scoreHits();
+
+			break;
+
+		// When next level or ready, we want everything to be updated, but not
+		// for the fighter to be hit
+		case NEXT_LEVEL:
+
+			// Move the player ship
+			fighter.update(elapsed);
+
+		case READY:
+
+			// Move the missiles fired by the fighter
+			for (int i = 0; i < fighterMissiles.size(); i++)
+				fighterMissiles.get(i).update(elapsed);
+
+			// Move the missiles fired by the enemies
+			for (int i = 0; i < enemyMissiles.size(); i++)
+				enemyMissiles.get(i).update(elapsed);
+
+			// Move the enemies
+			enemies.update(elapsed);
+
+			// Check to see if enemies have been hit
+			detectHits();
+
+			// Get points for enemies hit
+			scoreHits();
+
+			break;
+
+		// After the player is out of lives, only update enemies and missiles
+		case GAMEOVER:
+			for (int i = 0; i < fighterMissiles.size(); i++)
+				fighterMissiles.get(i).update(elapsed);
+
+			for (int i = 0; i < enemyMissiles.size(); i++)
+				enemyMissiles.get(i).update(elapsed);
+
+			enemies.update(elapsed);
+
+			break;
+
+		default:
+			break;
+		}
+
+		// Update the score to be displayed
+		if (score != scoreDisplay) {
+			scoreDisplay += PApplet.map(score - scoreDisplay, 0, 400, 1f, 20);
+			if (scoreDisplay >= score)
+				scoreDisplay = score;
+		}
+
+		if (levelCleared()) {
+			newLevel();
+		}
+	}
+
+	/**
+	 * Checks every enemy against the fighter's missiles, and queues an event
+	 * for each hit
+	 */
+	private void detectHits() {
+		for (int i = 0; i < enemies.size(); i++)
+			for (int j = 0; j < fighterMissiles.size() && !enemies.isHit(i); j++)
+				if (enemies.detectCollision(i, fighterMissiles.get(j)))
+					hitQueue.offer(enemies, i,
+							enemies.isHit(i) ? enemies.getScore(i) : 0);
+	}
+
+	/**
+	 * Counts the hits queued this tick and awards their points, adding a life
+	 * each time enough points have been scored
+	 */
+	private void scoreHits() {
+		while (hitQueue.poll()) {
+			hits++;
+			if (hitQueue.score() == 0)
+				continue;
+
+			kills[hitQueue.type().ordinal()]++;
+			score += hitQueue.score();
+			newLifeScore += hitQueue.score();
+
+			// add a life if score is reached
+			if (newLifeScore >= NEW_LIFE_SCORE) {
+				newLifeScore -= NEW_LIFE_SCORE;
+				fighter.addLife();
+			}
+		}
+	}
+
+	/**
+	 * Checks the enemy missiles against the fighter, and remembers what fired
+	 * the one that hit it
+	 */
+	private void detectFighterHit() {
+		for (int i = 0; i < enemyMissiles.size() && !fighter.isHit(); i++) {
+			EnemyMissile missile = (EnemyMissile) enemyMissiles.get(i);
+			if (fighter.detectCollision(missile))
+				lastHitBy = missile.getShooter();
+		}
+	}
+
+	/**
+	 * Accessor method for what last hit the fighter
+	 *
+	 * @return kind of enemy whose missile last hit the fighter this game, or
+	 *         null if the fighter has not been hit
+	 */
+	public EnemyType getLastHitBy() {
+		return lastHitBy;
+	}
+
+	/**
+	 * Returns the number of enemies of a type destroyed this game
+	 *
+	 * @param type
+	 *            kind of enemy
+	 * @return the number of enemies of that type destroyed
+	 */
+	public int getKills(EnemyType type) {
+		return kills[type.ordinal()];
+	}
+
+	/**
+	 * Adds the next enemy of the level once its delay is up
+	 */
+	private void spawnEnemy() {
+		if (!allSpawned() && nextEnemyTimer.isDone()) {
+			enemies.spawn(onDeck.getSpawn(nextSpawn++));
+			if (!allSpawned())
+				nextEnemyTimer.start(onDeck.getDelay(nextSpawn));
+		}
+	}
+
+	/**
+	 * Returns true once every enemy of the level has been added
+	 *
+	 * @return true once every enemy of the level has been added
+	 */
+	private boolean allSpawned() {
+		return nextSpawn >= onDeck.count();
+	}
+
+	/**
+	 * Returns true once every enemy of the level has been added and destroyed.
+	 * A level with no enemies is never cleared: it only happens when the
+	 * level pack could not be loaded, and play never starts then
+	 *
+	 * @return true if the next level should start
+	 */
+	private boolean levelCleared() {
+		return onDeck.count() > 0 && allSpawned() && enemies.size() == 0;
+	}
+
+	/**
+	 * Remove destroyed enemies and missiles
+	 */
+	private void purge() {
+
+		// Get rid of missiles once they're outside the window
+		purgeMissiles(fighterMissiles, spentFighterMissiles);
+		purgeMissiles(enemyMissiles, spentEnemyMissiles);
+
+		// Get rid of enemies if they're destroyed
+		enemies.purge();
+
+		// Destroyed enemies left the counts when they were destroyed
+		assert enemyCounts.total() == enemies.size() : "enemy counts out of step";
+	}
+
+	/**
+	 * Removes destroyed missiles from a list, keeping the rest in order, and
+	 * keeps them to be fired again
+	 *
+	 * @param missiles
+	 *            missiles in play
+	 * @param spent
+	 *            where to keep the destroyed missiles
+	 */
+	private static void purgeMissiles(ArrayList<Missile> missiles,
+			ArrayList<Missile> spent) {
+		int kept = 0;
+		for (int i = 0; i < missiles.size(); i++) {
+			Missile m = missiles.get(i);
+			if (m.isDestroyed())
+				spent.add(m);
+			else
+				missiles.set(kept++, m);
+		}
+		while (missiles.size() > kept)
+			missiles.remove(missiles.size() - 1);
+	}
+
+	/**
+	 * Takes a destroyed missile to be fired again
+	 *
+	 * @param spent
+	 *            destroyed missiles
+	 * @return a destroyed missile, or null if there are none
+	 */
+	private static Missile spent(ArrayList<Missile> spent) {
+		return spent.isEmpty() ? null : spent.remove(spent.size() - 1);
+	}
+
+	/**
+	 * Handle game state transition
+	 */
+	private void gameStateTransition() {
+
+		// Game state switching is dependent on what state we're in
+		switch (gameState) {
+		case ASSUMING_POSITIONS:
+			// If all enemies are in formation, switch game state
+			if (allSpawned() && enemyCounts.allInFormation())
+				gameState = GameState.IN_FORMATION;
+
+			// If the fighter is destroyed, take a life and reset it
+			if (fighter.isDestroyed() && fighter.lives() > 0) {
+				gameState = GameState.READY;
+				fighter.resetPosition();
+				fighter.revive();
+				readyTimer.start(READY_TIME);
+			}
+
+			// If the fighter is destroyed with no lives left, game over
+			else if (fighter.isDestroyed())
+				gameState = GameState.GAMEOVER;
+
+			break;
+
+		case IN_FORMATION:
+			// If any enemies are diving, switch game state
+			if (enemyCounts.count(EnemyState.DIVE) > 0)
+				gameState = GameState.DIVING;
+
+			// If the fighter is destroyed, take a life and reset it
+			if (fighter.isDestroyed() && fighter.lives() > 0) {
+				gameState = GameState.READY;
+				fighter.resetPosition();
+				fighter.revive();
+				readyTimer.start(READY_TIME);
+			}
+
+			// If the fighter is destroyed with no lives left, game over
+			else if (fighter.isDestroyed())
+				gameState = GameState.GAMEOVER;
+
+			break;
+
+		case DIVING:
+			// If all enemies are in formation, switch game state
+			if (enemyCounts.allInFormation())
+				gameState = GameState.IN_FORMATION;
+
+			// If the fighter is destroyed, take a life and reset it
+			if (fighter.isDestroyed() && fighter.lives() > 0) {
+				gameState = GameState.READY;
+				fighter.resetPosition();
+				fighter.revive();
+				readyTimer.start(READY_TIME);
+			}
+
+			// If the fighter is destroyed with no lives left, game over
+			else if (fighter.isDestroyed())
+				gameState = GameState.GAMEOVER;
+
+			break;
+
+		case READY:
+			// Resume play after a short wait
+			if (readyTimer.isDone())
+				gameState = GameState.IN_FORMATION;
+
+			break;
+
+		case NEXT_LEVEL:
+			// Resume play after a short wait
+			if (readyTimer.isDone()) {
+				gameState = GameState.ASSUMING_POSITIONS;
+				if (!allSpawned())
+					nextEnemyTimer.start(onDeck.getDelay(nextSpawn));
+			}
+
+			break;
+
+		default:
+			break;
+		}
+
+		if (levelCleared()) {
+			readyTimer.start(READY_TIME);
+			newLevel();
+		}
+
+	}
+
+	/**
+	 * What do be done when the player presses keys
+	 *
+	 * @param key
+	 *            the key that was pressed
+	 * @param keyCode
+	 *            the code of the key that was pressed
+	 * @param time
+	 *            time the key was pressed, from System.nanoTime()
+	 */
+	private void keyPressed(char key, int keyCode, long time) {
+		switch (gameState) {
+
+		// Navigate the menu
+		case MAIN_MENU:
+			if (key == PConstants.CODED) {
+				switch (keyCode) {
+				case PConstants.UP:
+					main.cycle(Joystick.UP);
+					break;
+				case PConstants.DOWN:
+					main.cycle(Joystick.DOWN);
+					break;
+				case PConstants.LEFT:
+					main.cycle(Joystick.LEFT);
+					break;
+				case PConstants.RIGHT:
+					main.cycle(Joystick.RIGHT);
+					break;
+				default:
+					break;
+				}
+			} else {
+				switch (key) {
+				case ' ':
+				case PConstants.ENTER:
+					main.execute();
+					break;
+				}
+			}
+			break;
+
+		// Control the ship
+		case NEXT_LEVEL:
+		case ASSUMING_POSITIONS:
+		case IN_FORMATION:
+		case DIVING:
+			if (key == PConstants.CODED) {
+				switch (keyCode) {
+				case PConstants.LEFT:
+					fighter.push(Joystick.LEFT, time);
+					break;
+
+				case PConstants.RIGHT:
+					fighter.push(Joystick.RIGHT, time);
+					break;
+				default:
+					break;
+				}
+			} else {
+				switch (key) {
+				case ' ':
+					if (!fighter.isHit() && fighterMissiles.size() < FIGHTER_MISSILES)
+						fighterMissiles.add(fighter.shoot(time,
+								(FighterMissile) spent(spentFighterMissiles)));
+					break;
+				}
+			}
+			break;
+
+		// Go to next game state when any key is pressed
+		case GAMEOVER:
+			gameState = GameState.RESULTS;
+			break;
+
+		// Every game is ranked, but only a top three score asks for a name;
+		// the rest are recorded under the name last entered
+		case RESULTS:
+			if (checkScore())
+				gameState = GameState.ENTER_NAME;
+			else {
+				insertHighscore();
+				gameState = GameState.POSTGAME_MENU;
+			}
+			break;
+
+		// Control name entry screen
+		case ENTER_NAME:
+			if (key == PConstants.CODED) {
+				switch (keyCode) {
+				case PConstants.UP:
+					nameEntry.cycle(Joystick.UP);
+					break;
+				case PConstants.DOWN:
+					nameEntry.cycle(Joystick.DOWN);
+					break;
+				case PConstants.LEFT:
+					nameEntry.cycle(Joystick.LEFT);
+					break;
+				case PConstants.RIGHT:
+					nameEntry.cycle(Joystick.RIGHT);
+					break;
+				default:
+					break;
+				}
+			} else {
+				switch (key) {
+				case PConstants.ENTER:
+					insertHighscore();
+					gameState = GameState.POSTGAME_MENU;
+					break;
+				default:
+					nameEntry.setLetter(key);
+				}
+			}
+			break;
+
+		// Navigate the menu
+		case POSTGAME_MENU:
+			if (key == PConstants.CODED) {
+				switch (keyCode) {
+				case PConstants.UP:
+					postgame.cycle(Joystick.UP);
+					break;
+				case PConstants.DOWN:
+					postgame.cycle(Joystick.DOWN);
+					break;
+				case PConstants.LEFT:
+					postgame.cycle(Joystick.LEFT);
+					break;
+				case PConstants.RIGHT:
+					postgame.cycle(Joystick.RIGHT);
+					break;
+				default:
+					break;
+				}
+			} else {
+				switch (key) {
+				case ' ':
+				case PConstants.ENTER:
+					postgame.execute();
+					break;
+				}
+			}
+			break;
+
+		// Go back to the menu
+		case HIGHSCORE_LIST:
+			gameState = GameState.MAIN_MENU;
+
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * What to be done when the user releases keys
+	 *
+	 * @param keyCode
+	 *            the code of the key that was released
+	 * @param time
+	 *            time the key was released, from System.nanoTime()
+	 */
+	private void keyReleased(int keyCode, long time) {
+
+		switch (gameState) {
+
+		// Control the ship
+		case NEXT_LEVEL:
+		case ASSUMING_POSITIONS:
+		case IN_FORMATION:
+		case DIVING:
+		case READY:
+			if (gameState.playing() && fighter.peek() != Joystick.CENTER) {
+				switch (keyCode) {
+				case PConstants.LEFT:
+					fighter.pop(Joystick.LEFT, time);
+					break;
+
+				case PConstants.RIGHT:
+					fighter.pop(Joystick.RIGHT, time);
+					break;
+
+				default:
+					break;
+				}
+			}
+			break;
+
+		default:
+			break;
+		}
+
+	}
+
+	/**
+	 * Accessor method for the main menu
+	 *
+	 * @return the main menu
+	 */
+	public Menu getMainMenu() {
+		return main;
+	}
+
+	/**
+	 * Accessor method for the postgame menu
+	 *
+	 * @return the postgame menu
+	 */
+	public Menu getPostgameMenu() {
+		return postgame;
+	}
+
+	/**
+	 * Accessor method for the name entry
+	 *
+	 * @return the name entry
+	 */
+	public NameEntry getNameEntry() {
+		return nameEntry;
+	}
+
+	/**
+	 * Determines if the player has beaten any of the top 3 high scores, and
+	 * so gets to enter a name. Every score is recorded either way
+	 *
+	 * @return true if it the player beats a high score; false otherwise;
+	 */
+	private boolean checkScore() {
+
+		// Confirm that the player's score is 1 of the top 3
+		return highscores != null && highscores.rankOf(score) < 3;
+	}
+
+	/**
+	 * Inserts the player's name and score into the leaderboard and the
+	 * highscore file. Called for every finished game, so that every player
+	 * has a rank and a personal best
+	 */
+	private void insertHighscore() {
+
+		// First lets capitalize the playerName
+		String playerName = nameEntry.getName();
+		playerName = playerName.toUpperCase();
+
+		if (highscores != null)
+			highscores.insert(playerName, score);
+	}
+
+	/**
+	 * Start the next level
+	 */
+	private void newLevel() {
+		level++;
+		startLevel(level);
+		enemies.clear();
+
+		gameState = GameState.NEXT_LEVEL;
+		nextEnemyTimer.start(SPAWN_TIME);
+	}
+
+	/**
+	 * Make a level the one being spawned. The current level, the one before
+	 * it and the one after it are kept baked, so starting the next level or
+	 * rolling back across the start of one is only a swap. The level after
+	 * the new one is then read and baked on the level loader. Any other level
+	 * is read and baked here, which only happens when a game returns to the
+	 * first level. If the levels could not be loaded, the level is left empty
+	 *
+	 * @param number
+	 *            level number, starting at 1
+	 */
+	private void startLevel(int number) {
+		nextSpawn = 0;
+		if (levelPack == null)
+			return;
+
+		int index = levelPack.indexOf(number);
+		if (onDeck.index() != index) {
+			LevelPack.Level next;
+			if (previous.index() == index)
+				next = previous;
+			else if (upcoming != null && upcomingIndex == index) {
+				next = take(upcoming, number);
+				upcoming = null;
+			} else
+				next = load(number);
+			previous = onDeck;
+			onDeck = next;
+		}
+		enemies.reserve(onDeck.count());
+
+		// Have the next level ready before this one is cleared
+		int nextIndex = levelPack.indexOf(number + 1);
+		if (nextIndex != onDeck.index() && nextIndex != previous.index()
+				&& (upcoming == null || upcomingIndex != nextIndex)) {
+			if (upcoming != null)
+				upcoming.cancel(false);
+			upcomingIndex = nextIndex;
+			upcoming = LEVEL_LOADER.submit(new Prefetch(levelPack,
+					number + 1));
+		}
+	}
+
+	/**
+	 * Read and bake a level on this thread
+	 *
+	 * @param number
+	 *            level number, starting at 1
+	 * @return the level, or an empty level if it could not be read
+	 */
+	private LevelPack.Level load(int number) {
+		try {
+			return new Prefetch(levelPack, number).call();
+		} catch (IOException e) {
+			System.out.println("Error loading level " + number);
+			e.printStackTrace();
+			return new LevelPack.Level();
+		}
+	}
+
+	/**
+	 * Take a level from the level loader, waiting for it if it is not ready
+	 * yet, or reading it here if the loader failed
+	 *
+	 * @param future
+	 *            the level being loaded
+	 * @param number
+	 *            level number, starting at 1
+	 * @return the level, or an empty level if it could not be read
+	 */
+	private LevelPack.Level take(Future<LevelPack.Level> future, int number) {
+		if (!future.isDone())
+			System.out.println("Waiting for level " + number + " to load");
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			System.out.println("Error loading level " + number
+					+ " in the background");
+			e.getCause().printStackTrace();
+		}
+		return load(number);
+	}
+
+	/**
+	 * Wait a bounded time for a level being loaded, ignoring how it ends
+	 *
+	 * @param future
+	 *            the level being loaded
+	 * @param timeout
+	 *            longest time to wait, in milliseconds
+	 */
+	private static void waitFor(Future<LevelPack.Level> future, long timeout) {
+		try {
+			future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Nobody needs the level any more
+		} catch (TimeoutException e) {
+			System.out.println("Error: level loader still busy after "
+					+ timeout + "ms");
+		} catch (CancellationException e) {
+			// Never started
+		}
+	}
+
+	/**
+	 * Check that a session whose level pack cannot be loaded stays on the main
+	 * menu. Opens a session on an empty folder, which has neither a level
+	 * pack nor waves to compile one from, then holds start and fire for a
+	 * while. Exits with an error if play starts or the level changes
+	 *
+	 * @param args
+	 *            number of ticks to run for
+	 * @throws IOException
+	 *             if the empty folder cannot be made
+	 */
+	public static void main(String[] args) throws IOException {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+		File folder = File.createTempFile("levels", "");
+		folder.delete();
+		folder.mkdirs();
+
+		GameSession session = new GameSession(folder, 1);
+		FrameSnapshot snapshot = new FrameSnapshot();
+		int pressed = Button.START.mask() | Button.FIRE.mask();
+		for (int t = 0; t < ticks; t++) {
+			// Press and release now and then, so every press is a new one
+			session.step(t % 20 == 0 ? pressed : 0);
+			session.capture(snapshot);
+			if (snapshot.getGameState() != GameState.MAIN_MENU
+					|| snapshot.getLevel() != 1) {
+				System.out.println("Error: without levels the game went to "
+						+ snapshot.getGameState() + " on level "
+						+ snapshot.getLevel() + " after " + (t + 1)
+						+ " ticks");
+				System.exit(1);
+			}
+		}
+		session.close();
+		System.out.println("stayed on the main menu on level 1 for " + ticks
+				+ " ticks");
+	}
+
+	/**
+	 * Select action associated with Play
+	 *
+	 * @author Christopher Glasz
+	 */
+	private class Play implements SelectAction {
+		public void execute() {
+			// Without levels there is nothing to play, so stay on the menu
+			if (onDeck.count() == 0) {
+				System.out.println("Error: no levels loaded, cannot play");
+				return;
+			}
+			readyTimer.start(READY_TIME);
+			gameState = GameState.NEXT_LEVEL;
+		}
+	}
+
+	/**
+	 * Select action associated with Quit
+	 *
+	 * @author Christopher Glasz
+	 */
+	private class Quit implements SelectAction {
+		public void execute() {
+			quitting = true;
+		}
+	}
+
+	/**
+	 * Select action associated with High Scores
+	 *
+	 * @author Christopher Glasz
+	 */
+	private class HighScore implements SelectAction {
+		public void execute() {
+			gameState = GameState.HIGHSCORE_LIST;
+		}
+	}
+
+	/**
+	 * Select action associated with Return to Main Menu
+	 *
+	 * @author Christopher Glasz
+	 */
+	private class Return implements SelectAction {
+		public void execute() {
+			score = 0;
+			hits = 0;
+			hitQueue.clear();
+			for (int i = 0; i < kills.length; i++)
+				kills[i] = 0;
+			lastHitBy = null;
+			fighter = new Fighter(random);
+
+			// The next game is recorded under the same name until another
+			// is entered
+			nameEntry = new NameEntry(nameEntry.getName().toCharArray());
+
+			// Keep the missiles still in play to be fired next game
+			for (int i = 0; i < fighterMissiles.size(); i++)
+				fighterMissiles.get(i).destroy();
+			for (int i = 0; i < enemyMissiles.size(); i++)
+				enemyMissiles.get(i).destroy();
+			purgeMissiles(fighterMissiles, spentFighterMissiles);
+			purgeMissiles(enemyMissiles, spentEnemyMissiles);
+
+			enemies.clear();
+
+			gameState = GameState.MAIN_MENU;
+			level = 1;
+			startLevel(level);
+		}
+	}
+
+	/**
+	 * Reads a level from the pack and bakes it. Touches nothing but the pack
+	 * and the new level, so it can run on the level loader while the session
+	 * plays on
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Prefetch implements Callable<LevelPack.Level> {
+
+		/**
+		 * Pack to read from
+		 */
+		private final LevelPack pack;
+
+		/**
+		 * Level number, starting at 1
+		 */
+		private final int number;
+
+		/**
+		 * Constructor initializes variables
+		 *
+		 * @param pack
+		 *            pack to read from
+		 * @param number
+		 *            level number, starting at 1
+		 */
+		public Prefetch(LevelPack pack, int number) {
+			this.pack = pack;
+			this.number = number;
+		}
+
+		@Override
+		public LevelPack.Level call() throws IOException {
+			LevelPack.Level level = pack.read(number, null);
+			level.bake();
+			return level;
+		}
+	}
+
+	/**
+	 * Defines everything needed to put a game back the way it was, for
+	 * rolling back to when a late input arrives. Storage is kept between
+	 * saves, so saving every tick does not allocate in the steady state
+	 *
+	 * @author Christopher Glasz
+	 */
+	public static class Saved {
+
+		/**
+		 * Tick the game was saved on
+		 */
+		private long tick;
+
+		/**
+		 * Game state
+		 */
+		private GameState gameState;
+
+		/**
+		 * State of the random number generator
+		 */
+		private long random;
+
+		/**
+		 * Buttons held down
+		 */
+		private int held;
+
+		/**
+		 * Score board
+		 */
+		private int score, scoreDisplay, topScore, newLifeScore, level, hits;
+
+		/**
+		 * Index of the next enemy to spawn in the level
+		 */
+		private int nextSpawn;
+
+		/**
+		 * Enemies destroyed of each type
+		 */
+		private final int[] kills;
+
+		/**
+		 * Kind of enemy whose missile last hit the fighter
+		 */
+		private EnemyType lastHitBy;
+
+		/**
+		 * True once the player had chosen to quit
+		 */
+		private boolean quitting;
+
+		/**
+		 * Selected options of the menus and the name entry
+		 */
+		private int mainSelection, postgameSelection, entrySelection;
+
+		/**
+		 * Letters of the name being entered
+		 */
+		private final char[] entryLetters;
+
+		/**
+		 * Timers
+		 */
+		private final Timer readyTimer, nextEnemyTimer;
+
+		/**
+		 * The player ship
+		 */
+		private final Fighter fighter;
+
+		/**
+		 * Enemies in play
+		 */
+		private final EnemyStore enemies;
+
+		/**
+		 * Missiles in play
+		 */
+		private final ArrayList<Missile> fighterMissiles, enemyMissiles;
+
+		/**
+		 * Constructor allocates storage for a saved game
+		 */
+		public Saved() {
+			kills = new int[EnemyType.values().length];
+			entryLetters = new char[FrameSnapshot.NAME_LENGTH];
+			readyTimer = new Timer();
+			nextEnemyTimer = new Timer();
+			fighter = new Fighter(new GameRandom(0));
+			enemies = new EnemyStore(0);
+			fighterMissiles = new ArrayList<Missile>();
+			enemyMissiles = new ArrayList<Missile>();
+		}
+
+		/**
+		 * Accessor method for the tick
+		 *
+		 * @return tick the game was saved on
+		 */
+		public long getTick() {
+			return tick;
+		}
+	}
+}
@@ -87,13 +87,19 @@ public enum GameState {
 	 */
 	HIGHSCORE_LIST;
 
+	/**
+	 * Every game state, in order, so that stepping through them does not
+	 * copy the array values() returns
+	 */
+	private static final GameState[] VALUES = values();
+
 	/**
 	 * Returns the next game state in the cycle
 	 * 
 	 * @return the next game state in the cycle
 	 */
 	public GameState getNext() {
-		return values()[(ordinal() + 1) % values().length];
+		return VALUES[(ordinal() + 1) % VALUES.length];
 	}
 
 	/**
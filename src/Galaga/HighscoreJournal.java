@@ -0,0 +1,423 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Defines an append-only journal of highscores set since the
+ * {@link HighscoreStore} was last compacted. Saving a score is a single
+ * fixed-size record appended to the end of the file. On startup the journal
+ * is replayed over the store, and once it grows past a limit its records are
+ * merged into the store and the journal starts again empty.
+ * <p>
+ * The header names the store generation the journal was started against. The
+ * journal is only ever restarted after its records have been committed to the
+ * store, so a journal older than the store is already merged and is thrown
+ * away, and a torn header can only belong to a journal that was being
+ * restarted. A record torn by a crash fails its checksum, and it and anything
+ * after it are dropped.
+ * <p>
+ * File layout: a header, then records. A header is magic, version, store
+ * generation and a CRC32 of the above. A record is the name, the score, the
+ * time it was set and a CRC32 of the above.
+ *
+ * @author Christopher Glasz
+ */
+public class HighscoreJournal {
+
+	/**
+	 * Identifies a highscore journal
+	 */
+	private static final int MAGIC = 0x474c474a;
+
+	/**
+	 * Version of the file layout
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Size of the header in bytes
+	 */
+	private static final int HEADER_SIZE = 32;
+
+	/**
+	 * Size of a record in bytes: name, score, timestamp and checksum
+	 */
+	private static final int RECORD_SIZE = HighscoreStore.NAME_SIZE + 4 + 8 + 4;
+
+	/**
+	 * Offsets of the fields within the header
+	 */
+	private static final int H_MAGIC = 0, H_VERSION = 4, H_GENERATION = 8,
+			H_CRC = 16;
+
+	/**
+	 * Offsets of the fields within a record
+	 */
+	private static final int R_SCORE = HighscoreStore.NAME_SIZE,
+			R_TIME = HighscoreStore.NAME_SIZE + 4,
+			R_CRC = HighscoreStore.NAME_SIZE + 12;
+
+	/**
+	 * The open file
+	 */
+	private final RandomAccessFile file;
+
+	/**
+	 * Channel of the open file
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Store generation the journal was started against
+	 */
+	private long generation;
+
+	/**
+	 * Size of the file in bytes
+	 */
+	private long size;
+
+	/**
+	 * Number of records
+	 */
+	private int count;
+
+	/**
+	 * Names of the players, in the order they were appended
+	 */
+	private String[] names;
+
+	/**
+	 * Scores, in the order they were appended
+	 */
+	private int[] scores;
+
+	/**
+	 * Times the scores were set, in the order they were appended
+	 */
+	private long[] timestamps;
+
+	/**
+	 * Buffer a record or header is built in
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Checksum of records and the header
+	 */
+	private final CRC32 crc;
+
+	/**
+	 * Opens the journal, creating it if it does not exist, and replays every
+	 * intact record
+	 *
+	 * @param path
+	 *            location of the file
+	 * @param generation
+	 *            generation of the store the journal belongs to
+	 * @throws IOException
+	 *             if the file cannot be opened or read
+	 */
+	public HighscoreJournal(File path, long generation) throws IOException {
+		crc = new CRC32();
+		buffer = ByteBuffer.allocate(RECORD_SIZE);
+		names = new String[16];
+		scores = new int[16];
+		timestamps = new long[16];
+
+		if (!path.exists() && path.getParentFile() != null)
+			path.getParentFile().mkdirs();
+
+		file = new RandomAccessFile(path, "rw");
+		channel = file.getChannel();
+
+		if (!replay(generation))
+			reset(generation);
+	}
+
+	/**
+	 * Reads the header and every intact record. A journal that is torn, from
+	 * another format, or already merged into the store is not replayed
+	 *
+	 * @param storeGeneration
+	 *            generation of the store the journal belongs to
+	 * @return true if the journal was replayed
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private boolean replay(long storeGeneration) throws IOException {
+		long length = channel.size();
+		if (length < HEADER_SIZE)
+			return false;
+
+		ByteBuffer contents = ByteBuffer.allocate((int) length);
+		while (contents.hasRemaining()
+				&& channel.read(contents, contents.position()) > 0)
+			;
+
+		if (contents.getInt(H_MAGIC) != MAGIC
+				|| contents.getInt(H_VERSION) != VERSION
+				|| contents.getInt(H_CRC) != checksum(contents, 0, H_CRC))
+			return false;
+
+		// Merged into the store by a compaction that did not get to restart
+		// the journal
+		generation = contents.getLong(H_GENERATION);
+		if (generation < storeGeneration)
+			return false;
+
+		count = 0;
+		int at = HEADER_SIZE;
+		while (at + RECORD_SIZE <= length
+				&& contents.getInt(at + R_CRC) == checksum(contents, at, R_CRC)) {
+			add(readName(contents, at), contents.getInt(at + R_SCORE),
+					contents.getLong(at + R_TIME));
+			at += RECORD_SIZE;
+		}
+
+		// Drop a torn tail so the next record lands where it belongs
+		size = at;
+		if (size < length)
+			channel.truncate(size);
+		return true;
+	}
+
+	/**
+	 * Appends a score to the end of the journal. The record is not
+	 * necessarily on disk until {@link #sync()} is called
+	 *
+	 * @param name
+	 *            name of the player
+	 * @param score
+	 *            score
+	 * @param timestamp
+	 *            time the score was set, in milliseconds since the epoch
+	 * @throws IOException
+	 *             if the record could not be written
+	 */
+	public void append(String name, int score, long timestamp)
+			throws IOException {
+		buffer.clear();
+		for (int i = 0; i < HighscoreStore.NAME_SIZE; i++) {
+			char c = i < name.length() ? name.charAt(i) : 0;
+			buffer.put(i, (byte) (c < 128 ? c : '?'));
+		}
+		buffer.putInt(R_SCORE, score);
+		buffer.putLong(R_TIME, timestamp);
+		buffer.putInt(R_CRC, checksum(buffer, 0, R_CRC));
+		write(size);
+
+		size += RECORD_SIZE;
+		add(name, score, timestamp);
+	}
+
+	/**
+	 * Flushes every appended record to disk
+	 *
+	 * @throws IOException
+	 *             if the records could not be flushed
+	 */
+	public void sync() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Empties the journal. Must only be called once every record has been
+	 * committed to the store
+	 *
+	 * @param storeGeneration
+	 *            generation of the store that now holds every record
+	 * @throws IOException
+	 *             if the journal could not be emptied
+	 */
+	public void reset(long storeGeneration) throws IOException {
+		buffer.clear();
+		for (int i = 0; i < RECORD_SIZE; i++)
+			buffer.put(i, (byte) 0);
+		buffer.putInt(H_MAGIC, MAGIC);
+		buffer.putInt(H_VERSION, VERSION);
+		buffer.putLong(H_GENERATION, storeGeneration);
+		buffer.putInt(H_CRC, checksum(buffer, 0, H_CRC));
+
+		// Header first, so a crash before the truncate still marks the old
+		// records as merged
+		write(0);
+		channel.force(false);
+		channel.truncate(HEADER_SIZE);
+		channel.force(false);
+
+		generation = storeGeneration;
+		size = HEADER_SIZE;
+		count = 0;
+	}
+
+	/**
+	 * Closes the file
+	 *
+	 * @throws IOException
+	 *             if the file could not be closed
+	 */
+	public void close() throws IOException {
+		channel.force(false);
+		file.close();
+	}
+
+	/**
+	 * Accessor method for the number of records
+	 *
+	 * @return number of records
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Accessor method for the size of the file
+	 *
+	 * @return size of the file in bytes
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Accessor method for the generation
+	 *
+	 * @return store generation the journal was started against
+	 */
+	public long generation() {
+		return generation;
+	}
+
+	/**
+	 * Returns the name of a record
+	 *
+	 * @param i
+	 *            index of the record, in the order they were appended
+	 * @return the name of the player
+	 */
+	public String getName(int i) {
+		return names[checkIndex(i)];
+	}
+
+	/**
+	 * Returns the score of a record
+	 *
+	 * @param i
+	 *            index of the record, in the order they were appended
+	 * @return the score
+	 */
+	public int getScore(int i) {
+		return scores[checkIndex(i)];
+	}
+
+	/**
+	 * Returns the time a record was set
+	 *
+	 * @param i
+	 *            index of the record, in the order they were appended
+	 * @return the time the score was set, in milliseconds since the epoch
+	 */
+	public long getTimestamp(int i) {
+		return timestamps[checkIndex(i)];
+	}
+
+	/**
+	 * Throws if the passed in index is out of range
+	 *
+	 * @param i
+	 *            index to check
+	 * @return the index
+	 */
+	private int checkIndex(int i) {
+		if (i < 0 || i >= count)
+			throw new IndexOutOfBoundsException("record " + i + " of " + count);
+		return i;
+	}
+
+	/**
+	 * Keeps a record in memory, growing the arrays if needed
+	 *
+	 * @param name
+	 *            name of the player
+	 * @param score
+	 *            score
+	 * @param timestamp
+	 *            time the score was set
+	 */
+	private void add(String name, int score, long timestamp) {
+		if (count == names.length) {
+			String[] n = new String[count * 2];
+			int[] s = new int[count * 2];
+			long[] t = new long[count * 2];
+			System.arraycopy(names, 0, n, 0, count);
+			System.arraycopy(scores, 0, s, 0, count);
+			System.arraycopy(timestamps, 0, t, 0, count);
+			names = n;
+			scores = s;
+			timestamps = t;
+		}
+		names[count] = name;
+		scores[count] = score;
+		timestamps[count] = timestamp;
+		count++;
+	}
+
+	/**
+	 * Writes the whole buffer at the given position
+	 *
+	 * @param position
+	 *            offset in the file
+	 * @throws IOException
+	 *             if the buffer could not be written
+	 */
+	private void write(long position) throws IOException {
+		buffer.position(0);
+		buffer.limit(RECORD_SIZE);
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+	}
+
+	/**
+	 * Reads the name of the record at the given offset
+	 *
+	 * @param buf
+	 *            buffer holding the record
+	 * @param at
+	 *            offset of the record
+	 * @return the name of the player
+	 */
+	private static String readName(ByteBuffer buf, int at) {
+		StringBuilder name = new StringBuilder(HighscoreStore.NAME_SIZE);
+		for (int i = 0; i < HighscoreStore.NAME_SIZE; i++) {
+			byte b = buf.get(at + i);
+			if (b == 0)
+				break;
+			name.append((char) b);
+		}
+		return name.toString();
+	}
+
+	/**
+	 * Computes the CRC32 of a run of bytes
+	 *
+	 * @param buf
+	 *            buffer holding the bytes
+	 * @param at
+	 *            offset of the first byte
+	 * @param length
+	 *            number of bytes
+	 * @return the CRC32 of the bytes
+	 */
+	private int checksum(ByteBuffer buf, int at, int length) {
+		crc.reset();
+		for (int i = 0; i < length; i++)
+			crc.update(buf.get(at + i));
+		return (int) crc.getValue();
+	}
+}
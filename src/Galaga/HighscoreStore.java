@@ -0,0 +1,598 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Defines a binary highscore file of fixed-size records, sorted by descending
+ * score and accessed through a memory map. Reading any rank is a single
+ * indexed read, and finding where a score belongs is a binary search.
+ * <p>
+ * The file holds two copies of the table, each with its own header. A change
+ * is always written into the copy that is not in use, flushed to disk, and
+ * only then made current by writing that copy's header with a newer
+ * generation. A crash part way through a change therefore leaves the previous
+ * copy intact, and a torn header or record is caught by its checksum.
+ * <p>
+ * File layout: header A, header B, records A, records B. A header is magic,
+ * version, generation, count, capacity, sort order and a CRC32 of the above.
+ * A record is the name, the score, the time it was set and a CRC32 of the
+ * above.
+ * <p>
+ * The capacity is fixed when the file is created. A table that outgrows it is
+ * moved to a new file of twice the size by {@link #grow}, so the only bound on
+ * the number of records is the disk: each one takes {@value #RECORD_SIZE}
+ * bytes in each copy.
+ *
+ * @author Christopher Glasz
+ */
+public class HighscoreStore {
+
+	/**
+	 * Identifies a highscore file
+	 */
+	private static final int MAGIC = 0x474c4741;
+
+	/**
+	 * Version of the file layout
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The only sort order currently written: descending by score, ties in the
+	 * order they were set
+	 */
+	public static final int ORDER_SCORE_DESCENDING = 0;
+
+	/**
+	 * Size of a header in bytes
+	 */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * Number of bytes reserved for a name
+	 */
+	public static final int NAME_SIZE = 16;
+
+	/**
+	 * Size of a record in bytes: name, score, timestamp and checksum
+	 */
+	private static final int RECORD_SIZE = NAME_SIZE + 4 + 8 + 4;
+
+	/**
+	 * Offsets of fields within a header
+	 */
+	private static final int H_MAGIC = 0, H_VERSION = 4, H_GENERATION = 8,
+			H_COUNT = 16, H_CAPACITY = 20, H_ORDER = 24, H_CRC = 28;
+
+	/**
+	 * Offsets of fields within a record
+	 */
+	private static final int R_SCORE = NAME_SIZE, R_TIME = NAME_SIZE + 4,
+			R_CRC = NAME_SIZE + 12;
+
+	/**
+	 * Location of the file
+	 */
+	private final File path;
+
+	/**
+	 * Underlying file
+	 */
+	private final RandomAccessFile file;
+
+	/**
+	 * Memory map of the whole file
+	 */
+	private final MappedByteBuffer map;
+
+	/**
+	 * Maximum number of records per copy
+	 */
+	private final int capacity;
+
+	/**
+	 * Copy currently in use, 0 or 1
+	 */
+	private int active;
+
+	/**
+	 * Generation of the copy in use
+	 */
+	private long generation;
+
+	/**
+	 * Number of records in the copy in use
+	 */
+	private int count;
+
+	/**
+	 * Checksum calculator
+	 */
+	private final CRC32 crc;
+
+	/**
+	 * Scratch space for checksums and names
+	 */
+	private final byte[] scratch;
+
+	/**
+	 * Opens the highscore file, creating it if it does not exist
+	 *
+	 * @param path
+	 *            location of the file
+	 * @param capacity
+	 *            maximum number of records to keep when creating the file;
+	 *            ignored if the file already exists
+	 * @throws IOException
+	 *             if the file cannot be opened or mapped
+	 */
+	public HighscoreStore(File path, int capacity) throws IOException {
+		this.path = path;
+		crc = new CRC32();
+		scratch = new byte[RECORD_SIZE];
+
+		boolean exists = path.exists() && path.length() >= 2 * HEADER_SIZE;
+		if (!exists && path.getParentFile() != null)
+			path.getParentFile().mkdirs();
+
+		file = new RandomAccessFile(path, "rw");
+
+		// Take the capacity from the file if it already has a valid header
+		if (exists) {
+			ByteBuffer head = ByteBuffer.allocate(2 * HEADER_SIZE);
+			file.getChannel().read(head, 0);
+			int found = -1;
+			for (int copy = 0; copy < 2 && found < 0; copy++)
+				if (validHeader(head, copy * HEADER_SIZE))
+					found = head.getInt(copy * HEADER_SIZE + H_CAPACITY);
+			if (found > 0)
+				capacity = found;
+			else
+				exists = false;
+		}
+		this.capacity = capacity;
+
+		long size = 2L * HEADER_SIZE + 2L * capacity * RECORD_SIZE;
+		if (file.length() < size)
+			file.setLength(size);
+		map = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+		if (!exists || !recover()) {
+			// Start from an empty table
+			active = 0;
+			generation = 0;
+			count = 0;
+			writeHeader(0, 1, 0);
+			map.force();
+			generation = 1;
+		}
+	}
+
+	/**
+	 * Picks the newest copy whose header and records are all intact
+	 *
+	 * @return true if an intact copy was found
+	 */
+	private boolean recover() {
+		int best = -1;
+		long bestGeneration = -1;
+		for (int copy = 0; copy < 2; copy++) {
+			int at = copy * HEADER_SIZE;
+			if (!validHeader(map, at) || map.getInt(at + H_CAPACITY) != capacity)
+				continue;
+			long g = map.getLong(at + H_GENERATION);
+			if (g > bestGeneration && validRecords(copy, map.getInt(at + H_COUNT))) {
+				best = copy;
+				bestGeneration = g;
+			}
+		}
+
+		if (best < 0)
+			return false;
+
+		active = best;
+		generation = bestGeneration;
+		count = map.getInt(best * HEADER_SIZE + H_COUNT);
+		return true;
+	}
+
+	/**
+	 * Accessor method for the number of records
+	 *
+	 * @return number of records
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Accessor method for the capacity
+	 *
+	 * @return maximum number of records kept
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Accessor method for the generation
+	 *
+	 * @return generation of the copy in use, which grows with every change
+	 */
+	public long generation() {
+		return generation;
+	}
+
+	/**
+	 * Returns the name at the given rank
+	 *
+	 * @param rank
+	 *            rank, starting at 0 for the highest score
+	 * @return the name at the given rank
+	 */
+	public String getName(int rank) {
+		int at = recordOffset(active, checkRank(rank));
+		int length = 0;
+		while (length < NAME_SIZE && map.get(at + length) != 0) {
+			scratch[length] = map.get(at + length);
+			length++;
+		}
+		try {
+			return new String(scratch, 0, length, "US-ASCII");
+		} catch (java.io.UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the score at the given rank
+	 *
+	 * @param rank
+	 *            rank, starting at 0 for the highest score
+	 * @return the score at the given rank
+	 */
+	public int getScore(int rank) {
+		return map.getInt(recordOffset(active, checkRank(rank)) + R_SCORE);
+	}
+
+	/**
+	 * Returns the time the score at the given rank was set
+	 *
+	 * @param rank
+	 *            rank, starting at 0 for the highest score
+	 * @return time the score was set, in milliseconds since the epoch
+	 */
+	public long getTimestamp(int rank) {
+		return map.getLong(recordOffset(active, checkRank(rank)) + R_TIME);
+	}
+
+	/**
+	 * Returns the entry at the given rank
+	 *
+	 * @param rank
+	 *            rank, starting at 0 for the highest score
+	 * @return the entry at the given rank
+	 */
+	public HighscoreEntry get(int rank) {
+		return new HighscoreEntry(getName(rank), getScore(rank));
+	}
+
+	/**
+	 * Returns the rank a new score would be inserted at. Scores equal to an
+	 * existing one rank below it
+	 *
+	 * @param score
+	 *            score to rank
+	 * @return the rank the score would take, which is the count if it ranks
+	 *         last
+	 */
+	public int rankOf(int score) {
+		int lo = 0, hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (getScore(mid) >= score)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Inserts a score, dropping the lowest one if the table is full. The
+	 * change is on disk when this method returns
+	 *
+	 * @param name
+	 *            name of the player
+	 * @param score
+	 *            score
+	 * @param timestamp
+	 *            time the score was set, in milliseconds since the epoch
+	 * @return the rank the score was inserted at, or -1 if it did not make the
+	 *         table
+	 * @throws IOException
+	 *             if the change could not be written
+	 */
+	public int insert(String name, int score, long timestamp)
+			throws IOException {
+		int rank = rankOf(score);
+		if (rank >= capacity)
+			return -1;
+
+		int spare = 1 - active;
+		int kept = Math.min(count, capacity - 1);
+
+		// Everything above the new score keeps its rank
+		copyRecords(active, 0, spare, 0, rank);
+
+		// The new score
+		writeRecord(spare, rank, name, score, timestamp);
+
+		// Everything below it moves down one, dropping off the end if full
+		copyRecords(active, rank, spare, rank + 1, kept - rank);
+
+		commit(spare, kept + 1);
+		return rank;
+	}
+
+	/**
+	 * Replaces every record with the passed in entries, which must already be
+	 * sorted by descending score. Entries past the capacity are dropped, so
+	 * callers with more entries than that use {@link #grow} instead. The
+	 * change is on disk when this method returns
+	 *
+	 * @param names
+	 *            names of the players
+	 * @param scores
+	 *            scores
+	 * @param timestamps
+	 *            times the scores were set, in milliseconds since the epoch
+	 * @param length
+	 *            number of entries to take from the arrays
+	 * @throws IOException
+	 *             if the change could not be written
+	 */
+	public void replaceAll(String[] names, int[] scores, long[] timestamps,
+			int length) throws IOException {
+		int spare = 1 - active;
+		int n = Math.min(length, capacity);
+		for (int i = 0; i < n; i++)
+			writeRecord(spare, i, names[i], scores[i], timestamps[i]);
+		commit(spare, n);
+	}
+
+	/**
+	 * Replaces every record with the passed in entries in a new file with room
+	 * for all of them, and puts it in place of this one. The new file is
+	 * written and flushed beside this one and then renamed over it, so a crash
+	 * part way through leaves this file as it was. The new table is given the
+	 * generation this one would have had after a {@link #replaceAll}, so a
+	 * journal started against this file is still seen as stale. This store is
+	 * closed, and the returned one must be used in its place
+	 *
+	 * @param names
+	 *            names of the players
+	 * @param scores
+	 *            scores
+	 * @param timestamps
+	 *            times the scores were set, in milliseconds since the epoch
+	 * @param length
+	 *            number of entries to take from the arrays
+	 * @return the store holding the entries
+	 * @throws IOException
+	 *             if the new file could not be written or put in place
+	 */
+	public HighscoreStore grow(String[] names, int[] scores,
+			long[] timestamps, int length) throws IOException {
+		int newCapacity = 2 * capacity;
+		while (newCapacity < length)
+			newCapacity *= 2;
+		File temp = new File(path.getPath() + ".tmp");
+		temp.delete();
+
+		HighscoreStore bigger = new HighscoreStore(temp, newCapacity);
+		bigger.generation = generation;
+		bigger.replaceAll(names, scores, timestamps, length);
+		bigger.close();
+		close();
+
+		// Some platforms will not rename over an existing file
+		if (!temp.renameTo(path) && !(path.delete() && temp.renameTo(path)))
+			throw new IOException("Could not replace " + path + " with "
+					+ temp);
+		return new HighscoreStore(path, newCapacity);
+	}
+
+	/**
+	 * Flushes the spare copy to disk and makes it the one in use
+	 *
+	 * @param spare
+	 *            copy to make current
+	 * @param newCount
+	 *            number of records in that copy
+	 * @throws IOException
+	 *             if the change could not be written
+	 */
+	private void commit(int spare, int newCount) throws IOException {
+		// Records first, so the header never points at unwritten data
+		map.force();
+		writeHeader(spare, generation + 1, newCount);
+		map.force();
+
+		active = spare;
+		generation++;
+		count = newCount;
+	}
+
+	/**
+	 * Closes the file
+	 *
+	 * @throws IOException
+	 *             if the file could not be closed
+	 */
+	public void close() throws IOException {
+		map.force();
+		file.close();
+	}
+
+	/**
+	 * Throws if the rank is out of range
+	 *
+	 * @param rank
+	 *            rank to check
+	 * @return the rank
+	 */
+	private int checkRank(int rank) {
+		if (rank < 0 || rank >= count)
+			throw new IndexOutOfBoundsException("rank " + rank + " of "
+					+ count);
+		return rank;
+	}
+
+	/**
+	 * Returns the offset of a record in the file
+	 *
+	 * @param copy
+	 *            copy the record is in
+	 * @param rank
+	 *            rank of the record
+	 * @return offset of the record
+	 */
+	private int recordOffset(int copy, int rank) {
+		return 2 * HEADER_SIZE + (copy * capacity + rank) * RECORD_SIZE;
+	}
+
+	/**
+	 * Copies a run of records from one copy to the other
+	 *
+	 * @param from
+	 *            copy to read from
+	 * @param fromRank
+	 *            first rank to read
+	 * @param to
+	 *            copy to write to
+	 * @param toRank
+	 *            first rank to write
+	 * @param length
+	 *            number of records
+	 */
+	private void copyRecords(int from, int fromRank, int to, int toRank,
+			int length) {
+		if (length <= 0)
+			return;
+		ByteBuffer src = map.duplicate();
+		src.position(recordOffset(from, fromRank));
+		src.limit(recordOffset(from, fromRank + length));
+		ByteBuffer dst = map.duplicate();
+		dst.position(recordOffset(to, toRank));
+		dst.put(src);
+	}
+
+	/**
+	 * Writes one record
+	 *
+	 * @param copy
+	 *            copy to write to
+	 * @param rank
+	 *            rank to write
+	 * @param name
+	 *            name of the player
+	 * @param score
+	 *            score
+	 * @param timestamp
+	 *            time the score was set
+	 */
+	private void writeRecord(int copy, int rank, String name, int score,
+			long timestamp) {
+		int at = recordOffset(copy, rank);
+		for (int i = 0; i < NAME_SIZE; i++) {
+			char c = i < name.length() ? name.charAt(i) : 0;
+			map.put(at + i, (byte) (c < 128 ? c : '?'));
+		}
+		map.putInt(at + R_SCORE, score);
+		map.putLong(at + R_TIME, timestamp);
+		map.putInt(at + R_CRC, checksum(map, at, R_CRC));
+	}
+
+	/**
+	 * Writes the header of a copy
+	 *
+	 * @param copy
+	 *            copy to write the header of
+	 * @param newGeneration
+	 *            generation of the copy
+	 * @param newCount
+	 *            number of records in the copy
+	 */
+	private void writeHeader(int copy, long newGeneration, int newCount) {
+		int at = copy * HEADER_SIZE;
+		map.putInt(at + H_MAGIC, MAGIC);
+		map.putInt(at + H_VERSION, VERSION);
+		map.putLong(at + H_GENERATION, newGeneration);
+		map.putInt(at + H_COUNT, newCount);
+		map.putInt(at + H_CAPACITY, capacity);
+		map.putInt(at + H_ORDER, ORDER_SCORE_DESCENDING);
+		map.putInt(at + H_CRC, checksum(map, at, H_CRC));
+	}
+
+	/**
+	 * Returns true if the header at the given offset is intact
+	 *
+	 * @param buf
+	 *            buffer holding the header
+	 * @param at
+	 *            offset of the header
+	 * @return true if the header is intact
+	 */
+	private boolean validHeader(ByteBuffer buf, int at) {
+		return buf.getInt(at + H_MAGIC) == MAGIC
+				&& buf.getInt(at + H_VERSION) == VERSION
+				&& buf.getInt(at + H_ORDER) == ORDER_SCORE_DESCENDING
+				&& buf.getInt(at + H_CRC) == checksum(buf, at, H_CRC);
+	}
+
+	/**
+	 * Returns true if every record in a copy is intact
+	 *
+	 * @param copy
+	 *            copy to check
+	 * @param n
+	 *            number of records in the copy
+	 * @return true if every record is intact
+	 */
+	private boolean validRecords(int copy, int n) {
+		if (n < 0 || n > capacity)
+			return false;
+		for (int rank = 0; rank < n; rank++) {
+			int at = recordOffset(copy, rank);
+			if (map.getInt(at + R_CRC) != checksum(map, at, R_CRC))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the CRC32 of a run of bytes
+	 *
+	 * @param buf
+	 *            buffer holding the bytes
+	 * @param at
+	 *            offset of the first byte
+	 * @param length
+	 *            number of bytes
+	 * @return the CRC32 of the bytes
+	 */
+	private int checksum(ByteBuffer buf, int at, int length) {
+		for (int i = 0; i < length; i++)
+			scratch[i] = buf.get(at + i);
+		crc.reset();
+		crc.update(scratch, 0, length);
+		return (int) crc.getValue();
+	}
+}
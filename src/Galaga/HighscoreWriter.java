@@ -0,0 +1,300 @@
+package Galaga;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saves highscores on a background thread, so neither the simulation nor the
+ * event thread ever waits on the disk. New scores are queued and appended to
+ * the {@link HighscoreJournal}, and every score that arrives while a write is
+ * in progress goes into the next append, so a burst of scores costs a single
+ * flush. Once the journal grows past {@link #HIGHSCORE_JOURNAL_LIMIT} it is
+ * compacted into the {@link HighscoreStore}, which commits atomically
+ *
+ * @author Christopher Glasz
+ */
+public class HighscoreWriter extends Thread implements ApplicationConstants {
+
+	/**
+	 * The highscore file, replaced by a larger one whenever it fills up. Only
+	 * touched by this thread once it has started
+	 */
+	private HighscoreStore store;
+
+	/**
+	 * Scores set since the highscore file was last compacted. Only touched by
+	 * this thread once it has started
+	 */
+	private final HighscoreJournal journal;
+
+	/**
+	 * Scores waiting to be written
+	 */
+	private final LinkedBlockingQueue<Pending> queue;
+
+	/**
+	 * Number of scores queued but not yet on disk
+	 */
+	private final AtomicInteger pending;
+
+	/**
+	 * Time taken by the last write, including flushing it to disk, in
+	 * nanoseconds
+	 */
+	private volatile long lastSyncNanos;
+
+	/**
+	 * Number of writes done so far
+	 */
+	private volatile int writes;
+
+	/**
+	 * Number of times the journal has been compacted
+	 */
+	private volatile int compactions;
+
+	/**
+	 * Marker put on the queue to stop the thread
+	 */
+	private final Pending stop;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param store
+	 *            the highscore file to compact into
+	 * @param journal
+	 *            the journal to append to
+	 */
+	public HighscoreWriter(HighscoreStore store, HighscoreJournal journal) {
+		super("Highscore writer");
+		this.store = store;
+		this.journal = journal;
+		this.queue = new LinkedBlockingQueue<Pending>();
+		this.pending = new AtomicInteger();
+		this.stop = new Pending(null, 0, 0);
+		setDaemon(true);
+	}
+
+	/**
+	 * Queues a score to be saved. Returns immediately
+	 *
+	 * @param name
+	 *            name of the player
+	 * @param score
+	 *            score
+	 * @param timestamp
+	 *            time the score was set, in milliseconds since the epoch
+	 */
+	public void submit(String name, int score, long timestamp) {
+		pending.incrementAndGet();
+		queue.add(new Pending(name, score, timestamp));
+	}
+
+	/**
+	 * Accessor method for the number of pending writes
+	 *
+	 * @return number of scores queued but not yet on disk
+	 */
+	public int pending() {
+		return pending.get();
+	}
+
+	/**
+	 * Accessor method for the time taken by the last write
+	 *
+	 * @return time taken by the last write, including flushing it to disk, in
+	 *         nanoseconds
+	 */
+	public long lastSyncNanos() {
+		return lastSyncNanos;
+	}
+
+	/**
+	 * Accessor method for the number of writes
+	 *
+	 * @return number of writes done so far
+	 */
+	public int writes() {
+		return writes;
+	}
+
+	/**
+	 * Accessor method for the number of compactions
+	 *
+	 * @return number of times the journal has been compacted
+	 */
+	public int compactions() {
+		return compactions;
+	}
+
+	/**
+	 * Writes every queued score, then stops the thread and closes the files.
+	 * Waits at most {@link #SHUTDOWN_TIMEOUT} for the writes, so a stalled
+	 * disk cannot hang the game on exit; a writer still busy after that is
+	 * abandoned, and the scores it had not written are lost
+	 *
+	 * @return true if every score was written and the files closed in time
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the writes to finish
+	 */
+	public boolean close() throws InterruptedException {
+		queue.add(stop);
+		join(SHUTDOWN_TIMEOUT);
+		if (isAlive()) {
+			System.out.println("Error: highscore writer still busy after "
+					+ SHUTDOWN_TIMEOUT + "ms, abandoning " + pending()
+					+ " unsaved scores");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Wait for scores and write them until stopped
+	 */
+	@Override
+	public void run() {
+		ArrayList<Pending> batch = new ArrayList<Pending>();
+		boolean running = true;
+
+		while (running) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			// Everything that queued up behind the first score goes in the
+			// same write
+			queue.drainTo(batch);
+			if (batch.remove(stop))
+				running = false;
+
+			if (!batch.isEmpty()) {
+				long start = System.nanoTime();
+				try {
+					write(batch);
+				} catch (IOException e) {
+					System.out.println("Error saving highscores to file");
+					e.printStackTrace();
+				}
+				lastSyncNanos = System.nanoTime() - start;
+				writes++;
+				pending.addAndGet(-batch.size());
+			}
+			batch.clear();
+		}
+
+		try {
+			journal.close();
+			store.close();
+		} catch (IOException e) {
+			System.out.println("Error closing highscore file");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Appends a batch of scores to the journal with a single flush, compacting
+	 * the journal if it has grown too large
+	 *
+	 * @param batch
+	 *            scores to write
+	 * @throws IOException
+	 *             if the scores could not be written
+	 */
+	private void write(ArrayList<Pending> batch) throws IOException {
+		for (Pending p : batch)
+			journal.append(p.name, p.score, p.timestamp);
+		journal.sync();
+
+		if (journal.size() > HIGHSCORE_JOURNAL_LIMIT)
+			compact();
+	}
+
+	/**
+	 * Merges the journal into the stored table, commits it, and empties the
+	 * journal. The table is moved to a larger file if it is full
+	 *
+	 * @throws IOException
+	 *             if the table or the journal could not be written
+	 */
+	private void compact() throws IOException {
+		int n = store.count();
+		String[] names = new String[n + journal.count()];
+		int[] scores = new int[names.length];
+		long[] timestamps = new long[names.length];
+		for (int i = 0; i < n; i++) {
+			names[i] = store.getName(i);
+			scores[i] = store.getScore(i);
+			timestamps[i] = store.getTimestamp(i);
+		}
+
+		for (int j = 0; j < journal.count(); j++) {
+			// Equal scores rank below the ones already there
+			int score = journal.getScore(j);
+			int at = n;
+			while (at > 0 && scores[at - 1] < score)
+				at--;
+			System.arraycopy(names, at, names, at + 1, n - at);
+			System.arraycopy(scores, at, scores, at + 1, n - at);
+			System.arraycopy(timestamps, at, timestamps, at + 1, n - at);
+			names[at] = journal.getName(j);
+			scores[at] = score;
+			timestamps[at] = journal.getTimestamp(j);
+			n++;
+		}
+
+		// The journal is only emptied once the table holding its scores is
+		// on disk. Every score is kept, so the table on disk always matches
+		// the leaderboard in memory
+		if (n > store.capacity())
+			store = store.grow(names, scores, timestamps, n);
+		else
+			store.replaceAll(names, scores, timestamps, n);
+		journal.reset(store.generation());
+		compactions++;
+	}
+
+	/**
+	 * Defines a score waiting to be written
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Pending {
+
+		/**
+		 * Name of the player
+		 */
+		private final String name;
+
+		/**
+		 * Score
+		 */
+		private final int score;
+
+		/**
+		 * Time the score was set
+		 */
+		private final long timestamp;
+
+		/**
+		 * Constructor initializes variables
+		 *
+		 * @param name
+		 *            name of the player
+		 * @param score
+		 *            score
+		 * @param timestamp
+		 *            time the score was set
+		 */
+		Pending(String name, int score, long timestamp) {
+			this.name = name;
+			this.score = score;
+			this.timestamp = timestamp;
+		}
+	}
+}
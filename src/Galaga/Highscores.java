@@ -0,0 +1,260 @@
+package Galaga;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Defines the highscores of every game played on this machine: the
+ * leaderboard held in memory and the writer that saves new scores to disk in
+ * the background. One instance can be shared by any number of game sessions,
+ * so every method is synchronized
+ *
+ * @author Christopher Glasz
+ */
+public class Highscores implements ApplicationConstants {
+
+	/**
+	 * Current Highscores
+	 */
+	private final Leaderboard leaderboard;
+
+	/**
+	 * Saves new highscores in the background
+	 */
+	private final HighscoreWriter writer;
+
+	/**
+	 * Load all the highscores from save file, replay the journal over them,
+	 * and start saving new scores. The first time the game runs, the scores
+	 * are imported from the old text file
+	 *
+	 * @param dataFolder
+	 *            folder holding the highscore files
+	 * @throws IOException
+	 *             if the highscore files cannot be opened
+	 */
+	public Highscores(File dataFolder) throws IOException {
+
+		// Create a new leaderboard to store the highscores
+		leaderboard = new Leaderboard();
+
+		// Open the binary highscore file
+		HighscoreStore highscoreStore = new HighscoreStore(new File(
+				dataFolder, "highscores.dat"), HIGHSCORE_CAPACITY);
+		HighscoreJournal highscoreJournal = new HighscoreJournal(new File(
+				dataFolder, "highscores.journal"),
+				highscoreStore.generation());
+		if (highscoreStore.count() == 0 && highscoreJournal.count() == 0) {
+			importScores(new File(dataFolder, "highscores.txt"),
+					highscoreStore);
+			highscoreJournal.reset(highscoreStore.generation());
+		}
+
+		// Copy the stored scores into the leaderboard, best first, then
+		// replay the scores set since the last compaction
+		for (int i = 0; i < highscoreStore.count(); i++)
+			leaderboard.insert(highscoreStore.getName(i),
+					highscoreStore.getScore(i));
+		for (int i = 0; i < highscoreJournal.count(); i++)
+			leaderboard.insert(highscoreJournal.getName(i),
+					highscoreJournal.getScore(i));
+
+		// From now on the files are only touched by the writer
+		writer = new HighscoreWriter(highscoreStore, highscoreJournal);
+		writer.start();
+	}
+
+	/**
+	 * Import the highscores from the old text file into the binary file
+	 *
+	 * @param source
+	 *            the old text file, which may not exist
+	 * @param highscoreStore
+	 *            the binary file to import into
+	 * @throws IOException
+	 */
+	private static void importScores(File source, HighscoreStore highscoreStore)
+			throws IOException {
+		if (!source.exists())
+			return;
+
+		// Create a reader to read in the file
+		BufferedReader reader = new BufferedReader(new FileReader(source));
+
+		long now = System.currentTimeMillis();
+		String temp = reader.readLine();
+
+		// Until End of File, add lines to the binary file
+		while (temp != null) {
+
+			// Split each line using the ',' delimiter
+			String[] line = temp.split(",");
+			highscoreStore.insert(line[0], Integer.parseInt(line[1]), now);
+
+			temp = reader.readLine();
+		}
+		reader.close();
+	}
+
+	/**
+	 * Returns the highest score
+	 *
+	 * @return the highest score, or 0 if there are none
+	 */
+	public synchronized int topScore() {
+		return leaderboard.isEmpty() ? 0 : leaderboard.get(0).getScore();
+	}
+
+	/**
+	 * Returns how many scores are at least as high as the passed in one
+	 *
+	 * @param score
+	 *            score to rank
+	 * @return the rank the score would take, starting at 0
+	 */
+	public synchronized int rankOf(int score) {
+		return leaderboard.rankOf(score);
+	}
+
+	/**
+	 * Inserts a score into the leaderboard, and saves it in the background
+	 *
+	 * @param name
+	 *            player's name
+	 * @param score
+	 *            player's score
+	 */
+	public synchronized void insert(String name, int score) {
+		leaderboard.insert(name, score);
+
+		// The leaderboard is already up to date, the file catches up in the
+		// background
+		writer.submit(name, score, System.currentTimeMillis());
+	}
+
+	/**
+	 * Copies the top scores into a snapshot
+	 *
+	 * @param snapshot
+	 *            snapshot to fill
+	 */
+	public synchronized void capture(FrameSnapshot snapshot) {
+		int shown = Math.min(leaderboard.size(), FrameSnapshot.HIGHSCORE_COUNT);
+		for (int i = 0; i < shown; i++)
+			snapshot.addHighscore(leaderboard.get(i));
+	}
+
+	/**
+	 * Accessor method for the leaderboard. Callers must hold the lock on
+	 * this object while using it
+	 *
+	 * @return the leaderboard
+	 */
+	public Leaderboard getLeaderboard() {
+		return leaderboard;
+	}
+
+	/**
+	 * Accessor method for the writer
+	 *
+	 * @return the highscore writer
+	 */
+	public HighscoreWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Finish saving highscores
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the writer
+	 */
+	public void close() throws InterruptedException {
+		writer.close();
+	}
+
+	/**
+	 * Check that every score survives a restart. Sets more scores than the
+	 * highscore file has room for, so the journal is compacted into it and it
+	 * has to grow, then loads the highscores again and compares every rank and
+	 * personal best. Exits with an error if anything differs. Arguments are
+	 * the folder to use, which should be empty, and the number of scores to
+	 * set
+	 *
+	 * @param args
+	 *            folder and number of scores
+	 * @throws Exception
+	 *             if the highscore files cannot be used
+	 */
+	public static void main(String[] args) throws Exception {
+		File folder;
+		if (args.length > 0)
+			folder = new File(args[0]);
+		else {
+			folder = File.createTempFile("highscores", "");
+			folder.delete();
+		}
+		int n = args.length > 1 ? Integer.parseInt(args[1])
+				: 3 * HIGHSCORE_CAPACITY;
+		boolean ok = true;
+
+		Highscores before = new Highscores(folder);
+		Random random = new Random(1);
+		for (int i = 0; i < n; i++)
+			before.insert("P" + random.nextInt(100), random.nextInt(5000));
+		HighscoreWriter writer = before.getWriter();
+		if (!writer.close()) {
+			System.out.println("Error: scores were still being written");
+			ok = false;
+		}
+		System.out.println("scores=" + n + " compactions="
+				+ writer.compactions());
+
+		HighscoreStore store = new HighscoreStore(new File(folder,
+				"highscores.dat"), HIGHSCORE_CAPACITY);
+		System.out.println("stored=" + store.count() + " capacity="
+				+ store.capacity());
+		if (writer.compactions() == 0 || store.count() <= HIGHSCORE_CAPACITY) {
+			System.out.println("Error: the highscore file never grew");
+			ok = false;
+		}
+		store.close();
+
+		Highscores after = new Highscores(folder);
+		Leaderboard expected = before.getLeaderboard();
+		Leaderboard found = after.getLeaderboard();
+		if (found.size() != expected.size()) {
+			System.out.println("Error: " + expected.size()
+					+ " scores set but " + found.size() + " loaded");
+			ok = false;
+		}
+		for (int i = 0; ok && i < expected.size(); i++) {
+			HighscoreEntry e = expected.get(i), f = found.get(i);
+			if (e.getScore() != f.getScore()
+					|| !e.getName().equals(f.getName())) {
+				System.out.println("Error: rank " + i + " was " + e.getName()
+						+ " " + e.getScore() + " but loaded as " + f.getName()
+						+ " " + f.getScore());
+				ok = false;
+			}
+		}
+		for (int p = 0; ok && p < 100; p++) {
+			HighscoreEntry e = expected.personalBest("P" + p);
+			HighscoreEntry f = found.personalBest("P" + p);
+			if ((e == null) != (f == null)
+					|| (e != null && e.getScore() != f.getScore())) {
+				System.out.println("Error: personal best of P" + p
+						+ " changed");
+				ok = false;
+			}
+		}
+		after.close();
+
+		if (!ok)
+			System.exit(1);
+		System.out.println("every rank and personal best survived");
+	}
+}
@@ -0,0 +1,202 @@
+package Galaga;
+
+/**
+ * Ring buffer of hit events. Collision detection offers an event each time a
+ * fighter missile hits an enemy, and scoring, the hit count and the extra life
+ * check poll them afterwards in the same tick, so the work they do depends on
+ * the number of hits rather than the number of enemies. Events are stored in
+ * preallocated parallel arrays, so neither side allocates
+ *
+ * @author Christopher Glasz
+ */
+public class HitQueue {
+
+	/**
+	 * Number of events the queue can hold. Must be a power of two, and more
+	 * than every enemy being hit by every missile in the same tick
+	 */
+	private static final int CAPACITY = 256;
+
+	/**
+	 * Mask to turn a sequence number into a slot index
+	 */
+	private static final int MASK = CAPACITY - 1;
+
+	/**
+	 * Kind of enemy hit by each queued event
+	 */
+	private final EnemyType[] types;
+
+	/**
+	 * State the enemy was in when hit, for each queued event
+	 */
+	private final EnemyState[] states;
+
+	/**
+	 * Points awarded by each queued event
+	 */
+	private final int[] scores;
+
+	/**
+	 * Coordinates of the enemy for each queued event
+	 */
+	private final float[] xs, ys;
+
+	/**
+	 * Sequence number of the next slot to be written
+	 */
+	private long head;
+
+	/**
+	 * Sequence number of the next slot to be read
+	 */
+	private long tail;
+
+	/**
+	 * Number of events dropped because the queue was full
+	 */
+	private int dropped;
+
+	/**
+	 * Kind of enemy hit in the most recently polled event
+	 */
+	private EnemyType type;
+
+	/**
+	 * State of the enemy in the most recently polled event
+	 */
+	private EnemyState state;
+
+	/**
+	 * Points awarded by the most recently polled event
+	 */
+	private int score;
+
+	/**
+	 * Coordinates of the enemy in the most recently polled event
+	 */
+	private float x, y;
+
+	/**
+	 * Constructor allocates the ring
+	 */
+	public HitQueue() {
+		types = new EnemyType[CAPACITY];
+		states = new EnemyState[CAPACITY];
+		scores = new int[CAPACITY];
+		xs = new float[CAPACITY];
+		ys = new float[CAPACITY];
+		head = 0;
+		tail = 0;
+		dropped = 0;
+	}
+
+	/**
+	 * Adds an event for an enemy that has just been hit
+	 *
+	 * @param enemies
+	 *            store holding the enemy
+	 * @param i
+	 *            index of the enemy that was hit
+	 * @param score
+	 *            points awarded for the hit, 0 if it did not destroy the enemy
+	 * @return true if the event was queued, false if the queue was full
+	 */
+	public boolean offer(EnemyStore enemies, int i, int score) {
+		if (head - tail == CAPACITY) {
+			dropped++;
+			return false;
+		}
+
+		int slot = (int) head & MASK;
+		types[slot] = enemies.getType(i);
+		states[slot] = enemies.getState(i);
+		scores[slot] = score;
+		xs[slot] = enemies.getX(i);
+		ys[slot] = enemies.getY(i);
+		head++;
+		return true;
+	}
+
+	/**
+	 * Takes the oldest event off the queue, making it available through
+	 * {@link #type()}, {@link #state()}, {@link #score()}, {@link #x()} and
+	 * {@link #y()}
+	 *
+	 * @return true if an event was taken, false if the queue was empty
+	 */
+	public boolean poll() {
+		if (tail == head)
+			return false;
+
+		int slot = (int) tail & MASK;
+		type = types[slot];
+		state = states[slot];
+		score = scores[slot];
+		x = xs[slot];
+		y = ys[slot];
+		tail++;
+		return true;
+	}
+
+	/**
+	 * Discards every queued event
+	 */
+	public void clear() {
+		tail = head;
+	}
+
+	/**
+	 * Accessor method for the enemy type of the polled event
+	 *
+	 * @return kind of enemy hit
+	 */
+	public EnemyType type() {
+		return type;
+	}
+
+	/**
+	 * Accessor method for the enemy state of the polled event
+	 *
+	 * @return state the enemy was in when hit
+	 */
+	public EnemyState state() {
+		return state;
+	}
+
+	/**
+	 * Accessor method for the score of the polled event
+	 *
+	 * @return points awarded for the hit
+	 */
+	public int score() {
+		return score;
+	}
+
+	/**
+	 * Accessor method for the x coordinate of the polled event
+	 *
+	 * @return x coordinate of the enemy when hit
+	 */
+	public float x() {
+		return x;
+	}
+
+	/**
+	 * Accessor method for the y coordinate of the polled event
+	 *
+	 * @return y coordinate of the enemy when hit
+	 */
+	public float y() {
+		return y;
+	}
+
+	/**
+	 * Accessor method for the number of dropped events
+	 *
+	 * @return number of events dropped because the queue was full
+	 */
+	public int dropped() {
+		return dropped;
+	}
+}
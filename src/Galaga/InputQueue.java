@@ -0,0 +1,228 @@
+package Galaga;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring buffer of timestamped key events. The
+ * event thread offers events as keys are pressed and released, and the
+ * simulation polls them at the start of each tick, so the game is only ever
+ * touched from one thread. Events are stored in preallocated parallel arrays,
+ * so neither side allocates
+ *
+ * @author Christopher Glasz
+ */
+public class InputQueue {
+
+	/**
+	 * Number of events the queue can hold. Must be a power of two
+	 */
+	private static final int CAPACITY = 256;
+
+	/**
+	 * Mask to turn a sequence number into a slot index
+	 */
+	private static final int MASK = CAPACITY - 1;
+
+	/**
+	 * Type of each queued event
+	 */
+	private final Type[] types;
+
+	/**
+	 * Key of each queued event
+	 */
+	private final char[] keys;
+
+	/**
+	 * Key code of each queued event
+	 */
+	private final int[] keyCodes;
+
+	/**
+	 * Time each queued event was offered, from System.nanoTime()
+	 */
+	private final long[] times;
+
+	/**
+	 * Sequence number of the next slot to be written. Only advanced by the
+	 * producer
+	 */
+	private final AtomicLong head;
+
+	/**
+	 * Sequence number of the next slot to be read. Only advanced by the
+	 * consumer
+	 */
+	private final AtomicLong tail;
+
+	/**
+	 * Number of events dropped because the queue was full
+	 */
+	private volatile int dropped;
+
+	/**
+	 * Type of the most recently polled event
+	 */
+	private Type type;
+
+	/**
+	 * Key of the most recently polled event
+	 */
+	private char key;
+
+	/**
+	 * Key code of the most recently polled event
+	 */
+	private int keyCode;
+
+	/**
+	 * Time of the most recently polled event
+	 */
+	private long time;
+
+	/**
+	 * Constructor allocates the ring
+	 */
+	public InputQueue() {
+		types = new Type[CAPACITY];
+		keys = new char[CAPACITY];
+		keyCodes = new int[CAPACITY];
+		times = new long[CAPACITY];
+		head = new AtomicLong();
+		tail = new AtomicLong();
+		dropped = 0;
+	}
+
+	/**
+	 * Adds an event to the queue, stamped with the current time. Only to be
+	 * called from the producing thread
+	 *
+	 * @param type
+	 *            type of the event
+	 * @param key
+	 *            key of the event
+	 * @param keyCode
+	 *            key code of the event
+	 * @return true if the event was queued, false if the queue was full
+	 */
+	public boolean offer(Type type, char key, int keyCode) {
+		return offer(type, key, keyCode, System.nanoTime());
+	}
+
+	/**
+	 * Adds an event to the queue. Only to be called from the producing thread
+	 *
+	 * @param type
+	 *            type of the event
+	 * @param key
+	 *            key of the event
+	 * @param keyCode
+	 *            key code of the event
+	 * @param time
+	 *            time of the event, from System.nanoTime()
+	 * @return true if the event was queued, false if the queue was full
+	 */
+	public boolean offer(Type type, char key, int keyCode, long time) {
+		long h = head.get();
+		if (h - tail.get() == CAPACITY) {
+			dropped++;
+			return false;
+		}
+
+		int slot = (int) h & MASK;
+		types[slot] = type;
+		keys[slot] = key;
+		keyCodes[slot] = keyCode;
+		times[slot] = time;
+
+		// Publish the slot to the consumer
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	/**
+	 * Takes the oldest event off the queue, making it available through
+	 * {@link #type()}, {@link #key()}, {@link #keyCode()} and {@link #time()}.
+	 * Only to be called from the consuming thread
+	 *
+	 * @return true if an event was taken, false if the queue was empty
+	 */
+	public boolean poll() {
+		long t = tail.get();
+		if (t == head.get())
+			return false;
+
+		int slot = (int) t & MASK;
+		type = types[slot];
+		key = keys[slot];
+		keyCode = keyCodes[slot];
+		time = times[slot];
+
+		// Hand the slot back to the producer
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Accessor method for the type of the polled event
+	 *
+	 * @return type of the polled event
+	 */
+	public Type type() {
+		return type;
+	}
+
+	/**
+	 * Accessor method for the key of the polled event
+	 *
+	 * @return key of the polled event
+	 */
+	public char key() {
+		return key;
+	}
+
+	/**
+	 * Accessor method for the key code of the polled event
+	 *
+	 * @return key code of the polled event
+	 */
+	public int keyCode() {
+		return keyCode;
+	}
+
+	/**
+	 * Accessor method for the time of the polled event
+	 *
+	 * @return time of the polled event, from System.nanoTime()
+	 */
+	public long time() {
+		return time;
+	}
+
+	/**
+	 * Accessor method for the number of dropped events
+	 *
+	 * @return number of events dropped because the queue was full
+	 */
+	public int dropped() {
+		return dropped;
+	}
+
+	/**
+	 * Enumeration to describe the types of input event
+	 *
+	 * @author Christopher Glasz
+	 */
+	public enum Type {
+
+		/**
+		 * A key was pressed
+		 */
+		KEY_PRESSED,
+
+		/**
+		 * A key was released
+		 */
+		KEY_RELEASED
+	}
+}
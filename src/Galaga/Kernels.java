@@ -0,0 +1,168 @@
+package Galaga;
+
+import java.util.Random;
+
+/**
+ * Arithmetic kernels over primitive arrays. Each kernel with a branch or a
+ * remainder in it has two versions: a vector version written as simple
+ * counted loops with no calls, remainders or branches in the body, which the
+ * JIT compiles to SIMD instructions, and a scalar version kept as the
+ * reference. The scalar versions are selected by running with
+ * -Dgalaga.kernels=scalar. Both versions do the same float arithmetic in
+ * the same order, so they give the same results to the bit
+ *
+ * @author Christopher Glasz
+ */
+public final class Kernels {
+
+	/**
+	 * True to use the vector versions of the kernels
+	 */
+	public static final boolean VECTOR = !"scalar".equals(System
+			.getProperty("galaga.kernels"));
+
+	/**
+	 * Not instantiable
+	 */
+	private Kernels() {
+	}
+
+	/**
+	 * Moves every position by its velocity and wraps it back into the range
+	 * [0, limit). Positions and velocities must not be negative
+	 *
+	 * @param p
+	 *            positions to move
+	 * @param v
+	 *            velocity of each position
+	 * @param dt
+	 *            time to move for
+	 * @param limit
+	 *            end of the range
+	 * @param n
+	 *            number of positions
+	 */
+	public static void scroll(float[] p, float[] v, float dt, float limit,
+			int n) {
+		if (VECTOR)
+			scrollVector(p, v, dt, limit, n);
+		else
+			scrollScalar(p, v, dt, limit, n);
+	}
+
+	/**
+	 * Vector version of {@link #scroll(float[], float[], float, float, int)}
+	 */
+	private static void scrollVector(float[] p, float[] v, float dt,
+			float limit, int n) {
+		// Moving and wrapping are split so that the first loop has no
+		// branch or remainder in it and can be vectorized
+		for (int i = 0; i < n; i++)
+			p[i] += v[i] * dt;
+		for (int i = 0; i < n; i++)
+			if (p[i] >= limit)
+				p[i] %= limit;
+	}
+
+	/**
+	 * Scalar version of {@link #scroll(float[], float[], float, float, int)}
+	 */
+	private static void scrollScalar(float[] p, float[] v, float dt,
+			float limit, int n) {
+		for (int i = 0; i < n; i++)
+			p[i] = (p[i] + v[i] * dt) % limit;
+	}
+
+	/**
+	 * Time both versions of every kernel at the sizes the game runs them at,
+	 * and check they agree. Exits with an error if any vector version gives
+	 * a different result from its scalar version. Arguments are the number
+	 * of stars and the number of calls to time
+	 *
+	 * @param args
+	 *            stars and calls
+	 */
+	public static void main(String[] args) {
+		int stars = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int calls = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		float dt = ApplicationConstants.TICK_TIME / 1000f;
+		Random random = new Random(1);
+		boolean agree = true;
+
+		// The star field, as the sketch sets it up
+		float[] y = new float[stars], vy = new float[stars];
+		for (int i = 0; i < stars; i++) {
+			y[i] = random.nextFloat() * ApplicationConstants.WORLD_HEIGHT;
+			vy[i] = 0.01f + random.nextFloat() * 0.09f;
+		}
+		float[] vector = y.clone(), scalar = y.clone();
+		for (int k = 0; k < 1000; k++) {
+			scrollVector(vector, vy, dt, ApplicationConstants.WORLD_HEIGHT,
+					stars);
+			scrollScalar(scalar, vy, dt, ApplicationConstants.WORLD_HEIGHT,
+					stars);
+		}
+		agree &= report("scroll", stars, vector, scalar);
+		long start = System.nanoTime();
+		for (int k = 0; k < calls; k++)
+			scrollVector(vector, vy, dt, ApplicationConstants.WORLD_HEIGHT,
+					stars);
+		long vectorTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int k = 0; k < calls; k++)
+			scrollScalar(scalar, vy, dt, ApplicationConstants.WORLD_HEIGHT,
+					stars);
+		time("scroll", stars, calls, vectorTime, System.nanoTime() - start);
+
+		if (!agree)
+			System.exit(1);
+	}
+
+	/**
+	 * Check the results of the two versions of a kernel agree to the bit,
+	 * and say so if they do not
+	 *
+	 * @param name
+	 *            name of the kernel
+	 * @param n
+	 *            number of results
+	 * @param vector
+	 *            results of the vector version
+	 * @param scalar
+	 *            results of the scalar version
+	 * @return true if they agree
+	 */
+	private static boolean report(String name, int n, float[] vector,
+			float[] scalar) {
+		for (int i = 0; i < n; i++)
+			if (Float.floatToIntBits(vector[i]) != Float
+					.floatToIntBits(scalar[i])) {
+				System.out.println("Error: " + name + " versions differ at "
+						+ i + ": " + vector[i] + " != " + scalar[i]);
+				return false;
+			}
+		return true;
+	}
+
+	/**
+	 * Print how long each version of a kernel took for each element
+	 *
+	 * @param name
+	 *            name of the kernel
+	 * @param n
+	 *            number of elements in each call
+	 * @param calls
+	 *            number of calls timed
+	 * @param vector
+	 *            time taken by the vector version in nanoseconds
+	 * @param scalar
+	 *            time taken by the scalar version in nanoseconds
+	 */
+	private static void time(String name, int n, int calls, long vector,
+			long scalar) {
+		System.out.println(String.format(
+				"%s: n=%d vector=%.2fns scalar=%.2fns per element (%.1fx)",
+				name, n, vector / ((double) n * calls), scalar
+						/ ((double) n * calls), scalar / (double) vector));
+	}
+}
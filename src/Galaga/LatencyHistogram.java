@@ -0,0 +1,176 @@
+package Galaga;
+
+/**
+ * Defines a fixed-resolution histogram of durations. Recording is constant
+ * time and does not allocate, so it can be done every tick or every frame.
+ * Each histogram is meant to be recorded into by a single thread; reading it
+ * from another thread gives an approximate, possibly slightly stale, view
+ *
+ * @author Christopher Glasz
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Name shown in the summary
+	 */
+	private final String name;
+
+	/**
+	 * Width of one bucket in nanoseconds
+	 */
+	private final long resolution;
+
+	/**
+	 * Number of samples in each bucket. The last bucket also holds everything
+	 * past the end of the range
+	 */
+	private final long[] counts;
+
+	/**
+	 * Total number of samples
+	 */
+	private long count;
+
+	/**
+	 * Sum of all samples in nanoseconds
+	 */
+	private long sum;
+
+	/**
+	 * Largest sample in nanoseconds
+	 */
+	private long max;
+
+	/**
+	 * Constructor covering 0 to 250 ms at a resolution of 50 microseconds
+	 *
+	 * @param name
+	 *            name shown in the summary
+	 */
+	public LatencyHistogram(String name) {
+		this(name, 50000L, 5000);
+	}
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param name
+	 *            name shown in the summary
+	 * @param resolution
+	 *            width of one bucket in nanoseconds
+	 * @param buckets
+	 *            number of buckets
+	 */
+	public LatencyHistogram(String name, long resolution, int buckets) {
+		this.name = name;
+		this.resolution = resolution;
+		this.counts = new long[buckets];
+	}
+
+	/**
+	 * Records one sample. Negative samples are counted as zero
+	 *
+	 * @param nanos
+	 *            duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		long bucket = nanos / resolution;
+		if (bucket >= counts.length)
+			bucket = counts.length - 1;
+		counts[(int) bucket]++;
+		count++;
+		sum += nanos;
+		if (nanos > max)
+			max = nanos;
+	}
+
+	/**
+	 * Adds every sample of another histogram with the same buckets to this one
+	 *
+	 * @param other
+	 *            histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += other.counts[i];
+		count += other.count;
+		sum += other.sum;
+		if (other.max > max)
+			max = other.max;
+	}
+
+	/**
+	 * Forgets every sample
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = 0;
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+
+	/**
+	 * Accessor method for the number of samples
+	 *
+	 * @return number of samples
+	 */
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * Returns the mean of all samples
+	 *
+	 * @return mean in nanoseconds, or 0 if there are no samples
+	 */
+	public long mean() {
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * Accessor method for the largest sample
+	 *
+	 * @return largest sample in nanoseconds
+	 */
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * Returns the value below which the given fraction of samples fall,
+	 * rounded up to the end of its bucket
+	 *
+	 * @param fraction
+	 *            fraction between 0 and 1
+	 * @return the percentile in nanoseconds, or 0 if there are no samples
+	 */
+	public long percentile(double fraction) {
+		if (count == 0)
+			return 0;
+		long target = (long) Math.ceil(fraction * count);
+		if (target < 1)
+			target = 1;
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target)
+				return Math.min((i + 1) * resolution, max);
+		}
+		return max;
+	}
+
+	/**
+	 * Returns a one-line summary of the distribution in milliseconds
+	 *
+	 * @return a one-line summary of the distribution
+	 */
+	public String summary() {
+		return String.format(
+				"%s: n=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+				name, count, mean() * 1e-6, percentile(0.5) * 1e-6,
+				percentile(0.9) * 1e-6, percentile(0.99) * 1e-6, max * 1e-6);
+	}
+}
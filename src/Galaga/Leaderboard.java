@@ -0,0 +1,370 @@
+package Galaga;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Defines a leaderboard ordered by descending score, with equal scores in the
+ * order they were set. Entries are kept in a treap where every node knows the
+ * size of its subtree, so inserting a score, finding the rank a score would
+ * take and fetching the entry at a rank are all O(log n), even for millions
+ * of entries. Each player's personal best is tracked alongside.
+ * <p>
+ * Iterators keep their own position, so any number of them can walk the
+ * leaderboard at once without disturbing each other.
+ *
+ * @author Christopher Glasz
+ */
+public class Leaderboard implements Iterable<HighscoreEntry> {
+
+	/**
+	 * Root of the treap
+	 */
+	private Node root;
+
+	/**
+	 * Sequence number given to the next entry, to order equal scores
+	 */
+	private long nextSequence;
+
+	/**
+	 * Best entry of each player
+	 */
+	private final HashMap<String, HighscoreEntry> personalBests;
+
+	/**
+	 * Source of node priorities
+	 */
+	private final Random random;
+
+	/**
+	 * Constructor creates an empty leaderboard
+	 */
+	public Leaderboard() {
+		root = null;
+		nextSequence = 0;
+		personalBests = new HashMap<String, HighscoreEntry>();
+		random = new Random(0x6a1a6a);
+	}
+
+	/**
+	 * Adds a score to the leaderboard
+	 *
+	 * @param name
+	 *            name of the player
+	 * @param score
+	 *            score
+	 * @return the rank the score was given, starting at 0 for the highest
+	 */
+	public int insert(String name, int score) {
+		HighscoreEntry entry = new HighscoreEntry(name, score);
+		Node node = new Node(entry, nextSequence++, random.nextInt());
+		root = insert(root, node);
+
+		HighscoreEntry best = personalBests.get(name);
+		if (best == null || score > best.getScore())
+			personalBests.put(name, entry);
+
+		// Everything with the same score was set earlier, so ranks above
+		return rankOf(score) - 1;
+	}
+
+	/**
+	 * Returns the number of entries
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size(root);
+	}
+
+	/**
+	 * Tests to see if the leaderboard is empty
+	 *
+	 * @return true if the leaderboard is empty
+	 */
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	 * Returns the rank a new score would be given, which is the number of
+	 * entries with a score at least as high
+	 *
+	 * @param score
+	 *            score to rank
+	 * @return the rank the score would be given, starting at 0 for the highest
+	 */
+	public int rankOf(int score) {
+		int rank = 0;
+		Node current = root;
+		while (current != null) {
+			if (current.entry.getScore() >= score) {
+				rank += size(current.left) + 1;
+				current = current.right;
+			} else
+				current = current.left;
+		}
+		return rank;
+	}
+
+	/**
+	 * Returns the entry at the given rank
+	 *
+	 * @param rank
+	 *            rank, starting at 0 for the highest score
+	 * @return the entry at the given rank
+	 */
+	public HighscoreEntry get(int rank) {
+		if (rank < 0 || rank >= size())
+			throw new IndexOutOfBoundsException("rank " + rank + " of "
+					+ size());
+
+		Node current = root;
+		while (true) {
+			int left = size(current.left);
+			if (rank < left)
+				current = current.left;
+			else if (rank == left)
+				return current.entry;
+			else {
+				rank -= left + 1;
+				current = current.right;
+			}
+		}
+	}
+
+	/**
+	 * Returns the highest scores
+	 *
+	 * @param k
+	 *            maximum number of entries to return
+	 * @return up to k entries, best first
+	 */
+	public ArrayList<HighscoreEntry> top(int k) {
+		ArrayList<HighscoreEntry> top = new ArrayList<HighscoreEntry>(
+				Math.min(k, size()));
+		Iterator<HighscoreEntry> it = iterator();
+		while (it.hasNext() && top.size() < k)
+			top.add(it.next());
+		return top;
+	}
+
+	/**
+	 * Returns a player's best entry
+	 *
+	 * @param name
+	 *            name of the player
+	 * @return the player's best entry, or null if the player has none
+	 */
+	public HighscoreEntry personalBest(String name) {
+		return personalBests.get(name);
+	}
+
+	/**
+	 * Returns an iterator over every entry, best first. The iterator must not
+	 * be used after the leaderboard changes
+	 *
+	 * @return an iterator over every entry, best first
+	 */
+	public Iterator<HighscoreEntry> iterator() {
+		return new InOrder(root);
+	}
+
+	/**
+	 * Inserts a node into a subtree
+	 *
+	 * @param subtree
+	 *            root of the subtree
+	 * @param node
+	 *            node to insert
+	 * @return the new root of the subtree
+	 */
+	private static Node insert(Node subtree, Node node) {
+		if (subtree == null)
+			return node;
+
+		if (before(node, subtree)) {
+			subtree.left = insert(subtree.left, node);
+			if (subtree.left.priority > subtree.priority)
+				subtree = rotateRight(subtree);
+		} else {
+			subtree.right = insert(subtree.right, node);
+			if (subtree.right.priority > subtree.priority)
+				subtree = rotateLeft(subtree);
+		}
+
+		subtree.resize();
+		return subtree;
+	}
+
+	/**
+	 * Returns true if a ranks above b
+	 *
+	 * @param a
+	 *            first node
+	 * @param b
+	 *            second node
+	 * @return true if a ranks above b
+	 */
+	private static boolean before(Node a, Node b) {
+		int sa = a.entry.getScore(), sb = b.entry.getScore();
+		return sa > sb || (sa == sb && a.sequence < b.sequence);
+	}
+
+	/**
+	 * Rotates a subtree to the right
+	 *
+	 * @param n
+	 *            root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private static Node rotateRight(Node n) {
+		Node l = n.left;
+		n.left = l.right;
+		l.right = n;
+		n.resize();
+		l.resize();
+		return l;
+	}
+
+	/**
+	 * Rotates a subtree to the left
+	 *
+	 * @param n
+	 *            root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private static Node rotateLeft(Node n) {
+		Node r = n.right;
+		n.right = r.left;
+		r.left = n;
+		n.resize();
+		r.resize();
+		return r;
+	}
+
+	/**
+	 * Returns the size of a subtree
+	 *
+	 * @param n
+	 *            root of the subtree, may be null
+	 * @return the number of nodes in the subtree
+	 */
+	private static int size(Node n) {
+		return n == null ? 0 : n.size;
+	}
+
+	/**
+	 * Defines a node in the treap
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Node {
+
+		/**
+		 * The entry
+		 */
+		private final HighscoreEntry entry;
+
+		/**
+		 * Order the entry was added in
+		 */
+		private final long sequence;
+
+		/**
+		 * Heap priority
+		 */
+		private final int priority;
+
+		/**
+		 * Number of nodes in this subtree
+		 */
+		private int size;
+
+		/**
+		 * Children
+		 */
+		private Node left, right;
+
+		/**
+		 * Constructor initializes variables
+		 *
+		 * @param entry
+		 *            the entry
+		 * @param sequence
+		 *            order the entry was added in
+		 * @param priority
+		 *            heap priority
+		 */
+		Node(HighscoreEntry entry, long sequence, int priority) {
+			this.entry = entry;
+			this.sequence = sequence;
+			this.priority = priority;
+			this.size = 1;
+		}
+
+		/**
+		 * Recomputes the size of this subtree from its children
+		 */
+		void resize() {
+			size = Leaderboard.size(left) + Leaderboard.size(right) + 1;
+		}
+	}
+
+	/**
+	 * Iterator walking the treap in order with its own stack
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class InOrder implements Iterator<HighscoreEntry> {
+
+		/**
+		 * Nodes whose entry and right subtree are still to be visited
+		 */
+		private final ArrayList<Node> stack;
+
+		/**
+		 * Constructor starts at the best entry
+		 *
+		 * @param root
+		 *            root of the treap
+		 */
+		InOrder(Node root) {
+			stack = new ArrayList<Node>();
+			pushLeft(root);
+		}
+
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		public HighscoreEntry next() {
+			if (stack.isEmpty())
+				throw new NoSuchElementException();
+			Node n = stack.remove(stack.size() - 1);
+			pushLeft(n.right);
+			return n.entry;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Pushes a node and all of its left descendants
+		 *
+		 * @param n
+		 *            node to start from, may be null
+		 */
+		private void pushLeft(Node n) {
+			while (n != null) {
+				stack.add(n);
+				n = n.left;
+			}
+		}
+	}
+}
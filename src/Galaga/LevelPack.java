@@ -0,0 +1,400 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * Defines a binary pack of levels compiled from the wave definitions by
+ * {@link LevelPackCompiler}. Only the header and the level index are read
+ * when the pack is opened; each level is then read from disk on its own. A
+ * game reads and bakes each level on a background thread while the one
+ * before it is played, so that the simulation never touches the disk or
+ * solves a path mid-game. Levels past the last one in the pack start again
+ * from the first.
+ * <p>
+ * File layout: magic, version, CRC32 of the source text, number of levels,
+ * the offset of each level and the offset of the end of the last one. A level
+ * is its number of enemies followed by one record per enemy: type, flight
+ * path, wave, spawn coordinates, home coordinates and spawn delay.
+ *
+ * @author Christopher Glasz
+ */
+public class LevelPack {
+
+	/**
+	 * Identifies a level pack
+	 */
+	static final int MAGIC = 0x474c5650;
+
+	/**
+	 * Version of the file layout
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Size of the header in bytes, not counting the level index
+	 */
+	static final int HEADER_SIZE = 16;
+
+	/**
+	 * Size of an enemy record in bytes
+	 */
+	static final int RECORD_SIZE = 24;
+
+	/**
+	 * The open file
+	 */
+	private final RandomAccessFile file;
+
+	/**
+	 * Offset of each level, followed by the end of the last level
+	 */
+	private final int[] offsets;
+
+	/**
+	 * Checksum of the source the pack was compiled from
+	 */
+	private final int sourceChecksum;
+
+	/**
+	 * Opens the level pack, compiling it first if it is missing or was
+	 * compiled from a different version of the source. Sessions opening the
+	 * same pack on several threads take turns, so that only one of them
+	 * compiles it
+	 *
+	 * @param pack
+	 *            location of the level pack
+	 * @param source
+	 *            location of the wave definitions, may not exist
+	 * @return the open level pack
+	 * @throws IOException
+	 *             if the pack cannot be compiled or opened
+	 */
+	public static synchronized LevelPack open(File pack, File source)
+			throws IOException {
+		if (source.exists()) {
+			int checksum = LevelPackCompiler.checksum(source);
+			if (!pack.exists() || readChecksum(pack) != checksum)
+				LevelPackCompiler.compile(source, pack);
+		}
+		return new LevelPack(pack);
+	}
+
+	/**
+	 * Returns the source checksum recorded in a pack
+	 *
+	 * @param pack
+	 *            location of the level pack
+	 * @return the recorded checksum, or 0 if the pack is not valid
+	 * @throws IOException
+	 *             if the pack cannot be read
+	 */
+	private static int readChecksum(File pack) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(pack, "r");
+		try {
+			if (in.length() < HEADER_SIZE || in.readInt() != MAGIC
+					|| in.readInt() != VERSION)
+				return 0;
+			return in.readInt();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Opens a level pack and reads its index
+	 *
+	 * @param pack
+	 *            location of the level pack
+	 * @throws IOException
+	 *             if the pack cannot be opened or is not a level pack
+	 */
+	public LevelPack(File pack) throws IOException {
+		file = new RandomAccessFile(pack, "r");
+
+		if (file.length() < HEADER_SIZE || file.readInt() != MAGIC
+				|| file.readInt() != VERSION) {
+			file.close();
+			throw new IOException(pack + " is not a level pack");
+		}
+		sourceChecksum = file.readInt();
+
+		int levels = file.readInt();
+		if (levels < 1) {
+			file.close();
+			throw new IOException(pack + " has no levels");
+		}
+		offsets = new int[levels + 1];
+		for (int i = 0; i <= levels; i++)
+			offsets[i] = file.readInt();
+	}
+
+	/**
+	 * Accessor method for the number of levels
+	 *
+	 * @return number of levels in the pack
+	 */
+	public int levelCount() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Accessor method for the source checksum
+	 *
+	 * @return checksum of the source the pack was compiled from
+	 */
+	public int sourceChecksum() {
+		return sourceChecksum;
+	}
+
+	/**
+	 * Reads a level from disk
+	 *
+	 * @param level
+	 *            level number, starting at 1. Numbers past the last level
+	 *            start again from the first
+	 * @param reuse
+	 *            level to read into, or null to create a new one
+	 * @return the level
+	 * @throws IOException
+	 *             if the level cannot be read
+	 */
+	public Level read(int level, Level reuse) throws IOException {
+		int index = indexOf(level);
+
+		ByteBuffer buf = ByteBuffer.allocate(offsets[index + 1]
+				- offsets[index]);
+		while (buf.hasRemaining()
+				&& file.getChannel().read(buf, offsets[index] + buf.position()) > 0)
+			;
+		if (buf.hasRemaining())
+			throw new IOException("Level " + level + " is truncated");
+
+		Level l = reuse != null ? reuse : new Level();
+		int n = buf.getInt(0);
+		if (4 + n * RECORD_SIZE != buf.capacity())
+			throw new IOException("Level " + level + " is corrupt");
+
+		// Not a valid level until every record has been read
+		l.index = -1;
+		l.ensureCapacity(n);
+		EnemyType[] types = EnemyType.values();
+		FlightPath[] paths = FlightPath.values();
+		for (int i = 0; i < n; i++) {
+			int at = 4 + i * RECORD_SIZE;
+			int type = buf.get(at), path = buf.get(at + 1);
+			if (type < 0 || type >= types.length || path < 0
+					|| path >= paths.length)
+				throw new IOException("Level " + level + " is corrupt");
+			l.types[i] = types[type];
+			l.paths[i] = paths[path];
+			l.waves[i] = buf.getShort(at + 2);
+			l.spawnX[i] = buf.getFloat(at + 4);
+			l.spawnY[i] = buf.getFloat(at + 8);
+			l.homeX[i] = buf.getFloat(at + 12);
+			l.homeY[i] = buf.getFloat(at + 16);
+			l.delays[i] = buf.getFloat(at + 20);
+		}
+		l.count = n;
+		l.index = index;
+		return l;
+	}
+
+	/**
+	 * Returns where in the pack a level is stored
+	 *
+	 * @param level
+	 *            level number, starting at 1
+	 * @return index of the level in the pack
+	 */
+	public int indexOf(int level) {
+		return indexOf(level, levelCount());
+	}
+
+	/**
+	 * Returns where in a pack of the given size a level is stored
+	 *
+	 * @param level
+	 *            level number, starting at 1
+	 * @param count
+	 *            number of levels in the pack
+	 * @return index of the level in the pack
+	 */
+	public static int indexOf(int level, int count) {
+		int index = (level - 1) % count;
+		if (index < 0)
+			index += count;
+		return index;
+	}
+
+	/**
+	 * Closes the file
+	 *
+	 * @throws IOException
+	 *             if the file could not be closed
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Defines the enemies of one level, in the order they spawn
+	 *
+	 * @author Christopher Glasz
+	 */
+	public static class Level {
+
+		/**
+		 * Number of enemies
+		 */
+		private int count;
+
+		/**
+		 * Index of the level in the pack, or -1 if not read from a pack
+		 */
+		private int index;
+
+		/**
+		 * Type of each enemy
+		 */
+		private EnemyType[] types;
+
+		/**
+		 * Entry path of each enemy
+		 */
+		private FlightPath[] paths;
+
+		/**
+		 * Wave each enemy belongs to
+		 */
+		private short[] waves;
+
+		/**
+		 * Spawn coordinates of each enemy
+		 */
+		private float[] spawnX, spawnY;
+
+		/**
+		 * Home coordinates of each enemy
+		 */
+		private float[] homeX, homeY;
+
+		/**
+		 * Seconds between the previous enemy spawning and each enemy
+		 */
+		private float[] delays;
+
+		/**
+		 * Baked spawn state of each enemy
+		 */
+		private EnemyStore.SpawnState[] spawns;
+
+		/**
+		 * Constructor creates an empty level
+		 */
+		public Level() {
+			count = 0;
+			index = -1;
+			ensureCapacity(0);
+		}
+
+		/**
+		 * Makes room for the given number of enemies
+		 *
+		 * @param n
+		 *            number of enemies
+		 */
+		private void ensureCapacity(int n) {
+			if (types != null && types.length >= n)
+				return;
+			types = new EnemyType[n];
+			paths = new FlightPath[n];
+			waves = new short[n];
+			spawnX = new float[n];
+			spawnY = new float[n];
+			homeX = new float[n];
+			homeY = new float[n];
+			delays = new float[n];
+			spawns = new EnemyStore.SpawnState[n];
+		}
+
+		/**
+		 * Accessor method for the number of enemies
+		 *
+		 * @return number of enemies in the level
+		 */
+		public int count() {
+			return count;
+		}
+
+		/**
+		 * Accessor method for the index in the pack
+		 *
+		 * @return index of the level in the pack, or -1 if not read from a
+		 *         pack
+		 */
+		public int index() {
+			return index;
+		}
+
+		/**
+		 * Solves the entry path of every enemy. Touches nothing outside the
+		 * level, so it can be done on any thread
+		 */
+		public void bake() {
+
+			// Seeded by the level alone, so every cabinet bakes the same wave
+			// whenever it happens to read it
+			GameRandom random = new GameRandom(index + 1);
+			for (int i = 0; i < count; i++)
+				spawns[i] = new EnemyStore.SpawnState(types[i], spawnX[i],
+						spawnY[i], homeX[i], homeY[i], paths[i], random);
+		}
+
+		/**
+		 * Returns the baked spawn state of an enemy
+		 *
+		 * @param i
+		 *            index of the enemy, in spawn order
+		 * @return the spawn state of the enemy
+		 */
+		public EnemyStore.SpawnState getSpawn(int i) {
+			return spawns[i];
+		}
+
+		/**
+		 * Returns the type of an enemy
+		 *
+		 * @param i
+		 *            index of the enemy, in spawn order
+		 * @return the type of the enemy
+		 */
+		public EnemyType getType(int i) {
+			return types[i];
+		}
+
+		/**
+		 * Returns the wave an enemy belongs to
+		 *
+		 * @param i
+		 *            index of the enemy, in spawn order
+		 * @return the wave, starting at 0
+		 */
+		public int getWave(int i) {
+			return waves[i];
+		}
+
+		/**
+		 * Returns the delay before an enemy spawns
+		 *
+		 * @param i
+		 *            index of the enemy, in spawn order
+		 * @return seconds between the previous enemy spawning and this one
+		 */
+		public float getDelay(int i) {
+			return delays[i];
+		}
+	}
+}
@@ -0,0 +1,331 @@
+package Galaga;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Compiles the wave definitions in data/waves.txt into the binary
+ * {@link LevelPack} the game reads. Run it as part of the build with the
+ * source and pack locations as arguments; the game also runs it on startup
+ * if the pack is missing or out of date.
+ * <p>
+ * Each line of the source is blank, a comment starting with '#', or one of
+ * <ul>
+ * <li>level</li>
+ * <li>wave &lt;delay&gt;</li>
+ * <li>&lt;type&gt; &lt;spawnX&gt; &lt;spawnY&gt; &lt;column&gt; &lt;row&gt;
+ * &lt;path&gt; [delay]</li>
+ * </ul>
+ * Spawn coordinates are in world widths and heights, the column is in half
+ * enemy spacings, and the row indexes {@link ApplicationConstants#ROW_Y}
+ *
+ * @author Christopher Glasz
+ */
+public class LevelPackCompiler implements ApplicationConstants {
+
+	/**
+	 * Compiles the source named by the first argument into the pack named by
+	 * the second
+	 *
+	 * @param args
+	 *            source and pack locations
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.out.println("Usage: LevelPackCompiler <waves.txt> <levels.pack>");
+			System.exit(2);
+		}
+
+		try {
+			compile(new File(args[0]), new File(args[1]));
+		} catch (IOException e) {
+			System.out.println("Error compiling levels");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Compiles wave definitions into a level pack. The pack is written to a
+	 * temporary file and then moved into place, so a failed compile never
+	 * leaves a broken pack behind
+	 *
+	 * @param source
+	 *            location of the wave definitions
+	 * @param pack
+	 *            location of the level pack
+	 * @throws IOException
+	 *             if the source is invalid or the pack cannot be written
+	 */
+	public static void compile(File source, File pack) throws IOException {
+		ByteArrayOutputStream levels = new ByteArrayOutputStream();
+		ByteArrayOutputStream level = null;
+		DataOutputStream records = null;
+		int[] offsets = new int[16];
+		int levelCount = 0;
+		int enemies = 0;
+		int wave = -1;
+		float waveDelay = 0;
+		boolean waveStart = false;
+
+		BufferedReader reader = new BufferedReader(new FileReader(source));
+		try {
+			String temp = reader.readLine();
+			int lineNumber = 1;
+
+			while (temp != null) {
+				String where = source.getName() + ":" + lineNumber + ": ";
+				String line = temp.trim();
+
+				if (line.length() > 0 && !line.startsWith("#")) {
+					String[] token = line.split("\\s+");
+
+					if (token[0].equals("level")) {
+						if (level != null)
+							levels.write(finish(level, records, enemies,
+									source.getName() + ": level "
+											+ levelCount));
+						if (levelCount + 1 >= offsets.length) {
+							int[] grown = new int[offsets.length * 2];
+							System.arraycopy(offsets, 0, grown, 0, offsets.length);
+							offsets = grown;
+						}
+						offsets[levelCount++] = levels.size();
+						level = new ByteArrayOutputStream();
+						records = new DataOutputStream(level);
+						enemies = 0;
+						wave = -1;
+
+					} else if (token[0].equals("wave")) {
+						if (level == null)
+							throw new IOException(where + "wave before level");
+						if (token.length != 2)
+							throw new IOException(where + "expected: wave <delay>");
+						waveDelay = parseFloat(token[1], where);
+						waveStart = true;
+						wave++;
+
+					} else {
+						if (wave < 0)
+							throw new IOException(where + "enemy before wave");
+						if (token.length != 6 && token.length != 7)
+							throw new IOException(where
+									+ "expected: <type> <spawnX> <spawnY> <column> <row> <path> [delay]");
+
+						EnemyType type = parseType(token[0], where);
+						float spawnX = parseFloat(token[1], where) * WORLD_WIDTH;
+						float spawnY = parseFloat(token[2], where) * WORLD_HEIGHT;
+						float column = parseFloat(token[3], where);
+						int row = parseInt(token[4], where);
+						if (row < 0 || row >= ROW_Y.length)
+							throw new IOException(where + "row must be 0 to "
+									+ (ROW_Y.length - 1));
+						FlightPath path = parsePath(token[5], where);
+
+						// The first enemy of a wave waits for the wave delay
+						float delay = token.length == 7 ? parseFloat(token[6],
+								where) : SPAWN_TIME;
+						if (waveStart) {
+							delay = waveDelay;
+							waveStart = false;
+						}
+
+						records.writeByte(type.ordinal());
+						records.writeByte(path.ordinal());
+						records.writeShort(wave);
+						records.writeFloat(spawnX);
+						records.writeFloat(spawnY);
+						records.writeFloat(column * ENEMY_BUFFER / 2);
+						records.writeFloat(ROW_Y[row]);
+						records.writeFloat(delay);
+						enemies++;
+					}
+				}
+
+				temp = reader.readLine();
+				lineNumber++;
+			}
+		} finally {
+			reader.close();
+		}
+
+		if (level == null)
+			throw new IOException(source.getName() + ": no levels defined");
+		levels.write(finish(level, records, enemies, source.getName()
+				+ ": level " + levelCount));
+
+		// Header, then the index, then the levels
+		int start = LevelPack.HEADER_SIZE + 4 * (levelCount + 1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(start
+				+ levels.size());
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(LevelPack.MAGIC);
+		header.writeInt(LevelPack.VERSION);
+		header.writeInt(checksum(source));
+		header.writeInt(levelCount);
+		for (int i = 0; i < levelCount; i++)
+			header.writeInt(start + offsets[i]);
+		header.writeInt(start + levels.size());
+		levels.writeTo(header);
+		header.flush();
+
+		if (pack.getParentFile() != null)
+			pack.getParentFile().mkdirs();
+		File temp = new File(pack.getPath() + ".tmp");
+		FileOutputStream file = new FileOutputStream(temp);
+		try {
+			out.writeTo(file);
+			file.getFD().sync();
+		} finally {
+			file.close();
+		}
+		if (!temp.renameTo(pack)) {
+			pack.delete();
+			if (!temp.renameTo(pack))
+				throw new IOException("Could not replace " + pack);
+		}
+	}
+
+	/**
+	 * Returns the CRC32 of a file
+	 *
+	 * @param source
+	 *            file to check
+	 * @return the CRC32 of the file's contents
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static int checksum(File source) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buf = new byte[4096];
+		InputStream in = new FileInputStream(source);
+		try {
+			int n;
+			while ((n = in.read(buf)) > 0)
+				crc.update(buf, 0, n);
+		} finally {
+			in.close();
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Returns a finished level: its number of enemies followed by its records
+	 *
+	 * @param level
+	 *            bytes of the records
+	 * @param records
+	 *            stream the records were written through
+	 * @param enemies
+	 *            number of enemies
+	 * @param where
+	 *            source file and level number, for errors
+	 * @return the bytes of the level
+	 * @throws IOException
+	 *             if the level has no enemies or cannot be written
+	 */
+	private static byte[] finish(ByteArrayOutputStream level,
+			DataOutputStream records, int enemies, String where)
+			throws IOException {
+		// A game tells an empty level from one that failed to load by its
+		// count, so every level needs at least one enemy
+		if (enemies == 0)
+			throw new IOException(where + " has no enemies");
+		records.flush();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(4 + level.size());
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(enemies);
+		level.writeTo(data);
+		data.flush();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Parses an enemy type
+	 *
+	 * @param token
+	 *            text to parse
+	 * @param where
+	 *            location of the text, for error messages
+	 * @return the enemy type
+	 * @throws IOException
+	 *             if the text is not an enemy type
+	 */
+	private static EnemyType parseType(String token, String where)
+			throws IOException {
+		try {
+			return EnemyType.valueOf(token);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(where + "unknown enemy type " + token);
+		}
+	}
+
+	/**
+	 * Parses a flight path
+	 *
+	 * @param token
+	 *            text to parse
+	 * @param where
+	 *            location of the text, for error messages
+	 * @return the flight path
+	 * @throws IOException
+	 *             if the text is not a flight path
+	 */
+	private static FlightPath parsePath(String token, String where)
+			throws IOException {
+		try {
+			return FlightPath.valueOf(token);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(where + "unknown flight path " + token);
+		}
+	}
+
+	/**
+	 * Parses a number
+	 *
+	 * @param token
+	 *            text to parse
+	 * @param where
+	 *            location of the text, for error messages
+	 * @return the number
+	 * @throws IOException
+	 *             if the text is not a number
+	 */
+	private static float parseFloat(String token, String where)
+			throws IOException {
+		try {
+			return Float.parseFloat(token);
+		} catch (NumberFormatException e) {
+			throw new IOException(where + "expected a number, found " + token);
+		}
+	}
+
+	/**
+	 * Parses a whole number
+	 *
+	 * @param token
+	 *            text to parse
+	 * @param where
+	 *            location of the text, for error messages
+	 * @return the number
+	 * @throws IOException
+	 *             if the text is not a whole number
+	 */
+	private static int parseInt(String token, String where)
+			throws IOException {
+		try {
+			return Integer.parseInt(token);
+		} catch (NumberFormatException e) {
+			throw new IOException(where + "expected a whole number, found "
+					+ token);
+		}
+	}
+}
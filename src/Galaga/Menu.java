@@ -1,7 +1,6 @@
 package Galaga;
 
 import processing.core.PApplet;
-import processing.core.PFont;
 
 /**
  * Defines a menu composed of one or more options. Options are stored in a
@@ -102,6 +101,35 @@ public class Menu {
 		}
 	}
 
+	/**
+	 * Returns the position of the selected option, counting from the top
+	 * 
+	 * @return index of the selected option
+	 */
+	public int selectedIndex() {
+		int index = 0;
+		Node current = head.getNext();
+		while (current != selected) {
+			current = current.getNext();
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Select the option at the passed in position, counting from the top
+	 * 
+	 * @param index
+	 *            index of the option to select
+	 */
+	public void select(int index) {
+		selected.getOption().deselect();
+		selected = head.getNext();
+		for (int i = 0; i < index; i++)
+			selected = selected.getNext();
+		selected.getOption().select();
+	}
+
 	/**
 	 * Execute the selected option
 	 */
@@ -116,8 +144,7 @@ public class Menu {
 	 *            PApplet to draw to
 	 */
 	public void render(PApplet g) {
-		PFont font = g.loadFont("Fonts/Emulogic-36.vlw");
-		g.textFont(font, 36);
+		g.textFont(Typeface.EMULOGIC.font(), 36);
 		Node current = head.getNext();
 		do {
 			current.getOption().render(g);
@@ -1,7 +1,5 @@
 package Galaga;
 
-import processing.core.*;
-
 /**
  * Defines a missile
  * 
@@ -27,7 +25,7 @@ public abstract class Missile implements ApplicationConstants {
 	/**
 	 * Sprite to draw
 	 */
-	protected PImage sprite;
+	protected Sprite sprite;
 
 	/**
 	 * Boolean to keep track of whether the missile is destroyed
@@ -43,11 +41,24 @@ public abstract class Missile implements ApplicationConstants {
 	 *            initial y-coordinate of the missile
 	 */
 	public Missile(float x, float y) {
+		reset(x, y);
+		createSprite();
+	}
+
+	/**
+	 * Puts the missile back in play at the passed in coordinates, so that a
+	 * destroyed missile can be fired again instead of making a new one
+	 * 
+	 * @param x
+	 *            initial x-coordinate of the missile
+	 * @param y
+	 *            initial y-coordinate of the missile
+	 */
+	protected void reset(float x, float y) {
 		this.x = x;
 		this.y = y;
 		this.theta = 0;
 		this.destroyed = false;
-		createSprite();
 	}
 
 	/**
@@ -64,25 +75,6 @@ public abstract class Missile implements ApplicationConstants {
 			destroy();
 	}
 
-	/**
-	 * Draws the missile to the passed PApplet
-	 * 
-	 * @param g
-	 *            PApplet to draw to
-	 */
-	public void render(PApplet g) {
-		g.pushMatrix();
-		g.translate(x, y);
-		g.scale(PIXEL_WIDTH);
-		g.rotate(theta);
-		g.noSmooth();
-		g.imageMode(PConstants.CENTER);
-
-		g.image(sprite, 0, 0);
-
-		g.popMatrix();
-	}
-
 	/**
 	 * Destroy the missile
 	 */
@@ -99,6 +91,23 @@ public abstract class Missile implements ApplicationConstants {
 		return destroyed;
 	}
 
+	/**
+	 * Copy the state of this missile into another of the same kind, as when
+	 * restoring a saved game
+	 * 
+	 * @param other
+	 *            missile to copy into
+	 */
+	public void copyTo(Missile other) {
+		other.vx = vx;
+		other.vy = vy;
+		other.x = x;
+		other.y = y;
+		other.theta = theta;
+		other.sprite = sprite;
+		other.destroyed = destroyed;
+	}
+
 	/**
 	 * Accessor method for the x coordinate of the missile
 	 * 
@@ -118,7 +127,25 @@ public abstract class Missile implements ApplicationConstants {
 	}
 
 	/**
-	 * Loads the sprite for the missile
+	 * Accessor method for the angle of the missile
+	 * 
+	 * @return the angle of the missile
+	 */
+	public float getTheta() {
+		return theta;
+	}
+
+	/**
+	 * Accessor method for the sprite of the missile
+	 * 
+	 * @return the sprite of the missile
+	 */
+	public Sprite getSprite() {
+		return sprite;
+	}
+
+	/**
+	 * Selects the sprite for the missile
 	 */
 	protected abstract void createSprite();
 }
@@ -1,7 +1,6 @@
 package Galaga;
 
 import processing.core.PApplet;
-import processing.core.PFont;
 
 /**
  * Defines a field for name entry using cycleable letters
@@ -154,6 +153,64 @@ public class NameEntry {
 		selected.getLetter().setLetter(letter);
 	}
 
+	/**
+	 * Returns the position of the selected letter, counting from the left
+	 * 
+	 * @return index of the selected letter
+	 */
+	public int selectedIndex() {
+		int index = 0;
+		Node current = head.getNext();
+		while (current != selected) {
+			current = current.getNext();
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Select the letter at the passed in position, counting from the left
+	 * 
+	 * @param index
+	 *            index of the letter to select
+	 */
+	public void select(int index) {
+		selected.getLetter().deselect();
+		selected = head.getNext();
+		for (int i = 0; i < index; i++)
+			selected = selected.getNext();
+		selected.getLetter().select();
+	}
+
+	/**
+	 * Returns the letter at the passed in position, counting from the left
+	 * 
+	 * @param index
+	 *            index of the letter
+	 * @return the letter at that position
+	 */
+	public char letterAt(int index) {
+		Node current = head.getNext();
+		for (int i = 0; i < index; i++)
+			current = current.getNext();
+		return current.getLetter().getLetter();
+	}
+
+	/**
+	 * Set the letter at the passed in position, counting from the left
+	 * 
+	 * @param index
+	 *            index of the letter
+	 * @param letter
+	 *            new letter
+	 */
+	public void setLetter(int index, char letter) {
+		Node current = head.getNext();
+		for (int i = 0; i < index; i++)
+			current = current.getNext();
+		current.getLetter().setLetter(letter);
+	}
+
 	/**
 	 * Render the menu to the passed in PApplet
 	 * 
@@ -161,8 +218,7 @@ public class NameEntry {
 	 *            PApplet to draw to
 	 */
 	public void render(PApplet g) {
-		PFont font = g.loadFont("Fonts/Emulogic-36.vlw");
-		g.textFont(font, 18);
+		g.textFont(Typeface.EMULOGIC.font(), 18);
 		Node current = head.getNext();
 		do {
 			current.getLetter().render(g);
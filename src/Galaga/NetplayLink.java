@@ -0,0 +1,230 @@
+package Galaga;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+/**
+ * UDP connection between two cabinets playing together. Packets are sent and
+ * received without blocking. For testing, outgoing packets can be held back to
+ * simulate latency and dropped at random to simulate loss; held packets wait
+ * in a preallocated ring, so the link does not allocate either way
+ *
+ * @author Christopher Glasz
+ */
+public class NetplayLink {
+
+	/**
+	 * Largest packet that can be sent
+	 */
+	public static final int MAX_PACKET = 512;
+
+	/**
+	 * Number of packets that can be held back at once. Must be a power of two
+	 */
+	private static final int CAPACITY = 256;
+
+	/**
+	 * Mask to turn a sequence number into a slot index
+	 */
+	private static final int MASK = CAPACITY - 1;
+
+	/**
+	 * Socket connected to the other cabinet
+	 */
+	private final DatagramChannel channel;
+
+	/**
+	 * Time to hold back each outgoing packet, in nanoseconds
+	 */
+	private final long latency;
+
+	/**
+	 * Fraction of outgoing packets to drop
+	 */
+	private final float loss;
+
+	/**
+	 * Decides which packets are dropped. Only used when testing, so it need
+	 * not be seeded
+	 */
+	private final Random random;
+
+	/**
+	 * Packets being held back
+	 */
+	private final ByteBuffer[] held;
+
+	/**
+	 * Time each held packet is due to be sent, from System.nanoTime()
+	 */
+	private final long[] due;
+
+	/**
+	 * Sequence numbers of the next held packet to write and to send
+	 */
+	private long head, tail;
+
+	/**
+	 * Number of packets sent, dropped on purpose, and received
+	 */
+	private long sent, dropped, received;
+
+	/**
+	 * Constructor for a link with no simulated latency or loss
+	 *
+	 * @param local
+	 *            address to receive on
+	 * @param remote
+	 *            address of the other cabinet
+	 * @throws IOException
+	 *             if the socket cannot be opened
+	 */
+	public NetplayLink(InetSocketAddress local, InetSocketAddress remote)
+			throws IOException {
+		this(local, remote, 0, 0);
+	}
+
+	/**
+	 * Constructor opens the socket
+	 *
+	 * @param local
+	 *            address to receive on
+	 * @param remote
+	 *            address of the other cabinet
+	 * @param latencyMillis
+	 *            time to hold back each outgoing packet, in milliseconds
+	 * @param loss
+	 *            fraction of outgoing packets to drop, between 0 and 1
+	 * @throws IOException
+	 *             if the socket cannot be opened
+	 */
+	public NetplayLink(InetSocketAddress local, InetSocketAddress remote,
+			int latencyMillis, float loss) throws IOException {
+		channel = DatagramChannel.open();
+		channel.bind(local);
+		channel.connect(remote);
+		channel.configureBlocking(false);
+		this.latency = latencyMillis * 1000000L;
+		this.loss = loss;
+		random = new Random();
+		held = new ByteBuffer[CAPACITY];
+		due = new long[CAPACITY];
+		for (int i = 0; i < CAPACITY; i++)
+			held[i] = ByteBuffer.allocate(MAX_PACKET);
+		head = 0;
+		tail = 0;
+	}
+
+	/**
+	 * Send a packet, or hold it back if simulating latency
+	 *
+	 * @param packet
+	 *            the packet, ready for reading
+	 * @throws IOException
+	 *             if the packet cannot be sent
+	 */
+	public void send(ByteBuffer packet) throws IOException {
+		if (loss > 0 && random.nextFloat() < loss) {
+			dropped++;
+			return;
+		}
+		if (latency == 0) {
+			write(packet);
+			return;
+		}
+
+		// Too much held back already counts as loss
+		if (head - tail == CAPACITY) {
+			dropped++;
+			return;
+		}
+		int slot = (int) head & MASK;
+		held[slot].clear();
+		held[slot].put(packet);
+		held[slot].flip();
+		due[slot] = System.nanoTime() + latency;
+		head++;
+	}
+
+	/**
+	 * Send every held packet that is due
+	 *
+	 * @throws IOException
+	 *             if a packet cannot be sent
+	 */
+	public void flush() throws IOException {
+		long now = System.nanoTime();
+		while (tail != head && due[(int) tail & MASK] <= now) {
+			write(held[(int) tail & MASK]);
+			tail++;
+		}
+	}
+
+	/**
+	 * Send a packet now
+	 *
+	 * @param packet
+	 *            the packet, ready for reading
+	 * @throws IOException
+	 *             if the packet cannot be sent
+	 */
+	private void write(ByteBuffer packet) throws IOException {
+		try {
+			channel.write(packet);
+			sent++;
+		} catch (PortUnreachableException e) {
+
+			// The other cabinet is not listening yet; it will be resent
+			dropped++;
+		}
+	}
+
+	/**
+	 * Receive one packet, if one has arrived
+	 *
+	 * @param packet
+	 *            buffer to receive into; left ready for reading
+	 * @return true if a packet was received
+	 * @throws IOException
+	 *             if the socket fails
+	 */
+	public boolean receive(ByteBuffer packet) throws IOException {
+		packet.clear();
+		int n;
+		try {
+			n = channel.read(packet);
+		} catch (PortUnreachableException e) {
+			n = 0;
+		}
+		packet.flip();
+		if (n > 0)
+			received++;
+		return n > 0;
+	}
+
+	/**
+	 * Returns a one-line summary of the traffic
+	 *
+	 * @return a one-line summary of the traffic
+	 */
+	public String summary() {
+		return "link: sent=" + sent + " dropped=" + dropped + " received="
+				+ received;
+	}
+
+	/**
+	 * Close the socket
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.out.println("Error closing the netplay socket");
+			e.printStackTrace();
+		}
+	}
+}
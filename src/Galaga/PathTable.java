@@ -0,0 +1,475 @@
+package Galaga;
+
+import Jama.Matrix;
+import processing.core.PApplet;
+import processing.core.PConstants;
+
+/**
+ * Defines a solved cubic path sampled at a fixed time step into a table of
+ * positions and headings. Following the path is then an indexed linear
+ * interpolation between two samples, with no search and no trigonometry.
+ * Callers keep a cursor into the table, which only ever moves forward, so
+ * finding the current sample is constant time per frame.
+ * <p>
+ * Tables are never modified once sampled, so one table can be shared by
+ * every enemy following the same path
+ *
+ * @author Christopher Glasz
+ */
+public class PathTable implements ApplicationConstants {
+
+	/**
+	 * Longest time between samples in seconds
+	 */
+	public static final float STEP = 1 / 60f;
+
+	/**
+	 * Furthest the interpolated path may stray from the analytic curve, in
+	 * world units
+	 */
+	public static final float TOLERANCE = PIXEL_WIDTH / 4;
+
+	/**
+	 * Coordinates of each sample
+	 */
+	private final float[] xs, ys;
+
+	/**
+	 * Heading of each sample, unwrapped so that neighbouring samples never
+	 * differ by more than PI
+	 */
+	private final float[] headings;
+
+	/**
+	 * Time taken to follow the whole path, in seconds
+	 */
+	private final float duration;
+
+	/**
+	 * Time between samples in seconds. At most STEP, chosen so the last
+	 * sample lands exactly on the end of the path
+	 */
+	private final float step;
+
+	/**
+	 * Samples a solved path
+	 *
+	 * @param waypoints
+	 *            waypoints of the path, each entry is {x, y, time}
+	 * @param ax
+	 *            coefficients of the cubic for x on each segment
+	 * @param ay
+	 *            coefficients of the cubic for y on each segment
+	 */
+	public PathTable(float[][] waypoints, float[][] ax, float[][] ay) {
+		duration = waypoints[waypoints.length - 1][2];
+		int n = Math.max(2, (int) Math.ceil(duration / STEP) + 1);
+		step = duration / (n - 1);
+		xs = new float[n];
+		ys = new float[n];
+		headings = new float[n];
+
+		float[] point = new float[2];
+		for (int i = 0; i < n; i++) {
+			evaluate(waypoints, ax, ay, Math.min(i * step, duration), point);
+			xs[i] = point[0];
+			ys[i] = point[1];
+		}
+
+		// Face away from the previous sample, as the enemy did when it
+		// computed its heading from the last frame
+		for (int i = 1; i < n; i++) {
+			headings[i] = PApplet.atan2(ys[i - 1] - ys[i], xs[i - 1] - xs[i])
+					+ PConstants.PI / 2;
+			float turn = headings[i] - headings[i - 1];
+			if (i > 1) {
+				while (turn > PConstants.PI) {
+					headings[i] -= PConstants.TWO_PI;
+					turn -= PConstants.TWO_PI;
+				}
+				while (turn < -PConstants.PI) {
+					headings[i] += PConstants.TWO_PI;
+					turn += PConstants.TWO_PI;
+				}
+			}
+		}
+		headings[0] = headings[1];
+
+		assert maxError(waypoints, ax, ay) <= TOLERANCE : "path sampled too coarsely: "
+				+ maxError(waypoints, ax, ay);
+	}
+
+	/**
+	 * Calculate the coefficients for the cubic interpolation through the
+	 * waypoints and sample the resulting path into a table
+	 *
+	 * @param waypoints
+	 *            waypoints of the path, each entry is {x, y, time}
+	 * @return the sampled path
+	 */
+	public static PathTable solve(float[][] waypoints) {
+		float[][][] a = coefficients(waypoints);
+		return new PathTable(waypoints, a[0], a[1]);
+	}
+
+	/**
+	 * Calculate the coefficients for the cubic interpolation through the
+	 * waypoints
+	 *
+	 * @param waypoints
+	 *            waypoints of the path, each entry is {x, y, time}
+	 * @return the coefficients for x and for y, each indexed by segment
+	 */
+	public static float[][][] coefficients(float[][] waypoints) {
+
+		final int NB_SEGMENTS = waypoints.length - 1;
+		final int NB_WAY_PTS = waypoints.length;
+
+		// ----------------------------------------------------
+		// 1. Initialize the TNT matrices of the SLE
+		// ----------------------------------------------------
+		double[][] mat = new double[4 * NB_SEGMENTS][4 * NB_SEGMENTS];
+		double[][] b = new double[4 * NB_SEGMENTS][3];
+
+		// ------------------------------------------------------------
+		// initialize the first two and last two rows of the matrix.
+		// These correspond to the conditions at the path's endpoints.
+		// ------------------------------------------------------------
+
+		// 1 0 0 0 ... 0
+		mat[0][0] = 1;
+
+		// 0 1 0 0 0 ... 0
+		mat[1][1] = 1;
+
+		// 0 ... 0 0 0 1 1 1 1
+		mat[4 * NB_SEGMENTS - 2][4 * NB_SEGMENTS - 4] = 1;
+		mat[4 * NB_SEGMENTS - 2][4 * NB_SEGMENTS - 3] = 1;
+		mat[4 * NB_SEGMENTS - 2][4 * NB_SEGMENTS - 2] = 1;
+		mat[4 * NB_SEGMENTS - 2][4 * NB_SEGMENTS - 1] = 1;
+
+		// 0 ... 0 0 0 1 2 3
+		mat[4 * NB_SEGMENTS - 1][4 * NB_SEGMENTS - 3] = 1;
+		mat[4 * NB_SEGMENTS - 1][4 * NB_SEGMENTS - 2] = 2.0;
+		mat[4 * NB_SEGMENTS - 1][4 * NB_SEGMENTS - 1] = 3.0;
+
+		// Initial location
+		b[0][0] = waypoints[0][0]; // x0
+		b[0][1] = waypoints[0][1]; // y0
+
+		// Initial speed
+		b[1][0] = 0; // vx0
+		b[1][1] = 0; // vy0
+
+		// End location
+		b[4 * NB_SEGMENTS - 2][0] = waypoints[NB_WAY_PTS - 1][0];
+		b[4 * NB_SEGMENTS - 2][1] = waypoints[NB_WAY_PTS - 1][1];
+
+		// End speed
+		b[4 * NB_SEGMENTS - 1][0] = 0;
+		b[4 * NB_SEGMENTS - 1][1] = 0;
+
+		// --------------------------------------------------------------
+		// Now fill in the values for the connections at interior points
+		// --------------------------------------------------------------
+
+		// 0 ... 0 1 1 1 1 0 0 0 0 0 ... 0 < 4(i - 1) + 2
+		// 0 ... 0 0 0 0 0 1 0 0 0 0 ... 0
+		// 0 ... 0 0 1 2 3 0 -1 0 0 0 ... 0
+		// 0 ... 0 0 0 2 6 0 0-2 0 0 ... 0
+		// ^ 4(i - 1)
+		for (int i = 1; i < NB_WAY_PTS - 1; i++) {
+			int k = 4 * (i - 1) + 2;
+			int l = 4 * (i - 1);
+
+			// 1 1 1 1 0 0 0 0
+			mat[k][l] = 1;
+			mat[k][l + 1] = 1;
+			mat[k][l + 2] = 1;
+			mat[k][l + 3] = 1;
+
+			// 0 0 0 0 1 0 0 0
+			mat[k + 3][l + 4] = 1;
+
+			// 0 1 2 3 0 -1 0 0
+			mat[k + 1][l + 1] = 1.0;
+			mat[k + 1][l + 2] = 2.0;
+			mat[k + 1][l + 3] = 3.0;
+			mat[k + 1][l + 5] = -1.0;
+
+			// 0 0 2 6 0 0 -2 0
+			mat[k + 2][l + 2] = 2.0;
+			mat[k + 2][l + 3] = 6.0;
+			mat[k + 2][l + 6] = -2.0;
+
+			// Location
+			b[k][0] = waypoints[i][0];
+			b[k][1] = waypoints[i][1];
+
+			// Continuity of first derivative for x and y
+			b[k + 1][0] = 0;
+			b[k + 1][1] = 0;
+
+			// Continuity of first derivative for x and y
+			b[k + 2][0] = 0;
+			b[k + 2][1] = 0;
+
+			// Location
+			b[k + 3][0] = waypoints[i][0];
+			b[k + 3][1] = waypoints[i][1];
+		}
+
+		// ----------------------------------------------------
+		// 2. Solve the SLE
+		// ----------------------------------------------------
+		Matrix M = new Matrix(mat);
+		Matrix B = new Matrix(b);
+		Matrix Axyt = M.solve(B);
+
+		// ----------------------------------------------------
+		// 3. Copy the results out
+		// ----------------------------------------------------
+		float[][] ax = new float[NB_SEGMENTS][4];
+		float[][] ay = new float[NB_SEGMENTS][4];
+
+		for (int i = 0; i < NB_SEGMENTS; i++) {
+			for (int j = 0; j < 4; j++) {
+				ax[i][j] = (float) Axyt.get(4 * i + j, 0);
+				ay[i][j] = (float) Axyt.get(4 * i + j, 1);
+			}
+		}
+
+		return new float[][][] { ax, ay };
+	}
+
+	/**
+	 * Evaluates the analytic curve at the given time
+	 *
+	 * @param waypoints
+	 *            waypoints of the path, each entry is {x, y, time}
+	 * @param ax
+	 *            coefficients of the cubic for x on each segment
+	 * @param ay
+	 *            coefficients of the cubic for y on each segment
+	 * @param t
+	 *            time since the start of the path, in seconds
+	 * @param out
+	 *            array to store the x and y coordinates in
+	 */
+	public static void evaluate(float[][] waypoints, float[][] ax,
+			float[][] ay, float t, float[] out) {
+
+		// which interval do we fall into?
+		int i = 1;
+		while (i < waypoints.length - 1 && waypoints[i][2] < t)
+			i++;
+
+		// Time along that interval
+		float tau = (t - waypoints[i - 1][2])
+				/ (waypoints[i][2] - waypoints[i - 1][2]);
+		float tau2 = tau * tau;
+		float tau3 = tau2 * tau;
+
+		out[0] = ax[i - 1][3] * tau3 + ax[i - 1][2] * tau2 + ax[i - 1][1]
+				* tau + ax[i - 1][0];
+		out[1] = ay[i - 1][3] * tau3 + ay[i - 1][2] * tau2 + ay[i - 1][1]
+				* tau + ay[i - 1][0];
+	}
+
+	/**
+	 * Returns the furthest the interpolated table strays from the analytic
+	 * curve, checked at several points between every pair of samples
+	 *
+	 * @param waypoints
+	 *            waypoints the table was sampled from
+	 * @param ax
+	 *            coefficients the table was sampled from
+	 * @param ay
+	 *            coefficients the table was sampled from
+	 * @return the largest distance found, in world units
+	 */
+	public float maxError(float[][] waypoints, float[][] ax, float[][] ay) {
+		float[] point = new float[2];
+		float worst = 0;
+		int cursor = 0;
+		for (int i = 0; i < xs.length - 1; i++) {
+			for (int k = 1; k < 4; k++) {
+				float t = Math.min((i + k / 4f) * step, duration);
+				cursor = seek(cursor, t);
+				float f = fraction(cursor, t);
+				evaluate(waypoints, ax, ay, t, point);
+				float dx = getX(cursor, f) - point[0];
+				float dy = getY(cursor, f) - point[1];
+				worst = Math.max(worst, (float) Math.sqrt(dx * dx + dy * dy));
+			}
+		}
+		return worst;
+	}
+
+	/**
+	 * Accessor method for the duration
+	 *
+	 * @return time taken to follow the whole path, in seconds
+	 */
+	public float duration() {
+		return duration;
+	}
+
+	/**
+	 * Accessor method for the number of samples
+	 *
+	 * @return number of samples in the table
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * Moves a cursor forward to the sample at or just before the given time
+	 *
+	 * @param cursor
+	 *            current cursor, starting at 0
+	 * @param t
+	 *            time since the start of the path, in seconds
+	 * @return the new cursor
+	 */
+	public int seek(int cursor, float t) {
+		while (cursor < xs.length - 2 && (cursor + 1) * step <= t)
+			cursor++;
+		return cursor;
+	}
+
+	/**
+	 * Returns how far the given time is between the sample at the cursor and
+	 * the next one
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param t
+	 *            time since the start of the path, in seconds
+	 * @return fraction between 0 and 1
+	 */
+	public float fraction(int cursor, float t) {
+		if (step <= 0)
+			return 1;
+		float f = (t - cursor * step) / step;
+		return f < 0 ? 0 : (f > 1 ? 1 : f);
+	}
+
+	/**
+	 * Returns the interpolated x coordinate
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param f
+	 *            fraction returned by {@link #fraction(int, float)}
+	 * @return the x coordinate
+	 */
+	public float getX(int cursor, float f) {
+		return lerp(xs, cursor, f);
+	}
+
+	/**
+	 * Returns the interpolated y coordinate
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param f
+	 *            fraction returned by {@link #fraction(int, float)}
+	 * @return the y coordinate
+	 */
+	public float getY(int cursor, float f) {
+		return lerp(ys, cursor, f);
+	}
+
+	/**
+	 * Returns the interpolated heading
+	 *
+	 * @param cursor
+	 *            cursor returned by {@link #seek(int, float)}
+	 * @param f
+	 *            fraction returned by {@link #fraction(int, float)}
+	 * @return the heading
+	 */
+	public float getHeading(int cursor, float f) {
+		return lerp(headings, cursor, f);
+	}
+
+	/**
+	 * Interpolates between a sample and the next
+	 *
+	 * @param samples
+	 *            samples to interpolate
+	 * @param cursor
+	 *            index of the first sample
+	 * @param f
+	 *            fraction between 0 and 1
+	 * @return the interpolated value
+	 */
+	private static float lerp(float[] samples, int cursor, float f) {
+		if (cursor + 1 >= samples.length)
+			return samples[samples.length - 1];
+		return samples[cursor] + f * (samples[cursor + 1] - samples[cursor]);
+	}
+
+	/**
+	 * Check every flight path against its analytic curve, from spawn points
+	 * and goals spread over and around the world, and report the furthest
+	 * each strays. The constructor only asserts the tolerance, and only when
+	 * assertions are on, so this is the check a build runs. Exits with an
+	 * error if any path strays further than TOLERANCE. The argument is the
+	 * number of points to try across each coordinate
+	 *
+	 * @param args
+	 *            points across each coordinate
+	 */
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+		boolean failed = false;
+		for (FlightPath path : FlightPath.values()) {
+			float worst = 0;
+			String where = "";
+			for (int i = 0; i < n * n * n * n; i++) {
+				float x = spread(i % n, n, -WORLD_WIDTH, WORLD_WIDTH);
+				float y = spread(i / n % n, n, -WORLD_HEIGHT / 4,
+						5 * WORLD_HEIGHT / 4);
+				float goalX = spread(i / n / n % n, n, -WORLD_WIDTH / 2,
+						WORLD_WIDTH / 2);
+				float goalY = spread(i / n / n / n, n, 0, WORLD_HEIGHT);
+				float[][] waypoints = path.getPoints(x, y, goalX, goalY);
+				float[][][] a = coefficients(waypoints);
+				float error = new PathTable(waypoints, a[0], a[1]).maxError(
+						waypoints, a[0], a[1]);
+				if (error > worst) {
+					worst = error;
+					where = String.format("from (%.2f, %.2f) to (%.2f, %.2f)",
+							x, y, goalX, goalY);
+				}
+			}
+			System.out.println(String.format(
+					"%s: worst error=%.6f tolerance=%.6f %s %s", path, worst,
+					TOLERANCE, where, worst > TOLERANCE ? "FAILED" : "ok"));
+			failed |= worst > TOLERANCE;
+		}
+		if (failed)
+			System.exit(1);
+	}
+
+	/**
+	 * Returns one of a number of points spread evenly over a range, ends
+	 * included
+	 *
+	 * @param i
+	 *            index of the point
+	 * @param n
+	 *            number of points
+	 * @param from
+	 *            start of the range
+	 * @param to
+	 *            end of the range
+	 * @return the point
+	 */
+	private static float spread(int i, int n, float from, float to) {
+		return n < 2 ? from : from + i * (to - from) / (n - 1);
+	}
+}
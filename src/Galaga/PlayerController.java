@@ -0,0 +1,31 @@
+package Galaga;
+
+/**
+ * Interface for something that plays the game in place of a person, such as
+ * a bot soak testing a new build. Each tick it is shown the world as it was
+ * drawn at the end of the last tick, and decides how to move the joystick
+ * and whether to fire. The decisions are pressed as buttons by an
+ * {@link Autopilot}, so they reach the fighter exactly as a player's keys do
+ *
+ * @author Christopher Glasz
+ */
+public interface PlayerController {
+
+	/**
+	 * Decide which way to move the fighter
+	 *
+	 * @param world
+	 *            the world at the end of the last tick, not to be modified
+	 * @return direction to hold the joystick, or CENTER to stay put
+	 */
+	public Joystick steer(FrameSnapshot world);
+
+	/**
+	 * Decide whether to fire
+	 *
+	 * @param world
+	 *            the world at the end of the last tick, not to be modified
+	 * @return true to fire a missile
+	 */
+	public boolean fire(FrameSnapshot world);
+}
@@ -0,0 +1,161 @@
+package Galaga;
+
+/**
+ * Enumeration of the levels of quality the game can be drawn at, from best
+ * to cheapest. Each level gives up a little more than the one before it:
+ * first half the stars, then smoothed text, then live rotation of the
+ * sprites, then every other frame of the explosions, and last of all half
+ * the resolution. The ordinal of each level is its place in that order
+ *
+ * @author Christopher Glasz
+ */
+public enum Quality {
+
+	/**
+	 * Everything drawn as designed
+	 */
+	FULL(1, true, false, 1, 1),
+
+	/**
+	 * Half the stars
+	 */
+	HIGH(0.5f, true, false, 1, 1),
+
+	/**
+	 * Half the stars, no smoothing, and sprites drawn from pre-rotated
+	 * images
+	 */
+	MEDIUM(0.5f, false, true, 1, 1),
+
+	/**
+	 * A quarter of the stars, no smoothing, pre-rotated sprites, and enemy
+	 * explosions drawn every other frame
+	 */
+	LOW(0.25f, false, true, 2, 1),
+
+	/**
+	 * As LOW, drawn at half the resolution and scaled up to the window
+	 */
+	MINIMUM(0.25f, false, true, 2, 0.5f);
+
+	/**
+	 * Every level, best first, so stepping does not copy the array
+	 */
+	private static final Quality[] VALUES = values();
+
+	/**
+	 * Fraction of the stars drawn
+	 */
+	private final float stars;
+
+	/**
+	 * True to smooth the stars and text. Sprites are never smoothed
+	 */
+	private final boolean smooth;
+
+	/**
+	 * True to draw sprites from images rotated ahead of time, rather than
+	 * rotating them as they are drawn
+	 */
+	private final boolean preRotated;
+
+	/**
+	 * Enemy explosions are drawn every this many frames
+	 */
+	private final int explosionStride;
+
+	/**
+	 * Resolution the game is drawn at, as a fraction of the window's
+	 */
+	private final float resolution;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param stars
+	 *            fraction of the stars drawn
+	 * @param smooth
+	 *            true to smooth the stars and text
+	 * @param preRotated
+	 *            true to draw sprites from pre-rotated images
+	 * @param explosionStride
+	 *            enemy explosions are drawn every this many frames
+	 * @param resolution
+	 *            resolution drawn at, as a fraction of the window's
+	 */
+	private Quality(float stars, boolean smooth, boolean preRotated,
+			int explosionStride, float resolution) {
+		this.stars = stars;
+		this.smooth = smooth;
+		this.preRotated = preRotated;
+		this.explosionStride = explosionStride;
+		this.resolution = resolution;
+	}
+
+	/**
+	 * Returns how many of the stars to draw
+	 *
+	 * @param total
+	 *            number of stars there are
+	 * @return number of stars to draw
+	 */
+	public int stars(int total) {
+		return (int) (total * stars);
+	}
+
+	/**
+	 * Accessor method for smoothing
+	 *
+	 * @return true to smooth the stars and text
+	 */
+	public boolean isSmooth() {
+		return smooth;
+	}
+
+	/**
+	 * Accessor method for pre-rotation
+	 *
+	 * @return true to draw sprites from pre-rotated images
+	 */
+	public boolean isPreRotated() {
+		return preRotated;
+	}
+
+	/**
+	 * Returns true if enemy explosions should be drawn on the given frame
+	 *
+	 * @param frame
+	 *            number of the frame being drawn
+	 * @return true to draw enemy explosions
+	 */
+	public boolean drawsExplosions(int frame) {
+		return frame % explosionStride == 0;
+	}
+
+	/**
+	 * Accessor method for the resolution
+	 *
+	 * @return resolution drawn at, as a fraction of the window's
+	 */
+	public float getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * Returns the next cheaper level
+	 *
+	 * @return the next cheaper level, or this one if it is the cheapest
+	 */
+	public Quality lower() {
+		return ordinal() + 1 < VALUES.length ? VALUES[ordinal() + 1] : this;
+	}
+
+	/**
+	 * Returns the next better level
+	 *
+	 * @return the next better level, or this one if it is the best
+	 */
+	public Quality higher() {
+		return ordinal() > 0 ? VALUES[ordinal() - 1] : this;
+	}
+}
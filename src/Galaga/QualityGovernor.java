@@ -0,0 +1,214 @@
+package Galaga;
+
+/**
+ * Holds the renderer to its frame budget by stepping the {@link Quality} it
+ * draws at down when frames are missed, and back up when there is room to
+ * spare. Steps down and up are decided differently so that the level does
+ * not swing back and forth: a step down is taken once too many frames in
+ * the last second drawn at a level missed the budget, while a step up waits
+ * for several seconds in which every frame was drawn well inside it. A step
+ * up that has to be taken back soon after makes the governor wait twice as
+ * long before trying again. Every change of level is logged.
+ * <p>
+ * Recording is constant time and does not allocate, except to log a change
+ * of level. A governor is meant to be used by the thread that draws
+ *
+ * @author Christopher Glasz
+ */
+public class QualityGovernor {
+
+	/**
+	 * Number of frames in the window a step down is decided over
+	 */
+	private static final int WINDOW = 60;
+
+	/**
+	 * Number of frames in the window that must miss the budget to step down
+	 */
+	private static final int STEP_DOWN_MISSES = 6;
+
+	/**
+	 * A frame counts as missed if it took this much longer than the budget,
+	 * so the pacer's own jitter is not mistaken for load
+	 */
+	private static final float MISS_SLACK = 1.25f;
+
+	/**
+	 * A frame has room to spare if drawing it took less than this fraction
+	 * of the budget
+	 */
+	private static final float HEADROOM = 0.6f;
+
+	/**
+	 * Number of frames in a row with room to spare needed to step up, before
+	 * any failed step up has made the governor wait longer
+	 */
+	private static final int STEP_UP_FRAMES = 3 * WINDOW;
+
+	/**
+	 * Most the wait before stepping up can grow to
+	 */
+	private static final int MAX_STEP_UP_FRAMES = 16 * STEP_UP_FRAMES;
+
+	/**
+	 * A step down this many frames or fewer after a step up means the step
+	 * up failed
+	 */
+	private static final int RETRY_FRAMES = 10 * WINDOW;
+
+	/**
+	 * Time allowed for each frame in nanoseconds
+	 */
+	private final long budget;
+
+	/**
+	 * Whether each frame in the window missed the budget, as a ring
+	 */
+	private final boolean[] missed;
+
+	/**
+	 * Index in the ring of the next frame
+	 */
+	private int next;
+
+	/**
+	 * Number of frames in the window, up to its size
+	 */
+	private int filled;
+
+	/**
+	 * Number of frames in the window that missed the budget
+	 */
+	private int misses;
+
+	/**
+	 * Number of frames in a row with room to spare
+	 */
+	private int calm;
+
+	/**
+	 * Frames in a row with room to spare needed to step up
+	 */
+	private int stepUpFrames;
+
+	/**
+	 * Number of frames recorded
+	 */
+	private long frames;
+
+	/**
+	 * Frame the last step up was taken on, or a negative number if none has
+	 * been
+	 */
+	private long lastStepUp;
+
+	/**
+	 * Number of steps down and up taken
+	 */
+	private int stepsDown, stepsUp;
+
+	/**
+	 * Level currently drawn at
+	 */
+	private Quality quality;
+
+	/**
+	 * Constructor starts at the best level
+	 *
+	 * @param budget
+	 *            time allowed for each frame in nanoseconds
+	 */
+	public QualityGovernor(long budget) {
+		this.budget = budget;
+		missed = new boolean[WINDOW];
+		stepUpFrames = STEP_UP_FRAMES;
+		lastStepUp = -RETRY_FRAMES - 1;
+		quality = Quality.FULL;
+	}
+
+	/**
+	 * Accessor method for the level
+	 *
+	 * @return level to draw the next frame at
+	 */
+	public Quality getQuality() {
+		return quality;
+	}
+
+	/**
+	 * Records one frame, and steps the level down or up if it is time to
+	 *
+	 * @param interval
+	 *            time since the start of the last frame in nanoseconds
+	 * @param work
+	 *            time spent drawing this frame in nanoseconds
+	 * @return level to draw the next frame at
+	 */
+	public Quality record(long interval, long work) {
+		frames++;
+		boolean miss = interval > budget * MISS_SLACK;
+		if (filled == WINDOW) {
+			if (missed[next])
+				misses--;
+		} else
+			filled++;
+		missed[next] = miss;
+		if (miss)
+			misses++;
+		next = (next + 1) % WINDOW;
+
+		if (!miss && work < budget * HEADROOM)
+			calm++;
+		else
+			calm = 0;
+
+		if (filled == WINDOW && misses >= STEP_DOWN_MISSES
+				&& quality != quality.lower()) {
+			if (frames - lastStepUp <= RETRY_FRAMES)
+				stepUpFrames = Math.min(2 * stepUpFrames,
+						MAX_STEP_UP_FRAMES);
+			stepsDown++;
+			change(quality.lower(), misses + " of the last " + filled
+					+ " frames missed the budget");
+		} else if (calm >= stepUpFrames && quality != quality.higher()) {
+			lastStepUp = frames;
+			stepsUp++;
+			change(quality.higher(), calm + " frames drawn inside "
+					+ (int) (HEADROOM * 100) + "% of the budget");
+		}
+		return quality;
+	}
+
+	/**
+	 * Changes level, logs the change, and starts the window over, so the
+	 * new level is judged only on frames drawn at it
+	 *
+	 * @param to
+	 *            the new level
+	 * @param reason
+	 *            why the level changed
+	 */
+	private void change(Quality to, String reason) {
+		System.out.println(String.format(
+				"quality: %s -> %s after %d frames, %s of %.1fms", quality,
+				to, frames, reason, budget * 1e-6));
+		quality = to;
+		for (int i = 0; i < WINDOW; i++)
+			missed[i] = false;
+		next = 0;
+		filled = 0;
+		misses = 0;
+		calm = 0;
+	}
+
+	/**
+	 * Returns a one line summary of the levels drawn at
+	 *
+	 * @return the summary
+	 */
+	public String summary() {
+		return "quality: frames=" + frames + " level=" + quality + " down="
+				+ stepsDown + " up=" + stepsUp + " step up wait="
+				+ stepUpFrames + " frames";
+	}
+}
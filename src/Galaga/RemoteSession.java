@@ -0,0 +1,190 @@
+package Galaga;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Plays a game hosted by a {@link GameServer}, or watches one being
+ * broadcast. Key events are sent to the server as they happen, and a thread
+ * reads the snapshots coming back and publishes them through a
+ * {@link SnapshotBuffer}, exactly as a local {@link SimulationThread} would,
+ * so the renderer cannot tell the difference
+ *
+ * @author Christopher Glasz
+ */
+public class RemoteSession extends Thread {
+
+	/**
+	 * Connection to the server
+	 */
+	private final SocketChannel channel;
+
+	/**
+	 * Where to publish snapshots
+	 */
+	private final SnapshotBuffer buffer;
+
+	/**
+	 * Decoder for a spectator stream, or null when playing
+	 */
+	private final BroadcastCodec broadcast;
+
+	/**
+	 * Key events waiting to be sent. Only touched while holding the lock on
+	 * this object
+	 */
+	private final ByteBuffer output;
+
+	/**
+	 * Bytes read from the server but not yet decoded
+	 */
+	private ByteBuffer input;
+
+	/**
+	 * True once the connection has been closed by either side
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructor connects to the server
+	 *
+	 * @param address
+	 *            address of the server
+	 * @param buffer
+	 *            where to publish snapshots
+	 * @throws IOException
+	 *             if the server cannot be reached
+	 */
+	public RemoteSession(InetSocketAddress address, SnapshotBuffer buffer)
+			throws IOException {
+		this(address, buffer, false);
+	}
+
+	/**
+	 * Constructor connects to a game server or a broadcast
+	 *
+	 * @param address
+	 *            address of the server or broadcast
+	 * @param buffer
+	 *            where to publish snapshots
+	 * @param watch
+	 *            true to watch a {@link Broadcast} rather than play
+	 * @throws IOException
+	 *             if the server cannot be reached
+	 */
+	public RemoteSession(InetSocketAddress address, SnapshotBuffer buffer,
+			boolean watch) throws IOException {
+		super(watch ? "Spectator" : "Remote session");
+		this.buffer = buffer;
+		broadcast = watch ? new BroadcastCodec() : null;
+		channel = SocketChannel.open(address);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		output = ByteBuffer.allocate(SnapshotCodec.INPUT_SIZE);
+		input = ByteBuffer.allocate(4096);
+		closed = false;
+		setDaemon(true);
+	}
+
+	/**
+	 * Parses an address of the form host:port, or just host to use the
+	 * default port
+	 *
+	 * @param address
+	 *            the address to parse
+	 * @return the parsed address
+	 */
+	public static InetSocketAddress parse(String address) {
+		int colon = address.lastIndexOf(':');
+		if (colon < 0)
+			return new InetSocketAddress(address,
+					ApplicationConstants.SERVER_PORT);
+		return new InetSocketAddress(address.substring(0, colon),
+				Integer.parseInt(address.substring(colon + 1)));
+	}
+
+	/**
+	 * Read snapshots from the server and publish them until the connection
+	 * closes
+	 */
+	@Override
+	public void run() {
+		try {
+			while (channel.read(input) >= 0) {
+				input.flip();
+				boolean fresh = false;
+				while (broadcast != null ? broadcast.decode(input, buffer
+						.back()) : SnapshotCodec.decode(input, buffer.back())) {
+					buffer.publish();
+					fresh = true;
+				}
+
+				// Make room for a frame bigger than anything seen so far
+				if (!fresh && input.limit() == input.capacity()) {
+					ByteBuffer grown = ByteBuffer
+							.allocate(input.capacity() * 2);
+					grown.put(input);
+					input = grown;
+				} else
+					input.compact();
+			}
+		} catch (IOException e) {
+			if (!closed) {
+				System.out.println("Lost connection to the game server");
+				e.printStackTrace();
+			}
+		}
+		closed = true;
+	}
+
+	/**
+	 * Send a key event to the server. Spectators cannot play, so nothing is
+	 * sent while watching
+	 *
+	 * @param type
+	 *            type of the event
+	 * @param key
+	 *            key of the event
+	 * @param keyCode
+	 *            key code of the event
+	 */
+	public synchronized void send(InputQueue.Type type, char key, int keyCode) {
+		if (closed || broadcast != null)
+			return;
+		output.clear();
+		SnapshotCodec.encodeInput(type, key, keyCode, output);
+		output.flip();
+		try {
+			while (output.hasRemaining())
+				channel.write(output);
+		} catch (IOException e) {
+			System.out.println("Error sending input to the game server");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns true once the connection has closed, as it does when the player
+	 * quits
+	 *
+	 * @return true once the connection has closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Hang up on the server
+	 */
+	public void close() {
+		closed = true;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.out.println("Error closing the connection to the server");
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,543 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Head-to-head play between two cabinets, kept in step by rollback. Both
+ * cabinets simulate both players' games from the same seed, each player
+ * driving their own game with their buttons. Buttons are sent to the other
+ * cabinet every tick, and rather than waiting for the other player's buttons
+ * to arrive, a cabinet predicts they are still what they were last and plays
+ * on. When the real buttons turn out to differ, both games are put back the
+ * way they were on the first tick that was predicted wrong, and played again
+ * up to the present. The game is never more than {@link #MAX_ROLLBACK} ticks
+ * ahead of what it has heard from the other cabinet; past that, it waits.
+ * <p>
+ * Every packet carries the buttons the other cabinet has not yet
+ * acknowledged, so a lost packet costs nothing but a later correction, and a
+ * checksum of the latest tick both cabinets agree on, so a desync is noticed
+ * as soon as it happens
+ *
+ * @author Christopher Glasz
+ */
+public class RollbackSession extends Thread implements ApplicationConstants {
+
+	/**
+	 * Most ticks the game may run ahead of the other cabinet's buttons
+	 */
+	public static final int MAX_ROLLBACK = 8;
+
+	/**
+	 * Number of ticks of buttons and saved games kept. Must be a power of two,
+	 * and more than twice the rollback window
+	 */
+	private static final int HISTORY = 32;
+
+	/**
+	 * Mask to turn a tick into a slot index
+	 */
+	private static final int MASK = HISTORY - 1;
+
+	/**
+	 * Both players' games
+	 */
+	private final GameSession[] players;
+
+	/**
+	 * Index of the player on this cabinet and on the other one
+	 */
+	private final int local, remote;
+
+	/**
+	 * Connection to the other cabinet
+	 */
+	private final NetplayLink link;
+
+	/**
+	 * Where to publish snapshots of the local player's game
+	 */
+	private final SnapshotBuffer buffer;
+
+	/**
+	 * Key events from this cabinet
+	 */
+	private final InputQueue input;
+
+	/**
+	 * Buttons held down on this cabinet
+	 */
+	private int localButtons;
+
+	/**
+	 * Both games as they were at the start of each recent tick, by slot
+	 */
+	private final GameSession.Saved[][] saves;
+
+	/**
+	 * Tick each slot was saved on
+	 */
+	private final long[] savedTicks;
+
+	/**
+	 * Checksum of both games at the start of the tick in each slot
+	 */
+	private final long[] savedChecksums;
+
+	/**
+	 * Buttons of each player on each recent tick, by slot. For the other
+	 * player, ticks not yet heard about hold the prediction
+	 */
+	private final int[][] buttons;
+
+	/**
+	 * Next tick to be played
+	 */
+	private long tick;
+
+	/**
+	 * Last tick of the other player's buttons heard about, with every tick
+	 * before it
+	 */
+	private long remoteConfirmed;
+
+	/**
+	 * Last tick of this player's buttons the other cabinet has heard about
+	 */
+	private long peerAck;
+
+	/**
+	 * Earliest tick whose predicted buttons turned out wrong, or
+	 * Long.MAX_VALUE if none has
+	 */
+	private long rollbackFrom;
+
+	/**
+	 * Latest tick and checksum the other cabinet is sure of, waiting to be
+	 * compared
+	 */
+	private long peerCheckTick, peerChecksum;
+
+	/**
+	 * Packet being sent or received
+	 */
+	private final ByteBuffer packet;
+
+	/**
+	 * Number of ticks played, stalled, and played again in rollbacks
+	 */
+	private long ticks, stalls, rollbackTicks;
+
+	/**
+	 * Number of checksums compared, and how many differed
+	 */
+	private long checks, desyncs;
+
+	/**
+	 * Number of ticks that rolled back each number of ticks
+	 */
+	private final long[] depths;
+
+	/**
+	 * Time taken by each tick, rollbacks included
+	 */
+	private final LatencyHistogram tickTime;
+
+	/**
+	 * True while the games should keep running
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Constructor creates both games
+	 *
+	 * @param dataFolder
+	 *            folder holding the level pack
+	 * @param seed
+	 *            seed both cabinets agree on
+	 * @param local
+	 *            player on this cabinet, 0 or 1
+	 * @param link
+	 *            connection to the other cabinet
+	 * @param buffer
+	 *            where to publish snapshots of the local player's game
+	 */
+	public RollbackSession(File dataFolder, long seed, int local,
+			NetplayLink link, SnapshotBuffer buffer) {
+		super("Netplay " + local);
+		this.local = local;
+		this.remote = 1 - local;
+		this.link = link;
+		this.buffer = buffer;
+		players = new GameSession[] { new GameSession(dataFolder, seed),
+				new GameSession(dataFolder, seed) };
+		input = new InputQueue();
+		localButtons = 0;
+
+		saves = new GameSession.Saved[HISTORY][2];
+		for (int i = 0; i < HISTORY; i++) {
+			saves[i][0] = new GameSession.Saved();
+			saves[i][1] = new GameSession.Saved();
+		}
+		savedTicks = new long[HISTORY];
+		for (int i = 0; i < HISTORY; i++)
+			savedTicks[i] = -1;
+		savedChecksums = new long[HISTORY];
+		buttons = new int[2][HISTORY];
+
+		tick = 0;
+		remoteConfirmed = -1;
+		peerAck = -1;
+		rollbackFrom = Long.MAX_VALUE;
+		peerCheckTick = -1;
+		packet = ByteBuffer.allocate(NetplayLink.MAX_PACKET);
+		depths = new long[MAX_ROLLBACK + 2];
+		tickTime = new LatencyHistogram("netplay tick", 1000L, 10000);
+		running = true;
+		setDaemon(true);
+	}
+
+	/**
+	 * Accessor method for the input queue. Key events offered to it become
+	 * this player's buttons on the next tick
+	 *
+	 * @return the input queue
+	 */
+	public InputQueue getInput() {
+		return input;
+	}
+
+	/**
+	 * Accessor method for the local player's game
+	 *
+	 * @return the game played on this cabinet
+	 */
+	public GameSession getLocal() {
+		return players[local];
+	}
+
+	/**
+	 * Accessor method for the other player's game
+	 *
+	 * @return the game played on the other cabinet
+	 */
+	public GameSession getRemote() {
+		return players[remote];
+	}
+
+	/**
+	 * Play one tick with this player's buttons, first playing again any ticks
+	 * the other player's buttons were predicted wrong for. Does nothing if
+	 * the game is already as far ahead of the other cabinet as it may go
+	 *
+	 * @param held
+	 *            buttons held down on this cabinet
+	 * @return true if a tick was played, false if stalled
+	 * @throws IOException
+	 *             if the link fails
+	 */
+	public boolean advance(int held) throws IOException {
+		link.flush();
+		receive();
+
+		// Too far ahead; wait for the other cabinet to catch up
+		if (tick - remoteConfirmed > MAX_ROLLBACK) {
+			stalls++;
+			send();
+			return false;
+		}
+
+		long start = System.nanoTime();
+		buttons[local][slot(tick)] = held;
+
+		// Put things right from the first tick predicted wrong
+		int depth = 0;
+		if (rollbackFrom < tick) {
+			depth = (int) (tick - rollbackFrom);
+			int s = slot(rollbackFrom);
+			players[0].restore(saves[s][0]);
+			players[1].restore(saves[s][1]);
+			for (long t = rollbackFrom; t < tick; t++)
+				play(t);
+		}
+		rollbackFrom = Long.MAX_VALUE;
+
+		play(tick);
+		tick++;
+		check();
+		send();
+
+		ticks++;
+		rollbackTicks += depth;
+		depths[Math.min(depth, depths.length - 1)]++;
+		tickTime.record(System.nanoTime() - start);
+		return true;
+	}
+
+	/**
+	 * Save both games and play one tick of each
+	 *
+	 * @param t
+	 *            the tick to play
+	 */
+	private void play(long t) {
+		int s = slot(t);
+
+		// Buttons not heard about yet are predicted to be the last ones heard
+		if (t > remoteConfirmed)
+			buttons[remote][s] = remoteConfirmed < 0 ? 0
+					: buttons[remote][slot(remoteConfirmed)];
+
+		players[0].save(saves[s][0]);
+		players[1].save(saves[s][1]);
+		savedTicks[s] = t;
+		savedChecksums[s] = players[0].checksum() * 31
+				+ players[1].checksum();
+
+		players[0].step(buttons[0][s]);
+		players[1].step(buttons[1][s]);
+	}
+
+	/**
+	 * Read every packet from the other cabinet, noting the first tick whose
+	 * buttons were predicted wrong
+	 *
+	 * @throws IOException
+	 *             if the link fails
+	 */
+	private void receive() throws IOException {
+		while (link.receive(packet)) {
+			long first = packet.getInt();
+			int count = packet.get() & 0xFF;
+			for (int i = 0; i < count; i++) {
+				long t = first + i;
+				int b = packet.get() & 0xFF;
+
+				// Only take buttons in order, so every tick up to the last
+				// one confirmed is known
+				if (t != remoteConfirmed + 1)
+					continue;
+				int s = slot(t);
+				if (t < tick && buttons[remote][s] != b && t < rollbackFrom)
+					rollbackFrom = t;
+				buttons[remote][s] = b;
+				remoteConfirmed = t;
+			}
+			peerAck = Math.max(peerAck, packet.getInt());
+			long checkTick = packet.getInt();
+			long checksum = packet.getLong();
+			if (checkTick > peerCheckTick) {
+				peerCheckTick = checkTick;
+				peerChecksum = checksum;
+			}
+		}
+	}
+
+	/**
+	 * Compare the other cabinet's latest checksum with this one's, once this
+	 * cabinet is sure of that tick too
+	 */
+	private void check() {
+		if (peerCheckTick < 0 || peerCheckTick > lastCertain())
+			return;
+		int s = slot(peerCheckTick);
+		if (savedTicks[s] == peerCheckTick) {
+			checks++;
+			if (savedChecksums[s] != peerChecksum) {
+				desyncs++;
+				System.out.println("Netplay desync on tick " + peerCheckTick);
+			}
+		}
+		peerCheckTick = -1;
+	}
+
+	/**
+	 * Returns the latest tick whose starting state can no longer change,
+	 * because every button before it is known
+	 *
+	 * @return the latest certain tick
+	 */
+	private long lastCertain() {
+		return Math.min(remoteConfirmed + 1, tick - 1);
+	}
+
+	/**
+	 * Send this player's buttons the other cabinet has not acknowledged yet,
+	 * with the latest checksum this cabinet is sure of
+	 *
+	 * @throws IOException
+	 *             if the link fails
+	 */
+	private void send() throws IOException {
+		long first = Math.max(peerAck + 1, tick - (HISTORY - 1));
+		int count = (int) Math.max(0, tick - first);
+
+		packet.clear();
+		packet.putInt((int) first);
+		packet.put((byte) count);
+		for (long t = first; t < tick; t++)
+			packet.put((byte) buttons[local][slot(t)]);
+		packet.putInt((int) remoteConfirmed);
+
+		long certain = lastCertain();
+		if (certain >= 0 && savedTicks[slot(certain)] == certain) {
+			packet.putInt((int) certain);
+			packet.putLong(savedChecksums[slot(certain)]);
+		} else {
+			packet.putInt(-1);
+			packet.putLong(0);
+		}
+		packet.flip();
+		link.send(packet);
+	}
+
+	/**
+	 * Returns the slot a tick is kept in
+	 *
+	 * @param t
+	 *            the tick
+	 * @return slot index
+	 */
+	private static int slot(long t) {
+		return (int) t & MASK;
+	}
+
+	/**
+	 * Play at a fixed rate until halted, publishing the local player's game
+	 */
+	@Override
+	public void run() {
+		final long period = (long) (TICK_TIME * 1000000000L);
+		long deadline = System.nanoTime() + period;
+
+		while (running) {
+			while (input.poll()) {
+				int mask = Button.maskOf(input.key(), input.keyCode());
+				if (input.type() == InputQueue.Type.KEY_PRESSED)
+					localButtons |= mask;
+				else
+					localButtons &= ~mask;
+			}
+
+			try {
+				advance(localButtons);
+			} catch (IOException e) {
+				System.out.println("Error talking to the other cabinet");
+				e.printStackTrace();
+				break;
+			}
+
+			if (buffer != null) {
+				players[local].capture(buffer.back());
+				buffer.publish();
+			}
+
+			// Wait for the next tick, without trying to catch up if we fell
+			// behind
+			long remaining = deadline - System.nanoTime();
+			if (remaining > 0) {
+				try {
+					Thread.sleep(remaining / 1000000,
+							(int) (remaining % 1000000));
+				} catch (InterruptedException e) {
+					break;
+				}
+				deadline += period;
+			} else
+				deadline = System.nanoTime() + period;
+		}
+		link.close();
+	}
+
+	/**
+	 * Stop playing after the current tick
+	 */
+	public void halt() {
+		running = false;
+		interrupt();
+	}
+
+	/**
+	 * Returns a one-line summary of how much rolling back each tick has cost
+	 *
+	 * @return a one-line summary of the rollbacks
+	 */
+	public String summary() {
+		StringBuilder spread = new StringBuilder();
+		for (int i = 0; i < depths.length; i++) {
+			if (depths[i] == 0)
+				continue;
+			spread.append(' ');
+			spread.append(i == depths.length - 1 ? i + "+" : "" + i);
+			spread.append(':');
+			spread.append(depths[i]);
+		}
+		return String.format(
+				"netplay: ticks=%d stalls=%d rollback ticks/tick=%.2f "
+						+ "depths={%s } checks=%d desyncs=%d "
+						+ "tick p99=%.3fms max=%.3fms", ticks, stalls,
+				ticks == 0 ? 0 : rollbackTicks / (double) ticks,
+				spread.toString().trim(), checks, desyncs,
+				tickTime.percentile(0.99) * 1e-6, tickTime.max() * 1e-6);
+	}
+
+	/**
+	 * Play two cabinets against each other over loopback, with buttons
+	 * pressed at random, simulated latency and packet loss, and report the
+	 * rollbacks. Arguments are the one-way latency in milliseconds, the loss
+	 * between 0 and 1, the number of seconds to play, and the data folder
+	 *
+	 * @param args
+	 *            latency, loss, seconds and data folder
+	 */
+	public static void main(String[] args) {
+		int latency = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+		float loss = args.length > 1 ? Float.parseFloat(args[1]) : 0.05f;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		File data = new File(args.length > 3 ? args[3] : "data");
+
+		try {
+			InetSocketAddress a = new InetSocketAddress("127.0.0.1",
+					NETPLAY_PORT);
+			InetSocketAddress b = new InetSocketAddress("127.0.0.1",
+					NETPLAY_PORT + 1);
+			RollbackSession[] cabinets = {
+					new RollbackSession(data, 1, 0, new NetplayLink(a, b,
+							latency, loss), null),
+					new RollbackSession(data, 1, 1, new NetplayLink(b, a,
+							latency, loss), null) };
+			for (RollbackSession c : cabinets)
+				c.start();
+
+			// Mash buttons on both cabinets
+			Random random = new Random();
+			long end = System.currentTimeMillis() + seconds * 1000L;
+			while (System.currentTimeMillis() < end) {
+				for (RollbackSession c : cabinets) {
+					Button button = Button.values()[random.nextInt(Button
+							.values().length)];
+					c.getInput().offer(
+							random.nextBoolean() ? InputQueue.Type.KEY_PRESSED
+									: InputQueue.Type.KEY_RELEASED,
+							button.key(), button.keyCode());
+				}
+				Thread.sleep(50);
+			}
+
+			for (RollbackSession c : cabinets) {
+				c.halt();
+				c.join();
+			}
+			System.out.println("latency=" + latency + "ms loss="
+					+ (loss * 100) + "%");
+			for (RollbackSession c : cabinets)
+				System.out.println(c.summary() + " " + c.link.summary());
+		} catch (Exception e) {
+			System.out.println("Error running the netplay test");
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package Galaga;
+
+/**
+ * Runs a game session on its own thread, independently of the render loop.
+ * After each tick, the session is captured into the back snapshot of a
+ * {@link SnapshotBuffer} and published for the renderer to pick up
+ *
+ * @author Christopher Glasz
+ */
+public class SimulationThread extends Thread implements ApplicationConstants {
+
+	/**
+	 * The session being simulated
+	 */
+	private final GameSession session;
+
+	/**
+	 * Where to publish snapshots
+	 */
+	private final SnapshotBuffer buffer;
+
+	/**
+	 * Where to mirror snapshots for spectators, or null if nobody can watch
+	 */
+	private final Broadcast broadcast;
+
+	/**
+	 * Bot playing the game in place of the player, or null
+	 */
+	private final Autopilot pilot;
+
+	/**
+	 * The world as the bot last saw it, or null if there is no bot
+	 */
+	private final FrameSnapshot view;
+
+	/**
+	 * Budget each tick is held to, or null if allocation is not checked
+	 */
+	private final AllocationBudget budget;
+
+	/**
+	 * Starts each tick on time
+	 */
+	private final FramePacer pacer;
+
+	/**
+	 * True while the simulation should keep running
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param session
+	 *            the session to simulate
+	 * @param buffer
+	 *            where to publish snapshots
+	 */
+	public SimulationThread(GameSession session, SnapshotBuffer buffer) {
+		this(session, buffer, null);
+	}
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param session
+	 *            the session to simulate
+	 * @param buffer
+	 *            where to publish snapshots
+	 * @param broadcast
+	 *            where to mirror snapshots for spectators, or null
+	 */
+	public SimulationThread(GameSession session, SnapshotBuffer buffer,
+			Broadcast broadcast) {
+		this(session, buffer, broadcast, null);
+	}
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param session
+	 *            the session to simulate
+	 * @param buffer
+	 *            where to publish snapshots
+	 * @param broadcast
+	 *            where to mirror snapshots for spectators, or null
+	 * @param pilot
+	 *            bot to play the game in place of the player, or null
+	 */
+	public SimulationThread(GameSession session, SnapshotBuffer buffer,
+			Broadcast broadcast, Autopilot pilot) {
+		this(session, buffer, broadcast, pilot, null);
+	}
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param session
+	 *            the session to simulate
+	 * @param buffer
+	 *            where to publish snapshots
+	 * @param broadcast
+	 *            where to mirror snapshots for spectators, or null
+	 * @param pilot
+	 *            bot to play the game in place of the player, or null
+	 * @param budget
+	 *            bytes each tick may allocate, or null not to check. The game
+	 *            exits with an error if a steady tick goes over it
+	 */
+	public SimulationThread(GameSession session, SnapshotBuffer buffer,
+			Broadcast broadcast, Autopilot pilot, AllocationBudget budget) {
+		super("Simulation");
+		this.budget = budget;
+		this.pacer = new FramePacer("simulation", FramePacer.Mode.FIXED,
+				(long) (TICK_TIME * 1000000000L));
+		this.session = session;
+		this.buffer = buffer;
+		this.broadcast = broadcast;
+		this.pilot = pilot;
+		this.running = true;
+		if (pilot != null) {
+			view = new FrameSnapshot();
+			session.capture(view);
+		} else
+			view = null;
+		setDaemon(true);
+	}
+
+	/**
+	 * Accessor method for the pacer
+	 *
+	 * @return the pacer starting each tick
+	 */
+	public FramePacer getPacer() {
+		return pacer;
+	}
+
+	/**
+	 * Tick the session at a fixed rate until halted, then hang up on any
+	 * spectators. Ticks start on a fixed grid, so each is a whole number of
+	 * tick times after the last, however late the thread wakes up
+	 */
+	@Override
+	public void run() {
+		GameState state = null;
+
+		while (running) {
+
+			// Wait for the tick, without trying to catch up if we fell behind
+			float elapsed = pacer.await() * 0.000001f;
+			if (!running)
+				break;
+
+			if (budget != null)
+				budget.begin();
+
+			// A bot plays in whole ticks, so that its games can be replayed
+			if (pilot != null) {
+				session.step(pilot.buttons(view));
+				session.capture(view);
+			} else
+				session.tick(elapsed);
+			FrameSnapshot snapshot = buffer.back();
+			session.capture(snapshot);
+
+			// Ticks that change the game state start and end games and
+			// levels, and are allowed to allocate
+			if (budget != null) {
+				try {
+					budget.end(snapshot.getGameState() == state);
+				} catch (IllegalStateException e) {
+					System.out.println("Error: simulation allocated while "
+							+ "playing\n" + budget.summary());
+					e.printStackTrace();
+					System.exit(1);
+				}
+				state = snapshot.getGameState();
+			}
+			if (broadcast != null)
+				broadcast.publish(snapshot);
+			buffer.publish();
+		}
+
+		// Spectators are only ever touched from this thread
+		if (broadcast != null)
+			broadcast.close();
+	}
+
+	/**
+	 * Stop the simulation after the current tick
+	 */
+	public void halt() {
+		running = false;
+		interrupt();
+	}
+
+	/**
+	 * Stop the simulation after the current tick, and wait for it to finish
+	 * publishing its last snapshot
+	 *
+	 * @param timeout
+	 *            longest to wait, in milliseconds
+	 * @return true if the simulation finished in time
+	 */
+	public boolean halt(long timeout) {
+		halt();
+		if (Thread.currentThread() == this)
+			return false;
+		try {
+			join(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return !isAlive();
+	}
+}
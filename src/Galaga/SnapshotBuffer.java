@@ -0,0 +1,87 @@
+package Galaga;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer of frame snapshots shared between the simulation and the
+ * renderer. The simulation always owns one buffer to write into, the renderer
+ * always owns one buffer to draw from, and the third holds the most recently
+ * published snapshot. Buffers change hands with a single atomic exchange, so
+ * neither side ever waits on the other
+ *
+ * @author Christopher Glasz
+ */
+public class SnapshotBuffer {
+
+	/**
+	 * Bit set on the ready index when it holds a snapshot the renderer has not
+	 * seen yet
+	 */
+	private static final int FRESH = 4;
+
+	/**
+	 * Mask to extract a buffer index
+	 */
+	private static final int INDEX = 3;
+
+	/**
+	 * The three snapshots
+	 */
+	private final FrameSnapshot[] buffers;
+
+	/**
+	 * Index of the snapshot being written by the simulation
+	 */
+	private int back;
+
+	/**
+	 * Index of the snapshot being drawn by the renderer
+	 */
+	private int front;
+
+	/**
+	 * Index of the most recently published snapshot, plus the fresh bit
+	 */
+	private final AtomicInteger ready;
+
+	/**
+	 * Constructor allocates the three snapshots
+	 */
+	public SnapshotBuffer() {
+		buffers = new FrameSnapshot[] { new FrameSnapshot(),
+				new FrameSnapshot(), new FrameSnapshot() };
+		back = 0;
+		ready = new AtomicInteger(1);
+		front = 2;
+	}
+
+	/**
+	 * Returns the snapshot the simulation should fill next. Only to be called
+	 * from the simulation thread
+	 *
+	 * @return the snapshot to fill
+	 */
+	public FrameSnapshot back() {
+		return buffers[back];
+	}
+
+	/**
+	 * Publishes the back snapshot and takes over the previously ready one. Only
+	 * to be called from the simulation thread
+	 */
+	public void publish() {
+		back = ready.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/**
+	 * Returns the newest published snapshot. Only to be called from the render
+	 * thread; the returned snapshot stays valid until the next call
+	 *
+	 * @return the newest published snapshot
+	 */
+	public FrameSnapshot latest() {
+		if ((ready.get() & FRESH) != 0)
+			front = ready.getAndSet(front) & INDEX;
+		return buffers[front];
+	}
+}
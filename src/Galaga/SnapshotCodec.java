@@ -0,0 +1,229 @@
+package Galaga;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns frame snapshots into bytes and back, so a game simulated on one
+ * machine can be drawn on another. Each frame is a big-endian length prefix
+ * followed by the score board, the fighter, the menu selection and every
+ * enemy and missile on the screen. Sprites and game states are sent as their
+ * ordinals, so the client and server must be built from the same sources
+ *
+ * @author Christopher Glasz
+ */
+public class SnapshotCodec {
+
+	/**
+	 * Every game state, by ordinal
+	 */
+	private static final GameState[] STATES = GameState.values();
+
+	/**
+	 * Every sprite, by ordinal
+	 */
+	private static final Sprite[] SPRITES = Sprite.values();
+
+	/**
+	 * Size in bytes of the length prefix
+	 */
+	public static final int PREFIX = 4;
+
+	/**
+	 * Size in bytes of everything in a frame but the entities and highscores
+	 */
+	private static final int HEADER = 8 + 1 + 2 + 4 + 4 + 4 + 4 + 4 + 4 + 1
+			+ 1 + 4 + 1 + FrameSnapshot.NAME_LENGTH + 1 + 2 + 2 + 1;
+
+	/**
+	 * Size in bytes of one enemy or missile
+	 */
+	private static final int ENTITY = 4 + 4 + 4 + 1;
+
+	/**
+	 * Size in bytes of an input frame: the event type, key and key code
+	 */
+	public static final int INPUT_SIZE = 1 + 2 + 4;
+
+	/**
+	 * Utility class, never instantiated
+	 */
+	private SnapshotCodec() {
+	}
+
+	/**
+	 * Returns the number of bytes a snapshot takes once encoded, including the
+	 * length prefix
+	 *
+	 * @param s
+	 *            snapshot to measure
+	 * @return the encoded size in bytes
+	 */
+	public static int encodedSize(FrameSnapshot s) {
+		int size = PREFIX + HEADER
+				+ (s.getEnemyCount() + s.getMissileCount()) * ENTITY;
+		for (int i = 0; i < s.getHighscoreCount(); i++)
+			size += 1 + Math.min(s.getHighscoreName(i).length(), 255) + 4;
+		return size;
+	}
+
+	/**
+	 * Writes a snapshot as one frame. The buffer must have at least
+	 * {@link #encodedSize(FrameSnapshot)} bytes remaining
+	 *
+	 * @param s
+	 *            snapshot to encode
+	 * @param out
+	 *            buffer to write to
+	 */
+	public static void encode(FrameSnapshot s, ByteBuffer out) {
+		int start = out.position();
+		out.putInt(0);
+
+		out.putLong(s.getTick());
+		out.put((byte) s.getGameState().ordinal());
+		out.putShort((short) s.getLevel());
+		out.putInt(s.getScore());
+		out.putInt(s.getScoreDisplay());
+		out.putInt(s.getTopScore());
+		out.putInt(s.getHits());
+
+		out.putFloat(s.getFighterX());
+		out.putFloat(s.getFighterY());
+		out.put((byte) s.getFighterSprite().ordinal());
+		out.put((byte) s.getLives());
+		out.putInt(s.getFired());
+
+		out.put((byte) s.getMenuSelection());
+		for (int i = 0; i < FrameSnapshot.NAME_LENGTH; i++)
+			out.put((byte) s.getEntryLetter(i));
+		out.put((byte) s.getEntrySelection());
+
+		out.putShort((short) s.getEnemyCount());
+		for (int i = 0; i < s.getEnemyCount(); i++) {
+			out.putFloat(s.getEnemyX(i));
+			out.putFloat(s.getEnemyY(i));
+			out.putFloat(s.getEnemyTheta(i));
+			out.put((byte) s.getEnemySprite(i).ordinal());
+		}
+
+		out.putShort((short) s.getMissileCount());
+		for (int i = 0; i < s.getMissileCount(); i++) {
+			out.putFloat(s.getMissileX(i));
+			out.putFloat(s.getMissileY(i));
+			out.putFloat(s.getMissileTheta(i));
+			out.put((byte) s.getMissileSprite(i).ordinal());
+		}
+
+		out.put((byte) s.getHighscoreCount());
+		for (int i = 0; i < s.getHighscoreCount(); i++) {
+			String name = s.getHighscoreName(i);
+			int length = Math.min(name.length(), 255);
+			out.put((byte) length);
+			for (int c = 0; c < length; c++)
+				out.put((byte) name.charAt(c));
+			out.putInt(s.getHighscoreScore(i));
+		}
+
+		// Go back and fill in the length now that it is known
+		out.putInt(start, out.position() - start - PREFIX);
+	}
+
+	/**
+	 * Reads one frame into a snapshot, if a whole frame has arrived. The
+	 * buffer must be ready for reading; a partial frame is left in place
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @param s
+	 *            snapshot to fill
+	 * @return true if a frame was read, false if more bytes are needed
+	 */
+	public static boolean decode(ByteBuffer in, FrameSnapshot s) {
+		if (in.remaining() < PREFIX)
+			return false;
+		int length = in.getInt(in.position());
+		if (in.remaining() < PREFIX + length)
+			return false;
+		in.getInt();
+
+		s.begin(in.getLong(), STATES[in.get()]);
+		int level = in.getShort();
+		int score = in.getInt();
+		int scoreDisplay = in.getInt();
+		int topScore = in.getInt();
+		int hits = in.getInt();
+		s.setScore(level, score, scoreDisplay, topScore, hits);
+
+		float x = in.getFloat();
+		float y = in.getFloat();
+		Sprite sprite = SPRITES[in.get()];
+		int lives = in.get();
+		s.setFighter(x, y, sprite, lives, in.getInt());
+
+		s.setMenuSelection(in.get());
+		for (int i = 0; i < FrameSnapshot.NAME_LENGTH; i++)
+			s.setEntryLetter(i, (char) in.get());
+		s.setEntrySelection(in.get());
+
+		// Input times are stamped by the server's clock, which means nothing
+		// to the client
+		s.setInputTime(0);
+
+		int enemies = in.getShort();
+		for (int i = 0; i < enemies; i++)
+			s.addEnemy(in.getFloat(), in.getFloat(), in.getFloat(),
+					SPRITES[in.get()]);
+
+		int missiles = in.getShort();
+		for (int i = 0; i < missiles; i++)
+			s.addMissile(in.getFloat(), in.getFloat(), in.getFloat(),
+					SPRITES[in.get()]);
+
+		int highscores = in.get();
+		for (int i = 0; i < highscores; i++) {
+			char[] name = new char[in.get() & 0xFF];
+			for (int c = 0; c < name.length; c++)
+				name[c] = (char) (in.get() & 0xFF);
+			s.addHighscore(new String(name), in.getInt());
+		}
+		return true;
+	}
+
+	/**
+	 * Writes one input frame
+	 *
+	 * @param type
+	 *            type of the key event
+	 * @param key
+	 *            key of the event
+	 * @param keyCode
+	 *            key code of the event
+	 * @param out
+	 *            buffer to write to
+	 */
+	public static void encodeInput(InputQueue.Type type, char key,
+			int keyCode, ByteBuffer out) {
+		out.put((byte) type.ordinal());
+		out.putChar(key);
+		out.putInt(keyCode);
+	}
+
+	/**
+	 * Reads one input frame and offers it to an input queue, if a whole frame
+	 * has arrived
+	 *
+	 * @param in
+	 *            buffer to read from
+	 * @param input
+	 *            queue to offer the event to
+	 * @return true if a frame was read, false if more bytes are needed
+	 */
+	public static boolean decodeInput(ByteBuffer in, InputQueue input) {
+		if (in.remaining() < INPUT_SIZE)
+			return false;
+		InputQueue.Type type = InputQueue.Type.values()[in.get()];
+		char key = in.getChar();
+		input.offer(type, key, in.getInt());
+		return true;
+	}
+}
@@ -0,0 +1,346 @@
+package Galaga;
+
+import java.io.IOException;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PImage;
+
+/**
+ * Enumeration of every sprite in the game. Entities only keep track of which
+ * sprite they are showing, and the images themselves are loaded once and
+ * shared by the renderer
+ *
+ * @author Christopher Glasz
+ */
+public enum Sprite {
+
+	/**
+	 * Galaga logo
+	 */
+	LOGO("Sprites/galaga.png"),
+
+	/**
+	 * Player ship
+	 */
+	FIGHTER("Sprites/fighter.png"),
+
+	/**
+	 * Fighter explosion
+	 */
+	FIGHTER_EXPLOSION_1("Sprites/fighter_explosion_1.png"),
+
+	/**
+	 * Fighter explosion
+	 */
+	FIGHTER_EXPLOSION_2("Sprites/fighter_explosion_2.png"),
+
+	/**
+	 * Fighter explosion
+	 */
+	FIGHTER_EXPLOSION_3("Sprites/fighter_explosion_3.png"),
+
+	/**
+	 * Fighter explosion
+	 */
+	FIGHTER_EXPLOSION_4("Sprites/fighter_explosion_4.png"),
+
+	/**
+	 * Fighter explosion
+	 */
+	FIGHTER_EXPLOSION_5("Sprites/fighter_explosion_5.png"),
+
+	/**
+	 * Missile fired by the fighter
+	 */
+	FIGHTER_MISSILE("Sprites/fighter_missile.png"),
+
+	/**
+	 * Missile fired by an enemy
+	 */
+	ENEMY_MISSILE("Sprites/enemy_missile.png"),
+
+	/**
+	 * Bee, wings up
+	 */
+	BEE("Sprites/bee.png"),
+
+	/**
+	 * Bee, wings down
+	 */
+	BEE_2("Sprites/bee2.png"),
+
+	/**
+	 * Butterfly, wings up
+	 */
+	BUTTERFLY("Sprites/butterfly.png"),
+
+	/**
+	 * Butterfly, wings down
+	 */
+	BUTTERFLY_2("Sprites/butterfly2.png"),
+
+	/**
+	 * Boss Galaga, wings up
+	 */
+	BOSS("Sprites/boss.png"),
+
+	/**
+	 * Boss Galaga, wings down
+	 */
+	BOSS_2("Sprites/boss2.png"),
+
+	/**
+	 * Boss Galaga after being hit once, wings up
+	 */
+	BOSS_HIT("Sprites/boss_hit.png"),
+
+	/**
+	 * Boss Galaga after being hit once, wings down
+	 */
+	BOSS_2_HIT("Sprites/boss2_hit.png"),
+
+	/**
+	 * Enemy explosion
+	 */
+	ENEMY_EXPLOSION_1("Sprites/enemy_explosion_1.png"),
+
+	/**
+	 * Enemy explosion
+	 */
+	ENEMY_EXPLOSION_2("Sprites/enemy_explosion_2.png"),
+
+	/**
+	 * Enemy explosion
+	 */
+	ENEMY_EXPLOSION_3("Sprites/enemy_explosion_3.png"),
+
+	/**
+	 * Enemy explosion
+	 */
+	ENEMY_EXPLOSION_4("Sprites/enemy_explosion_4.png"),
+
+	/**
+	 * Enemy explosion
+	 */
+	ENEMY_EXPLOSION_5("Sprites/enemy_explosion_5.png");
+
+	/**
+	 * Number of angles, a whole turn apart, that sprites are pre-rotated to
+	 */
+	public static final int ROTATIONS = 64;
+
+	/**
+	 * Number of pixels across each pixel of a sprite becomes when it is
+	 * pre-rotated, so the rotated edges are about as fine as the screen's
+	 * pixels rather than the sprite's. Pre-rotated images are drawn scaled
+	 * down by as much
+	 */
+	public static final int OVERSAMPLE = 3;
+
+	/**
+	 * Path of the image file
+	 */
+	private final String path;
+
+	/**
+	 * Loaded image
+	 */
+	private PImage image;
+
+	/**
+	 * Image rotated to each of the pre-rotated angles, or null if the sprite
+	 * is not pre-rotated or has not been yet. Set once, when every angle has
+	 * been made
+	 */
+	private volatile PImage[] rotations;
+
+	/**
+	 * Constructor initializes the path
+	 *
+	 * @param path
+	 *            path of the image file
+	 */
+	private Sprite(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * Accessor method for the path of the image file
+	 *
+	 * @return path of the image file
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Accessor method for the loaded image
+	 *
+	 * @return loaded image, or null if the sprites have not been loaded
+	 */
+	public PImage image() {
+		return image;
+	}
+
+	/**
+	 * Loads every sprite through the passed in PApplet
+	 *
+	 * @param app
+	 *            PApplet to load the images with
+	 */
+	public static void loadAll(PApplet app) {
+		for (Sprite s : values()) {
+			s.load(app);
+			s.prerotate();
+		}
+	}
+
+	/**
+	 * Loads this sprite through the passed in PApplet. May be called from any
+	 * thread
+	 *
+	 * @param app
+	 *            PApplet to load the image with
+	 */
+	public void load(PApplet app) {
+		image = app.loadImage(path);
+	}
+
+	/**
+	 * Loads this sprite from an asset pack, without decoding it. May be
+	 * called from any thread
+	 *
+	 * @param pack
+	 *            the asset pack
+	 * @throws IOException
+	 *             if the pack does not hold the sprite
+	 */
+	public void load(AssetPack pack) throws IOException {
+		image = pack.image(path);
+	}
+
+	/**
+	 * Returns true if this sprite is a frame of an enemy's explosion
+	 *
+	 * @return true for the enemy explosion frames
+	 */
+	public boolean isEnemyExplosion() {
+		switch (this) {
+		case ENEMY_EXPLOSION_1:
+		case ENEMY_EXPLOSION_2:
+		case ENEMY_EXPLOSION_3:
+		case ENEMY_EXPLOSION_4:
+		case ENEMY_EXPLOSION_5:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Returns true if this sprite is pre-rotated once it is loaded: the
+	 * missiles and the enemies, which turn as they fly. The explosions are
+	 * left out, being few on screen and many times the size
+	 *
+	 * @return true for the sprites that are pre-rotated
+	 */
+	public boolean turns() {
+		switch (this) {
+		case FIGHTER_MISSILE:
+		case ENEMY_MISSILE:
+		case BEE:
+		case BEE_2:
+		case BUTTERFLY:
+		case BUTTERFLY_2:
+		case BOSS:
+		case BOSS_2:
+		case BOSS_HIT:
+		case BOSS_2_HIT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Rotates the loaded image to every pre-rotated angle, if this sprite
+	 * turns, so nothing is rotated while drawing. Meant to be called once
+	 * the image is loaded, from the thread that loaded it
+	 */
+	public void prerotate() {
+		if (!turns() || image == null)
+			return;
+		PImage[] made = new PImage[ROTATIONS];
+		for (int step = 0; step < ROTATIONS; step++)
+			made[step] = rotate(image, step * PConstants.TWO_PI / ROTATIONS);
+		rotations = made;
+	}
+
+	/**
+	 * Returns true once this sprite has been pre-rotated
+	 *
+	 * @return true if {@link #rotated(float)} can be called
+	 */
+	public boolean isPreRotated() {
+		return rotations != null;
+	}
+
+	/**
+	 * Returns the image rotated to the nearest of the pre-rotated angles, so
+	 * it can be drawn without rotating it. The angle turns the image's own
+	 * pixel coordinates, with y pointing down. The rotated image is
+	 * {@link #OVERSAMPLE} times the size of the sprite. Only to be called
+	 * once the sprite is pre-rotated
+	 *
+	 * @param theta
+	 *            angle to rotate by, in radians
+	 * @return the rotated image
+	 */
+	public PImage rotated(float theta) {
+		int step = Math.round(theta * ROTATIONS / PConstants.TWO_PI)
+				% ROTATIONS;
+		if (step < 0)
+			step += ROTATIONS;
+		return rotations[step];
+	}
+
+	/**
+	 * Rotates an image about its centre and scales it up by
+	 * {@link #OVERSAMPLE}, sampling the nearest pixel so the sprite stays as
+	 * sharp as it is when drawn rotated without smoothing. The result is
+	 * padded on every side to hold the whole rotated image,
+	 * by the same amount on opposite sides so it stays centred, and padding
+	 * is transparent even around an opaque image
+	 *
+	 * @param source
+	 *            the image to rotate
+	 * @param theta
+	 *            angle to rotate by, in radians
+	 * @return the rotated image
+	 */
+	private static PImage rotate(PImage source, float theta) {
+		source.loadPixels();
+		int w = source.width, h = source.height;
+		int pad = (int) Math.ceil(OVERSAMPLE
+				* (Math.sqrt(w * w + h * h) - Math.min(w, h)) / 2);
+		int opaque = source.format == PConstants.ARGB ? 0 : 0xff000000;
+		PImage rotated = new PImage(OVERSAMPLE * w + 2 * pad, OVERSAMPLE * h
+				+ 2 * pad, PConstants.ARGB);
+		float cos = (float) Math.cos(theta) / OVERSAMPLE;
+		float sin = (float) Math.sin(theta) / OVERSAMPLE;
+		for (int y = 0; y < rotated.height; y++) {
+			float dy = y + 0.5f - rotated.height / 2f;
+			for (int x = 0; x < rotated.width; x++) {
+				float dx = x + 0.5f - rotated.width / 2f;
+				int u = (int) Math.floor(cos * dx + sin * dy + w / 2f);
+				int v = (int) Math.floor(-sin * dx + cos * dy + h / 2f);
+				if (u >= 0 && u < w && v >= 0 && v < h)
+					rotated.pixels[y * rotated.width + x] = opaque
+							| source.pixels[v * w + u];
+			}
+		}
+		rotated.updatePixels();
+		return rotated;
+	}
+}
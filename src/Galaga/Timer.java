@@ -1,37 +1,29 @@
 package Galaga;
 
-import processing.core.PApplet;
-
 /**
- * Defines a timer 
+ * Defines a timer that runs on simulation time, so a session replayed with the
+ * same input finishes its timers on the same ticks
  * 
  * @author Christopher Glasz
  */
 public class Timer {
 	
-	/**
-	 * Applet to get the time from
-	 */
-	private PApplet app;
-	
 	/**
 	 * Time set on the timer
 	 */
 	private float time;
 	
 	/**
-	 * Time the timer was started at
+	 * Time that has passed since the timer was started, in seconds
 	 */
-	private float startTime;
+	private float passed;
 	
 	/**
 	 * Constructor initializes variables
-	 * @param app Applet to get the time from
 	 */
-	public Timer(PApplet app) {
-		this.app = app;
+	public Timer() {
 		time = 0;
-		startTime = 0;
+		passed = 0;
 	}
 	
 	/**
@@ -39,15 +31,32 @@ public class Timer {
 	 * @param time time to run the timer for
 	 */
 	public void start(float time) {
-		startTime = app.millis();
+		passed = 0;
 		this.time = time;
 	}
 	
+	/**
+	 * Let time pass
+	 * @param elapsed time elapsed since the last tick, in milliseconds
+	 */
+	public void advance(float elapsed) {
+		passed += elapsed * 0.001f;
+	}
+	
 	/**
 	 * Returns true if the time is up
 	 * @return true if the time is up
 	 */
 	public boolean isDone() {
-		return (app.millis() - startTime) * 0.001 > time;
+		return passed > time;
+	}
+	
+	/**
+	 * Copy the state of this timer into another
+	 * @param other timer to copy into
+	 */
+	public void copyTo(Timer other) {
+		other.time = time;
+		other.passed = passed;
 	}
 }
@@ -0,0 +1,213 @@
+package Galaga;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays thousands of headless games between the bots, across every core,
+ * to tune difficulty and catch regressions in scoring or spawning before a
+ * build goes to the cabinets. Every bot plays every seed, so the bots are
+ * compared on the same games. Each game's result is recorded in a shared
+ * {@link TournamentStats} as soon as it ends
+ *
+ * @author Christopher Glasz
+ */
+public class Tournament {
+
+	/**
+	 * Folder holding the level pack
+	 */
+	private final File dataFolder;
+
+	/**
+	 * The bots playing
+	 */
+	private final Bot[] bots;
+
+	/**
+	 * Seed of the first game; the rest follow on from it
+	 */
+	private final long seed;
+
+	/**
+	 * Number of games to play
+	 */
+	private final long games;
+
+	/**
+	 * Longest a game may last in ticks before it is stopped
+	 */
+	private final long maxTicks;
+
+	/**
+	 * Number of the next game to be played
+	 */
+	private final AtomicLong next;
+
+	/**
+	 * Results of the games played
+	 */
+	private final TournamentStats stats;
+
+	/**
+	 * Constructor initializes variables
+	 *
+	 * @param dataFolder
+	 *            folder holding the level pack
+	 * @param bots
+	 *            the bots playing
+	 * @param seed
+	 *            seed of the first game
+	 * @param games
+	 *            number of games to play
+	 * @param maxTicks
+	 *            longest a game may last in ticks
+	 */
+	public Tournament(File dataFolder, Bot[] bots, long seed, long games,
+			long maxTicks) {
+		this.dataFolder = dataFolder;
+		this.bots = bots;
+		this.seed = seed;
+		this.games = games;
+		this.maxTicks = maxTicks;
+		next = new AtomicLong();
+		stats = new TournamentStats(bots);
+	}
+
+	/**
+	 * Accessor method for the results
+	 *
+	 * @return the results of the games played so far
+	 */
+	public TournamentStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Play every game on a number of threads, and wait for them to finish
+	 *
+	 * @param threads
+	 *            number of threads to play on
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public void run(int threads) throws InterruptedException {
+		// Compile the level pack once, before the players race to open it
+		try {
+			LevelPack.open(new File(dataFolder, "levels.pack"),
+					new File(dataFolder, "waves.txt")).close();
+		} catch (IOException e) {
+			System.out.println("Error compiling the level pack in "
+					+ dataFolder);
+			e.printStackTrace();
+		}
+
+		Thread[] players = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			players[i] = new Thread("Tournament " + i) {
+				@Override
+				public void run() {
+					FrameSnapshot world = new FrameSnapshot();
+					long game;
+					while ((game = next.getAndIncrement()) < games)
+						play(game, world);
+				}
+			};
+			players[i].start();
+		}
+		for (Thread t : players)
+			t.join();
+	}
+
+	/**
+	 * Play one game and record its result
+	 *
+	 * @param game
+	 *            number of the game, which picks the bot and the seed
+	 * @param world
+	 *            snapshot to show the bot, reused between games
+	 */
+	private void play(long game, FrameSnapshot world) {
+		int bot = (int) (game % bots.length);
+		long gameSeed = seed + game / bots.length;
+		GameSession session = new GameSession(dataFolder, gameSeed);
+		try {
+			Autopilot pilot = new Autopilot(bots[bot]);
+			Fighter fighter = session.getFighter();
+			session.capture(world);
+
+			// Get through the main menu
+			long t = 0;
+			while (!world.getGameState().playing() && t < maxTicks) {
+				session.step(pilot.buttons(world));
+				session.capture(world);
+				t++;
+			}
+
+			// Play until the last life is lost
+			long start = t;
+			try {
+				while (world.getGameState().playing() && t < maxTicks) {
+					session.step(pilot.buttons(world));
+					session.capture(world);
+					t++;
+				}
+			} catch (RuntimeException e) {
+				System.out.println("Error on tick " + t + " of " + bots[bot]
+						+ " playing seed " + gameSeed);
+				e.printStackTrace();
+				return;
+			}
+
+			stats.record(bot, world.getScore(), world.getLevel(),
+					world.getHits(), fighter.fired(), world.getGameState()
+							.playing() ? null : session.getLastHitBy(), t
+							- start);
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Run a tournament and report the results and the throughput. Arguments
+	 * are the number of games, the number of threads, the seed of the first
+	 * game, the longest a game may last in ticks, the data folder, and the
+	 * bots to play, all of them by default
+	 *
+	 * @param args
+	 *            games, threads, seed, maximum ticks, data folder and bots
+	 */
+	public static void main(String[] args) {
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime
+				.getRuntime().availableProcessors();
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		long maxTicks = args.length > 3 ? Long.parseLong(args[3]) : 108000;
+		File data = new File(args.length > 4 ? args[4] : "data");
+		Bot[] bots = Bot.values();
+		if (args.length > 5) {
+			bots = new Bot[args.length - 5];
+			for (int i = 5; i < args.length; i++)
+				bots[i - 5] = Bot.valueOf(args[i].toUpperCase());
+		}
+
+		Tournament tournament = new Tournament(data, bots, seed, games,
+				maxTicks);
+		long start = System.nanoTime();
+		try {
+			tournament.run(threads);
+		} catch (InterruptedException e) {
+			System.out.println("Error waiting for the tournament to finish");
+			e.printStackTrace();
+		}
+		double seconds = (System.nanoTime() - start) * 1e-9;
+
+		TournamentStats stats = tournament.getStats();
+		System.out.print(stats.report());
+		System.out.println(String.format(
+				"tournament: games=%d threads=%d in %.1fs (%.0f games/hour)",
+				stats.games(), threads, seconds, stats.games() * 3600
+						/ seconds));
+	}
+}
@@ -0,0 +1,237 @@
+package Galaga;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the results of games played by the bots of a {@link Tournament}.
+ * Any number of threads can record results at once without locking: every
+ * count is an atomic counter, and every distribution a histogram of atomic
+ * counters, so recording a game is a handful of atomic increments
+ *
+ * @author Christopher Glasz
+ */
+public class TournamentStats {
+
+	/**
+	 * Cause of death recorded for a game stopped before it ended
+	 */
+	public static final String TIMEOUT = "TIMEOUT";
+
+	/**
+	 * The bots being compared
+	 */
+	private final Bot[] bots;
+
+	/**
+	 * Number of games each bot has played
+	 */
+	private final AtomicLongArray games;
+
+	/**
+	 * Total missiles fired and enemies hit by each bot
+	 */
+	private final AtomicLongArray fired, hits;
+
+	/**
+	 * Number of games each bot lost its last life to each kind of enemy, with
+	 * one more for games that timed out
+	 */
+	private final AtomicLongArray causes;
+
+	/**
+	 * Distributions of each bot's scores, levels reached, and game lengths
+	 * in ticks
+	 */
+	private final Distribution[] scores, levels, ticks;
+
+	/**
+	 * Constructor initializes the counters
+	 *
+	 * @param bots
+	 *            the bots being compared
+	 */
+	public TournamentStats(Bot[] bots) {
+		this.bots = bots;
+		games = new AtomicLongArray(bots.length);
+		fired = new AtomicLongArray(bots.length);
+		hits = new AtomicLongArray(bots.length);
+		causes = new AtomicLongArray(bots.length
+				* (EnemyType.values().length + 1));
+		scores = new Distribution[bots.length];
+		levels = new Distribution[bots.length];
+		ticks = new Distribution[bots.length];
+		for (int i = 0; i < bots.length; i++) {
+			scores[i] = new Distribution(100, 2000);
+			levels[i] = new Distribution(1, 256);
+			ticks[i] = new Distribution(60, 3600);
+		}
+	}
+
+	/**
+	 * Record the result of a game. May be called from any thread
+	 *
+	 * @param bot
+	 *            index of the bot that played
+	 * @param score
+	 *            final score
+	 * @param level
+	 *            level reached
+	 * @param hit
+	 *            number of enemies hit
+	 * @param shots
+	 *            number of missiles fired
+	 * @param killer
+	 *            kind of enemy whose missile took the last life, or null if
+	 *            the game timed out
+	 * @param length
+	 *            number of ticks the game lasted
+	 */
+	public void record(int bot, int score, int level, int hit, int shots,
+			EnemyType killer, long length) {
+		games.incrementAndGet(bot);
+		fired.addAndGet(bot, shots);
+		hits.addAndGet(bot, hit);
+		int cause = killer == null ? EnemyType.values().length : killer
+				.ordinal();
+		causes.incrementAndGet(bot * (EnemyType.values().length + 1) + cause);
+		scores[bot].add(score);
+		levels[bot].add(level);
+		ticks[bot].add(length);
+	}
+
+	/**
+	 * Accessor method for the total number of games recorded
+	 *
+	 * @return number of games recorded
+	 */
+	public long games() {
+		long n = 0;
+		for (int i = 0; i < bots.length; i++)
+			n += games.get(i);
+		return n;
+	}
+
+	/**
+	 * Returns a report of each bot's results, a few lines per bot
+	 *
+	 * @return the report
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		EnemyType[] types = EnemyType.values();
+		for (int b = 0; b < bots.length; b++) {
+			long n = games.get(b);
+			report.append(String.format(
+					"%s: games=%d accuracy=%.1f%% (%d/%d)%n", bots[b], n,
+					fired.get(b) == 0 ? 0 : 100.0 * hits.get(b)
+							/ fired.get(b), hits.get(b), fired.get(b)));
+			report.append("  score " + scores[b].summary() + "\n");
+			report.append("  level " + levels[b].summary() + "\n");
+			report.append("  ticks " + ticks[b].summary() + "\n");
+			report.append("  killed by");
+			for (int c = 0; c <= types.length; c++) {
+				long count = causes.get(b * (types.length + 1) + c);
+				if (count > 0)
+					report.append(" "
+							+ (c == types.length ? TIMEOUT : types[c]
+									.toString()) + "=" + count);
+			}
+			report.append("\n");
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Defines a histogram that can be added to from any thread without
+	 * locking. Values are counted in buckets of a fixed width, and values
+	 * past the last bucket are counted in it
+	 *
+	 * @author Christopher Glasz
+	 */
+	private static class Distribution {
+
+		/**
+		 * Width of each bucket
+		 */
+		private final long width;
+
+		/**
+		 * Number of values in each bucket
+		 */
+		private final AtomicLongArray buckets;
+
+		/**
+		 * Number and sum of the values
+		 */
+		private final AtomicLong count, sum;
+
+		/**
+		 * Largest value
+		 */
+		private final AtomicLong max;
+
+		/**
+		 * Constructor initializes the buckets
+		 *
+		 * @param width
+		 *            width of each bucket
+		 * @param buckets
+		 *            number of buckets
+		 */
+		private Distribution(long width, int buckets) {
+			this.width = width;
+			this.buckets = new AtomicLongArray(buckets);
+			count = new AtomicLong();
+			sum = new AtomicLong();
+			max = new AtomicLong();
+		}
+
+		/**
+		 * Add a value
+		 *
+		 * @param value
+		 *            value to add, not negative
+		 */
+		private void add(long value) {
+			int bucket = (int) Math.min(value / width, buckets.length() - 1);
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			sum.addAndGet(value);
+			long m;
+			while (value > (m = max.get()) && !max.compareAndSet(m, value))
+				;
+		}
+
+		/**
+		 * Returns the value below which a fraction of the values fall, to
+		 * the width of a bucket
+		 *
+		 * @param fraction
+		 *            fraction between 0 and 1
+		 * @return the start of the bucket holding the percentile
+		 */
+		private long percentile(double fraction) {
+			long target = (long) Math.ceil(count.get() * fraction);
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen >= target && seen > 0)
+					return i * width;
+			}
+			return max.get();
+		}
+
+		/**
+		 * Returns a one-line summary of the distribution
+		 *
+		 * @return a one-line summary of the distribution
+		 */
+		private String summary() {
+			long n = count.get();
+			return "mean=" + (n == 0 ? 0 : sum.get() / n) + " p10="
+					+ percentile(0.1) + " p50=" + percentile(0.5) + " p90="
+					+ percentile(0.9) + " max=" + max.get();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package Galaga;
+
+import java.io.IOException;
+
+import processing.core.PApplet;
+import processing.core.PFont;
+
+/**
+ * Enumeration of every font in the game. Like the sprites, each font is
+ * loaded once, up front, and shared by the renderer
+ *
+ * @author Christopher Glasz
+ */
+public enum Typeface {
+
+	/**
+	 * Arcade font used for all text
+	 */
+	EMULOGIC("Fonts/Emulogic-36.vlw");
+
+	/**
+	 * Path to the font file, relative to the sketch
+	 */
+	private final String path;
+
+	/**
+	 * Loaded font, or null until loaded
+	 */
+	private PFont font;
+
+	/**
+	 * Constructor sets the path of the font
+	 *
+	 * @param path
+	 *            path to the font file
+	 */
+	private Typeface(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * Accessor method for the path of the font file
+	 *
+	 * @return path of the font file
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Accessor method for the loaded font
+	 *
+	 * @return loaded font, or null if it has not been loaded
+	 */
+	public PFont font() {
+		return font;
+	}
+
+	/**
+	 * Loads the font through the passed in PApplet. May be called from any
+	 * thread
+	 *
+	 * @param app
+	 *            PApplet to load the font with
+	 */
+	public void load(PApplet app) {
+		font = app.loadFont(path);
+	}
+
+	/**
+	 * Loads the font from an asset pack. May be called from any thread
+	 *
+	 * @param pack
+	 *            the asset pack
+	 * @throws IOException
+	 *             if the pack does not hold the font
+	 */
+	public void load(AssetPack pack) throws IOException {
+		font = pack.font(path);
+	}
+}